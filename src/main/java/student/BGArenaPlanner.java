@@ -1,5 +1,12 @@
 package student;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * Main entry point for the program.
@@ -7,6 +14,30 @@ package student;
 public final class BGArenaPlanner {
     /** default location of collection - relative to the resource directory. */
     private static final String DEFAULT_COLLECTION = "collection.csv";
+    /** option naming a directory to journal the game list in. */
+    private static final String JOURNAL_OPTION = "-journal";
+    /** option naming a directory to keep the collection in as paged files. */
+    private static final String CATALOG_OPTION = "-catalog";
+    /** option naming a file to write planner metrics to. */
+    private static final String METRICS_OPTION = "-metrics";
+    /** seconds between metrics writes. */
+    private static final long METRICS_PERIOD = 10;
+    /** option naming a file to append slow filters to. */
+    private static final String SLOW_LOG_OPTION = "-slowlog";
+    /** option giving the milliseconds after which a filter is slow. */
+    private static final String SLOW_MS_OPTION = "-slowms";
+    /** option naming a command file to run without prompts, - for standard input. */
+    private static final String BATCH_OPTION = "-batch";
+    /** option giving the number of filters a batch runs at once. */
+    private static final String PARALLEL_OPTION = "-parallel";
+    /** option giving the port to serve the planner over HTTP on instead of the console. */
+    private static final String SERVE_OPTION = "-serve";
+    /** option building a k-d tree over the common filter columns, within a budget in MiB. */
+    private static final String KD_TREE_OPTION = "-kdtree";
+    /** flag keeping the collection in direct memory instead of as objects on the heap. */
+    private static final String OFF_HEAP_FLAG = "-offheap";
+    /** flag building the similar game index at load instead of on the first lookup. */
+    private static final String SIMILARITY_FLAG = "-similar";
 
     /** private constructor as static class. */
     private BGArenaPlanner() {
@@ -15,12 +46,223 @@ public final class BGArenaPlanner {
 
     /**
      * Main entry point for the program.
-     * @param args command line arguments - not used at this time.
+     * @param args command line arguments - optionally -journal [directory] to keep the game
+     *             list in a crash-safe journal across runs, and -catalog [directory] to query
+     *             the collection from paged files instead of the heap (the files are built from
+     *             the collection on first use and again when it changes), or -offheap to
+     *             keep the collection in direct memory. -metrics [file] records planner
+     *             metrics, readable through JMX and written to the file every few seconds (as
+     *             JSON for a .json file).
+     *             -slowms [milliseconds] sets when a filter counts as slow and -slowlog [file]
+     *             appends slow filters to a rotating log file. -batch [file] runs the commands
+     *             in the file (or standard input for -) without prompts, and -parallel [n] lets
+     *             a batch run up to n consecutive filters at once. -serve [port] answers
+     *             JSON requests over HTTP on the port, of the loopback interface only,
+     *             instead of starting the console.
+     *             -kdtree [MiB] builds a multi-column index for compound range filters at
+     *             load, if it fits in that many megabytes. -similar builds the similar game
+     *             index at load rather than on the first lookup.
      */
     public static void main(String[] args) {
-        IPlanner planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
-        IGameList list = new GameList();
-        ConsoleApp app = new ConsoleApp(list, planner);
-        app.start();
+        Path journalDir = option(args, JOURNAL_OPTION);
+        Path catalogDir = option(args, CATALOG_OPTION);
+        Path metricsFile = option(args, METRICS_OPTION);
+        Closeable metrics = metricsFile == null ? null : startMetrics(metricsFile);
+        try (CatalogStore catalog = catalogDir == null ? null : openCatalog(catalogDir);
+                GameListJournal journal = journalDir == null ? null
+                        : GameListJournal.open(journalDir)) {
+            GameTable table;
+            if (catalog != null) {
+                table = catalog.table();
+            } else if (Arrays.asList(args).contains(OFF_HEAP_FLAG)) {
+                table = GameTable.offHeap(GamesLoader.loadGamesFile(DEFAULT_COLLECTION),
+                        NameCollation.CASE_INSENSITIVE);
+            } else {
+                table = new GameTable(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+            }
+            buildKdTree(table, args);
+            if (Arrays.asList(args).contains(SIMILARITY_FLAG)) {
+                table.similarity();
+            }
+            IQueryPlanner planner = new Planner(table);
+            configureSlowLog(planner.slowQueryLog(), args);
+            String port = value(args, SERVE_OPTION);
+            if (port != null) {
+                serve(planner, port);
+                return;
+            }
+            IQueryGameList list = journal != null ? new GameList(journal) : new GameList();
+            ConsoleApp app = new ConsoleApp(list, planner);
+            String batch = value(args, BATCH_OPTION);
+            if (batch == null) {
+                app.start();
+            } else {
+                try (Reader commands = batch.equals("-") ? new InputStreamReader(System.in)
+                        : Files.newBufferedReader(Path.of(batch))) {
+                    app.runBatch(commands, threads(args));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening files: " + e.getMessage());
+        } finally {
+            stopMetrics(metrics);
+        }
+    }
+
+    /**
+     * Finds the value of a command line option.
+     * @param args the command line arguments
+     * @param name the option
+     * @return the path following the option, or null if it is not given
+     */
+    private static Path option(String[] args, String name) {
+        String value = value(args, name);
+        return value == null ? null : Path.of(value);
+    }
+
+    /**
+     * Finds the text of a command line option.
+     * @param args the command line arguments
+     * @param name the option
+     * @return the argument following the option, or null if it is not given
+     */
+    private static String value(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Serves the planner over HTTP until the program is stopped.
+     * @param planner the planner
+     * @param port the port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    private static void serve(IQueryPlanner planner, String port) throws IOException {
+        int number;
+        try {
+            number = Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid " + SERVE_OPTION + ": " + port);
+            return;
+        }
+        PlannerServer server = PlannerServer.start(planner, number);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Serving on port " + server.port());
+        try {
+            server.awaitStop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+    }
+
+    /**
+     * Builds the table's k-d tree if the option asks for one.
+     * @param table the table
+     * @param args the command line arguments
+     */
+    private static void buildKdTree(GameTable table, String[] args) {
+        String mebibytes = value(args, KD_TREE_OPTION);
+        if (mebibytes == null) {
+            return;
+        }
+        try {
+            if (!table.buildKdTree(KdTree.DEFAULT_COLUMNS, Long.parseLong(mebibytes) << 20)) {
+                System.err.println("The k-d tree does not fit in " + mebibytes + " MiB");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring invalid " + KD_TREE_OPTION + ": " + mebibytes);
+        }
+    }
+
+    /**
+     * Reads the number of filters a batch may run at once.
+     * @param args the command line arguments
+     * @return the number of threads, 1 if not given or not valid
+     */
+    private static int threads(String[] args) {
+        String threads = value(args, PARALLEL_OPTION);
+        if (threads == null) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(threads));
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid " + PARALLEL_OPTION + ": " + threads);
+            return 1;
+        }
+    }
+
+    /**
+     * Applies the slow query options.
+     * @param log the planner's slow query log
+     * @param args the command line arguments
+     */
+    private static void configureSlowLog(SlowQueryLog log, String[] args) {
+        String millis = value(args, SLOW_MS_OPTION);
+        if (millis != null) {
+            try {
+                log.setThresholdMillis(Long.parseLong(millis));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring invalid " + SLOW_MS_OPTION + ": " + millis);
+            }
+        }
+        Path file = option(args, SLOW_LOG_OPTION);
+        if (file != null) {
+            log.logTo(file, SlowQueryLog.DEFAULT_MAX_FILE_BYTES, SlowQueryLog.DEFAULT_FILES);
+        }
+    }
+
+    /**
+     * Turns on planner metrics, registers them with JMX and writes them to a file periodically.
+     * @param file the file to write
+     * @return a handle that stops the writes
+     */
+    private static Closeable startMetrics(Path file) {
+        PlannerMetrics metrics = PlannerMetrics.get();
+        metrics.setEnabled(true);
+        PlannerMetrics.registerMBean();
+        return metrics.startDump(file, METRICS_PERIOD);
+    }
+
+    /**
+     * Stops the metrics file writes, writing the file a last time.
+     * @param metrics the handle from startMetrics, or null if metrics are off
+     */
+    private static void stopMetrics(Closeable metrics) {
+        if (metrics == null) {
+            return;
+        }
+        try {
+            metrics.close();
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the catalog in a directory, writing it from the collection first if there is none
+     * or the collection has changed since it was written. A catalog is kept as it is if the
+     * collection cannot be read.
+     * @param dir the catalog directory
+     * @return the open catalog
+     * @throws IOException if the catalog cannot be written or read
+     */
+    private static CatalogStore openCatalog(Path dir) throws IOException {
+        long source = GamesLoader.checksum(DEFAULT_COLLECTION);
+        boolean current = CatalogStore.exists(dir);
+        if (current && source != -1 && !CatalogStore.isCurrent(dir, source)) {
+            System.err.println("Collection changed, rebuilding the catalog in " + dir);
+            current = false;
+        }
+        if (!current) {
+            CatalogStore.write(GamesLoader.loadGamesFile(DEFAULT_COLLECTION),
+                    NameCollation.CASE_INSENSITIVE, dir, source);
+        }
+        return CatalogStore.open(dir, new PageCache());
     }
 }
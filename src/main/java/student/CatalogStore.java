@@ -0,0 +1,235 @@
+package student;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * CatalogStore keeps a board game catalog in a directory of column files, so a
+ * {@link Planner} can query it without loading the games onto the heap.
+ *
+ * The catalog is written once with {@link #write(Collection, Path)} and then opened with
+ * {@link #open(Path, PageCache)}. Every file is read through the {@link PageCache}, a page at a
+ * time, so only the pages a query touches are mapped and the least recently used ones are
+ * evicted. Index files are not even opened until a filter first probes their column. What stays
+ * on the heap is per row only the name ranks (and the ranks of columns sorted on), 4 bytes each.
+ *
+ * Files in the directory, all big-endian:
+ * - catalog.meta: magic number, version, row count and the checksum of the file the games
+ *   came from, written last,
+ * - id.col and one [column].col per numeric column: one value per row, in name order,
+ * - name.dat / name.off and lower.dat / lower.off: UTF-8 names and lower case names with the
+ *   offset of each row's bytes (one more offset than rows),
+ * - name.rank: the dense name rank of each row,
+ * - [column].idx: the column's values in ascending order followed by the row of each value,
+ * - statistics.bin: the {@link ColumnStatistics} of the catalog.
+ */
+public final class CatalogStore implements Closeable {
+    /** Magic number that starts the meta file, "BGC1". */
+    static final int MAGIC = 0x42474331;
+    /** Version of the file layout. */
+    static final int VERSION = 2;
+    /** Name of the meta file. */
+    static final String META = "catalog.meta";
+
+    /** The rows of the open catalog. */
+    private final MappedGameStore store;
+    /** The table over those rows. */
+    private final GameTable table;
+
+    /**
+     * Creates the handle of an open catalog.
+     *
+     * @param store the open files
+     */
+    private CatalogStore(MappedGameStore store) {
+        this.store = store;
+        this.table = new GameTable(store);
+    }
+
+    /**
+     * Writes a catalog in case-insensitive name order, replacing any catalog in the directory.
+     *
+     * @param games the games to store
+     * @param dir the directory to write to, created if needed
+     * @throws IOException if the files cannot be written
+     */
+    public static void write(Collection<BoardGame> games, Path dir) throws IOException {
+        write(games, NameCollation.CASE_INSENSITIVE, dir, -1);
+    }
+
+    /**
+     * Writes a catalog, replacing any catalog in the directory. The meta file is removed first
+     * and written last, so a catalog that was not completely written is never opened.
+     *
+     * @param games the games to store
+     * @param collation the order to store names in
+     * @param dir the directory to write to, created if needed
+     * @param source checksum of the file the games came from, see {@link #isCurrent}
+     * @throws IOException if the files cannot be written
+     */
+    public static void write(Collection<BoardGame> games, NameCollation collation, Path dir,
+            long source) throws IOException {
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(META));
+        GameTable table = new GameTable(games, collation);
+        int rows = table.size();
+
+        try (DataOutputStream out = output(dir.resolve("id.col"))) {
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(table.game(row).getId());
+            }
+        }
+        for (GameData column : GameData.values()) {
+            if (!GameTable.isNumeric(column)) {
+                continue;
+            }
+            try (DataOutputStream out = output(dir.resolve(column.getColumnName() + ".col"))) {
+                for (int row = 0; row < rows; row++) {
+                    out.writeDouble(table.value(column, row));
+                }
+            }
+            ColumnIndex index = table.index(column);
+            try (DataOutputStream out = output(dir.resolve(column.getColumnName() + ".idx"))) {
+                for (int i = 0; i < rows; i++) {
+                    out.writeDouble(index.value(i));
+                }
+                for (int i = 0; i < rows; i++) {
+                    out.writeInt(index.row(i));
+                }
+            }
+        }
+        writeNames(table, dir, "name", false);
+        writeNames(table, dir, "lower", true);
+        try (DataOutputStream out = output(dir.resolve("name.rank"))) {
+            for (int rank : table.ranks(GameData.NAME)) {
+                out.writeInt(rank);
+            }
+        }
+        try (DataOutputStream out = output(dir.resolve("statistics.bin"))) {
+            table.statistics().write(out);
+        }
+        try (DataOutputStream out = output(dir.resolve(META))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeLong(source);
+        }
+    }
+
+    /**
+     * Opens a catalog. Only the small meta and rank files are read here; everything else is
+     * paged in as queries touch it.
+     *
+     * @param dir the catalog directory
+     * @param cache the cache to read pages through
+     * @return the open catalog
+     * @throws IOException if the catalog is missing, incomplete or cannot be read
+     */
+    public static CatalogStore open(Path dir, PageCache cache) throws IOException {
+        int rows;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(dir.resolve(META)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a catalog: " + dir);
+            }
+            rows = in.readInt();
+        }
+        return new CatalogStore(new MappedGameStore(dir, rows, cache));
+    }
+
+    /**
+     * Checks if a directory holds a completely written catalog.
+     *
+     * @param dir the directory
+     * @return true if the catalog can be opened
+     */
+    public static boolean exists(Path dir) {
+        return Files.isRegularFile(dir.resolve(META));
+    }
+
+    /**
+     * Checks if a directory holds a completely written catalog of the current version, made
+     * from a file with the given checksum. A catalog is not updated when the file it was made
+     * from changes, so it should be written again when this is false.
+     *
+     * @param dir the directory
+     * @param source checksum of the file the games come from now
+     * @return true if the catalog can be opened and was made from that file
+     */
+    public static boolean isCurrent(Path dir, long source) {
+        if (!exists(dir)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(dir.resolve(META)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            in.readInt();
+            return in.readLong() == source;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the table over the catalog.
+     *
+     * @return the table, valid until the catalog is closed
+     */
+    public GameTable table() {
+        return table;
+    }
+
+    /**
+     * Closes every file of the catalog.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * Writes the names of every row with their offsets.
+     *
+     * @param table the table
+     * @param dir the catalog directory
+     * @param file the base file name
+     * @param lower true to write lower case names
+     * @throws IOException if writing fails
+     */
+    private static void writeNames(GameTable table, Path dir, String file, boolean lower)
+            throws IOException {
+        try (DataOutputStream data = output(dir.resolve(file + ".dat"));
+                DataOutputStream offsets = output(dir.resolve(file + ".off"))) {
+            long offset = 0;
+            for (int row = 0; row < table.size(); row++) {
+                offsets.writeLong(offset);
+                String name = lower ? table.lowerName(row) : table.game(row).getName();
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                data.write(bytes);
+                offset += bytes.length;
+            }
+            offsets.writeLong(offset);
+        }
+    }
+
+    /**
+     * Opens a buffered output file.
+     *
+     * @param file the file
+     * @return the stream
+     * @throws IOException if the file cannot be created
+     */
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                1 << 16));
+    }
+}
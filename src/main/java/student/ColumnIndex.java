@@ -0,0 +1,191 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * ColumnIndex is a sorted permutation of one numeric column of a {@link GameTable}.
+ * It keeps the column values in ascending order together with the row each value came from,
+ * so a range condition can be answered with two binary searches instead of a full scan.
+ *
+ * Rows with equal values stay in row order, which is name order for a GameTable.
+ *
+ * The index is either built in memory or read from the pages of an index file written by
+ * {@link CatalogStore}.
+ */
+final class ColumnIndex {
+    /** Number of entries read at a time when probing. */
+    private static final int BLOCK = 1024;
+
+    /** Column values in ascending order. */
+    private final DoubleColumn values;
+    /** The row of each value in {@link #values}. */
+    private final IntColumn rows;
+
+    /**
+     * Creates an index from already sorted data.
+     *
+     * @param values column values in ascending order
+     * @param rows the row of each value
+     */
+    ColumnIndex(DoubleColumn values, IntColumn rows) {
+        this.values = values;
+        this.rows = rows;
+    }
+
+    /**
+     * Builds the index for a column.
+     *
+     * @param column the column values, indexed by row
+     * @return the index
+     */
+    static ColumnIndex build(double[] column) {
+        int[] rows = new int[column.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        IntSort.sort(rows, (a, b) -> Double.compare(column[a], column[b]));
+        double[] values = new double[column.length];
+        for (int i = 0; i < rows.length; i++) {
+            values[i] = column[rows[i]];
+        }
+        return new ColumnIndex(DoubleColumn.of(values), IntColumn.of(rows));
+    }
+
+    /**
+     * Number of entries in the index.
+     *
+     * @return the number of rows indexed
+     */
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * Gets the row at a position of the sorted order.
+     *
+     * @param position position in ascending value order
+     * @return the row stored there
+     */
+    int row(int position) {
+        return rows.get(position);
+    }
+
+    /**
+     * Gets the value at a position of the sorted order.
+     *
+     * @param position position in ascending value order
+     * @return the value stored there
+     */
+    double value(int position) {
+        return values.get(position);
+    }
+
+    /**
+     * Gets the sorted values.
+     *
+     * @return the values in ascending order
+     */
+    DoubleColumn values() {
+        return values;
+    }
+
+    /**
+     * Gets the rows in value order.
+     *
+     * @return the row of each sorted value
+     */
+    IntColumn rows() {
+        return rows;
+    }
+
+    /**
+     * Finds the first position holding the range's lower bound or above.
+     *
+     * @param range the range
+     * @return the first position inside the range
+     */
+    int start(FilterExpression.Range range) {
+        return range.isLowInclusive() ? lowerBound(range.getLow()) : upperBound(range.getLow());
+    }
+
+    /**
+     * Finds the position after the last value inside the range.
+     *
+     * @param range the range
+     * @return the end position, exclusive
+     */
+    int end(FilterExpression.Range range) {
+        return range.isHighInclusive() ? upperBound(range.getHigh())
+                : lowerBound(range.getHigh());
+    }
+
+    /**
+     * Counts the rows inside a range.
+     *
+     * @param range the range
+     * @return the number of matching rows
+     */
+    int count(FilterExpression.Range range) {
+        return Math.max(0, end(range) - start(range));
+    }
+
+    /**
+     * Selects the rows inside a range.
+     *
+     * @param range the range
+     * @return the matching rows
+     */
+    BitSet probe(FilterExpression.Range range) {
+        BitSet selected = new BitSet(rows.size());
+        int end = end(range);
+        int[] block = new int[BLOCK];
+        for (int i = start(range); i < end; i += BLOCK) {
+            int n = Math.min(BLOCK, end - i);
+            rows.get(i, block, 0, n);
+            for (int j = 0; j < n; j++) {
+                selected.set(block[j]);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * First position with a value greater or equal to the key.
+     *
+     * @param key the value to look for
+     * @return the position, size if every value is smaller
+     */
+    private int lowerBound(double key) {
+        int low = 0;
+        int high = values.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values.get(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position with a value greater than the key.
+     *
+     * @param key the value to look for
+     * @return the position, size if no value is larger
+     */
+    private int upperBound(double key) {
+        int low = 0;
+        int high = values.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values.get(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,376 @@
+package student;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ColumnStatistics summarizes the values of a {@link GameTable} so the {@link QueryPlanner} can
+ * estimate how many rows a condition will select without running it.
+ *
+ * Statistics are gathered once, when the planner is built:
+ * - a histogram for every numeric GameData column,
+ * - the number of distinct names,
+ * - for every 1, 2 and 3 character sequence (n-gram), the number of names that contain it.
+ *
+ * Histograms store exact counts for a set of boundary values. Columns with at most
+ * {@link #EXACT_VALUES} distinct values (players, years, play times) keep every value as a
+ * boundary and are estimated exactly; other columns keep roughly {@link #BUCKETS} equal-depth
+ * boundaries and interpolate between them.
+ */
+public final class ColumnStatistics {
+    /** Target number of histogram buckets for columns with many distinct values. */
+    static final int BUCKETS = 64;
+    /** Most distinct values a column may have for its histogram to keep every one. */
+    static final int EXACT_VALUES = 256;
+    /** Longest n-gram counted for names. */
+    static final int MAX_GRAM = 3;
+    /** Guess for name ordering comparisons, which the n-grams cannot estimate. */
+    private static final double NAME_RANGE_SELECTIVITY = 1.0 / 3;
+
+    /** Number of rows summarized. */
+    private final int rowCount;
+    /** Histograms indexed by GameData ordinal, null for NAME and ID. */
+    private final Histogram[] histograms;
+    /** Number of names that contain each n-gram. */
+    private final Map<String, Integer> nameGrams;
+    /** Number of distinct lower case names. */
+    private final int distinctNames;
+
+    /**
+     * Creates the statistics.
+     *
+     * @param rowCount number of rows summarized
+     * @param histograms histograms indexed by GameData ordinal
+     * @param nameGrams number of names containing each n-gram
+     * @param distinctNames number of distinct lower case names
+     */
+    private ColumnStatistics(int rowCount, Histogram[] histograms, Map<String, Integer> nameGrams,
+            int distinctNames) {
+        this.rowCount = rowCount;
+        this.histograms = histograms;
+        this.nameGrams = nameGrams;
+        this.distinctNames = distinctNames;
+    }
+
+    /**
+     * Gathers the statistics of a table.
+     *
+     * @param table the table to summarize
+     * @return the statistics
+     */
+    public static ColumnStatistics of(GameTable table) {
+        Histogram[] histograms = new Histogram[GameData.values().length];
+        for (GameData column : GameData.values()) {
+            if (GameTable.isNumeric(column)) {
+                DoubleColumn values = table.column(column);
+                double[] copy = new double[values.size()];
+                values.get(0, copy, 0, copy.length);
+                histograms[column.ordinal()] = Histogram.build(copy);
+            }
+        }
+
+        Map<String, Integer> grams = new HashMap<>();
+        Set<String> names = new HashSet<>();
+        Set<String> seen = new HashSet<>();
+        for (int row = 0; row < table.size(); row++) {
+            String name = table.lowerName(row);
+            names.add(name);
+            seen.clear();
+            for (int length = 1; length <= MAX_GRAM; length++) {
+                for (int i = 0; i + length <= name.length(); i++) {
+                    String gram = name.substring(i, i + length);
+                    if (seen.add(gram)) { // count each name once per gram
+                        grams.merge(gram, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return new ColumnStatistics(table.size(), histograms, grams, names.size());
+    }
+
+    /**
+     * Saves the statistics, so a stored catalog does not have to gather them again.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(rowCount);
+        out.writeInt(distinctNames);
+        for (Histogram histogram : histograms) {
+            if (histogram != null) {
+                histogram.write(out);
+            }
+        }
+        out.writeInt(nameGrams.size());
+        for (Map.Entry<String, Integer> gram : nameGrams.entrySet()) {
+            out.writeUTF(gram.getKey());
+            out.writeInt(gram.getValue());
+        }
+    }
+
+    /**
+     * Reads statistics saved by {@link #write(DataOutput)}.
+     *
+     * @param in where to read
+     * @return the statistics
+     * @throws IOException if reading fails
+     */
+    static ColumnStatistics read(DataInput in) throws IOException {
+        int rowCount = in.readInt();
+        int distinctNames = in.readInt();
+        Histogram[] histograms = new Histogram[GameData.values().length];
+        for (GameData column : GameData.values()) {
+            if (GameTable.isNumeric(column)) {
+                histograms[column.ordinal()] = Histogram.read(in);
+            }
+        }
+        int grams = in.readInt();
+        Map<String, Integer> nameGrams = new HashMap<>(grams * 2);
+        for (int i = 0; i < grams; i++) {
+            nameGrams.put(in.readUTF(), in.readInt());
+        }
+        return new ColumnStatistics(rowCount, histograms, nameGrams, distinctNames);
+    }
+
+    /**
+     * Number of rows summarized.
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the histogram of a numeric column.
+     *
+     * @param column the numeric column
+     * @return the histogram
+     */
+    Histogram histogram(GameData column) {
+        return histograms[column.ordinal()];
+    }
+
+    /**
+     * Estimates how many rows fall inside a range.
+     *
+     * @param range the range
+     * @return the estimated row count
+     */
+    double estimate(FilterExpression.Range range) {
+        return histogram(range.getColumn()).estimate(range);
+    }
+
+    /**
+     * Estimates how many rows a name condition selects.
+     *
+     * @param match the name condition
+     * @return the estimated row count
+     */
+    double estimate(FilterExpression.NameMatch match) {
+        double equal = distinctNames == 0 ? 0 : (double) rowCount / distinctNames;
+        return switch (match.getOperation()) {
+            case CONTAINS -> estimateContains(match.getTerm());
+            case EQUALS -> equal;
+            case NOT_EQUALS -> rowCount - equal;
+            default -> rowCount * NAME_RANGE_SELECTIVITY;
+        };
+    }
+
+    /**
+     * Estimates how many names contain a term. The count of the rarest n-gram of the term is an
+     * upper bound, and is exact when the term is no longer than {@link #MAX_GRAM}.
+     *
+     * @param term the lower case term
+     * @return the estimated row count
+     */
+    private double estimateContains(String term) {
+        if (term.isEmpty()) {
+            return rowCount;
+        }
+        int length = Math.min(term.length(), MAX_GRAM);
+        int rarest = rowCount;
+        for (int i = 0; i + length <= term.length(); i++) {
+            rarest = Math.min(rarest, nameGrams.getOrDefault(term.substring(i, i + length), 0));
+        }
+        return rarest;
+    }
+
+    /**
+     * Histogram of a numeric column. Boundaries are distinct column values in ascending order;
+     * for each boundary the histogram stores how many values are equal to it and how many are
+     * less than or equal to it.
+     */
+    static final class Histogram {
+        /** Boundary values, ascending. */
+        private final double[] bounds;
+        /** Number of values equal to each boundary. */
+        private final int[] equal;
+        /** Number of values less than or equal to each boundary. */
+        private final int[] cumulative;
+
+        /**
+         * Creates the histogram.
+         *
+         * @param bounds boundary values
+         * @param equal values equal to each boundary
+         * @param cumulative values less than or equal to each boundary
+         */
+        private Histogram(double[] bounds, int[] equal, int[] cumulative) {
+            this.bounds = bounds;
+            this.equal = equal;
+            this.cumulative = cumulative;
+        }
+
+        /**
+         * Builds a histogram over a column. Every distinct value is a boundary if there are at
+         * most {@link #EXACT_VALUES} of them, otherwise a value roughly every
+         * 1 / {@link #BUCKETS} of the rows is.
+         *
+         * @param column the column values
+         * @return the histogram
+         */
+        static Histogram build(double[] column) {
+            double[] sorted = column.clone();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length && distinct <= EXACT_VALUES; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    distinct++;
+                }
+            }
+            int depth = distinct <= EXACT_VALUES ? 1 : Math.max(1, sorted.length / BUCKETS);
+            double[] bounds = new double[sorted.length];
+            int[] equal = new int[sorted.length];
+            int[] cumulative = new int[sorted.length];
+            int count = 0;
+            int sinceLast = 0;
+            for (int i = 0; i < sorted.length;) {
+                int j = i;
+                while (j < sorted.length && sorted[j] == sorted[i]) {
+                    j++;
+                }
+                sinceLast += j - i;
+                // keep the minimum, the maximum, and a value roughly every depth rows
+                if (count == 0 || j == sorted.length || sinceLast >= depth) {
+                    bounds[count] = sorted[i];
+                    equal[count] = j - i;
+                    cumulative[count] = j;
+                    count++;
+                    sinceLast = 0;
+                }
+                i = j;
+            }
+            return new Histogram(Arrays.copyOf(bounds, count), Arrays.copyOf(equal, count),
+                    Arrays.copyOf(cumulative, count));
+        }
+
+        /**
+         * Saves the histogram.
+         *
+         * @param out where to write
+         * @throws IOException if writing fails
+         */
+        void write(DataOutput out) throws IOException {
+            out.writeInt(bounds.length);
+            for (int i = 0; i < bounds.length; i++) {
+                out.writeDouble(bounds[i]);
+                out.writeInt(equal[i]);
+                out.writeInt(cumulative[i]);
+            }
+        }
+
+        /**
+         * Reads a histogram saved by {@link #write(DataOutput)}.
+         *
+         * @param in where to read
+         * @return the histogram
+         * @throws IOException if reading fails
+         */
+        static Histogram read(DataInput in) throws IOException {
+            int count = in.readInt();
+            double[] bounds = new double[count];
+            int[] equal = new int[count];
+            int[] cumulative = new int[count];
+            for (int i = 0; i < count; i++) {
+                bounds[i] = in.readDouble();
+                equal[i] = in.readInt();
+                cumulative[i] = in.readInt();
+            }
+            return new Histogram(bounds, equal, cumulative);
+        }
+
+        /**
+         * Number of boundaries kept.
+         *
+         * @return the boundary count
+         */
+        int buckets() {
+            return bounds.length;
+        }
+
+        /**
+         * Estimates how many values fall inside a range.
+         *
+         * @param range the range
+         * @return the estimated count
+         */
+        double estimate(FilterExpression.Range range) {
+            double upTo = range.isHighInclusive() ? countAtMost(range.getHigh())
+                    : countBelow(range.getHigh());
+            double below = range.isLowInclusive() ? countBelow(range.getLow())
+                    : countAtMost(range.getLow());
+            return Math.max(0, upTo - below);
+        }
+
+        /**
+         * Estimates how many values are less than or equal to a value.
+         *
+         * @param value the value
+         * @return the estimated count
+         */
+        double countAtMost(double value) {
+            int i = Arrays.binarySearch(bounds, value);
+            return i >= 0 ? cumulative[i] : interpolate(-i - 1, value);
+        }
+
+        /**
+         * Estimates how many values are strictly less than a value.
+         *
+         * @param value the value
+         * @return the estimated count
+         */
+        double countBelow(double value) {
+            int i = Arrays.binarySearch(bounds, value);
+            return i >= 0 ? cumulative[i] - equal[i] : interpolate(-i - 1, value);
+        }
+
+        /**
+         * Estimates the count below a value that falls between two boundaries, assuming the
+         * values between them are spread evenly.
+         *
+         * @param next index of the first boundary above the value
+         * @param value the value
+         * @return the estimated count
+         */
+        private double interpolate(int next, double value) {
+            if (next == 0) {
+                return 0;
+            }
+            if (next == bounds.length) {
+                return cumulative[next - 1];
+            }
+            int prev = next - 1;
+            double between = cumulative[next] - equal[next] - cumulative[prev];
+            double fraction = (value - bounds[prev]) / (bounds[next] - bounds[prev]);
+            return cumulative[prev] + between * fraction;
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package student;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Scanner;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.Random;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 
 /**
- * Primary application that makes use of the IGameList and IPlanner interfaces.
+ * Primary application that makes use of the IQueryGameList and IQueryPlanner interfaces.
  * The console app is an interactive way to manage the BG Arena game list,
  * and for a client to build a list of games they want to play, and
  * save out that list. Most of the features are focused on
@@ -26,9 +37,11 @@ public class ConsoleApp {
     /** scanner to help with processing the command string. */
     private Scanner current;
     /** The game list to manage. */
-    private final IGameList gameList;
+    private final IQueryGameList gameList;
     /** The planner to help filter games. */
-    private final IPlanner planner;
+    private final IQueryPlanner planner;
+    /** Where all output goes, buffered and flushed after each command or batch. */
+    private final PrintWriter out;
 
     /**
      * Constructor for the console app.
@@ -36,13 +49,23 @@ public class ConsoleApp {
      * @param gameList the game list to manage.
      * @param planner  the planner to help filter games.
      */
-    public ConsoleApp(IGameList gameList, IPlanner planner) {
+    public ConsoleApp(IQueryGameList gameList, IQueryPlanner planner) {
+        this(gameList, planner, new BufferedWriter(new OutputStreamWriter(System.out)));
+    }
+
+    /**
+     * Constructor for the console app writing to a given output, such as a report file for
+     * {@link #runBatch(Reader, int)}.
+     *
+     * @param gameList the game list to manage.
+     * @param planner  the planner to help filter games.
+     * @param output   where to write the output.
+     */
+    public ConsoleApp(IQueryGameList gameList, IQueryPlanner planner, Writer output) {
         this.gameList = gameList;
         this.planner = planner;
-        if (input == null) {
-            input = new Scanner(System.in);
-        }
-    }    
+        this.out = new PrintWriter(output);
+    }
 
     /**
      * Start the console application.
@@ -52,25 +75,7 @@ public class ConsoleApp {
         printOutput("%s%n", ConsoleText.WELCOME);
         ConsoleText ct = nextCommand();
         while (ct != ConsoleText.CMD_EXIT) {
-            switch (ct) {
-                case CMD_QUESTION: // same as help
-                case CMD_HELP:
-                    processHelp();
-                    break;
-                case CMD_FILTER:
-                    processFilter();
-                    break;
-                case CMD_LIST:
-                    processListCommands();
-                    break;
-                case CMD_EASTER_EGG:
-                    randomNumber();
-                    break;
-                case INVALID:
-                default:
-                    printOutput("%s%n", ConsoleText.INVALID);
-            }
-
+            dispatch(ct);
             // clean up scanner.
             if (current != null) {
                 current.close();
@@ -81,17 +86,145 @@ public class ConsoleApp {
         }
 
         printOutput("%s%n", ConsoleText.GOODBYE);
+        out.flush();
         if (input != null) {
             input.close();
             input = null;
         }
     }
 
+    /**
+     * Runs commands without prompts, one per line, until the input ends or a line says exit.
+     * Blank lines and lines starting with # are skipped. All output goes through the one
+     * buffered writer and is flushed at the end.
+     *
+     * With more than one thread, up to that many consecutive filter commands run at the same
+     * time against the shared catalog, each on its own virtual thread where the JVM has them,
+     * and all inside one {@link TaskScope} so a failed filter cancels the rest. Their output
+     * is still written in input order, and the results of the last filter of such a run
+     * become the current results, as if the filters had run one after another. Any other
+     * command waits for the filters before it to finish.
+     *
+     * @param commands the commands, such as a command file or a piped standard input
+     * @param threads the number of filters to run at once, 1 to run every command in order
+     * @throws IOException if the commands cannot be read
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public void runBatch(Reader commands, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        ExecutorService pool = threads > 1 ? VirtualThreads.newExecutor("batch") : null;
+        BufferedReader reader = new BufferedReader(commands);
+        List<String> filters = new ArrayList<>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                current = new Scanner(line);
+                ConsoleText ct = nextCommand();
+                if (pool != null && ct == ConsoleText.CMD_FILTER && current.hasNext()) {
+                    String args = remainder().toLowerCase();
+                    if (!args.equalsIgnoreCase(ConsoleText.CMD_CLEAR.toString())) {
+                        filters.add(args);
+                        if (filters.size() == threads) {
+                            runFilters(filters, pool);
+                        }
+                        continue;
+                    }
+                    current = new Scanner(line);
+                    ct = nextCommand();
+                }
+                runFilters(filters, pool);
+                if (ct == ConsoleText.CMD_EXIT) {
+                    break;
+                }
+                dispatch(ct);
+                current.close();
+                current = null;
+            }
+            runFilters(filters, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs the filter commands collected by a batch at the same time, writes their output in
+     * order and keeps the results of the last one.
+     *
+     * @param filters the arguments of each filter command, emptied once they have run
+     * @param pool the threads to run them on
+     */
+    private void runFilters(List<String> filters, ExecutorService pool) {
+        if (filters.isEmpty()) {
+            return;
+        }
+        try (TaskScope<String> scope = new TaskScope<>(pool)) {
+            for (int i = 0; i < filters.size(); i++) {
+                String args = filters.get(i);
+                boolean last = i == filters.size() - 1;
+                scope.fork(() -> {
+                    StringWriter output = new StringWriter();
+                    writeFilter(args, last, output);
+                    return output.toString();
+                });
+            }
+            for (String output : scope.join()) {
+                printOutput("%s", output);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while filtering", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Filter failed", e.getCause());
+        }
+        filters.clear();
+    }
+
+    /**
+     * Runs one command, whose arguments are left in the current scanner.
+     *
+     * @param ct the command
+     */
+    private void dispatch(ConsoleText ct) {
+        switch (ct) {
+            case CMD_QUESTION: // same as help
+            case CMD_HELP:
+                processHelp();
+                break;
+            case CMD_FILTER:
+                processFilter();
+                break;
+            case CMD_LIST:
+                processListCommands();
+                break;
+            case CMD_EXPLAIN:
+                processExplain();
+                break;
+            case CMD_SLOW:
+                processSlow();
+                break;
+            case CMD_EASTER_EGG:
+                randomNumber();
+                break;
+            case INVALID:
+            default:
+                printOutput("%s%n", ConsoleText.INVALID);
+        }
+    }
+
     /**
      * Generate a random number based on the current filter.
      */
     private void randomNumber() {
-        int max = (int) planner.filter("").count();
+        int max = planner.currentResult().size();
         if (max > 0) {
             int random = RND.nextInt(max) + 1; // random is 0-(max-1) so add 1.
             printOutput("%s %d%n", ConsoleText.EASTER_EGG, random);
@@ -123,93 +256,101 @@ public class ConsoleApp {
      * Process the filter command.
      */
     private void processFilter() {
-        Stream<BoardGame> result = null;
-        GameData sortON = GameData.NAME; // default
+        if (!current.hasNext()) {
+            printOutput("%s%n", ConsoleText.NO_FILTER);
+            writeFilter("", true, out);
+            return;
+        }
+        // spaces are handled by the filter parser, so names keep theirs
+        String filter = remainder().toLowerCase(); // make it lower case
+        if (filter.equalsIgnoreCase(ConsoleText.CMD_CLEAR.toString())) {
+            planner.reset();
+            printOutput("%s%n", ConsoleText.FILTERED_CLEAR);
+            return; // leave early.
+        }
+        writeFilter(filter, true, out);
+    }
 
-        if (current.hasNext()) {
-            String filter = remainder();
-            // keep space for all name operations
-            if (filter.toLowerCase().trim().startsWith("name")) {
-                String[] parts = null;
-                // check different operators
-                if (filter.contains("~=")) {
-                    parts = filter.split("~=", 2);
-                    if (parts.length == 2) {
-                        filter = parts[0].trim() + "~=" + parts[1].trim();
-                    }
-                } else if (filter.contains("==")) {
-                    parts = filter.split("==", 2);
-                    if (parts.length == 2) {
-                        filter = parts[0].trim() + "==" + parts[1].trim();
-                    }
-                } else if (filter.contains("!=")) {
-                    parts = filter.split("!=", 2);
-                    if (parts.length == 2) {
-                        filter = parts[0].trim() + "!=" + parts[1].trim();
-                    }
+    /**
+     * Runs the arguments of a filter command and writes what it prints. Only the planner is
+     * read, unless the results are kept, so several filters can be written at once to
+     * different writers. The results are streamed through a {@link ResultRenderer}.
+     *
+     * @param args the lower case filter with an optional sort, such as rating>7 sort:year
+     * @param keep true to make the results the current results
+     * @param target where the output goes
+     */
+    private void writeFilter(String args, boolean keep, Writer target) {
+        PrintWriter print = new PrintWriter(target);
+        if (args.equalsIgnoreCase(ConsoleText.CMD_QUESTION.toString())) {
+            // only doing ? as help could be a game name.
+            print.printf("%s%n", ConsoleText.FILTER_HELP);
+            print.flush();
+            return;
+        }
+        String filter = args;
+        GameData sortON = GameData.NAME; // default
+        List<SortCriterion> sortOn = List.of(new SortCriterion(sortON, true)); // default
+        int sortAt = filter.indexOf(ConsoleText.CMD_SORT_OPTION.toString());
+        if (sortAt >= 0) {
+            // break it up, figure out the sort keys, such as rating:desc,rank:asc
+            String sort = filter.substring(sortAt + ConsoleText.CMD_SORT_OPTION.toString()
+                    .length()).replaceAll("\\s", "");
+            filter = filter.substring(0, sortAt);
+            try {
+                List<SortCriterion> keys = SortCriterion.parseList(sort);
+                if (!keys.isEmpty()) {
+                    sortOn = keys;
+                    sortON = keys.get(0).getField(); // extra info shows the first key
                 }
-            } else {
-                // remove all spaces for other operations
-                filter = filter.replaceAll("\\s", "");
-            }
-            filter = filter.toLowerCase(); // make it lower case
-            if (filter.equalsIgnoreCase(ConsoleText.CMD_QUESTION.toString())) {
-                printOutput("%s%n", ConsoleText.FILTER_HELP);
-                return; // leave early. only doing ? as help could be a game name.
-            }
-
-            if (filter.equalsIgnoreCase(ConsoleText.CMD_CLEAR.toString())) {
-                planner.reset();
-                printOutput("%s%n", ConsoleText.FILTERED_CLEAR);
-                return; // leave early.
+            } catch (IllegalArgumentException e) {
+                print.printf("%s%n", ConsoleText.INVALID);
+                print.flush();
+                return;
             }
-            if (filter.contains(ConsoleText.CMD_SORT_OPTION.toString())) {
-                // break it up, figure out sort
-                boolean ascending = true; // default
-                String[] parts = filter.split(ConsoleText.CMD_SORT_OPTION.toString());
-                if (parts.length == 2) {
-                    String sort = parts[1];
-                    if (sort.contains(ConsoleText.CMD_SORT_OPTION_DIRECTION_ASC.toString())) {
-                        ascending = true;
-                        sort = sort.substring(0,
-                                sort.indexOf(ConsoleText.CMD_SORT_OPTION_DIRECTION_ASC.toString()));
-                    } else if (sort
-                            .contains(ConsoleText.CMD_SORT_OPTION_DIRECTION_DESC.toString())) {
-                        ascending = false;
-                        sort = sort.substring(0, sort
-                                .indexOf(ConsoleText.CMD_SORT_OPTION_DIRECTION_DESC.toString()));
-                    }
-                    try {
-                        sortON = GameData.fromString(sort);
-                    } catch (IllegalArgumentException e) {
-                        printOutput("%s%n", ConsoleText.INVALID);
-                        return; // leave early.
-                    }
-                }
+        }
+        Iterator<BoardGame> result;
+        try {
+            result = keep ? planner.filter(filter.trim(), sortOn).iterator()
+                    : planner.query(filter.trim(), sortOn).iterator();
+        } catch (IllegalArgumentException e) {
+            // malformed filter or unknown column
+            print.printf("%s%n", ConsoleText.INVALID);
+            print.flush();
+            return;
+        }
+        try {
+            new ResultRenderer(target, ResultRenderer.DEFAULT_CHUNK).render(result, sortON);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-                result = planner.filter(parts[0], sortON, ascending);  // NOTICE: sortON and ascending are used here.
-            } else {
-                result = planner.filter(filter); // default sort
-            }
-        } else {
-            printOutput("%s%n", ConsoleText.NO_FILTER);
-            result = planner.filter("");
+    /**
+     * Process the explain command, showing the plan chosen for a filter.
+     */
+    private void processExplain() {
+        String filter = remainder().toLowerCase();
+        try {
+            printOutput("%s", planner.explain(filter));
+        } catch (IllegalArgumentException e) {
+            printOutput("%s%n", ConsoleText.INVALID);
         }
-        printFilterStream(result, sortON);
     }
 
     /**
-     * Print the filtered stream of games.
-     * 
-     * @param games  the stream of games to print.
-     * @param sortON also is the column used for 'extra info' based on the sort
-     *               type.
+     * Process the slow command, showing or clearing the filters that were slow.
      */
-    private static void printFilterStream(Stream<BoardGame> games, GameData sortON) {
-        int counter = 1;
-        List<BoardGame> gameList = games != null ? games.toList() : Collections.emptyList();
-        for (BoardGame game : gameList) {
-            printOutput("%d: %s%n", counter++, game.toStringWithInfo(sortON));
+    private void processSlow() {
+        if (remainder().equalsIgnoreCase(ConsoleText.CMD_CLEAR.toString())) {
+            planner.slowQueryLog().clear();
+            return;
+        }
+        String dump = planner.slowQueryLog().dump();
+        if (dump.isEmpty()) {
+            printOutput("%s%n", ConsoleText.NO_SLOW_QUERIES);
+        } else {
+            printOutput("%s", dump);
         }
     }
 
@@ -234,7 +375,7 @@ public class ConsoleApp {
                         break;
                     }
                     try {
-                        gameList.addToList(toAdd, planner.filter(""));
+                        gameList.addToList(toAdd, planner.currentResult());
                     } catch (IllegalArgumentException e) {
                         printOutput("%s %s%n", ConsoleText.INVALID_LIST, toAdd);
                     }
@@ -257,6 +398,17 @@ public class ConsoleApp {
                     }
                     gameList.saveGame(filename);
                     break;
+                case CMD_LOAD:
+                    String toLoad = remainder().trim();
+                    if (toLoad.isEmpty()) {
+                        toLoad = DEFAULT_FILENAME;
+                    }
+                    try {
+                        gameList.loadGame(toLoad, planner.allGames());
+                    } catch (IllegalArgumentException e) {
+                        printOutput("%s %s%n", ConsoleText.INVALID_LIST, toLoad);
+                    }
+                    break;
                 case CMD_QUESTION:
                 case CMD_HELP:
                     printOutput("%s%n", ConsoleText.LIST_HELP);
@@ -324,9 +476,9 @@ public class ConsoleApp {
      * @param args   the arguments to the format string.
      * @return the input from the client as a string, one line at a time.
      */
-    private static String getInput(String format, Object... args) {
-        System.out.printf(format, args);
-        System.out.flush(); // 确保提示信息被输出
+    private String getInput(String format, Object... args) {
+        out.printf(format, args);
+        out.flush(); // 确保提示信息被输出
         
         if (input == null) {
             input = new Scanner(System.in); // 如果 Scanner 为空，重新初始化
@@ -350,8 +502,8 @@ public class ConsoleApp {
      * @param format the format string to print.
      * @param output the output to print (array to match the format).
      */
-    private static void printOutput(String format, Object... output) {
-        System.out.printf(format, output);
+    private void printOutput(String format, Object... output) {
+        out.printf(format, output);
     }
 
     /**
@@ -369,11 +521,11 @@ public class ConsoleApp {
         /** various commands and text. */
         WELCOME, HELP, INVALID, GOODBYE, PROMPT, NO_FILTER, NO_GAMES_LIST, FILTERED_CLEAR, LIST_HELP, FILTER_HELP,
         /** commands continued. */
-        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG,
+        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG, NO_SLOW_QUERIES,
         /** commands general. */
-        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST,
+        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST, CMD_EXPLAIN, CMD_SLOW,
         /** commands specific to lists and filters. */
-        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE,
+        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE, CMD_LOAD,
         /** more options on commands. */
         CMD_OPTION_ALL, CMD_SORT_OPTION, CMD_SORT_OPTION_DIRECTION_ASC, CMD_SORT_OPTION_DIRECTION_DESC;
 
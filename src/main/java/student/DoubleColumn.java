@@ -0,0 +1,90 @@
+package student;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * DoubleColumn is a read-only sequence of doubles addressed by position, such as one numeric
+ * column of a {@link GameTable} or the sorted values of a {@link ColumnIndex}. It may be backed
+ * by an array or by pages of a file.
+ *
+ * Scans should read blocks with {@link #get(int, double[], int, int)}, which costs one page
+ * lookup per block instead of one per value.
+ */
+interface DoubleColumn {
+
+    /**
+     * Number of values.
+     *
+     * @return the size
+     */
+    int size();
+
+    /**
+     * Gets one value.
+     *
+     * @param index the position
+     * @return the value
+     */
+    double get(int index);
+
+    /**
+     * Copies a block of values.
+     *
+     * @param from the first position to copy
+     * @param dst the array to copy into
+     * @param offset where in dst to start
+     * @param length the number of values
+     */
+    void get(int from, double[] dst, int offset, int length);
+
+    /**
+     * Wraps an array. The array is not copied, so it must not change afterwards.
+     *
+     * @param values the values
+     * @return the column
+     */
+    static DoubleColumn of(double[] values) {
+        return new DoubleColumn() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public double get(int index) {
+                return values[index];
+            }
+
+            @Override
+            public void get(int from, double[] dst, int offset, int length) {
+                System.arraycopy(values, from, dst, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Wraps a buffer, for example a view of direct (off-heap) memory. The buffer is read with
+     * absolute gets only, so it can be shared.
+     *
+     * @param values the values
+     * @return the column
+     */
+    static DoubleColumn of(DoubleBuffer values) {
+        return new DoubleColumn() {
+            @Override
+            public int size() {
+                return values.limit();
+            }
+
+            @Override
+            public double get(int index) {
+                return values.get(index);
+            }
+
+            @Override
+            public void get(int from, double[] dst, int offset, int length) {
+                values.get(from, dst, offset, length);
+            }
+        };
+    }
+}
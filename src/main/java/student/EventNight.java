@@ -0,0 +1,427 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * EventNight is a plan for an arena night: the set of games, for a number of players, whose
+ * play times fit in the time available and whose total value is the highest, a 0/1 knapsack
+ * over the candidates.
+ *
+ * A game is a candidate if the players are within its player range. It takes its maximum
+ * play time, so the plan holds even when every game runs long, or its minimum play time when
+ * the maximum is missing. Its value is its rating, or for {@link Weight#RANK} how high it
+ * ranks among the candidates, from 1 for the best ranked down towards 0; unrated and unranked
+ * games are left out.
+ *
+ * The plan is solved exactly by dynamic programming over the minutes, after dividing every
+ * time by their greatest common divisor (play times are mostly multiples of 5 or 15), so
+ * thousands of candidates over an evening take a few milliseconds. Should the table still be
+ * too large, branch and bound on value per minute takes over, which stops at a node limit
+ * with the best plan found so far.
+ */
+public final class EventNight {
+    /** Most cells of the dynamic programming table. */
+    static final long MAX_CELLS = 1L << 26;
+    /** Most nodes branch and bound explores before settling for the best plan found. */
+    static final long MAX_NODES = 5_000_000;
+
+    /** What a game is worth to the night. */
+    public enum Weight {
+        /** The game's rating. */
+        RATING,
+        /** How high the game ranks among the candidates, 1 for the best. */
+        RANK
+    }
+
+    /** Number of players. */
+    private final int players;
+    /** Minutes available. */
+    private final int minutes;
+    /** What the games were weighted by. */
+    private final Weight weight;
+    /** The games chosen, most valuable first. */
+    private final List<BoardGame> games;
+    /** Minutes the chosen games take. */
+    private final int totalMinutes;
+    /** Value of the chosen games. */
+    private final double totalValue;
+    /** Whether the plan is known to be the best. */
+    private final boolean optimal;
+
+    /**
+     * Creates a plan.
+     *
+     * @param players number of players
+     * @param minutes minutes available
+     * @param weight what the games were weighted by
+     * @param games the games chosen, most valuable first
+     * @param totalMinutes minutes they take
+     * @param totalValue their value
+     * @param optimal whether the plan is known to be the best
+     */
+    private EventNight(int players, int minutes, Weight weight, List<BoardGame> games,
+            int totalMinutes, double totalValue, boolean optimal) {
+        this.players = players;
+        this.minutes = minutes;
+        this.weight = weight;
+        this.games = games;
+        this.totalMinutes = totalMinutes;
+        this.totalValue = totalValue;
+        this.optimal = optimal;
+    }
+
+    /**
+     * Plans a night from candidate games, such as a filter result.
+     *
+     * @param candidates the games to choose from
+     * @param players number of players
+     * @param minutes minutes available
+     * @param weight what a game is worth
+     * @return the plan
+     * @throws IllegalArgumentException if players is not positive or minutes is negative
+     */
+    public static EventNight plan(Collection<BoardGame> candidates, int players, int minutes,
+            Weight weight) {
+        if (players <= 0 || minutes < 0) {
+            throw new IllegalArgumentException(String.format("Invalid night: %d players in %d"
+                    + " minutes", players, minutes));
+        }
+        List<BoardGame> items = new ArrayList<>();
+        int worstRank = 0;
+        for (BoardGame game : candidates) {
+            int length = length(game);
+            if (game.getMinPlayers() <= players && players <= game.getMaxPlayers()
+                    && length > 0 && length <= minutes
+                    && (weight == Weight.RATING ? game.getRating() > 0 : game.getRank() > 0)) {
+                items.add(game);
+                worstRank = Math.max(worstRank, game.getRank());
+            }
+        }
+        int[] lengths = new int[items.size()];
+        double[] values = new double[items.size()];
+        int divisor = minutes;
+        for (int i = 0; i < lengths.length; i++) {
+            BoardGame game = items.get(i);
+            lengths[i] = length(game);
+            values[i] = weight == Weight.RATING ? game.getRating()
+                    : (worstRank - game.getRank() + 1) / (double) worstRank;
+            divisor = gcd(divisor, lengths[i]);
+        }
+        int capacity = divisor == 0 ? 0 : minutes / divisor;
+        long total = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] /= divisor;
+            total += lengths[i];
+        }
+        capacity = (int) Math.min(capacity, total); // past the total every game fits
+
+        boolean[] chosen = new boolean[lengths.length];
+        boolean optimal = knapsack(lengths, values, capacity, chosen, MAX_CELLS);
+
+        List<BoardGame> picked = new ArrayList<>();
+        int taken = 0;
+        double value = 0;
+        for (int i = 0; i < chosen.length; i++) {
+            if (chosen[i]) {
+                picked.add(items.get(i));
+                taken += length(items.get(i));
+                value += values[i];
+            }
+        }
+        picked.sort(Comparator.comparingDouble((BoardGame game) -> weight == Weight.RATING
+                ? -game.getRating() : game.getRank()).thenComparing(BoardGame::getName));
+        return new EventNight(players, minutes, weight, picked, taken, value, optimal);
+    }
+
+    /**
+     * Plans a night from the games of a list.
+     *
+     * @param list the list, whose names are looked up in the catalog
+     * @param catalog every game, such as {@link IQueryPlanner#allGames()}
+     * @param players number of players
+     * @param minutes minutes available
+     * @param weight what a game is worth
+     * @return the plan
+     * @throws IllegalArgumentException if players is not positive or minutes is negative
+     */
+    public static EventNight plan(IGameList list, FilterResult catalog, int players,
+            int minutes, Weight weight) {
+        List<BoardGame> candidates = new ArrayList<>();
+        for (String name : list.getGameNames()) {
+            candidates.addAll(catalog.findByName(name));
+        }
+        return plan(candidates, players, minutes, weight);
+    }
+
+    /**
+     * Minutes a game is planned to take: its maximum play time, or its minimum when the
+     * maximum is missing or below it.
+     *
+     * @param game the game
+     * @return the minutes
+     */
+    static int length(BoardGame game) {
+        return game.getMaxPlayTime() >= game.getMinPlayTime() ? game.getMaxPlayTime()
+                : game.getMinPlayTime();
+    }
+
+    /**
+     * Solves a 0/1 knapsack, with a table if it has at most a number of cells, else with
+     * branch and bound.
+     *
+     * @param lengths length of each item
+     * @param values value of each item
+     * @param capacity the capacity
+     * @param chosen the items chosen, filled in
+     * @param maxCells most cells of the table
+     * @return true if the choice is known to be the best
+     */
+    static boolean knapsack(int[] lengths, double[] values, int capacity, boolean[] chosen,
+            long maxCells) {
+        return lengths.length * (capacity + 1L) <= maxCells
+                ? solveTable(lengths, values, capacity, chosen)
+                : new BranchAndBound(lengths, values, capacity).solve(chosen);
+    }
+
+    /**
+     * Solves the knapsack exactly with a table of the best value for every capacity, keeping
+     * one bit per item and capacity to recover the choice.
+     *
+     * @param lengths length of each item
+     * @param values value of each item
+     * @param capacity the capacity
+     * @param chosen the items chosen, filled in
+     * @return true, the plan is the best
+     */
+    private static boolean solveTable(int[] lengths, double[] values, int capacity,
+            boolean[] chosen) {
+        int width = capacity + 1;
+        double[] best = new double[width];
+        long[] taken = new long[(int) (((long) lengths.length * width + 63) >>> 6)];
+        for (int i = 0; i < lengths.length; i++) {
+            long base = (long) i * width;
+            for (int c = capacity; c >= lengths[i]; c--) {
+                double with = best[c - lengths[i]] + values[i];
+                if (with > best[c]) {
+                    best[c] = with;
+                    long bit = base + c;
+                    taken[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+        }
+        int c = capacity;
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            long bit = (long) i * width + c;
+            if ((taken[(int) (bit >>> 6)] & 1L << bit) != 0) {
+                chosen[i] = true;
+                c -= lengths[i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Depth first branch and bound over the items by value per minute, bounded by filling
+     * what is left of the capacity fractionally.
+     */
+    private static final class BranchAndBound {
+        /** Item indexes, by value per minute descending. */
+        private final int[] order;
+        /** Length of each item, in search order. */
+        private final int[] lengths;
+        /** Value of each item, in search order. */
+        private final double[] values;
+        /** The capacity. */
+        private final int capacity;
+        /** Items taken on the current path, in search order. */
+        private final boolean[] path;
+        /** Items of the best plan found, in search order. */
+        private final boolean[] best;
+        /** Value of the best plan found. */
+        private double bestValue = -1;
+        /** Nodes explored. */
+        private long nodes;
+
+        /**
+         * Prepares the search.
+         *
+         * @param lengths length of each item
+         * @param values value of each item
+         * @param capacity the capacity
+         */
+        BranchAndBound(int[] lengths, double[] values, int capacity) {
+            int n = lengths.length;
+            this.order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            IntSort.sort(order, (a, b) -> Double.compare(values[b] * lengths[a],
+                    values[a] * lengths[b]));
+            this.lengths = new int[n];
+            this.values = new double[n];
+            for (int i = 0; i < n; i++) {
+                this.lengths[i] = lengths[order[i]];
+                this.values[i] = values[order[i]];
+            }
+            this.capacity = capacity;
+            this.path = new boolean[n];
+            this.best = new boolean[n];
+        }
+
+        /**
+         * Runs the search.
+         *
+         * @param chosen the items chosen, filled in
+         * @return true if the search finished, so the plan is the best
+         */
+        boolean solve(boolean[] chosen) {
+            search(0, capacity, 0);
+            for (int i = 0; i < best.length; i++) {
+                chosen[order[i]] = best[i];
+            }
+            return nodes <= MAX_NODES;
+        }
+
+        /**
+         * Explores taking or skipping an item.
+         *
+         * @param i the item, in search order
+         * @param room capacity left
+         * @param value value taken so far
+         */
+        private void search(int i, int room, double value) {
+            if (value > bestValue) {
+                bestValue = value;
+                System.arraycopy(path, 0, best, 0, path.length); // nothing past i is taken
+            }
+            if (i == lengths.length || ++nodes > MAX_NODES || bound(i, room, value) <= bestValue) {
+                return;
+            }
+            if (lengths[i] <= room) {
+                path[i] = true;
+                search(i + 1, room - lengths[i], value + values[i]);
+                path[i] = false;
+            }
+            search(i + 1, room, value);
+        }
+
+        /**
+         * Bounds the value reachable from an item on: the items in order while they fit,
+         * then a fraction of the next.
+         *
+         * @param i the item, in search order
+         * @param room capacity left
+         * @param value value taken so far
+         * @return the bound
+         */
+        private double bound(int i, int room, double value) {
+            for (; i < lengths.length; i++) {
+                if (lengths[i] > room) {
+                    return value + values[i] * room / lengths[i];
+                }
+                room -= lengths[i];
+                value += values[i];
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Greatest common divisor.
+     *
+     * @param a a value, 0 or more
+     * @param b a value, 0 or more
+     * @return the divisor, 0 if both are 0
+     */
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * Number of players.
+     *
+     * @return the players
+     */
+    public int getPlayers() {
+        return players;
+    }
+
+    /**
+     * Minutes available.
+     *
+     * @return the minutes
+     */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * What the games were weighted by.
+     *
+     * @return the weight
+     */
+    public Weight getWeight() {
+        return weight;
+    }
+
+    /**
+     * The games chosen, best rated or ranked first.
+     *
+     * @return the games
+     */
+    public List<BoardGame> getGames() {
+        return games;
+    }
+
+    /**
+     * Minutes the chosen games take at their longest.
+     *
+     * @return the minutes
+     */
+    public int getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    /**
+     * Value of the chosen games.
+     *
+     * @return the sum of their weights
+     */
+    public double getTotalValue() {
+        return totalValue;
+    }
+
+    /**
+     * Whether the plan is known to be the best; false only if branch and bound hit its node
+     * limit.
+     *
+     * @return true if optimal
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * Describes the plan, one game per line.
+     *
+     * @return the plan as text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%d games for %d players, %d of %d"
+                + " minutes, value %.2f%n", games.size(), players, totalMinutes, minutes,
+                totalValue));
+        for (BoardGame game : games) {
+            sb.append(String.format("  %s (%d min)%n", game.getName(), length(game)));
+        }
+        return sb.toString();
+    }
+}
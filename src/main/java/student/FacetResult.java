@@ -0,0 +1,440 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * FacetResult summarizes the games of a filter grouped on a numeric column: for each group
+ * the number of games (the histogram) and the minimum, maximum and average of a measured
+ * column, plus the same figures over every game. Groups are buckets of a fixed width, so
+ * width 1 groups years or player counts exactly and width 0.5 makes difficulty bands.
+ *
+ * The figures are computed in one pass over the selected rows, reading the two columns a
+ * block at a time from the table, and kept in parallel arrays sorted by group, so a facet of
+ * thousands of games is a few dozen numbers.
+ */
+public final class FacetResult {
+    /** Most groups a facet may have. */
+    public static final int MAX_GROUPS = 100_000;
+    /** Number of rows read at a time. */
+    private static final int BLOCK = 1024;
+
+    /** The column grouped on. */
+    private final GameData groupBy;
+    /** Width of each group. */
+    private final double width;
+    /** The column measured. */
+    private final GameData measure;
+    /** Lowest value of each group, ascending. */
+    private final double[] keys;
+    /** Number of games in each group. */
+    private final int[] counts;
+    /** Smallest measured value of each group. */
+    private final double[] mins;
+    /** Largest measured value of each group. */
+    private final double[] maxes;
+    /** Sum of the measured values of each group. */
+    private final double[] sums;
+
+    /**
+     * Creates a facet from its groups, which must be sorted by key.
+     *
+     * @param groupBy the column grouped on
+     * @param width width of each group
+     * @param measure the column measured
+     * @param keys lowest value of each group
+     * @param counts number of games in each group
+     * @param mins smallest measured value of each group
+     * @param maxes largest measured value of each group
+     * @param sums sum of the measured values of each group
+     */
+    private FacetResult(GameData groupBy, double width, GameData measure, double[] keys,
+            int[] counts, double[] mins, double[] maxes, double[] sums) {
+        this.groupBy = groupBy;
+        this.width = width;
+        this.measure = measure;
+        this.keys = keys;
+        this.counts = counts;
+        this.mins = mins;
+        this.maxes = maxes;
+        this.sums = sums;
+    }
+
+    /**
+     * Groups selected rows of a table.
+     *
+     * @param table the table
+     * @param rows the rows to summarize
+     * @param groupBy the numeric column grouped on
+     * @param width width of each group
+     * @param measure the numeric column measured
+     * @return the facet
+     * @throws IllegalArgumentException if a column is not numeric, the width is not positive,
+     *         or there would be more than {@link #MAX_GROUPS} groups
+     */
+    static FacetResult compute(GameTable table, BitSet rows, GameData groupBy, double width,
+            GameData measure) {
+        if (!(width > 0) || Double.isInfinite(width)) {
+            throw new IllegalArgumentException("Invalid group width: " + width);
+        }
+        DoubleColumn groupColumn = table.column(groupBy);
+        DoubleColumn measureColumn = table.column(measure);
+        double[] groupValues = new double[BLOCK];
+        double[] measureValues = groupBy == measure ? groupValues : new double[BLOCK];
+        Groups groups = new Groups();
+        for (int row = rows.nextSetBit(0); row >= 0;) {
+            int start = row - row % BLOCK;
+            int n = Math.min(BLOCK, table.size() - start);
+            groupColumn.get(start, groupValues, 0, n);
+            if (measureValues != groupValues) {
+                measureColumn.get(start, measureValues, 0, n);
+            }
+            int end = start + n;
+            for (; row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                long bucket = (long) Math.floor(groupValues[row - start] / width);
+                groups.add(bucket, measureValues[row - start]);
+            }
+        }
+        return groups.toResult(groupBy, width, measure);
+    }
+
+    /**
+     * The column grouped on.
+     *
+     * @return the column
+     */
+    public GameData getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Width of each group.
+     *
+     * @return the width
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * The column measured.
+     *
+     * @return the column
+     */
+    public GameData getMeasure() {
+        return measure;
+    }
+
+    /**
+     * Number of groups, counting only groups with games.
+     *
+     * @return the group count
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Lowest value of a group; the group holds values from it up to, not including, the key
+     * plus the width.
+     *
+     * @param group the group, in ascending order from 0
+     * @return the key
+     */
+    public double getKey(int group) {
+        return keys[group];
+    }
+
+    /**
+     * Number of games in a group.
+     *
+     * @param group the group
+     * @return the count
+     */
+    public int getCount(int group) {
+        return counts[group];
+    }
+
+    /**
+     * Smallest measured value of a group.
+     *
+     * @param group the group
+     * @return the minimum
+     */
+    public double getMin(int group) {
+        return mins[group];
+    }
+
+    /**
+     * Largest measured value of a group.
+     *
+     * @param group the group
+     * @return the maximum
+     */
+    public double getMax(int group) {
+        return maxes[group];
+    }
+
+    /**
+     * Average measured value of a group.
+     *
+     * @param group the group
+     * @return the average
+     */
+    public double getAverage(int group) {
+        return sums[group] / counts[group];
+    }
+
+    /**
+     * Number of games summarized.
+     *
+     * @return the count
+     */
+    public int getTotal() {
+        return Arrays.stream(counts).sum();
+    }
+
+    /**
+     * Smallest measured value of every game.
+     *
+     * @return the minimum, NaN if there are no games
+     */
+    public double getMin() {
+        return Arrays.stream(mins).min().orElse(Double.NaN);
+    }
+
+    /**
+     * Largest measured value of every game.
+     *
+     * @return the maximum, NaN if there are no games
+     */
+    public double getMax() {
+        return Arrays.stream(maxes).max().orElse(Double.NaN);
+    }
+
+    /**
+     * Average measured value of every game.
+     *
+     * @return the average, NaN if there are no games
+     */
+    public double getAverage() {
+        return Arrays.stream(sums).sum() / getTotal();
+    }
+
+    /**
+     * Gets the number of games in each group, in group order.
+     *
+     * @return a copy of the counts
+     */
+    public int[] histogram() {
+        return counts.clone();
+    }
+
+    /**
+     * Writes the facet as a JSON object, the groups as parallel arrays.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(64 + keys.length * 48);
+        number(sb.append("{\"group\":\"").append(groupBy.getColumnName())
+                .append("\",\"width\":"), width).append(",\"measure\":\"")
+                .append(measure.getColumnName())
+                .append("\",\"total\":").append(getTotal()).append(",\"min\":");
+        number(sb, getMin()).append(",\"max\":");
+        number(sb, getMax()).append(",\"avg\":");
+        number(sb, getAverage()).append(",\"keys\":[");
+        for (int i = 0; i < keys.length; i++) {
+            number(i > 0 ? sb.append(',') : sb, keys[i]);
+        }
+        sb.append("],\"counts\":").append(Arrays.toString(counts).replace(" ", ""));
+        array(sb.append(",\"mins\":"), mins);
+        array(sb.append(",\"maxes\":"), maxes);
+        sb.append(",\"avgs\":[");
+        for (int i = 0; i < keys.length; i++) {
+            number(i > 0 ? sb.append(',') : sb, getAverage(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Describes the facet, one group per line.
+     *
+     * @return the facet as text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%s by %s (width %s): %d games%n",
+                measure.getColumnName(), groupBy.getColumnName(), width, getTotal()));
+        for (int i = 0; i < keys.length; i++) {
+            sb.append(String.format("%10s %8d  min %.2f  max %.2f  avg %.2f%n", keys[i],
+                    counts[i], mins[i], maxes[i], getAverage(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends an array of numbers.
+     *
+     * @param sb the builder
+     * @param values the numbers
+     */
+    private static void array(StringBuilder sb, double[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            number(i > 0 ? sb.append(',') : sb, values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Appends a number, whole numbers without a fraction and NaN as null.
+     *
+     * @param sb the builder
+     * @param value the number
+     * @return the builder
+     */
+    private static StringBuilder number(StringBuilder sb, double value) {
+        if (Double.isNaN(value)) {
+            return sb.append("null");
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return sb.append((long) value);
+        }
+        return sb.append(value);
+    }
+
+    /** Running figures of each group, found through an open addressing hash of bucket numbers. */
+    private static final class Groups {
+        /** Bucket number of each slot. */
+        private long[] buckets = new long[64];
+        /** Group of each slot plus one, 0 for an empty slot. */
+        private int[] slots = new int[64];
+        /** Number of groups. */
+        private int size;
+        /** Bucket number of each group. */
+        private long[] keys = new long[16];
+        /** Count of each group. */
+        private int[] counts = new int[16];
+        /** Minimum of each group. */
+        private double[] mins = new double[16];
+        /** Maximum of each group. */
+        private double[] maxes = new double[16];
+        /** Sum of each group. */
+        private double[] sums = new double[16];
+
+        /**
+         * Adds a value to the group of a bucket.
+         *
+         * @param bucket the bucket number
+         * @param value the measured value
+         */
+        void add(long bucket, double value) {
+            int group = group(bucket);
+            if (counts[group]++ == 0) {
+                mins[group] = value;
+                maxes[group] = value;
+            } else {
+                mins[group] = Math.min(mins[group], value);
+                maxes[group] = Math.max(maxes[group], value);
+            }
+            sums[group] += value;
+        }
+
+        /**
+         * Finds the group of a bucket, adding it if it is new.
+         *
+         * @param bucket the bucket number
+         * @return the group
+         */
+        private int group(long bucket) {
+            int mask = slots.length - 1;
+            int slot = hash(bucket) & mask;
+            while (slots[slot] != 0) {
+                if (buckets[slot] == bucket) {
+                    return slots[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == MAX_GROUPS) {
+                throw new IllegalArgumentException(String.format(
+                        "More than %d groups, use a wider group", MAX_GROUPS));
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+                mins = Arrays.copyOf(mins, size * 2);
+                maxes = Arrays.copyOf(maxes, size * 2);
+                sums = Arrays.copyOf(sums, size * 2);
+            }
+            keys[size] = bucket;
+            buckets[slot] = bucket;
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        /**
+         * Hashes a bucket number, taking the well mixed high bits of its product with the
+         * golden ratio.
+         *
+         * @param bucket the bucket number
+         * @return the hash
+         */
+        private static int hash(long bucket) {
+            return (int) (bucket * 0x9E3779B97F4A7C15L >>> 32);
+        }
+
+        /** Doubles the hash table. */
+        private void rehash() {
+            long[] oldBuckets = buckets;
+            int[] oldSlots = slots;
+            buckets = new long[oldBuckets.length * 2];
+            slots = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int s = 0; s < oldSlots.length; s++) {
+                if (oldSlots[s] != 0) {
+                    int slot = hash(oldBuckets[s]) & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    buckets[slot] = oldBuckets[s];
+                    slots[slot] = oldSlots[s];
+                }
+            }
+        }
+
+        /**
+         * Sorts the groups by bucket and makes the facet.
+         *
+         * @param groupBy the column grouped on
+         * @param width width of each group
+         * @param measure the column measured
+         * @return the facet
+         */
+        FacetResult toResult(GameData groupBy, double width, GameData measure) {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            IntSort.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+            double[] sortedKeys = new double[size];
+            int[] sortedCounts = new int[size];
+            double[] sortedMins = new double[size];
+            double[] sortedMaxes = new double[size];
+            double[] sortedSums = new double[size];
+            for (int i = 0; i < size; i++) {
+                int g = order[i];
+                sortedKeys[i] = keys[g] * width;
+                sortedCounts[i] = counts[g];
+                sortedMins[i] = mins[g];
+                sortedMaxes[i] = maxes[g];
+                sortedSums[i] = sums[g];
+            }
+            return new FacetResult(groupBy, width, measure, sortedKeys, sortedCounts,
+                    sortedMins, sortedMaxes, sortedSums);
+        }
+    }
+}
@@ -57,6 +57,26 @@ public final class Filter {
      * @return A new Filter instance, or null if the condition is invalid
      */
     public static Filter parseCondition(String condition) {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        PlannerEvents.ParseConditionEvent event = new PlannerEvents.ParseConditionEvent();
+        event.begin();
+        Filter filter = parse(condition);
+        PlannerMetrics.stop(PlannerMetrics.Operation.PARSE_CONDITION, sample);
+        event.end();
+        if (event.shouldCommit()) {
+            event.condition = condition;
+            event.valid = filter != null;
+            event.commit();
+        }
+        return filter;
+    }
+
+    /**
+     * Parses a condition string, for {@link #parseCondition(String)}.
+     * @param condition The condition string to parse
+     * @return A new Filter instance, or null if the condition is invalid
+     */
+    private static Filter parse(String condition) {
         if (condition == null || condition.trim().isEmpty()) {
             return null;
         }
@@ -82,7 +102,7 @@ public final class Filter {
             return null;
         }
 
-        String columnName = condition.substring(0, opIndex).trim();
+        String columnName = condition.substring(0, opIndex).replaceAll("\\s+", "");
         String value = condition.substring(opIndex + op.getOperator().length());
 
         // Preserve spaces for all name-related operations
@@ -0,0 +1,847 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * FilterExpression is the compiled form of a filter string. The {@link FilterParser} turns the
+ * text into a tree of expressions, {@link #optimize()} simplifies the tree, and
+ * {@link #evaluate(GameTable)} runs it against a {@link GameTable}, producing the selected rows
+ * as a {@link BitSet}.
+ *
+ * The tree is made of:
+ * - constants (always true / always false),
+ * - numeric ranges on a single column (every numeric comparison becomes a range),
+ * - name matches (case-insensitive comparisons and contains on the name),
+ * - AND, OR and NOT nodes.
+ *
+ * Optimizing folds constants, flattens nested AND / OR nodes, removes duplicates and merges
+ * ranges on the same column, so that rating>7,rating>8 is evaluated as a single scan of
+ * rating>8. AND and OR are executed as bitmap intersections and unions.
+ */
+public abstract class FilterExpression {
+    /** Expression that matches every game. */
+    public static final FilterExpression TRUE = new Constant(true);
+    /** Expression that matches no game. */
+    public static final FilterExpression FALSE = new Constant(false);
+
+    /** Only the nested node types extend this class. */
+    private FilterExpression() {
+    }
+
+    /**
+     * Evaluates the expression against every row of the table.
+     *
+     * @param table the table to evaluate against
+     * @return the rows that match the expression
+     */
+    public abstract BitSet evaluate(GameTable table);
+
+    /**
+     * Tests a single row of the table.
+     *
+     * @param table the table the row belongs to
+     * @param row the row index
+     * @return true if the row matches the expression
+     */
+    public abstract boolean matches(GameTable table, int row);
+
+    /**
+     * Returns a simplified expression that matches the same games.
+     *
+     * @return the optimized expression
+     */
+    public FilterExpression optimize() {
+        return this;
+    }
+
+    /**
+     * Compiles a single parsed condition into an expression.
+     * A null filter (an empty or unrecognised condition) is ignored and so matches everything,
+     * the same way the comma separated filters always treated it.
+     *
+     * @param filter the parsed condition, may be null
+     * @return the expression for that condition
+     */
+    static FilterExpression of(Filter filter) {
+        if (filter == null) {
+            return TRUE;
+        }
+        GameData column = filter.getColumn();
+        Operations operation = filter.getOperation();
+        if (column == GameData.NAME) {
+            return new NameMatch(operation, filter.getValue().toLowerCase());
+        }
+        if (!GameTable.isNumeric(column) || operation == Operations.CONTAINS) {
+            return FALSE;
+        }
+
+        double value;
+        try {
+            value = GameTable.isWholeNumber(column) ? Integer.parseInt(filter.getValue())
+                    : Double.parseDouble(filter.getValue());
+        } catch (NumberFormatException e) {
+            return FALSE; // same as before, a bad number matches nothing
+        }
+
+        double inf = Double.POSITIVE_INFINITY;
+        return switch (operation) {
+            case EQUALS -> Range.of(column, value, true, value, true);
+            case NOT_EQUALS -> new Not(Range.of(column, value, true, value, true));
+            case GREATER_THAN -> Range.of(column, value, false, inf, true);
+            case GREATER_THAN_EQUALS -> Range.of(column, value, true, inf, true);
+            case LESS_THAN -> Range.of(column, -inf, true, value, false);
+            case LESS_THAN_EQUALS -> Range.of(column, -inf, true, value, true);
+            default -> FALSE;
+        };
+    }
+
+    /**
+     * Builds an AND of the expressions.
+     *
+     * @param children the expressions that must all match
+     * @return the combined expression
+     */
+    static FilterExpression and(List<FilterExpression> children) {
+        return children.size() == 1 ? children.get(0) : new And(children);
+    }
+
+    /**
+     * Builds an OR of the expressions.
+     *
+     * @param children the expressions of which at least one must match
+     * @return the combined expression
+     */
+    static FilterExpression or(List<FilterExpression> children) {
+        return children.size() == 1 ? children.get(0) : new Or(children);
+    }
+
+    /**
+     * Builds the negation of an expression.
+     *
+     * @param child the expression to negate
+     * @return the negated expression
+     */
+    static FilterExpression not(FilterExpression child) {
+        return new Not(child);
+    }
+
+    /**
+     * Creates a bitmap with every row of the table selected.
+     *
+     * @param table the table
+     * @return a bitmap of all rows
+     */
+    static BitSet allRows(GameTable table) {
+        BitSet rows = new BitSet(table.size());
+        rows.set(0, table.size());
+        return rows;
+    }
+
+    /** Expression that always, or never, matches. */
+    static final class Constant extends FilterExpression {
+        /** The result for every row. */
+        private final boolean value;
+
+        /**
+         * Creates a constant.
+         *
+         * @param value the result for every row
+         */
+        private Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public BitSet evaluate(GameTable table) {
+            return value ? allRows(table) : new BitSet();
+        }
+
+        @Override
+        public boolean matches(GameTable table, int row) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "true" : "false";
+        }
+    }
+
+    /**
+     * A numeric range on one column. Bounds may be open or closed, and infinite for one sided
+     * comparisons. Ranges on whole number columns are kept with closed bounds, so that
+     * minPlayers>2 and minPlayers>=3 are the same range.
+     */
+    static final class Range extends FilterExpression {
+        /** Number of values read at a time when scanning a column. */
+        private static final int BLOCK = 1024;
+
+        /** The column the range applies to. */
+        private final GameData column;
+        /** Lower bound. */
+        private final double low;
+        /** Whether the lower bound is included. */
+        private final boolean lowInclusive;
+        /** Upper bound. */
+        private final double high;
+        /** Whether the upper bound is included. */
+        private final boolean highInclusive;
+
+        /**
+         * Creates a range, use {@link #of} so whole number bounds are normalized.
+         *
+         * @param column the column
+         * @param low lower bound
+         * @param lowInclusive whether the lower bound is included
+         * @param high upper bound
+         * @param highInclusive whether the upper bound is included
+         */
+        private Range(GameData column, double low, boolean lowInclusive, double high,
+                boolean highInclusive) {
+            this.column = column;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        /**
+         * Creates a range, closing open bounds on whole number columns.
+         *
+         * @param column the column
+         * @param low lower bound
+         * @param lowInclusive whether the lower bound is included
+         * @param high upper bound
+         * @param highInclusive whether the upper bound is included
+         * @return the range
+         */
+        static Range of(GameData column, double low, boolean lowInclusive, double high,
+                boolean highInclusive) {
+            if (GameTable.isWholeNumber(column)) {
+                if (!lowInclusive && !Double.isInfinite(low)) {
+                    low = Math.floor(low) + 1;
+                    lowInclusive = true;
+                }
+                if (!highInclusive && !Double.isInfinite(high)) {
+                    high = Math.ceil(high) - 1;
+                    highInclusive = true;
+                }
+            }
+            return new Range(column, low, lowInclusive, high, highInclusive);
+        }
+
+        /**
+         * Gets the column of the range.
+         *
+         * @return the column
+         */
+        GameData getColumn() {
+            return column;
+        }
+
+        /**
+         * Gets the lower bound.
+         *
+         * @return the lower bound, negative infinity if there is none
+         */
+        double getLow() {
+            return low;
+        }
+
+        /**
+         * Gets the upper bound.
+         *
+         * @return the upper bound, positive infinity if there is none
+         */
+        double getHigh() {
+            return high;
+        }
+
+        /**
+         * Checks if the lower bound is part of the range.
+         *
+         * @return true if the lower bound is included
+         */
+        boolean isLowInclusive() {
+            return lowInclusive;
+        }
+
+        /**
+         * Checks if the upper bound is part of the range.
+         *
+         * @return true if the upper bound is included
+         */
+        boolean isHighInclusive() {
+            return highInclusive;
+        }
+
+        /**
+         * Checks if a value falls inside the range.
+         *
+         * @param value the value to check
+         * @return true if the value is within the bounds
+         */
+        boolean contains(double value) {
+            return (lowInclusive ? value >= low : value > low)
+                    && (highInclusive ? value <= high : value < high);
+        }
+
+        /**
+         * Checks if no value can fall inside the range.
+         *
+         * @return true if the range is empty
+         */
+        boolean isEmpty() {
+            return low > high || (low == high && !(lowInclusive && highInclusive));
+        }
+
+        /**
+         * Intersects two ranges on the same column.
+         *
+         * @param other the other range
+         * @return the values in both ranges
+         */
+        Range intersect(Range other) {
+            boolean lowIn = low == other.low ? lowInclusive && other.lowInclusive
+                    : (low > other.low ? lowInclusive : other.lowInclusive);
+            boolean highIn = high == other.high ? highInclusive && other.highInclusive
+                    : (high < other.high ? highInclusive : other.highInclusive);
+            return new Range(column, Math.max(low, other.low), lowIn, Math.min(high, other.high),
+                    highIn);
+        }
+
+        /**
+         * Checks if the union of two ranges is a single range. The other range must not start
+         * before this one.
+         *
+         * @param other a range starting at or after this one
+         * @return true if the ranges overlap or touch
+         */
+        boolean joins(Range other) {
+            if (other.low < high || (other.low == high && (highInclusive
+                    || other.lowInclusive))) {
+                return true;
+            }
+            return GameTable.isWholeNumber(column) && other.low == high + 1;
+        }
+
+        /**
+         * Unions two ranges that {@link #joins(Range) join}.
+         *
+         * @param other a range starting at or after this one
+         * @return the values in either range
+         */
+        Range union(Range other) {
+            boolean lowIn = low == other.low ? lowInclusive || other.lowInclusive : lowInclusive;
+            boolean highIn = high == other.high ? highInclusive || other.highInclusive
+                    : (high > other.high ? highInclusive : other.highInclusive);
+            return new Range(column, low, lowIn, Math.max(high, other.high), highIn);
+        }
+
+        @Override
+        public FilterExpression optimize() {
+            if (isEmpty()) {
+                return FALSE;
+            }
+            if (low == Double.NEGATIVE_INFINITY && high == Double.POSITIVE_INFINITY) {
+                return TRUE;
+            }
+            return this;
+        }
+
+        @Override
+        public BitSet evaluate(GameTable table) {
+            DoubleColumn values = table.column(column);
+            BitSet rows = new BitSet(values.size());
+            double[] block = new double[BLOCK];
+            for (int start = 0; start < values.size(); start += BLOCK) {
+                int n = Math.min(BLOCK, values.size() - start);
+                values.get(start, block, 0, n);
+                for (int i = 0; i < n; i++) {
+                    if (contains(block[i])) {
+                        rows.set(start + i);
+                    }
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public boolean matches(GameTable table, int row) {
+            return contains(table.column(column).get(row));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Range)) {
+                return false;
+            }
+            Range other = (Range) obj;
+            return column == other.column && low == other.low && high == other.high
+                    && lowInclusive == other.lowInclusive && highInclusive == other.highInclusive;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(column, low, high, lowInclusive, highInclusive);
+        }
+
+        @Override
+        public String toString() {
+            String name = column.name().toLowerCase();
+            if (low == high) {
+                return name + "==" + format(low);
+            }
+            List<String> parts = new ArrayList<>(2);
+            if (low != Double.NEGATIVE_INFINITY) {
+                parts.add(name + (lowInclusive ? ">=" : ">") + format(low));
+            }
+            if (high != Double.POSITIVE_INFINITY) {
+                parts.add(name + (highInclusive ? "<=" : "<") + format(high));
+            }
+            return String.join(",", parts);
+        }
+
+        /**
+         * Formats a bound the way it would be typed in a filter.
+         *
+         * @param bound the bound
+         * @return the bound as text
+         */
+        private String format(double bound) {
+            return GameTable.isWholeNumber(column) ? Long.toString((long) bound)
+                    : Double.toString(bound);
+        }
+    }
+
+    /** A case-insensitive comparison on the game name. */
+    static final class NameMatch extends FilterExpression {
+        /** The comparison to apply. */
+        private final Operations operation;
+        /** The lower case text to compare with. */
+        private final String term;
+
+        /**
+         * Creates a name match.
+         *
+         * @param operation the comparison to apply
+         * @param term the lower case text to compare with
+         */
+        NameMatch(Operations operation, String term) {
+            this.operation = operation;
+            this.term = term;
+        }
+
+        /**
+         * Gets the comparison applied to the name.
+         *
+         * @return the operation
+         */
+        Operations getOperation() {
+            return operation;
+        }
+
+        /**
+         * Gets the lower case text the name is compared with.
+         *
+         * @return the search term
+         */
+        String getTerm() {
+            return term;
+        }
+
+        /**
+         * Tests a lower case name against the condition.
+         *
+         * @param lowerName the lower case game name
+         * @return true if the name matches
+         */
+        boolean test(String lowerName) {
+            if (operation == Operations.CONTAINS) {
+                return lowerName.contains(term);
+            }
+            int comparison = lowerName.compareTo(term);
+            return switch (operation) {
+                case EQUALS -> comparison == 0;
+                case NOT_EQUALS -> comparison != 0;
+                case GREATER_THAN -> comparison > 0;
+                case LESS_THAN -> comparison < 0;
+                case GREATER_THAN_EQUALS -> comparison >= 0;
+                case LESS_THAN_EQUALS -> comparison <= 0;
+                default -> false;
+            };
+        }
+
+        @Override
+        public BitSet evaluate(GameTable table) {
+            BitSet rows = new BitSet(table.size());
+            // with a dictionary each distinct name is tested once, rows only compare codes
+            NameDictionary dictionary = table.dictionary();
+            int[] codes = table.nameCodes();
+            if (dictionary == null || codes == null) {
+                for (int row = 0; row < table.size(); row++) {
+                    if (test(table.lowerName(row))) {
+                        rows.set(row);
+                    }
+                }
+                return rows;
+            }
+            BitSet matching = matchingCodes(dictionary);
+            for (int row = 0; row < codes.length; row++) {
+                if (matching.get(codes[row])) {
+                    rows.set(row);
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Tests every name of a dictionary once.
+         *
+         * @param dictionary the dictionary
+         * @return the codes of the names that match
+         */
+        BitSet matchingCodes(NameDictionary dictionary) {
+            BitSet matching = new BitSet(dictionary.size());
+            for (int code = 0; code < dictionary.size(); code++) {
+                if (test(dictionary.lowerName(code))) {
+                    matching.set(code);
+                }
+            }
+            return matching;
+        }
+
+        @Override
+        public boolean matches(GameTable table, int row) {
+            return test(table.lowerName(row));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof NameMatch && ((NameMatch) obj).operation == operation
+                    && ((NameMatch) obj).term.equals(term);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, term);
+        }
+
+        @Override
+        public String toString() {
+            return "name" + operation.getOperator() + term;
+        }
+    }
+
+    /** Base for nodes that combine several expressions. */
+    abstract static class Composite extends FilterExpression {
+        /** The combined expressions. */
+        private final List<FilterExpression> children;
+
+        /**
+         * Creates the node.
+         *
+         * @param children the combined expressions
+         */
+        Composite(List<FilterExpression> children) {
+            this.children = List.copyOf(children);
+        }
+
+        /**
+         * Gets the combined expressions.
+         *
+         * @return the children, unmodifiable
+         */
+        List<FilterExpression> getChildren() {
+            return children;
+        }
+
+        /**
+         * Optimizes the children and pulls up the children of nested nodes of the same type.
+         *
+         * @return the flattened, optimized children
+         */
+        List<FilterExpression> flatten() {
+            List<FilterExpression> flat = new ArrayList<>();
+            for (FilterExpression child : children) {
+                FilterExpression optimized = child.optimize();
+                if (optimized.getClass() == getClass()) {
+                    flat.addAll(((Composite) optimized).children);
+                } else {
+                    flat.add(optimized);
+                }
+            }
+            return flat;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj != null && obj.getClass() == getClass()
+                    && ((Composite) obj).children.equals(children);
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode() * 31 + children.hashCode();
+        }
+
+        /**
+         * Joins the children's text with a separator.
+         *
+         * @param separator the operator between children
+         * @return the expression as text
+         */
+        String join(String separator) {
+            return children.stream().map(child -> child instanceof Composite
+                    ? "(" + child + ")" : child.toString())
+                    .collect(Collectors.joining(separator));
+        }
+    }
+
+    /** All children must match. */
+    static final class And extends Composite {
+        /**
+         * Creates the node.
+         *
+         * @param children the expressions that must all match
+         */
+        And(List<FilterExpression> children) {
+            super(children);
+        }
+
+        @Override
+        public FilterExpression optimize() {
+            Map<GameData, Range> ranges = new LinkedHashMap<>();
+            List<FilterExpression> others = new ArrayList<>();
+            for (FilterExpression child : flatten()) {
+                if (child == FALSE) {
+                    return FALSE;
+                } else if (child instanceof Range) {
+                    ranges.merge(((Range) child).column, (Range) child, Range::intersect);
+                } else if (child != TRUE && !others.contains(child)) {
+                    others.add(child);
+                }
+            }
+            List<FilterExpression> result = new ArrayList<>();
+            for (Range range : ranges.values()) {
+                FilterExpression merged = range.optimize();
+                if (merged == FALSE) {
+                    return FALSE;
+                } else if (merged != TRUE) {
+                    result.add(merged);
+                }
+            }
+            for (FilterExpression other : others) {
+                if (other instanceof Not && others.contains(((Not) other).child)) {
+                    return FALSE; // x and not x
+                }
+                result.add(other);
+            }
+            return result.isEmpty() ? TRUE : and(result);
+        }
+
+        @Override
+        public BitSet evaluate(GameTable table) {
+            BitSet rows = null;
+            for (FilterExpression child : getChildren()) {
+                if (rows == null) {
+                    rows = child.evaluate(table);
+                } else {
+                    rows.and(child.evaluate(table));
+                }
+                if (rows.isEmpty()) {
+                    break;
+                }
+            }
+            return rows == null ? allRows(table) : rows;
+        }
+
+        @Override
+        public boolean matches(GameTable table, int row) {
+            for (FilterExpression child : getChildren()) {
+                if (!child.matches(table, row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(",");
+        }
+    }
+
+    /** At least one child must match. */
+    static final class Or extends Composite {
+        /**
+         * Creates the node.
+         *
+         * @param children the expressions of which one must match
+         */
+        Or(List<FilterExpression> children) {
+            super(children);
+        }
+
+        @Override
+        public FilterExpression optimize() {
+            Map<GameData, List<Range>> ranges = new LinkedHashMap<>();
+            List<FilterExpression> others = new ArrayList<>();
+            for (FilterExpression child : flatten()) {
+                if (child == TRUE) {
+                    return TRUE;
+                } else if (child instanceof Range) {
+                    ranges.computeIfAbsent(((Range) child).column, k -> new ArrayList<>())
+                            .add((Range) child);
+                } else if (child != FALSE && !others.contains(child)) {
+                    others.add(child);
+                }
+            }
+            List<FilterExpression> result = new ArrayList<>();
+            for (List<Range> column : ranges.values()) {
+                for (Range merged : unionAll(column)) {
+                    FilterExpression simplified = merged.optimize();
+                    if (simplified == TRUE) {
+                        return TRUE;
+                    }
+                    result.add(simplified);
+                }
+            }
+            for (FilterExpression other : others) {
+                if (other instanceof Not && others.contains(((Not) other).child)) {
+                    return TRUE; // x or not x
+                }
+                result.add(other);
+            }
+            return result.isEmpty() ? FALSE : or(result);
+        }
+
+        /**
+         * Merges overlapping ranges on one column.
+         *
+         * @param ranges the ranges to merge
+         * @return the smallest list of ranges covering the same values
+         */
+        private static List<Range> unionAll(List<Range> ranges) {
+            List<Range> sorted = new ArrayList<>(ranges);
+            sorted.sort(Comparator.comparingDouble(Range::getLow)
+                    .thenComparing(range -> !range.lowInclusive));
+            List<Range> merged = new ArrayList<>();
+            for (Range range : sorted) {
+                int last = merged.size() - 1;
+                if (last >= 0 && merged.get(last).joins(range)) {
+                    merged.set(last, merged.get(last).union(range));
+                } else {
+                    merged.add(range);
+                }
+            }
+            return merged;
+        }
+
+        @Override
+        public BitSet evaluate(GameTable table) {
+            BitSet rows = new BitSet(table.size());
+            for (FilterExpression child : getChildren()) {
+                rows.or(child.evaluate(table));
+            }
+            return rows;
+        }
+
+        @Override
+        public boolean matches(GameTable table, int row) {
+            for (FilterExpression child : getChildren()) {
+                if (child.matches(table, row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join("|");
+        }
+    }
+
+    /** The child must not match. */
+    static final class Not extends FilterExpression {
+        /** The negated expression. */
+        private final FilterExpression child;
+
+        /**
+         * Creates the node.
+         *
+         * @param child the negated expression
+         */
+        Not(FilterExpression child) {
+            this.child = child;
+        }
+
+        /**
+         * Gets the negated expression.
+         *
+         * @return the child
+         */
+        FilterExpression getChild() {
+            return child;
+        }
+
+        @Override
+        public FilterExpression optimize() {
+            FilterExpression optimized = child.optimize();
+            if (optimized == TRUE) {
+                return FALSE;
+            } else if (optimized == FALSE) {
+                return TRUE;
+            } else if (optimized instanceof Not) {
+                return ((Not) optimized).child;
+            } else if (optimized instanceof Range) {
+                Range range = (Range) optimized;
+                // a one sided range has a one sided complement
+                if (range.high == Double.POSITIVE_INFINITY) {
+                    return Range.of(range.column, Double.NEGATIVE_INFINITY, true, range.low,
+                            !range.lowInclusive);
+                } else if (range.low == Double.NEGATIVE_INFINITY) {
+                    return Range.of(range.column, range.high, !range.highInclusive,
+                            Double.POSITIVE_INFINITY, true);
+                }
+            }
+            return optimized == child ? this : new Not(optimized);
+        }
+
+        @Override
+        public BitSet evaluate(GameTable table) {
+            BitSet rows = child.evaluate(table);
+            rows.flip(0, table.size());
+            return rows;
+        }
+
+        @Override
+        public boolean matches(GameTable table, int row) {
+            return !child.matches(table, row);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Not && ((Not) obj).child.equals(child);
+        }
+
+        @Override
+        public int hashCode() {
+            return ~child.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "!(" + child + ")";
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FilterParser turns a filter string into a {@link FilterExpression}.
+ * <p>
+ * The grammar extends the original comma separated conditions:
+ * <pre>
+ *   expression := and ('|' and)*
+ *   and        := factor (',' factor)*
+ *   factor     := '!' factor | '(' expression ')' | condition
+ * </pre>
+ * Commas bind tighter than bars, so a,b|c means (a and b) or c. Each condition is parsed
+ * with {@link Filter#parseCondition(String)}, so the column names, operators and spacing
+ * rules are unchanged. Parentheses that appear inside a condition, for example in a game
+ * name, are kept as part of that condition as long as they are balanced; an unclosed one is
+ * an error.
+ * <p>
+ * Example usage:
+ * - FilterParser.parse("name~=catan|name~=carcassonne") - games with either word in the name
+ * - FilterParser.parse("!(minPlayers>2),rating>7") - games for one or two players rated over 7
+ */
+public final class FilterParser {
+    /** The text being parsed. */
+    private final String text;
+    /** Current position in the text. */
+    private int pos;
+
+    /**
+     * Creates a parser for one filter string.
+     *
+     * @param text the filter string
+     */
+    private FilterParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a filter string. An empty filter matches every game.
+     *
+     * @param filter the filter string
+     * @return the unoptimized expression
+     * @throws IllegalArgumentException if the parentheses are unbalanced or a column is unknown
+     */
+    public static FilterExpression parse(String filter) {
+        if (filter == null || filter.trim().isEmpty()) {
+            return FilterExpression.TRUE;
+        }
+        FilterParser parser = new FilterParser(filter);
+        FilterExpression expression = parser.parseOr();
+        parser.skipSpaces();
+        if (parser.pos < filter.length()) {
+            throw new IllegalArgumentException(String.format("Unexpected '%c' at position %d in "
+                    + "filter: %s", filter.charAt(parser.pos), parser.pos + 1, filter));
+        }
+        return expression;
+    }
+
+    /**
+     * Parses conditions joined by bars.
+     *
+     * @return the expression
+     */
+    private FilterExpression parseOr() {
+        List<FilterExpression> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (accept('|')) {
+            children.add(parseAnd());
+        }
+        return FilterExpression.or(children);
+    }
+
+    /**
+     * Parses factors joined by commas.
+     *
+     * @return the expression
+     */
+    private FilterExpression parseAnd() {
+        List<FilterExpression> children = new ArrayList<>();
+        children.add(parseFactor());
+        while (accept(',')) {
+            children.add(parseFactor());
+        }
+        return FilterExpression.and(children);
+    }
+
+    /**
+     * Parses a negation, a group or a single condition.
+     *
+     * @return the expression
+     */
+    private FilterExpression parseFactor() {
+        if (accept('!')) {
+            return FilterExpression.not(parseFactor());
+        }
+        if (accept('(')) {
+            FilterExpression group = parseOr();
+            if (!accept(')')) {
+                throw new IllegalArgumentException("Missing ')' in filter: " + text);
+            }
+            return group;
+        }
+        return parseCondition();
+    }
+
+    /**
+     * Reads a condition up to the next separator or closing parenthesis of the enclosing group.
+     *
+     * @return the compiled condition
+     * @throws IllegalArgumentException if a parenthesis inside the condition is never closed,
+     *         which would otherwise swallow the rest of the filter into the condition
+     */
+    private FilterExpression parseCondition() {
+        int start = pos;
+        int depth = 0;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (depth == 0 && (c == ',' || c == '|')) {
+                break;
+            }
+            pos++;
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("Missing ')' in filter: " + text);
+        }
+        return FilterExpression.of(Filter.parseCondition(text.substring(start, pos).trim()));
+    }
+
+    /**
+     * Skips spaces and consumes the next character if it matches.
+     *
+     * @param expected the character to look for
+     * @return true if the character was consumed
+     */
+    private boolean accept(char expected) {
+        skipSpaces();
+        if (pos < text.length() && text.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /** Skips whitespace at the current position. */
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+}
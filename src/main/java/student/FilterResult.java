@@ -0,0 +1,84 @@
+package student;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * FilterResult is the read-only list of games a filter returned, in the order they were shown.
+ *
+ * Games are looked up by position in constant time, so a game list can resolve "3" or "3-10"
+ * without filtering again. Looking up by name uses a hash index of case folded names, built the
+ * first time a name is looked up.
+ */
+public final class FilterResult extends AbstractList<BoardGame> implements RandomAccess {
+    /** An empty result. */
+    public static final FilterResult EMPTY = new FilterResult(List.of());
+
+    /** The games, in display order. */
+    private final List<BoardGame> games;
+    /** Positions of each case folded name, built on first use. */
+    private Map<String, List<BoardGame>> byName;
+
+    /**
+     * Wraps a list of games. The list is not copied, so it must not change afterwards.
+     *
+     * @param games the games, in display order
+     */
+    public FilterResult(List<BoardGame> games) {
+        this.games = games instanceof RandomAccess ? games : new ArrayList<>(games);
+    }
+
+    /**
+     * Gets the game at a position.
+     *
+     * @param index the position, starting at 0
+     * @return the game
+     */
+    @Override
+    public BoardGame get(int index) {
+        return games.get(index);
+    }
+
+    /**
+     * Number of games in the result.
+     *
+     * @return the size
+     */
+    @Override
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * Finds the games whose name equals the given name, ignoring case.
+     *
+     * @param name the name to look up
+     * @return the matching games in display order, empty if none match
+     */
+    public List<BoardGame> findByName(String name) {
+        Map<String, List<BoardGame>> index = nameIndex();
+        return index.getOrDefault(NameCollation.fold(name), Collections.emptyList());
+    }
+
+    /**
+     * Gets the name index, building it the first time.
+     *
+     * @return the index from case folded name to games
+     */
+    private synchronized Map<String, List<BoardGame>> nameIndex() {
+        if (byName == null) {
+            Map<String, List<BoardGame>> index = new HashMap<>(games.size() * 2);
+            for (BoardGame game : games) {
+                index.computeIfAbsent(NameCollation.fold(game.getName()),
+                        k -> new ArrayList<>(1)).add(game);
+            }
+            byName = index;
+        }
+        return byName;
+    }
+}
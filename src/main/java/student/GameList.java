@@ -1,26 +1,26 @@
 package student;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * GameList implements the IGameList interface and provides functionality for managing
- * a collection of board games. This class serves as a core component of the Board Game
- * Arena Planner, allowing users to maintain and manipulate their list of games.
+ * GameList implements the IGameList and IQueryGameList interfaces and provides functionality
+ * for managing a collection of board games. This class serves as a core component of the Board
+ * Game Arena Planner, allowing users to maintain and manipulate their list of games.
  *
  * Key features include:
  * - Adding games individually or in ranges
  * - Removing games from the list
- * - Saving the game list to a file
+ * - Saving the game list to a file, and loading it back
  * - Maintaining unique entries (no duplicates)
  * - Case-insensitive operations
+ * - Optionally, a journal that lets the list survive a crash
  * - Automatic sorting of game names
  *
  * The class supports various ways to add games:
@@ -39,15 +39,29 @@ import java.util.stream.Stream;
  * @author Yuchen Huang
  * @version 1.0
  */
-public class GameList implements IGameList {
-    /** The set of board games in the list. */
-    private Set<BoardGame> gameList;
+public class GameList implements IQueryGameList {
+    /** The board games in the list, kept in name order so indexes match what is listed. */
+    private SortedGameSet gameList;
+    /** Journal that every change is logged to, null if the list lives only in memory. */
+    private final GameListJournal journal;
 
     /**
      * Constructor for the GameList.
      */
     public GameList() {
-        this.gameList = new HashSet<>();
+        this.gameList = new SortedGameSet();
+        this.journal = null;
+    }
+
+    /**
+     * Constructor for a GameList that survives crashes. It starts with the games recovered
+     * from the journal and logs every change to it.
+     * @param journal the open journal
+     */
+    public GameList(GameListJournal journal) {
+        this.gameList = new SortedGameSet();
+        this.journal = journal;
+        gameList.addAll(journal.recovered());
     }
 
     /**
@@ -56,10 +70,12 @@ public class GameList implements IGameList {
      */
     @Override
     public List<String> getGameNames() {
-        return gameList.stream()
-                .map(BoardGame::getName)
-                .sorted(String.CASE_INSENSITIVE_ORDER)
-                .collect(Collectors.toList());
+        // the list is already in name order, so listing is a walk of the tree
+        List<String> names = new ArrayList<>(gameList.size());
+        for (BoardGame game : gameList) {
+            names.add(game.getName());
+        }
+        return names;
     }
 
     /**
@@ -68,6 +84,34 @@ public class GameList implements IGameList {
     @Override
     public void clear() {
         gameList.clear();
+        if (journal != null) {
+            journal.cleared();
+        }
+    }
+
+    /**
+     * Adds games to the list and logs them.
+     * @param games the games to add
+     */
+    private void addGames(Collection<BoardGame> games) {
+        gameList.addAll(games);
+        if (journal != null) {
+            journal.added(games);
+            journal.compactIfNeeded(gameList, gameList.size());
+        }
+    }
+
+    /**
+     * Logs games that were removed from the list.
+     * @param games the removed games
+     * @return true if any game was removed
+     */
+    private boolean removedGames(List<BoardGame> games) {
+        if (journal != null && !games.isEmpty()) {
+            journal.removed(games);
+            journal.compactIfNeeded(gameList, gameList.size());
+        }
+        return !games.isEmpty();
     }
 
     /**
@@ -80,25 +124,29 @@ public class GameList implements IGameList {
     }
 
     /**
-     * Saves the game list to a file.
+     * Saves the game list to a file, in the format given by its extension (see
+     * {@link GameListIO.Format#forFile(String)}). The games are streamed from the list into
+     * a temporary file that replaces the target only once it is complete.
      * @param filename the name of the file to save to
      */
     @Override
     public void saveGame(String filename) {
         try {
+            PlannerMetrics.Sample sample = PlannerMetrics.start();
+            PlannerEvents.SaveListEvent event = new PlannerEvents.SaveListEvent();
+            event.begin();
             // Create parent directories if they don't exist
-            java.io.File file = new java.io.File(filename);
-            java.io.File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) {
-                parent.mkdirs();
-            }
-            
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-                List<String> sortedNames = getGameNames();
-                for (String gameName : sortedNames) {
-                    writer.write(gameName);
-                    writer.newLine();
-                }
+            Path file = Path.of(filename).toAbsolutePath();
+            Files.createDirectories(file.getParent());
+            GameListIO.save(gameList, gameList.size(), file,
+                    GameListIO.Format.forFile(filename));
+            PlannerMetrics.stop(PlannerMetrics.Operation.LIST_SAVE, sample);
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = file.toString();
+                event.games = gameList.size();
+                event.bytes = Files.size(file);
+                event.commit();
             }
         } catch (IOException e) {
             System.err.println("Error saving game list: " + e.getMessage());
@@ -107,64 +155,119 @@ public class GameList implements IGameList {
     }
 
     /**
-     * Adds a game to the list based on the provided string.
+     * Adds the games saved in a file to the list.
+     * @param filename the name of the file to load
+     * @param catalog the games to look names up in, for plain name lists
+     */
+    @Override
+    public void loadGame(String filename, FilterResult catalog) {
+        try {
+            PlannerMetrics.Sample sample = PlannerMetrics.start();
+            addGames(GameListIO.load(Path.of(filename), catalog::findByName));
+            PlannerMetrics.stop(PlannerMetrics.Operation.LIST_LOAD, sample);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to load game list: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a game to the list based on the provided string. A name takes priority over an
+     * index or range, as the stream has to be read whole anyway.
      * @param str the string representing the game to add
      * @param filtered the stream of filtered board games
      */
     @Override
     public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
-        List<BoardGame> filteredList = filtered.collect(Collectors.toList());
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        add(str, new FilterResult(filtered.collect(Collectors.toList())), true);
+        PlannerMetrics.stop(PlannerMetrics.Operation.LIST_ADD, sample);
+    }
 
+    /**
+     * Adds a game to the list based on the provided string, resolving indexes, ranges and names
+     * against results that are already in memory. Indexes and ranges are added in bulk, so
+     * their cost depends on how many games are added, not on how many were filtered. Unlike
+     * {@link #addToList(String, Stream)}, a position takes priority over a name: a name is
+     * looked up only when the string is not a position within the results, as the first name
+     * lookup on a result builds its name index, which takes one pass over the result.
+     * @param str the string representing the game to add
+     * @param filtered the current filter results
+     */
+    @Override
+    public void addToList(String str, FilterResult filtered) throws IllegalArgumentException {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        add(str, filtered, false);
+        PlannerMetrics.stop(PlannerMetrics.Operation.LIST_ADD, sample);
+    }
+
+    /**
+     * Adds games to the list, for both addToList methods.
+     * @param str the string representing the game to add
+     * @param filtered the current filter results
+     * @param namesFirst whether a name takes priority over a position
+     */
+    private void add(String str, FilterResult filtered, boolean namesFirst) {
         if (str == null || str.trim().isEmpty()) {
             throw new IllegalArgumentException("Input cannot be empty.");
         }
 
         if (str.equalsIgnoreCase(ADD_ALL)) {
-            gameList.addAll(filteredList);
+            addGames(filtered);
             return;
         }
 
-        // First try to match by name (case-insensitive)
         String trimmedStr = str.trim();
-        List<BoardGame> matchedByName = filteredList.stream()
-                .filter(game -> game.getName().equalsIgnoreCase(trimmedStr))
-                .collect(Collectors.toList());
-
-        if (!matchedByName.isEmpty()) {
-            gameList.addAll(matchedByName);
-            return;
+        List<BoardGame> games = namesFirst ? filtered.findByName(trimmedStr) : List.of();
+        if (games.isEmpty()) {
+            try {
+                games = positions(trimmedStr, filtered);
+            } catch (IllegalArgumentException e) {
+                // a name lookup builds the results' name index, so it waits for positions to fail
+                games = namesFirst ? games : filtered.findByName(trimmedStr);
+                if (games.isEmpty()) {
+                    throw e;
+                }
+            }
         }
+        addGames(games);
+    }
 
-        // If no name match, try to parse as number or range
+    /**
+     * Finds the games at a position or range of positions of the results, counting from 1.
+     * @param str a position such as 3, or a range such as 3-10
+     * @param filtered the current filter results
+     * @return the games at those positions
+     * @throws IllegalArgumentException if str is not a position or range within the results
+     */
+    private static List<BoardGame> positions(String str, FilterResult filtered) {
         try {
-            if (trimmedStr.contains("-")) {
-                String[] parts = trimmedStr.split("-");
+            if (str.contains("-")) {
+                String[] parts = str.split("-");
                 if (parts.length != 2) {
-                    throw new IllegalArgumentException("Invalid range format: " + trimmedStr);
+                    throw new IllegalArgumentException("Invalid range format: " + str);
                 }
                 int start = Integer.parseInt(parts[0].trim()) - 1;
                 int end = Integer.parseInt(parts[1].trim());
                 
-                if (start < 0 || end > filteredList.size() || start >= end) {
+                if (start < 0 || end > filtered.size() || start >= end) {
                     throw new IllegalArgumentException(
                         String.format("Invalid range: %d-%d. Valid range is 1-%d", 
-                            start + 1, end, filteredList.size()));
+                            start + 1, end, filtered.size()));
                 }
                 
-                List<BoardGame> subList = filteredList.subList(start, end);
-                gameList.addAll(new ArrayList<>(subList));
+                return filtered.subList(start, end);
             } else {
-                int index = Integer.parseInt(trimmedStr) - 1;
-                if (index < 0 || index >= filteredList.size()) {
+                int index = Integer.parseInt(str) - 1;
+                if (index < 0 || index >= filtered.size()) {
                     throw new IllegalArgumentException(
                         String.format("Invalid index: %d. Valid range is 1-%d", 
-                            index + 1, filteredList.size()));
+                            index + 1, filtered.size()));
                 }
-                gameList.add(filteredList.get(index));
+                return List.of(filtered.get(index));
             }
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException(
-                String.format("'%s' is not a valid game name or number", trimmedStr));
+                String.format("'%s' is not a valid game name or number", str));
         }
     }
 
@@ -174,6 +277,16 @@ public class GameList implements IGameList {
      */
     @Override
     public void removeFromList(String str) {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        remove(str);
+        PlannerMetrics.stop(PlannerMetrics.Operation.LIST_REMOVE, sample);
+    }
+
+    /**
+     * Removes games from the list, for {@link #removeFromList(String)}.
+     * @param str the string representing the game to remove
+     */
+    private void remove(String str) {
         if (str.equalsIgnoreCase(ADD_ALL)) {
             clear();
             return;
@@ -184,29 +297,29 @@ public class GameList implements IGameList {
             return;
         }
 
-        List<BoardGame> sortedList = new ArrayList<>(gameList);
+        // indexes are positions in name order, the same order getGameNames lists
+        int size = gameList.size();
         try {
             if (str.contains("-")) {
                 String[] parts = str.split("-");
                 int start = Integer.parseInt(parts[0]);
                 int end = Integer.parseInt(parts[1]);
-                if (start < 1 || end > sortedList.size() || start > end) {
+                if (start < 1 || end > size || start > end) {
                     throw new IllegalArgumentException("Invalid range. "
-                            + "Please enter numbers between 1 and " + sortedList.size());
+                            + "Please enter numbers between 1 and " + size);
                 }
-                gameList.removeAll(sortedList.subList(start - 1, end));
+                removedGames(gameList.removeRange(start - 1, end));
             } else {
                 // Check if input is a number (existing index-based removal)
                 try {
                     int index = Integer.parseInt(str) - 1;
-                    if (index < 0 || index >= sortedList.size()) {
+                    if (index < 0 || index >= size) {
                         throw new IllegalArgumentException();
                     }
-                    gameList.remove(sortedList.get(index));
+                    removedGames(List.of(gameList.removeAt(index)));
                 } catch (NumberFormatException e) {
                     // If not a number, treat as game name
-                    boolean removed = gameList.removeIf(game ->
-                            game.getName().equalsIgnoreCase(str));
+                    boolean removed = removedGames(gameList.removeName(str));
 
                     if (!removed) {
                         throw new IllegalArgumentException("Game not found in list: " + str);
@@ -0,0 +1,476 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * GameListIO saves and loads game lists.
+ *
+ * Saving streams the games straight from the list into a large buffer that is written to a
+ * temporary file next to the target through a {@link FileChannel}. The temporary file is then
+ * renamed over the target in one atomic step, so a failed save never leaves a partial file
+ * behind, and the directory is forced to disk so the rename survives a crash. The file gets
+ * the target's permissions, or the default ones for a new file. All text is UTF-8.
+ *
+ * The format is picked from the file extension:
+ * - .csv: every column, with a header of {@link GameData} column names, names quoted when
+ *   they contain commas or quotes ({@link GamesLoader} splits on every comma, so it only
+ *   reads files without such names),
+ * - .jsonl: one JSON object per game,
+ * - .bin: a compact binary form,
+ * - anything else: one game name per line.
+ */
+public final class GameListIO {
+    /** Size of the write buffer. */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Magic number that starts a binary file, "BGL1". */
+    private static final int BINARY_MAGIC = 0x42474C31;
+
+    /** The file formats. */
+    public enum Format {
+        /** Game names, one per line. */
+        TEXT,
+        /** Every column, comma separated, with a header row. */
+        CSV,
+        /** One JSON object per line. */
+        JSONL,
+        /** Length-prefixed binary records. */
+        BINARY;
+
+        /**
+         * Picks the format from a file name's extension.
+         *
+         * @param filename the file name
+         * @return the format, TEXT for unknown extensions
+         */
+        public static Format forFile(String filename) {
+            String lower = filename.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".csv")) {
+                return CSV;
+            } else if (lower.endsWith(".jsonl")) {
+                return JSONL;
+            } else if (lower.endsWith(".bin")) {
+                return BINARY;
+            }
+            return TEXT;
+        }
+    }
+
+    /** Private constructor to prevent instantiation of utility class. */
+    private GameListIO() {
+    }
+
+    /**
+     * Saves games to a file, replacing it atomically.
+     *
+     * @param games the games, in the order to save them
+     * @param count the number of games
+     * @param file the file to write
+     * @param format the format to write
+     * @throws IOException if the file cannot be written; the target is left untouched
+     */
+    public static void save(Iterable<BoardGame> games, int count, Path file, Format format)
+            throws IOException {
+        Path target = file.toAbsolutePath();
+        Path temp = createTemp(target);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                Writer writer = new Writer(channel);
+                switch (format) {
+                    case TEXT -> writeText(games, writer);
+                    case CSV -> writeCsv(games, writer);
+                    case JSONL -> writeJsonLines(games, writer);
+                    default -> writeBinary(games, count, writer);
+                }
+                writer.flush();
+                channel.force(false);
+            }
+            if (Files.exists(target) && Files.getFileAttributeView(target,
+                    PosixFileAttributeView.class) != null) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(target.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file next to a target, with the default permissions rather
+     * than the owner-only ones of {@link Files#createTempFile}.
+     *
+     * @param target the file to be replaced
+     * @return the temporary file
+     * @throws IOException if it cannot be created
+     */
+    private static Path createTemp(Path target) throws IOException {
+        while (true) {
+            Path temp = target.resolveSibling(target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // taken, try another name
+            }
+        }
+    }
+
+    /**
+     * Forces a directory's entries to disk, so a rename in it is durable. Platforms that
+     * cannot open a directory, such as Windows, are skipped.
+     *
+     * @param directory the directory
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename happened, only its durability is not guaranteed here
+        }
+    }
+
+    /**
+     * Loads the games of a file. Text files only hold names, so each name is looked up with the
+     * given function; the other formats hold every column and are read directly.
+     *
+     * @param file the file to read
+     * @param byName finds the games with a name, used for text files
+     * @return the games, in file order
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed, or a text file names games
+     *         the function does not find
+     */
+    public static List<BoardGame> load(Path file, Function<String, List<BoardGame>> byName)
+            throws IOException {
+        Format format = Format.forFile(file.getFileName().toString());
+        if (format == Format.BINARY) {
+            return readBinary(file);
+        }
+        List<BoardGame> games = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (format == Format.CSV && reader.readLine() == null) {
+                return games; // the header row is skipped
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                switch (format) {
+                    case CSV -> games.add(parseCsv(line));
+                    case JSONL -> games.add(Json.parseGame(line));
+                    default -> {
+                        List<BoardGame> named = byName.apply(line.trim());
+                        if (named.isEmpty()) {
+                            unknown.add(line.trim());
+                        }
+                        games.addAll(named);
+                    }
+                }
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown games in " + file.getFileName() + ": "
+                    + String.join(", ", unknown));
+        }
+        return games;
+    }
+
+    /**
+     * Writes one name per line.
+     *
+     * @param games the games
+     * @param writer the output
+     * @throws IOException if writing fails
+     */
+    private static void writeText(Iterable<BoardGame> games, Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (BoardGame game : games) {
+            line.setLength(0);
+            writer.write(line.append(game.getName()).append('\n'));
+        }
+    }
+
+    /**
+     * Writes a header and one row per game.
+     *
+     * @param games the games
+     * @param writer the output
+     * @throws IOException if writing fails
+     */
+    private static void writeCsv(Iterable<BoardGame> games, Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (GameData column : GameData.values()) {
+            if (column != GameData.NAME) {
+                line.append(',');
+            }
+            line.append(column.getColumnName());
+        }
+        writer.write(line.append('\n'));
+        for (BoardGame game : games) {
+            line.setLength(0);
+            String name = game.getName();
+            if (name.indexOf(',') >= 0 || name.indexOf('"') >= 0) {
+                line.append('"').append(name.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(name);
+            }
+            line.append(',').append(game.getId());
+            for (GameData column : GameData.values()) {
+                if (GameTable.isNumeric(column)) {
+                    double value = GameTable.valueOf(game, column);
+                    line.append(',');
+                    if (GameTable.isWholeNumber(column)) {
+                        line.append((long) value);
+                    } else {
+                        line.append(value);
+                    }
+                }
+            }
+            writer.write(line.append('\n'));
+        }
+    }
+
+    /**
+     * Writes one JSON object per line.
+     *
+     * @param games the games
+     * @param writer the output
+     * @throws IOException if writing fails
+     */
+    private static void writeJsonLines(Iterable<BoardGame> games, Writer writer)
+            throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (BoardGame game : games) {
+            line.setLength(0);
+            writer.write(Json.game(line, game).append('\n'));
+        }
+    }
+
+    /**
+     * Writes the magic number, the count and one fixed-layout record per game.
+     *
+     * @param games the games
+     * @param count the number of games
+     * @param writer the output
+     * @throws IOException if writing fails
+     */
+    private static void writeBinary(Iterable<BoardGame> games, int count, Writer writer)
+            throws IOException {
+        ByteBuffer buffer = writer.reserve(2 * Integer.BYTES);
+        buffer.putInt(BINARY_MAGIC).putInt(count);
+        for (BoardGame game : games) {
+            byte[] name = game.getName().getBytes(StandardCharsets.UTF_8);
+            putGame(writer.reserve(binarySize(name)), game, name);
+        }
+    }
+
+    /**
+     * Size of the binary record of a game.
+     *
+     * @param name the game's name as UTF-8
+     * @return the record size in bytes
+     */
+    static int binarySize(byte[] name) {
+        return name.length + 8 * Integer.BYTES + 2 * Double.BYTES;
+    }
+
+    /**
+     * Puts the binary record of a game.
+     *
+     * @param buffer the buffer, with at least {@link #binarySize(byte[])} bytes remaining
+     * @param game the game
+     * @param name the game's name as UTF-8
+     */
+    static void putGame(ByteBuffer buffer, BoardGame game, byte[] name) {
+        buffer.putInt(name.length).put(name).putInt(game.getId())
+                .putInt(game.getMinPlayers()).putInt(game.getMaxPlayers())
+                .putInt(game.getMinPlayTime()).putInt(game.getMaxPlayTime())
+                .putDouble(game.getDifficulty()).putInt(game.getRank())
+                .putDouble(game.getRating()).putInt(game.getYearPublished());
+    }
+
+    /**
+     * Gets a game from its binary record.
+     *
+     * @param buffer the buffer, positioned at the record
+     * @return the game
+     * @throws java.nio.BufferUnderflowException if the record is truncated
+     */
+    static BoardGame getGame(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt game record");
+        }
+        byte[] name = new byte[length];
+        buffer.get(name);
+        return new BoardGame(new String(name, StandardCharsets.UTF_8), buffer.getInt(),
+                buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                buffer.getDouble(), buffer.getInt(), buffer.getDouble(), buffer.getInt());
+    }
+
+    /**
+     * Reads a binary file.
+     *
+     * @param file the file
+     * @return the games
+     * @throws IOException if the file cannot be read
+     */
+    private static List<BoardGame> readBinary(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != BINARY_MAGIC) {
+                throw new IllegalArgumentException("Not a game list file: " + file);
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IllegalArgumentException("Corrupt game list file: " + file);
+            }
+            List<BoardGame> games = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length < 0) {
+                    throw new IllegalArgumentException("Corrupt game list file: " + file);
+                }
+                byte[] name = new byte[length];
+                in.readFully(name);
+                games.add(new BoardGame(new String(name, StandardCharsets.UTF_8), in.readInt(),
+                        in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readDouble(),
+                        in.readInt(), in.readDouble(), in.readInt()));
+            }
+            return games;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated game list file: " + file);
+        }
+    }
+
+    /**
+     * Parses a row written by {@link #writeCsv(Iterable, Writer)}.
+     *
+     * @param line the row
+     * @return the game
+     */
+    private static BoardGame parseCsv(String line) {
+        String name;
+        int at;
+        if (line.startsWith("\"")) {
+            StringBuilder sb = new StringBuilder();
+            at = 1;
+            while (true) {
+                int quote = line.indexOf('"', at);
+                if (quote < 0) {
+                    throw new IllegalArgumentException("Unterminated quote: " + line);
+                }
+                sb.append(line, at, quote);
+                if (quote + 1 < line.length() && line.charAt(quote + 1) == '"') {
+                    sb.append('"');
+                    at = quote + 2;
+                } else {
+                    at = quote + 1;
+                    break;
+                }
+            }
+            name = sb.toString();
+        } else {
+            at = line.indexOf(',');
+            name = at < 0 ? line : line.substring(0, at);
+        }
+        String[] values = at < line.length() ? line.substring(at + 1).split(",") : new String[0];
+        if (values.length != GameData.values().length - 1) {
+            throw new IllegalArgumentException("Wrong number of columns: " + line);
+        }
+        try {
+            // id, then the numeric columns in GameData order
+            return new BoardGame(name, Integer.parseInt(values[0]), Integer.parseInt(values[4]),
+                    Integer.parseInt(values[5]), Integer.parseInt(values[6]),
+                    Integer.parseInt(values[7]), Double.parseDouble(values[2]),
+                    Integer.parseInt(values[3]), Double.parseDouble(values[1]),
+                    Integer.parseInt(values[8]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in: " + line);
+        }
+    }
+
+    /** Encodes text into a large buffer and writes it to a channel whenever it fills up. */
+    private static final class Writer {
+        /** The channel to write to. */
+        private final FileChannel channel;
+        /** The pending bytes. */
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * Creates a writer.
+         *
+         * @param channel the channel to write to
+         */
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes text as UTF-8.
+         *
+         * @param text the text
+         * @throws IOException if writing fails
+         */
+        void write(CharSequence text) throws IOException {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            reserve(bytes.length).put(bytes);
+        }
+
+        /**
+         * Makes room in the buffer, writing out what is pending if needed.
+         *
+         * @param bytes the number of bytes about to be put
+         * @return the buffer to put them in
+         * @throws IOException if writing fails
+         */
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+                if (buffer.capacity() < bytes) {
+                    buffer = ByteBuffer.allocate(bytes);
+                }
+            }
+            return buffer;
+        }
+
+        /**
+         * Writes out everything pending.
+         *
+         * @throws IOException if writing fails
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
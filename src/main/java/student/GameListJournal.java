@@ -0,0 +1,520 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * GameListJournal makes a game list survive a crash by logging every change to an append-only
+ * file as it happens.
+ *
+ * Every added or removed game, and every clear, becomes one small binary record: a length, a
+ * CRC32C checksum and the payload (a type byte followed by the game in the
+ * {@link GameListIO} binary layout). Appending only copies the record into a buffer. A
+ * committer thread writes whatever has been buffered and forces it to disk in one go every
+ * few milliseconds, so many changes share one fsync (group commit). {@link #sync()} waits until
+ * everything appended so far is on disk.
+ *
+ * The journal lives in a directory of generations. snapshot-N.bin holds the list as it was
+ * when journal-N.log was started, and journal-N.log, journal-N+1.log, ... hold the changes
+ * since. When a journal grows past twice the size of the list, a new generation is started and
+ * the old list is written as its snapshot in the background; older files are deleted once the
+ * snapshot is safely on disk. Opening replays the newest snapshot and the journals after it,
+ * stopping at the first torn or corrupt record.
+ *
+ * Waiting and file writes happen under {@link ReentrantLock}s rather than monitors, so a
+ * session on a virtual thread that waits in {@link #sync()} gives its carrier thread back.
+ */
+public final class GameListJournal implements Closeable {
+    /** How long the committer waits for more changes before forcing them to disk. */
+    private static final long COMMIT_DELAY_MILLIS = 2;
+    /** Journals with fewer records than this are never compacted. */
+    private static final long MIN_COMPACT_RECORDS = 1024;
+    /** Bytes framing each record: payload length and checksum. */
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+    /** Record type of an added game. */
+    private static final byte ADD = 1;
+    /** Record type of a removed game. */
+    private static final byte REMOVE = 2;
+    /** Record type of a cleared list. */
+    private static final byte CLEAR = 3;
+    /** Names of the generation files. */
+    private static final Pattern FILE_NAME =
+            Pattern.compile("(snapshot|journal)-(\\d+)\\.(bin|log)");
+
+    /** The journal directory. */
+    private final Path dir;
+    /** The games recovered when the journal was opened. */
+    private final List<BoardGame> recovered;
+    /** Guards the pending buffer and the counters. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Signalled when records are appended or made durable, or the journal closes or fails. */
+    private final Condition changed = lock.newCondition();
+    /** Serializes writes to the journal file with generation switches. */
+    private final ReentrantLock ioLock = new ReentrantLock();
+    /** Writes snapshots and deletes old generations. */
+    private final ExecutorService compactor;
+    /** Forces buffered records to disk. */
+    private final Thread committer;
+
+    /** Records appended but not yet written. */
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    /** Buffer to swap in while the committer writes. */
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    /** The journal file of the current generation. */
+    private FileChannel channel;
+    /** The current generation. */
+    private long generation;
+    /** Number of records appended to the current generation. */
+    private long records;
+    /** Number of records appended since the journal was opened. */
+    private long appended;
+    /** Number of records known to be on disk. */
+    private long durable;
+    /** The first write failure, after which nothing more is appended. */
+    private IOException failure;
+    /** True once close has been called. */
+    private boolean closed;
+
+    /**
+     * Opens a journal, creating the directory if needed, recovers the list it holds and starts
+     * a new generation.
+     *
+     * @param dir the journal directory
+     * @return the open journal
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static GameListJournal open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return new GameListJournal(dir);
+    }
+
+    /**
+     * Opens the journal in a directory.
+     *
+     * @param dir the journal directory
+     * @throws IOException if the directory cannot be read or written
+     */
+    private GameListJournal(Path dir) throws IOException {
+        this.dir = dir;
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    (m.group(1).equals("snapshot") ? snapshots : journals)
+                            .put(Long.parseLong(m.group(2)), file);
+                }
+            }
+        }
+        Set<BoardGame> games = new LinkedHashSet<>();
+        long base = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        if (!snapshots.isEmpty()) {
+            games.addAll(GameListIO.load(snapshots.lastEntry().getValue(), name -> List.of()));
+        }
+        for (Path journal : journals.tailMap(base).values()) {
+            replay(journal, games);
+        }
+        this.recovered = List.copyOf(games);
+        this.generation = Math.max(base, journals.isEmpty() ? 0 : journals.lastKey() + 1);
+        this.channel = openJournal(generation);
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "game-list-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!journals.isEmpty()) {
+            // everything before this generation can now be folded into one snapshot
+            writeSnapshot(generation, new ArrayList<>(recovered));
+        }
+        this.committer = new Thread(this::commitLoop, "game-list-journal");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Gets the games recovered when the journal was opened.
+     *
+     * @return the recovered games
+     */
+    public List<BoardGame> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Logs games that were added to the list.
+     *
+     * @param games the added games
+     */
+    public void added(Collection<BoardGame> games) {
+        for (BoardGame game : games) {
+            append(ADD, game);
+        }
+    }
+
+    /**
+     * Logs games that were removed from the list.
+     *
+     * @param games the removed games
+     */
+    public void removed(Collection<BoardGame> games) {
+        for (BoardGame game : games) {
+            append(REMOVE, game);
+        }
+    }
+
+    /** Logs that the list was cleared. */
+    public void cleared() {
+        append(CLEAR, null);
+    }
+
+    /**
+     * Starts a new generation and snapshots the list in the background once the current
+     * journal holds more than twice as many records as the list has games.
+     *
+     * @param games the games now in the list
+     * @param size the number of games
+     */
+    public void compactIfNeeded(Iterable<BoardGame> games, int size) {
+        lock.lock();
+        try {
+            if (records < Math.max(MIN_COMPACT_RECORDS, 2L * size)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<BoardGame> state = new ArrayList<>(size);
+        games.forEach(state::add);
+        long snapshot;
+        ioLock.lock();
+        try {
+            writePending();
+            channel.close();
+            lock.lock();
+            try {
+                generation++;
+                records = 0;
+                snapshot = generation;
+            } finally {
+                lock.unlock();
+            }
+            channel = openJournal(snapshot);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        } finally {
+            ioLock.unlock();
+        }
+        writeSnapshot(snapshot, state);
+    }
+
+    /**
+     * Waits until every change logged so far is on disk.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            long target = appended;
+            changed.signalAll();
+            while (durable < target && failure == null) {
+                try {
+                    changed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for the journal", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything pending, waits for running compactions and closes the journal.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioLock.lock();
+        try {
+            try {
+                writePending();
+            } finally {
+                channel.close();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends one record to the pending buffer.
+     *
+     * @param type the record type
+     * @param game the game, null for a clear
+     */
+    private void append(byte type, BoardGame game) {
+        byte[] name = game == null ? null : game.getName().getBytes(StandardCharsets.UTF_8);
+        int payload = 1 + (game == null ? 0 : GameListIO.binarySize(name));
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Game list journal failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Game list journal is closed");
+            }
+            if (pending.remaining() < FRAME_BYTES + payload) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                        pending.position() + FRAME_BYTES + payload));
+                pending.flip();
+                pending = larger.put(pending);
+            }
+            int start = pending.position();
+            pending.putInt(payload).putInt(0).put(type);
+            if (game != null) {
+                GameListIO.putGame(pending, game, name);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(pending.array(), start + FRAME_BYTES, payload);
+            pending.putInt(start + Integer.BYTES, (int) crc.getValue());
+            records++;
+            appended++;
+            if (appended - durable == 1) {
+                changed.signalAll(); // wake the committer for the first record of a batch
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Body of the committer thread. */
+    private void commitLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (appended == durable && !closed && failure == null) {
+                    try {
+                        changed.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed || failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                Thread.sleep(COMMIT_DELAY_MILLIS); // let more changes join this commit
+            } catch (InterruptedException e) {
+                return;
+            }
+            ioLock.lock();
+            try {
+                writePending();
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the pending records to the current journal and forces them to disk. Must be
+     * called holding the io lock.
+     *
+     * @throws IOException if writing fails
+     */
+    private void writePending() throws IOException {
+        ByteBuffer batch;
+        long target;
+        lock.lock();
+        try {
+            if (pending.position() == 0) {
+                return;
+            }
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            target = appended;
+        } finally {
+            lock.unlock();
+        }
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        channel.force(false);
+        batch.clear();
+        lock.lock();
+        try {
+            durable = target;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot in the background, then deletes the generations it replaces.
+     *
+     * @param snapshot the generation the snapshot starts
+     * @param state the games in the list at the start of that generation
+     */
+    private void writeSnapshot(long snapshot, List<BoardGame> state) {
+        compactor.execute(() -> {
+            try {
+                GameListIO.save(state, state.size(), file("snapshot", snapshot, "bin"),
+                        GameListIO.Format.BINARY);
+                try (var files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Matcher m = FILE_NAME.matcher(file.getFileName().toString());
+                        if (m.matches() && Long.parseLong(m.group(2)) < snapshot) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // the journals are kept, so nothing is lost; the next compaction tries again
+                System.err.println("Error compacting game list journal: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Records a write failure and wakes everyone waiting.
+     *
+     * @param e the failure
+     */
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = e;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens the journal file of a generation for appending.
+     *
+     * @param gen the generation
+     * @return the channel
+     * @throws IOException if the file cannot be opened
+     */
+    private FileChannel openJournal(long gen) throws IOException {
+        return FileChannel.open(file("journal", gen, "log"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Gets the path of a generation file.
+     *
+     * @param kind snapshot or journal
+     * @param gen the generation
+     * @param extension the file extension
+     * @return the path
+     */
+    private Path file(String kind, long gen, String extension) {
+        return dir.resolve(String.format("%s-%d.%s", kind, gen, extension));
+    }
+
+    /**
+     * Replays a journal file onto a set of games, stopping at the first incomplete or corrupt
+     * record (the tail of a write cut short by a crash).
+     *
+     * @param journal the journal file
+     * @param games the games to update
+     * @throws IOException if the file cannot be read
+     */
+    private static void replay(Path journal, Set<BoardGame> games) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal));
+        CRC32C crc = new CRC32C();
+        while (buffer.remaining() >= FRAME_BYTES) {
+            int payload = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (payload < 1 || payload > buffer.remaining()) {
+                return;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), payload);
+            if ((int) crc.getValue() != checksum) {
+                return;
+            }
+            ByteBuffer record = buffer.slice(buffer.position(), payload);
+            buffer.position(buffer.position() + payload);
+            try {
+                switch (record.get()) {
+                    case ADD -> games.add(GameListIO.getGame(record));
+                    case REMOVE -> games.remove(GameListIO.getGame(record));
+                    case CLEAR -> games.clear();
+                    default -> {
+                        return;
+                    }
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                return;
+            }
+        }
+    }
+}
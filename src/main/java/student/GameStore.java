@@ -0,0 +1,80 @@
+package student;
+
+/**
+ * GameStore is where a {@link GameTable} keeps its rows. The table adds the caches and the
+ * query helpers; a store only has to give access to the rows, stored in name order.
+ *
+ * {@link HeapGameStore} keeps everything in arrays on the heap, {@link OffHeapGameStore} in
+ * direct memory. {@link MappedGameStore} reads the files of a {@link CatalogStore} through a
+ * {@link PageCache}.
+ */
+interface GameStore {
+
+    /**
+     * Number of rows.
+     *
+     * @return the number of games
+     */
+    int size();
+
+    /**
+     * Gets the game at a row.
+     *
+     * @param row the row index
+     * @return the game
+     */
+    BoardGame game(int row);
+
+    /**
+     * Gets the lower case name of a row.
+     *
+     * @param row the row index
+     * @return the game name in lower case
+     */
+    String lowerName(int row);
+
+    /**
+     * Gets a numeric column.
+     *
+     * @param column a numeric column
+     * @return the values, indexed by row
+     */
+    DoubleColumn column(GameData column);
+
+    /**
+     * Builds or opens the sorted index of a numeric column. Called once per column.
+     *
+     * @param column a numeric column
+     * @return the index
+     */
+    ColumnIndex index(GameData column);
+
+    /**
+     * Gets the dense name rank of every row, in the order names were sorted when the rows
+     * were stored.
+     *
+     * @return the name ranks, callers must not modify them
+     */
+    int[] nameRanks();
+
+    /**
+     * Gets the dictionary of the distinct names, if the store keeps one.
+     *
+     * @return the dictionary, or null if names are only available by row
+     */
+    NameDictionary dictionary();
+
+    /**
+     * Gets the dictionary code of every row's name.
+     *
+     * @return the codes, or null if the store keeps no dictionary; callers must not modify them
+     */
+    int[] nameCodes();
+
+    /**
+     * Gets the statistics saved with the rows, if any.
+     *
+     * @return the statistics, or null if they have to be gathered from the rows
+     */
+    ColumnStatistics statistics();
+}
@@ -0,0 +1,372 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * GameTable is a read-only, column oriented snapshot of the board game collection.
+ * Rows are stored in name order (case-insensitive by default, or per a {@link NameCollation}),
+ * and every numeric GameData attribute
+ * is kept in its own column so filters can scan a column without touching
+ * the BoardGame objects.
+ *
+ * Rows are addressed by their index (0 to size - 1), which lets the filter engine describe
+ * a selection as a {@link BitSet} and combine selections with cheap word-wise operations.
+ *
+ * The rows live in a {@link GameStore}: on the heap for a table built from a collection, or in
+ * the paged files of a {@link CatalogStore} for a table opened from disk.
+ */
+public final class GameTable {
+    /** Number of values read at a time when deriving ranks. */
+    private static final int BLOCK = 1024;
+
+    /** Where the rows are kept. */
+    private final GameStore store;
+    /** Numeric columns indexed by GameData ordinal, null for NAME and ID. */
+    private final DoubleColumn[] columns;
+    /** Sorted indexes, built or opened the first time a column is probed. */
+    private final ColumnIndex[] indexes;
+    /** Dense ranks of each column, built the first time a column is sorted on. */
+    private final int[][] ranks;
+    /** Number of distinct ranks of each column whose ranks are built. */
+    private final int[] rankCounts;
+    /** Statistics for the planner, gathered on first use. */
+    private ColumnStatistics statistics;
+    /** Multi-column index, null unless {@link #buildKdTree} built one. */
+    private volatile KdTree kdTree;
+    /** Interval indexes by low and high column ordinal, built on first use. */
+    private final IntervalIndex[][] intervals =
+            new IntervalIndex[GameData.values().length][GameData.values().length];
+    /** Nearest neighbour index, built on first use. */
+    private SimilarityIndex similarity;
+
+    /**
+     * Builds the table from a collection of games, in case-insensitive name order.
+     *
+     * @param games the games to store
+     */
+    public GameTable(Collection<BoardGame> games) {
+        this(games, NameCollation.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Builds the table from a collection of games. The collation key of every name is built
+     * once, the rows are sorted by those keys, and the name ranks are derived from them.
+     *
+     * @param games the games to store
+     * @param collation the order to store and sort names in
+     */
+    public GameTable(Collection<BoardGame> games, NameCollation collation) {
+        this(new HeapGameStore(games, collation));
+    }
+
+    /**
+     * Builds a table whose columns and names are kept in direct memory instead of as
+     * BoardGame objects on the heap. Games are created from the columns when asked for.
+     *
+     * @param games the games to store
+     * @param collation the order to store and sort names in
+     * @return the table
+     */
+    public static GameTable offHeap(Collection<BoardGame> games, NameCollation collation) {
+        return new GameTable(new OffHeapGameStore(games, collation));
+    }
+
+    /**
+     * Creates a table over stored rows.
+     *
+     * @param store the rows
+     */
+    GameTable(GameStore store) {
+        this.store = store;
+        this.columns = new DoubleColumn[GameData.values().length];
+        this.indexes = new ColumnIndex[GameData.values().length];
+        this.ranks = new int[GameData.values().length][];
+        this.rankCounts = new int[GameData.values().length];
+        for (GameData column : GameData.values()) {
+            if (isNumeric(column)) {
+                columns[column.ordinal()] = store.column(column);
+            }
+        }
+        int[] nameRanks = store.nameRanks();
+        ranks[GameData.NAME.ordinal()] = nameRanks;
+        rankCounts[GameData.NAME.ordinal()] = nameRanks.length == 0 ? 0
+                : nameRanks[nameRanks.length - 1] + 1;
+    }
+
+    /**
+     * Number of rows in the table.
+     *
+     * @return the number of games
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Gets the game stored at a row.
+     *
+     * @param row the row index
+     * @return the game at that row
+     */
+    public BoardGame game(int row) {
+        return store.game(row);
+    }
+
+    /**
+     * Gets a numeric value from the table.
+     *
+     * @param column the numeric column to read
+     * @param row the row index
+     * @return the value of the column at that row
+     */
+    public double value(GameData column, int row) {
+        return column(column).get(row);
+    }
+
+    /**
+     * Gets the lower case name of a row.
+     *
+     * @param row the row index
+     * @return the game name in lower case
+     */
+    String lowerName(int row) {
+        return store.lowerName(row);
+    }
+
+    /**
+     * Gets the dictionary of the distinct names.
+     *
+     * @return the dictionary, or null if the rows are not stored with one
+     */
+    NameDictionary dictionary() {
+        return store.dictionary();
+    }
+
+    /**
+     * Gets the dictionary code of every row's name.
+     *
+     * @return the codes, or null if the rows are not stored with a dictionary
+     */
+    int[] nameCodes() {
+        return store.nameCodes();
+    }
+
+    /**
+     * Gets a numeric column.
+     *
+     * @param column the numeric column
+     * @return the column values, indexed by row
+     */
+    DoubleColumn column(GameData column) {
+        DoubleColumn values = columns[column.ordinal()];
+        if (values == null) {
+            throw new IllegalArgumentException("Column is not numeric: " + column);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the sorted index of a numeric column, building or opening it on first use.
+     *
+     * @param column the numeric column
+     * @return the index over that column
+     */
+    synchronized ColumnIndex index(GameData column) {
+        ColumnIndex index = indexes[column.ordinal()];
+        if (index == null) {
+            column(column); // rejects NAME and ID
+            index = store.index(column);
+            indexes[column.ordinal()] = index;
+        }
+        return index;
+    }
+
+    /**
+     * Builds a k-d tree over several numeric columns, which planners made afterwards use for
+     * ANDs of range conditions on those columns. Meant to be called once, at load, before the
+     * table is queried.
+     *
+     * @param treeColumns the numeric columns to index, at least two
+     * @param budgetBytes most memory the tree may keep
+     * @return true if the tree was built, false if it does not fit the budget
+     * @throws IllegalArgumentException if a column is not numeric or repeated, there are
+     *         fewer than two, or the budget is not positive
+     */
+    public boolean buildKdTree(List<GameData> treeColumns, long budgetBytes) {
+        kdTree = KdTree.build(this, treeColumns, budgetBytes);
+        return kdTree != null;
+    }
+
+    /**
+     * Gets the multi-column index.
+     *
+     * @return the tree, or null if none was built
+     */
+    KdTree kdTree() {
+        return kdTree;
+    }
+
+    /**
+     * Gets the interval index over the ranges two numeric columns give each row, building it
+     * on first use.
+     *
+     * @param low the column holding each range's low end
+     * @param high the column holding each range's high end
+     * @return the index
+     */
+    synchronized IntervalIndex intervals(GameData low, GameData high) {
+        IntervalIndex index = intervals[low.ordinal()][high.ordinal()];
+        if (index == null) {
+            index = IntervalIndex.build(this, low, high);
+            intervals[low.ordinal()][high.ordinal()] = index;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the index of games by similarity, building it on first use.
+     *
+     * @return the index
+     */
+    synchronized SimilarityIndex similarity() {
+        if (similarity == null) {
+            similarity = SimilarityIndex.build(this);
+        }
+        return similarity;
+    }
+
+    /**
+     * Gets the dense rank of every row for a column: rows with the lowest value have rank 0,
+     * rows with the next value rank 1, and so on. NAME ranks follow the table's collation and
+     * are built with the table. Comparing ranks orders rows exactly like comparing the values,
+     * but with a single int comparison.
+     *
+     * @param column NAME or a numeric column
+     * @return the rank of each row, callers must not modify it
+     */
+    synchronized int[] ranks(GameData column) {
+        int[] columnRanks = ranks[column.ordinal()];
+        if (columnRanks == null) {
+            columnRanks = new int[size()];
+            int rank = 0;
+            ColumnIndex index = index(column);
+            double[] values = new double[BLOCK];
+            int[] rows = new int[BLOCK];
+            double previous = 0;
+            for (int i = 0; i < index.size(); i += BLOCK) {
+                int n = Math.min(BLOCK, index.size() - i);
+                index.values().get(i, values, 0, n);
+                index.rows().get(i, rows, 0, n);
+                for (int j = 0; j < n; j++) {
+                    if (i + j > 0 && values[j] != previous) {
+                        rank++;
+                    }
+                    previous = values[j];
+                    columnRanks[rows[j]] = rank;
+                }
+            }
+            ranks[column.ordinal()] = columnRanks;
+            rankCounts[column.ordinal()] = size() == 0 ? 0 : rank + 1;
+        }
+        return columnRanks;
+    }
+
+    /**
+     * Gets the number of distinct ranks of a column.
+     *
+     * @param column NAME or a numeric column
+     * @return one more than the highest rank
+     */
+    synchronized int rankCount(GameData column) {
+        ranks(column);
+        return rankCounts[column.ordinal()];
+    }
+
+    /**
+     * Gets the statistics the planner estimates with: the ones saved with the rows, or else
+     * gathered from the rows the first time.
+     *
+     * @return the statistics
+     */
+    synchronized ColumnStatistics statistics() {
+        if (statistics == null) {
+            statistics = store.statistics();
+            if (statistics == null) {
+                statistics = ColumnStatistics.of(this);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Collects the games of the selected rows, in row order.
+     *
+     * @param rows the selected rows
+     * @return the selected games
+     */
+    public List<BoardGame> select(BitSet rows) {
+        List<BoardGame> selected = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            selected.add(store.game(row));
+        }
+        return selected;
+    }
+
+    /**
+     * Collects the games of the given rows, in the order given.
+     *
+     * @param rows the rows to collect
+     * @return the games of those rows
+     */
+    public List<BoardGame> select(int[] rows) {
+        List<BoardGame> selected = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            selected.add(store.game(row));
+        }
+        return selected;
+    }
+
+    /**
+     * Checks if a column holds numeric values that can be stored in the table.
+     *
+     * @param column the column to check
+     * @return true for every column except NAME and ID
+     */
+    static boolean isNumeric(GameData column) {
+        return column != GameData.NAME && column != GameData.ID;
+    }
+
+    /**
+     * Checks if a numeric column holds whole numbers.
+     *
+     * @param column the column to check
+     * @return true if the column is backed by an int in BoardGame
+     */
+    static boolean isWholeNumber(GameData column) {
+        return column != GameData.RATING && column != GameData.DIFFICULTY;
+    }
+
+    /**
+     * Reads a numeric attribute from a game.
+     *
+     * @param game the game to read
+     * @param column the numeric column
+     * @return the value as a double
+     */
+    static double valueOf(BoardGame game, GameData column) {
+        return switch (column) {
+            case RATING -> game.getRating();
+            case DIFFICULTY -> game.getDifficulty();
+            case RANK -> game.getRank();
+            case MIN_PLAYERS -> game.getMinPlayers();
+            case MAX_PLAYERS -> game.getMaxPlayers();
+            case MIN_TIME -> game.getMinPlayTime();
+            case MAX_TIME -> game.getMaxPlayTime();
+            case YEAR -> game.getYearPublished();
+            default -> throw new IllegalArgumentException("Column is not numeric: " + column);
+        };
+    }
+}
@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 /**
  * GamesLoader provides functionality for loading board games from CSV files.
@@ -47,21 +48,14 @@ public final class GamesLoader {
      * @throws RuntimeException if there is an error reading or parsing the file
      */
     public static Set<BoardGame> loadGamesFile(String filename) {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
         Set<BoardGame> games = new HashSet<>();
         InputStream is = null;
         InputStreamReader isr = null;
         BufferedReader reader = null;
         
         try {
-            // 尝试多种方式加载资源文件
-            is = GamesLoader.class.getResourceAsStream("/" + filename);
-            if (is == null) {
-                is = GamesLoader.class.getClassLoader().getResourceAsStream(filename);
-            }
-            if (is == null) {
-                is = Thread.currentThread().getContextClassLoader().getResourceAsStream(filename);
-            }
-            
+            is = resource(filename);
             if (is == null) {
                 System.err.println("Error: Could not find resource file: " + filename);
                 return games;
@@ -69,18 +63,28 @@ public final class GamesLoader {
             
             isr = new InputStreamReader(is, StandardCharsets.UTF_8);
             reader = new BufferedReader(isr);
+            PlannerEvents.LoadPhaseEvent read = phase(filename, "read");
             List<String> lines = reader.lines().collect(Collectors.toList());
-            
+            commit(read, lines.size());
+
             if (lines.isEmpty()) {
                 return games;
             }
 
             Map<GameData, Integer> columnMap = processHeader(lines.remove(0));
-            games = lines.stream()
-                    .map(line -> toBoardGame(line, columnMap))
+            PlannerEvents.LoadPhaseEvent parse = phase(filename, "parse");
+            Map<String, String> names = new HashMap<>();
+            List<BoardGame> parsed = lines.stream()
+                    .map(line -> toBoardGame(line, columnMap, names))
                     .filter(game -> game != null)
-                    .collect(Collectors.toSet());
-                    
+                    .collect(Collectors.toList());
+            commit(parse, parsed.size());
+            PlannerEvents.LoadPhaseEvent dedupe = phase(filename, "dedupe");
+            games = new HashSet<>(parsed);
+            commit(dedupe, games.size());
+            PlannerMetrics.loaded(games.size());
+            PlannerMetrics.stop(PlannerMetrics.Operation.LOAD_GAMES, sample);
+
         } catch (Exception e) {
             System.err.println("Error reading file: " + e.getMessage());
             e.printStackTrace(); 
@@ -102,6 +106,77 @@ public final class GamesLoader {
         return games;
     }
 
+    /**
+     * Computes a checksum of a games file, so copies made from it, such as a stored catalog,
+     * can tell when the file has changed.
+     *
+     * @param filename the name of the file (relative to resources directory)
+     * @return the CRC-32 of the file's bytes, or -1 if the file cannot be found or read
+     */
+    public static long checksum(String filename) {
+        try (InputStream in = resource(filename)) {
+            if (in == null) {
+                return -1;
+            }
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[1 << 16];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                crc.update(buffer, 0, read);
+            }
+            return crc.getValue();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Opens a resource file, looking it up through this class, its class loader and the
+     * thread's context class loader in turn.
+     *
+     * @param filename the name of the file (relative to resources directory)
+     * @return the open stream, or null if the file is not found
+     */
+    private static InputStream resource(String filename) {
+        // 尝试多种方式加载资源文件
+        InputStream is = GamesLoader.class.getResourceAsStream("/" + filename);
+        if (is == null) {
+            is = GamesLoader.class.getClassLoader().getResourceAsStream(filename);
+        }
+        if (is == null) {
+            is = Thread.currentThread().getContextClassLoader().getResourceAsStream(filename);
+        }
+        return is;
+    }
+
+    /**
+     * Starts the flight recorder event of a load phase.
+     *
+     * @param filename the file being loaded
+     * @param name the phase
+     * @return the started event
+     */
+    private static PlannerEvents.LoadPhaseEvent phase(String filename, String name) {
+        PlannerEvents.LoadPhaseEvent event = new PlannerEvents.LoadPhaseEvent();
+        event.file = filename;
+        event.phase = name;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the flight recorder event of a load phase, recording it if it was slow.
+     *
+     * @param event the event
+     * @param count lines or games the phase produced
+     */
+    private static void commit(PlannerEvents.LoadPhaseEvent event, int count) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.count = count;
+            event.commit();
+        }
+    }
+
     /**
      * Processes the header row of the CSV file to create a mapping of columns to their indices.
      *
@@ -127,16 +202,20 @@ public final class GamesLoader {
      *
      * @param line the CSV line to parse
      * @param columnMap the mapping of GameData values to column indices
+     * @param names the names read so far in this file, so a repeated name is kept once
      * @return a new BoardGame object, or null if the data is invalid
      */
-    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap) {
+    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap,
+            Map<String, String> names) {
         String[] columns = line.split(DELIMITER);
         if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
             return null;
         }
 
         try {
-            BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
+            String name = names.computeIfAbsent(columns[columnMap.get(GameData.NAME)],
+                    key -> key);
+            BoardGame game = new BoardGame(name,
                     Integer.parseInt(columns[columnMap.get(GameData.ID)]),
                     Integer.parseInt(columns[columnMap.get(GameData.MIN_PLAYERS)]),
                     Integer.parseInt(columns[columnMap.get(GameData.MAX_PLAYERS)]),
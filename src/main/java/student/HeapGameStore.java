@@ -0,0 +1,108 @@
+package student;
+
+import java.util.Collection;
+
+/**
+ * HeapGameStore keeps the rows of a {@link GameTable} on the heap: the BoardGame objects, a
+ * {@link NameDictionary} code per row and one primitive array per numeric column.
+ */
+final class HeapGameStore implements GameStore {
+    /** The games, in name order. */
+    private final BoardGame[] games;
+    /** The distinct names, with their lower case forms precomputed once for name filters. */
+    private final NameDictionary dictionary = new NameDictionary();
+    /** Dictionary code of every row's name. */
+    private final int[] nameCodes;
+    /** Numeric columns indexed by GameData ordinal, null for NAME and ID. */
+    private final double[][] columns;
+    /** Dense rank of every row's name. */
+    private final int[] nameRanks;
+
+    /**
+     * Stores a collection of games. The collation key of every name is built once, the rows
+     * are sorted by those keys, and the name ranks are derived from them.
+     *
+     * @param games the games to store
+     * @param collation the order to store names in
+     */
+    HeapGameStore(Collection<BoardGame> games, NameCollation collation) {
+        BoardGame[] unsorted = games.toArray(new BoardGame[0]);
+        byte[][] keys = new byte[unsorted.length][];
+        int[] order = new int[unsorted.length];
+        for (int i = 0; i < unsorted.length; i++) {
+            keys[i] = collation.key(unsorted[i].getName());
+            order[i] = i;
+        }
+        IntSort.sort(order, (a, b) -> NameCollation.compare(keys[a], keys[b]));
+
+        this.games = new BoardGame[unsorted.length];
+        this.nameCodes = new int[unsorted.length];
+        this.columns = new double[GameData.values().length][];
+        for (GameData column : GameData.values()) {
+            if (GameTable.isNumeric(column)) {
+                columns[column.ordinal()] = new double[unsorted.length];
+            }
+        }
+        this.nameRanks = new int[unsorted.length];
+        int rank = 0;
+        for (int row = 0; row < unsorted.length; row++) {
+            BoardGame game = unsorted[order[row]];
+            this.games[row] = game;
+            nameCodes[row] = dictionary.intern(game.getName());
+            for (GameData column : GameData.values()) {
+                if (GameTable.isNumeric(column)) {
+                    columns[column.ordinal()][row] = GameTable.valueOf(game, column);
+                }
+            }
+            if (row > 0 && NameCollation.compare(keys[order[row - 1]], keys[order[row]]) != 0) {
+                rank++;
+            }
+            nameRanks[row] = rank;
+        }
+    }
+
+    @Override
+    public int size() {
+        return games.length;
+    }
+
+    @Override
+    public BoardGame game(int row) {
+        return games[row];
+    }
+
+    @Override
+    public String lowerName(int row) {
+        return dictionary.lowerName(nameCodes[row]);
+    }
+
+    @Override
+    public DoubleColumn column(GameData column) {
+        return DoubleColumn.of(columns[column.ordinal()]);
+    }
+
+    @Override
+    public ColumnIndex index(GameData column) {
+        return ColumnIndex.build(columns[column.ordinal()]);
+    }
+
+    @Override
+    public int[] nameRanks() {
+        return nameRanks;
+    }
+
+    @Override
+    public NameDictionary dictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public int[] nameCodes() {
+        return nameCodes;
+    }
+
+    @Override
+    public ColumnStatistics statistics() {
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package student;
+
+import java.util.stream.Stream;
+
+/**
+ * Extends the game list with the operations that work on filter results already in memory,
+ * which the console and the server use instead of filtering again. IGameList is left as it
+ * was given, so any implementation of it keeps working; GameList implements both.
+ */
+public interface IQueryGameList extends IGameList {
+
+    /**
+     * Adds a game or games to the list like {@link #addToList(String, Stream)}, using filter
+     * results that are already in memory (see IQueryPlanner.currentResult()) so nothing has to
+     * be filtered again. Here an index or range within the results takes priority over a name,
+     * so adding by position does not have to look names up.
+     * @param str      the string to parse and add games to the list.
+     * @param filtered the current filter results to use as a basis for adding.
+     * @throws IllegalArgumentException if the string is not valid.
+     */
+    void addToList(String str, FilterResult filtered) throws IllegalArgumentException;
+
+    /**
+     * Adds the games saved in a file to the list. The format is picked from the file extension
+     * the same way as saveGame picks it; plain name lists are matched by name against the
+     * given games.
+     * @param filename The name of the file to load the list from.
+     * @param catalog The games to look names up in.
+     * @throws IllegalArgumentException if the file is missing or malformed.
+     */
+    void loadGame(String filename, FilterResult catalog) throws IllegalArgumentException;
+}
@@ -0,0 +1,128 @@
+package student;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Extends the planner with the queries the console, the batch mode and the server need beyond
+ * the progressive filters of {@link IPlanner}. IPlanner is left as it was given, so any
+ * implementation of it keeps working; Planner implements both.
+ */
+public interface IQueryPlanner extends IPlanner {
+
+    /**
+     * Describes how a filter is run: the simplified filter, the strategy chosen for each part
+     * of it, and the estimated and actual number of games each part selects.
+     * Does not change the current filter.
+     * @param filter The filter to explain.
+     * @return A multi-line description of the plan.
+     */
+    String explain(String filter);
+
+    /**
+     * Filters the board games by the passed in text filter, sorting the results on several
+     * columns. The first criterion decides the order, the second breaks its ties, and so on.
+     * Games that tie on every criterion are in ascending name order.
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The columns and directions to sort on, most significant first.
+     * @return A stream of board games that match the filter.
+     * @see #filter(String, GameData, boolean)
+     */
+    Stream<BoardGame> filter(String filter, List<SortCriterion> sortOn);
+
+    /**
+     * Gets the games of the most recent filter, in the order they were returned, without
+     * filtering again. If no filter has been applied since the last reset, this is every game
+     * sorted by name.
+     * @return The current results, which can be indexed and searched by name.
+     */
+    FilterResult currentResult();
+
+    /**
+     * Gets every game in the collection sorted by name, regardless of the current filter.
+     * @return All games, which can be indexed and searched by name.
+     */
+    FilterResult allGames();
+
+    /**
+     * Gets the log of filters that took longer than its threshold.
+     * @return The slow query log, which can be configured, dumped and cleared.
+     */
+    SlowQueryLog slowQueryLog();
+
+    /**
+     * Runs a filter like {@link #filter(String, List)}, but leaves the current results as they
+     * are, so independent filters can run at the same time.
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The sort keys, most significant first.
+     * @return The filtered and sorted games.
+     * @throws IllegalArgumentException if the filter is malformed
+     */
+    FilterResult query(String filter, List<SortCriterion> sortOn);
+
+    /**
+     * Runs a filter like {@link #query(String, List)}, but emits its games to subscribers as
+     * they request them instead of returning them all at once. Each subscription runs the
+     * filter again and leaves the current results as they are. Where the sort allows it the
+     * games are produced in order without sorting the whole result first, so the first game
+     * arrives early and a slow subscriber does not force the result into memory.
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The sort keys, most significant first.
+     * @return A publisher of the filtered and sorted games.
+     * @throws IllegalArgumentException if the filter is malformed
+     */
+    Flow.Publisher<BoardGame> publish(String filter, List<SortCriterion> sortOn);
+
+    /**
+     * Runs several filters like {@link #query(String, List)} at once, for example the widgets
+     * of one page. Filters that have to read every game are evaluated together in a single
+     * pass over the collection, then each result is sorted on its own keys. The current
+     * results are left as they are.
+     * @param requests The filters and their sort keys.
+     * @return The filtered and sorted games of each request, in the same order.
+     * @throws IllegalArgumentException if any filter is malformed
+     */
+    List<FilterResult> queryAll(List<QueryRequest> requests);
+
+    /**
+     * Summarizes the games of a filter instead of returning them: the games are grouped on
+     * a numeric column, in groups of a fixed width, and for each group and for all of them
+     * the count and the minimum, maximum and average of another numeric column are computed.
+     * For example grouping on year with width 1 and measuring rating gives the number of
+     * games and their rating range for every year. The current results are left as they are.
+     * @param filter The filter to apply to the board games.
+     * @param groupBy The numeric column to group on.
+     * @param width The width of each group, 1 for one group per whole number.
+     * @param measure The numeric column to summarize in each group.
+     * @return The groups, in ascending order.
+     * @throws IllegalArgumentException if the filter is malformed, a column is not numeric,
+     *         or the width is not positive
+     */
+    FacetResult facet(String filter, GameData groupBy, double width, GameData measure);
+
+    /**
+     * Finds the games that support exactly a number of players and finish within a time,
+     * the same games as the filter "min_players<=N,max_players>=N,max_time<=T", but answered
+     * from an interval index over the player ranges instead of three range conditions.
+     * The current results are left as they are.
+     * @param players The number of players, which must be in the game's player range.
+     * @param minutes The most minutes the game may take, compared to its maximum play time.
+     * @param sortOn The sort keys, most significant first.
+     * @return The games that fit, sorted.
+     * @throws IllegalArgumentException if players is not positive or minutes is negative
+     */
+    FilterResult fit(int players, int minutes, List<SortCriterion> sortOn);
+
+    /**
+     * Finds the games most like a game: nearest in rating, difficulty, player range, play
+     * time and year, each scaled by how much it varies across the collection. The lookup goes
+     * through an approximate index, so on a large collection a close game is occasionally
+     * missed. The game itself is left out. The current results are left as they are.
+     * @param game The game to match, which need not be in the collection.
+     * @param count The most games to return.
+     * @return The most similar games, most similar first.
+     * @throws IllegalArgumentException if count is negative
+     */
+    FilterResult similar(BoardGame game, int count);
+}
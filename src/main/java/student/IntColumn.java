@@ -0,0 +1,90 @@
+package student;
+
+import java.nio.IntBuffer;
+
+/**
+ * IntColumn is a read-only sequence of ints addressed by position, such as the game ids of a
+ * {@link GameTable} or the row permutation of a {@link ColumnIndex}. It may be backed by an
+ * array or by pages of a file.
+ *
+ * Scans should read blocks with {@link #get(int, int[], int, int)}, which costs one page
+ * lookup per block instead of one per value.
+ */
+interface IntColumn {
+
+    /**
+     * Number of values.
+     *
+     * @return the size
+     */
+    int size();
+
+    /**
+     * Gets one value.
+     *
+     * @param index the position
+     * @return the value
+     */
+    int get(int index);
+
+    /**
+     * Copies a block of values.
+     *
+     * @param from the first position to copy
+     * @param dst the array to copy into
+     * @param offset where in dst to start
+     * @param length the number of values
+     */
+    void get(int from, int[] dst, int offset, int length);
+
+    /**
+     * Wraps an array. The array is not copied, so it must not change afterwards.
+     *
+     * @param values the values
+     * @return the column
+     */
+    static IntColumn of(int[] values) {
+        return new IntColumn() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public int get(int index) {
+                return values[index];
+            }
+
+            @Override
+            public void get(int from, int[] dst, int offset, int length) {
+                System.arraycopy(values, from, dst, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Wraps a buffer, for example a view of direct (off-heap) memory. The buffer is read with
+     * absolute gets only, so it can be shared.
+     *
+     * @param values the values
+     * @return the column
+     */
+    static IntColumn of(IntBuffer values) {
+        return new IntColumn() {
+            @Override
+            public int size() {
+                return values.limit();
+            }
+
+            @Override
+            public int get(int index) {
+                return values.get(index);
+            }
+
+            @Override
+            public void get(int from, int[] dst, int offset, int length) {
+                values.get(from, dst, offset, length);
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package student;
+
+/**
+ * IntSort sorts arrays of row indexes with a primitive comparator, so ordering rows by a
+ * column never boxes the indexes or the values being compared.
+ *
+ * The sort is a stable merge sort that switches to insertion sort for short runs.
+ */
+final class IntSort {
+    /** Runs shorter than this are insertion sorted. */
+    private static final int INSERTION_THRESHOLD = 24;
+
+    /** Compares two ints, typically row indexes, without boxing them. */
+    @FunctionalInterface
+    interface IntComparator {
+        /**
+         * Compares two values.
+         *
+         * @param a the first value
+         * @param b the second value
+         * @return negative, zero or positive as a is before, equal to or after b
+         */
+        int compare(int a, int b);
+    }
+
+    /** Private constructor to prevent instantiation of utility class. */
+    private IntSort() {
+    }
+
+    /**
+     * Sorts part of an array. Equal values keep their relative order.
+     *
+     * @param values the array to sort
+     * @param from first index to sort, inclusive
+     * @param to last index to sort, exclusive
+     * @param comparator the order to sort in
+     */
+    static void sort(int[] values, int from, int to, IntComparator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int[] buffer = new int[to - from];
+        mergeSort(values, buffer, from, to, comparator);
+    }
+
+    /**
+     * Sorts a whole array. Equal values keep their relative order.
+     *
+     * @param values the array to sort
+     * @param comparator the order to sort in
+     */
+    static void sort(int[] values, IntComparator comparator) {
+        sort(values, 0, values.length, comparator);
+    }
+
+    /**
+     * Recursive merge step.
+     *
+     * @param values the array being sorted
+     * @param buffer scratch space, at least as long as the range
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param comparator the order to sort in
+     */
+    private static void mergeSort(int[] values, int[] buffer, int from, int to,
+            IntComparator comparator) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            insertionSort(values, from, to, comparator);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(values, buffer, from, mid, comparator);
+        mergeSort(values, buffer, mid, to, comparator);
+        if (comparator.compare(values[mid - 1], values[mid]) <= 0) {
+            return; // already in order
+        }
+        System.arraycopy(values, from, buffer, 0, mid - from);
+        int left = 0;
+        int leftEnd = mid - from;
+        int right = mid;
+        int out = from;
+        while (left < leftEnd && right < to) {
+            if (comparator.compare(values[right], buffer[left]) < 0) {
+                values[out++] = values[right++];
+            } else {
+                values[out++] = buffer[left++];
+            }
+        }
+        System.arraycopy(buffer, left, values, out, leftEnd - left);
+    }
+
+    /**
+     * Insertion sort for short runs.
+     *
+     * @param values the array being sorted
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param comparator the order to sort in
+     */
+    private static void insertionSort(int[] values, int from, int to, IntComparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            int value = values[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(values[j], value) > 0) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+}
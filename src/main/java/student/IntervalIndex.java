@@ -0,0 +1,231 @@
+package student;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * IntervalIndex is a centered interval tree over the [low, high] ranges that two numeric
+ * columns of a {@link GameTable} give each row, such as minimum and maximum players. It finds
+ * the rows whose range contains a point (a stabbing query) in O(log n + k) time, and counts
+ * them in O(log² n) without visiting them.
+ *
+ * Every node has a center. The rows whose range contains the center are kept at the node
+ * twice, sorted by low ascending and by high descending; the rows entirely below the center
+ * go to the left subtree and those entirely above it to the right. A point below the center
+ * matches a prefix of the low order, a point above it a prefix of the high order, and then
+ * only one subtree is visited. Centers are medians of the endpoints, so the tree has
+ * O(log n) levels. Nodes are stored in flat arrays rather than as objects.
+ *
+ * Rows whose low is above their high, which the data has for unknown player counts, contain
+ * no point and are left out.
+ */
+final class IntervalIndex {
+    /** Center of each node. */
+    private double[] centers = new double[16];
+    /** Left child of each node, -1 for none. */
+    private int[] lefts = new int[16];
+    /** Right child of each node, -1 for none. */
+    private int[] rights = new int[16];
+    /** First position of each node's rows in the sorted arrays. */
+    private int[] froms = new int[16];
+    /** Position after the last of each node's rows. */
+    private int[] tos = new int[16];
+    /** Number of nodes. */
+    private int nodes;
+    /** Root node, -1 if no row has a valid range. */
+    private final int root;
+
+    /** Rows of each node, by low ascending. */
+    private final int[] byLow;
+    /** Low of each row in {@link #byLow}. */
+    private final double[] lows;
+    /** Rows of each node, by high descending. */
+    private final int[] byHigh;
+    /** High of each row in {@link #byHigh}. */
+    private final double[] highs;
+    /** Next free position in the sorted arrays while building. */
+    private int filled;
+
+    /**
+     * Builds the index.
+     *
+     * @param low the low end of each row's range
+     * @param high the high end of each row's range
+     */
+    private IntervalIndex(double[] low, double[] high) {
+        int[] rows = new int[low.length];
+        int count = 0;
+        for (int row = 0; row < low.length; row++) {
+            if (low[row] <= high[row]) {
+                rows[count++] = row;
+            }
+        }
+        byLow = new int[count];
+        lows = new double[count];
+        byHigh = new int[count];
+        highs = new double[count];
+        root = build(Arrays.copyOf(rows, count), low, high);
+    }
+
+    /**
+     * Builds the index over the ranges of two columns of a table.
+     *
+     * @param table the table
+     * @param low the column holding each range's low end
+     * @param high the column holding each range's high end
+     * @return the index
+     * @throws IllegalArgumentException if a column is not numeric
+     */
+    static IntervalIndex build(GameTable table, GameData low, GameData high) {
+        double[] lowValues = new double[table.size()];
+        double[] highValues = new double[table.size()];
+        table.column(low).get(0, lowValues, 0, lowValues.length);
+        table.column(high).get(0, highValues, 0, highValues.length);
+        return new IntervalIndex(lowValues, highValues);
+    }
+
+    /**
+     * Builds the subtree of some rows.
+     *
+     * @param rows the rows, every one with a valid range
+     * @param low the low end of each row's range
+     * @param high the high end of each row's range
+     * @return the subtree's node, -1 if there are no rows
+     */
+    private int build(int[] rows, double[] low, double[] high) {
+        if (rows.length == 0) {
+            return -1;
+        }
+        double[] ends = new double[rows.length * 2];
+        for (int i = 0; i < rows.length; i++) {
+            ends[2 * i] = low[rows[i]];
+            ends[2 * i + 1] = high[rows[i]];
+        }
+        Arrays.sort(ends);
+        double center = ends[rows.length];
+
+        int[] left = new int[rows.length];
+        int[] right = new int[rows.length];
+        int[] here = new int[rows.length];
+        int leftCount = 0;
+        int rightCount = 0;
+        int hereCount = 0;
+        for (int row : rows) {
+            if (high[row] < center) {
+                left[leftCount++] = row;
+            } else if (low[row] > center) {
+                right[rightCount++] = row;
+            } else {
+                here[hereCount++] = row;
+            }
+        }
+
+        int node = nodes++;
+        if (node == centers.length) {
+            centers = Arrays.copyOf(centers, node * 2);
+            lefts = Arrays.copyOf(lefts, node * 2);
+            rights = Arrays.copyOf(rights, node * 2);
+            froms = Arrays.copyOf(froms, node * 2);
+            tos = Arrays.copyOf(tos, node * 2);
+        }
+        centers[node] = center;
+        froms[node] = filled;
+        int[] sorted = Arrays.copyOf(here, hereCount);
+        IntSort.sort(sorted, (a, b) -> Double.compare(low[a], low[b]));
+        for (int i = 0; i < hereCount; i++) {
+            byLow[filled + i] = sorted[i];
+            lows[filled + i] = low[sorted[i]];
+        }
+        IntSort.sort(sorted, (a, b) -> Double.compare(high[b], high[a]));
+        for (int i = 0; i < hereCount; i++) {
+            byHigh[filled + i] = sorted[i];
+            highs[filled + i] = high[sorted[i]];
+        }
+        filled += hereCount;
+        tos[node] = filled;
+
+        int leftChild = build(Arrays.copyOf(left, leftCount), low, high);
+        int rightChild = build(Arrays.copyOf(right, rightCount), low, high);
+        lefts[node] = leftChild;
+        rights[node] = rightChild;
+        return node;
+    }
+
+    /**
+     * Visits the rows whose range contains a point, in no particular order.
+     *
+     * @param point the point
+     * @param action called with each matching row
+     */
+    void stab(double point, IntConsumer action) {
+        int node = root;
+        while (node >= 0) {
+            double center = centers[node];
+            if (point < center) {
+                for (int i = froms[node]; i < tos[node] && lows[i] <= point; i++) {
+                    action.accept(byLow[i]);
+                }
+                node = lefts[node];
+            } else if (point > center) {
+                for (int i = froms[node]; i < tos[node] && highs[i] >= point; i++) {
+                    action.accept(byHigh[i]);
+                }
+                node = rights[node];
+            } else {
+                for (int i = froms[node]; i < tos[node]; i++) {
+                    action.accept(byLow[i]);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts the rows whose range contains a point, with a binary search at each level.
+     *
+     * @param point the point
+     * @return the number of matching rows
+     */
+    int count(double point) {
+        int count = 0;
+        int node = root;
+        while (node >= 0) {
+            double center = centers[node];
+            if (point < center) {
+                count += prefix(lows, froms[node], tos[node], point, true);
+                node = lefts[node];
+            } else if (point > center) {
+                count += prefix(highs, froms[node], tos[node], point, false);
+                node = rights[node];
+            } else {
+                return count + tos[node] - froms[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Measures the sorted prefix of a node's values that contains a point.
+     *
+     * @param values the lows, ascending, or the highs, descending
+     * @param from the node's first position
+     * @param to the position after the node's last
+     * @param point the point
+     * @param ascending true for lows, which match while at or below the point
+     * @return the length of the matching prefix
+     */
+    private static int prefix(double[] values, int from, int to, double point,
+            boolean ascending) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ascending ? values[mid] <= point : values[mid] >= point) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - from;
+    }
+}
@@ -0,0 +1,298 @@
+package student;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Json writes and reads the small, flat JSON objects used for game records: one object whose
+ * values are strings, numbers, booleans or null. It is not a general JSON library, nested
+ * objects and arrays are rejected.
+ */
+final class Json {
+
+    /** Private constructor to prevent instantiation of utility class. */
+    private Json() {
+    }
+
+    /**
+     * Appends a string as a quoted JSON string.
+     *
+     * @param out the builder to append to
+     * @param value the string
+     * @return the builder
+     */
+    static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Appends a board game as a JSON object with one field per column, named after the
+     * {@link GameData} column names.
+     *
+     * @param out the builder to append to
+     * @param game the game
+     * @return the builder
+     */
+    static StringBuilder game(StringBuilder out, BoardGame game) {
+        out.append('{');
+        for (GameData column : GameData.values()) {
+            if (column != GameData.NAME) {
+                out.append(',');
+            }
+            quote(out, column.getColumnName()).append(':');
+            if (column == GameData.NAME) {
+                quote(out, game.getName());
+            } else if (column == GameData.ID) {
+                out.append(game.getId());
+            } else if (GameTable.isWholeNumber(column)) {
+                out.append((long) GameTable.valueOf(game, column));
+            } else {
+                out.append(GameTable.valueOf(game, column));
+            }
+        }
+        return out.append('}');
+    }
+
+    /**
+     * Parses a flat JSON object.
+     *
+     * @param text the JSON text
+     * @return the fields in order; values are String, Double, Boolean or null
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    static Map<String, Object> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> fields = parser.object();
+        parser.skipSpace();
+        if (parser.pos != text.length()) {
+            throw parser.error("trailing text");
+        }
+        return fields;
+    }
+
+    /**
+     * Reads a board game from a JSON object written by {@link #game(StringBuilder, BoardGame)}.
+     *
+     * @param text the JSON text
+     * @return the game
+     * @throws IllegalArgumentException if the object is malformed or misses a column
+     */
+    static BoardGame parseGame(String text) {
+        Map<String, Object> fields = parseObject(text);
+        Object name = fields.get(GameData.NAME.getColumnName());
+        if (!(name instanceof String)) {
+            throw new IllegalArgumentException("Missing name in " + text);
+        }
+        return new BoardGame((String) name, (int) number(fields, GameData.ID),
+                (int) number(fields, GameData.MIN_PLAYERS),
+                (int) number(fields, GameData.MAX_PLAYERS),
+                (int) number(fields, GameData.MIN_TIME), (int) number(fields, GameData.MAX_TIME),
+                number(fields, GameData.DIFFICULTY), (int) number(fields, GameData.RANK),
+                number(fields, GameData.RATING), (int) number(fields, GameData.YEAR));
+    }
+
+    /**
+     * Gets a numeric column of a parsed game.
+     *
+     * @param fields the parsed fields
+     * @param column the column
+     * @return the value
+     */
+    private static double number(Map<String, Object> fields, GameData column) {
+        Object value = fields.get(column.getColumnName());
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Missing number for " + column.getColumnName());
+        }
+        return (Double) value;
+    }
+
+    /** A recursive descent parser over one JSON text. */
+    private static final class Parser {
+        /** The text being parsed. */
+        private final String text;
+        /** Current position in the text. */
+        private int pos;
+
+        /**
+         * Creates a parser.
+         *
+         * @param text the text to parse
+         */
+        Parser(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Parses an object.
+         *
+         * @return the fields
+         */
+        Map<String, Object> object() {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            expect('{');
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+                return fields;
+            }
+            do {
+                skipSpace();
+                String key = string();
+                skipSpace();
+                expect(':');
+                skipSpace();
+                fields.put(key, value());
+                skipSpace();
+            } while (accept(','));
+            expect('}');
+            return fields;
+        }
+
+        /**
+         * Parses a scalar value.
+         *
+         * @return the value
+         */
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            } else if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            } else if (c == '-' || Character.isDigit(c)) {
+                int start = pos;
+                while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) {
+                    pos++;
+                }
+                try {
+                    return Double.parseDouble(text.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    throw error("bad number");
+                }
+            }
+            throw error("unexpected value");
+        }
+
+        /**
+         * Parses a quoted string.
+         *
+         * @return the unescaped string
+         */
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                } else if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    throw error("unterminated escape");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("bad unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad unicode escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> sb.append(escaped); // \" \\ and \/
+                }
+            }
+        }
+
+        /** Skips white space. */
+        void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        /**
+         * Looks at the next character.
+         *
+         * @return the character, or 0 at the end
+         */
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        /**
+         * Consumes a character if it is next.
+         *
+         * @param c the character
+         * @return true if it was consumed
+         */
+        private boolean accept(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consumes a character that must be next.
+         *
+         * @param c the character
+         */
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        /**
+         * Builds a parse error.
+         *
+         * @param message what went wrong
+         * @return the exception
+         */
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(String.format("Invalid JSON at %d: %s", pos,
+                    message));
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * KdTree is an optional index over several numeric columns of a {@link GameTable} at once, so
+ * a filter such as "rating>7,difficulty<3,year>=2010" is answered by one pruned walk of the
+ * tree instead of one probe per column and an intersection of large bitmaps.
+ *
+ * The tree is packed: the rows are permuted so each node covers a contiguous slice of them,
+ * halved at every level on the column whose values in the node are most spread out, down to
+ * leaves of at most {@link #LEAF} rows. Node slices follow from their position, so a node only
+ * stores its bounding box, the lowest and highest value of each column. A walk skips nodes
+ * whose box misses a condition, takes every row of nodes whose box lies inside all of them,
+ * and tests rows one by one only in leaves that straddle a boundary.
+ *
+ * The tree is built at load on the common fork join pool, the two halves of a large node in
+ * parallel. It is kept under a memory budget: the column values are copied into leaf order
+ * when they fit, so leaves are tested from contiguous memory, else they are read from the
+ * table's columns; if even the rows and boxes do not fit, no tree is built.
+ */
+final class KdTree {
+    /** Columns typical compound filters combine. */
+    static final List<GameData> DEFAULT_COLUMNS = List.of(GameData.RATING, GameData.DIFFICULTY,
+            GameData.YEAR, GameData.MAX_TIME);
+    /** Most rows in a leaf. */
+    static final int LEAF = 32;
+    /** Nodes with more rows than this build their halves in parallel. */
+    private static final int PARALLEL_ROWS = 1 << 14;
+    /** Nodes with at most this many rows end an estimate. */
+    private static final int ESTIMATE_ROWS = 4 * LEAF;
+
+    /** The columns indexed, by dimension. */
+    private final GameData[] columns;
+    /** Dimension of each column by ordinal, -1 if the column is not indexed. */
+    private final int[] dimensions = new int[GameData.values().length];
+    /** Number of rows. */
+    private final int size;
+    /** Level of the leaves, the root is level 0. */
+    private final int depth;
+    /** The rows, permuted so every node covers a slice. */
+    private final int[] rows;
+    /** Lowest and highest value of each column in each node, by node then dimension. */
+    private final double[] boxes;
+    /** Values of each dimension in permuted order, null if they did not fit the budget. */
+    private final double[][] values;
+    /** The table's columns, read when the values are not copied. */
+    private final DoubleColumn[] source;
+    /** Span of each dimension over the whole table, which spreads are measured against. */
+    private final double[] spans;
+
+    /**
+     * Creates a tree; {@link #build} fills it in.
+     *
+     * @param table the table
+     * @param columns the columns indexed
+     * @param depth level of the leaves
+     * @param copyValues whether the values are kept in leaf order
+     */
+    private KdTree(GameTable table, GameData[] columns, int depth, boolean copyValues) {
+        this.columns = columns;
+        this.size = table.size();
+        this.depth = depth;
+        this.rows = new int[size];
+        this.boxes = new double[nodes(depth) * columns.length * 2];
+        this.values = copyValues ? new double[columns.length][] : null;
+        this.source = new DoubleColumn[columns.length];
+        this.spans = new double[columns.length];
+        Arrays.fill(dimensions, -1);
+        for (int d = 0; d < columns.length; d++) {
+            dimensions[columns[d].ordinal()] = d;
+            source[d] = table.column(columns[d]);
+        }
+    }
+
+    /**
+     * Builds a tree over some numeric columns of a table.
+     *
+     * @param table the table
+     * @param columns the numeric columns to index, at least two
+     * @param budgetBytes most memory the tree may keep
+     * @return the tree, or null if its rows and boxes alone exceed the budget
+     * @throws IllegalArgumentException if a column is not numeric or repeated, there are
+     *         fewer than two, or the budget is not positive
+     */
+    static KdTree build(GameTable table, List<GameData> columns, long budgetBytes) {
+        if (columns.size() < 2 || columns.stream().distinct().count() != columns.size()) {
+            throw new IllegalArgumentException("Invalid tree columns: " + columns);
+        }
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Invalid memory budget: " + budgetBytes);
+        }
+        int depth = 0;
+        while (((long) table.size() + (1L << depth) - 1 >> depth) > LEAF) {
+            depth++;
+        }
+        long dims = columns.size();
+        long compact = (long) table.size() * Integer.BYTES
+                + (long) nodes(depth) * dims * 2 * Double.BYTES;
+        long copied = compact + table.size() * dims * Double.BYTES;
+        if (compact > budgetBytes) {
+            return null;
+        }
+        KdTree tree = new KdTree(table, columns.toArray(new GameData[0]), depth,
+                copied <= budgetBytes);
+        tree.fill();
+        return tree;
+    }
+
+    /**
+     * Number of nodes of a tree whose leaves are at a level.
+     *
+     * @param depth the level of the leaves
+     * @return the node count
+     */
+    private static int nodes(int depth) {
+        return (2 << depth) - 1;
+    }
+
+    /** Sorts the rows into their nodes and computes the boxes. */
+    private void fill() {
+        double[][] byRow = new double[columns.length][size];
+        for (int d = 0; d < columns.length; d++) {
+            source[d].get(0, byRow[d], 0, size);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double value : byRow[d]) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            spans[d] = max > min ? max - min : 1;
+        }
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        if (size > 0) {
+            ForkJoinPool.commonPool().invoke(new Build(byRow, 0, 0, size, 0));
+        }
+        if (values != null) {
+            for (int d = 0; d < columns.length; d++) {
+                double[] permuted = new double[size];
+                for (int p = 0; p < size; p++) {
+                    permuted[p] = byRow[d][rows[p]];
+                }
+                values[d] = permuted;
+            }
+        }
+    }
+
+    /** Builds one node: splits its slice, builds the halves, then merges their boxes. */
+    private final class Build extends RecursiveAction {
+        /** Serialization version, as the task is serializable through RecursiveAction. */
+        private static final long serialVersionUID = 1L;
+        /** Column values by dimension, then row. */
+        private final double[][] byRow;
+        /** The node. */
+        private final int node;
+        /** First position of its slice. */
+        private final int from;
+        /** Position after its slice. */
+        private final int to;
+        /** Its level. */
+        private final int level;
+
+        /**
+         * Creates the task.
+         *
+         * @param byRow column values by dimension, then row
+         * @param node the node
+         * @param from first position of its slice
+         * @param to position after its slice
+         * @param level its level
+         */
+        Build(double[][] byRow, int node, int from, int to, int level) {
+            this.byRow = byRow;
+            this.node = node;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+            int dims = columns.length;
+            if (level == depth || to - from <= 1) {
+                for (int d = 0; d < dims; d++) {
+                    double min = Double.POSITIVE_INFINITY;
+                    double max = Double.NEGATIVE_INFINITY;
+                    for (int p = from; p < to; p++) {
+                        double value = byRow[d][rows[p]];
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                    boxes[(node * dims + d) * 2] = min;
+                    boxes[(node * dims + d) * 2 + 1] = max;
+                }
+                return;
+            }
+            int split = widest();
+            int mid = (from + to) >>> 1;
+            select(byRow[split], from, to, mid);
+            Build left = new Build(byRow, node * 2 + 1, from, mid, level + 1);
+            Build right = new Build(byRow, node * 2 + 2, mid, to, level + 1);
+            if (to - from > PARALLEL_ROWS) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+            for (int d = 0; d < dims; d++) {
+                int box = (node * dims + d) * 2;
+                int a = ((node * 2 + 1) * dims + d) * 2;
+                int b = ((node * 2 + 2) * dims + d) * 2;
+                boxes[box] = Math.min(boxes[a], boxes[b]);
+                boxes[box + 1] = Math.max(boxes[a + 1], boxes[b + 1]);
+            }
+        }
+
+        /**
+         * Finds the dimension whose values in the slice are most spread out, measured as a
+         * fraction of the column's span over the whole table.
+         *
+         * @return the dimension
+         */
+        private int widest() {
+            int best = 0;
+            double widest = -1;
+            for (int d = 0; d < columns.length; d++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int p = from; p < to; p++) {
+                    double value = byRow[d][rows[p]];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                double spread = (max - min) / spans[d];
+                if (spread > widest) {
+                    widest = spread;
+                    best = d;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Moves the rows of a slice so the one at a position has the value it would have if the
+     * slice were sorted, with no larger value before it and no smaller one after it.
+     *
+     * @param key the values of the split column, by row
+     * @param from first position of the slice
+     * @param to position after the slice
+     * @param nth the position to settle
+     */
+    private void select(double[] key, int from, int to, int nth) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = median(key[rows[lo]], key[rows[(lo + hi) >>> 1]], key[rows[hi]]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[rows[i]] < pivot) {
+                    i++;
+                }
+                while (key[rows[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = rows[i];
+                    rows[i++] = rows[j];
+                    rows[j--] = swap;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The middle of three values.
+     *
+     * @param a the first
+     * @param b the second
+     * @param c the third
+     * @return the median
+     */
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Checks if the tree indexes a column.
+     *
+     * @param column the column
+     * @return true if conditions on it can be answered by the tree
+     */
+    boolean covers(GameData column) {
+        return dimensions[column.ordinal()] >= 0;
+    }
+
+    /**
+     * Number of columns indexed.
+     *
+     * @return the dimension count
+     */
+    int dimensionCount() {
+        return columns.length;
+    }
+
+    /**
+     * Memory the tree keeps.
+     *
+     * @return bytes
+     */
+    long bytes() {
+        long bytes = (long) rows.length * Integer.BYTES + (long) boxes.length * Double.BYTES;
+        return values == null ? bytes : bytes + (long) size * columns.length * Double.BYTES;
+    }
+
+    /**
+     * Selects the rows inside every range.
+     *
+     * @param ranges conditions on indexed columns
+     * @return the matching rows
+     */
+    BitSet probe(List<FilterExpression.Range> ranges) {
+        FilterExpression.Range[] conditions = ranges.toArray(new FilterExpression.Range[0]);
+        int[] dims = dimensionsOf(conditions);
+        BitSet selected = new BitSet(size);
+        if (size > 0) {
+            probe(0, 0, size, 0, conditions, dims, selected);
+        }
+        return selected;
+    }
+
+    /**
+     * Walks a node for {@link #probe(List)}.
+     *
+     * @param node the node
+     * @param from first position of its slice
+     * @param to position after its slice
+     * @param level its level
+     * @param ranges the conditions
+     * @param dims the dimension of each condition
+     * @param selected the matching rows, filled in
+     */
+    private void probe(int node, int from, int to, int level, FilterExpression.Range[] ranges,
+            int[] dims, BitSet selected) {
+        if (from >= to) {
+            return;
+        }
+        boolean inside = true;
+        for (int c = 0; c < ranges.length; c++) {
+            int box = (node * columns.length + dims[c]) * 2;
+            int overlap = overlap(ranges[c], boxes[box], boxes[box + 1]);
+            if (overlap < 0) {
+                return;
+            }
+            inside &= overlap > 0;
+        }
+        if (inside) {
+            for (int p = from; p < to; p++) {
+                selected.set(rows[p]);
+            }
+        } else if (level == depth || to - from <= 1) {
+            for (int p = from; p < to; p++) {
+                if (matches(p, ranges, dims)) {
+                    selected.set(rows[p]);
+                }
+            }
+        } else {
+            int mid = (from + to) >>> 1;
+            probe(node * 2 + 1, from, mid, level + 1, ranges, dims, selected);
+            probe(node * 2 + 2, mid, to, level + 1, ranges, dims, selected);
+        }
+    }
+
+    /**
+     * Estimates the work of a probe by walking the upper levels of the tree only.
+     *
+     * @param ranges conditions on indexed columns
+     * @return the rows taken whole from nodes inside every range, and the rows of the nodes
+     *         the walk stopped at that straddle a boundary, which a probe visits at most
+     */
+    double[] estimate(List<FilterExpression.Range> ranges) {
+        FilterExpression.Range[] conditions = ranges.toArray(new FilterExpression.Range[0]);
+        double[] rowCounts = new double[2];
+        if (size > 0) {
+            estimate(0, 0, size, 0, conditions, dimensionsOf(conditions), rowCounts);
+        }
+        return rowCounts;
+    }
+
+    /**
+     * Walks a node for {@link #estimate(List)}.
+     *
+     * @param node the node
+     * @param from first position of its slice
+     * @param to position after its slice
+     * @param level its level
+     * @param ranges the conditions
+     * @param dims the dimension of each condition
+     * @param rowCounts rows inside and rows straddling, added to
+     */
+    private void estimate(int node, int from, int to, int level,
+            FilterExpression.Range[] ranges, int[] dims, double[] rowCounts) {
+        if (from >= to) {
+            return;
+        }
+        boolean inside = true;
+        for (int c = 0; c < ranges.length; c++) {
+            int box = (node * columns.length + dims[c]) * 2;
+            int overlap = overlap(ranges[c], boxes[box], boxes[box + 1]);
+            if (overlap < 0) {
+                return;
+            }
+            inside &= overlap > 0;
+        }
+        if (inside) {
+            rowCounts[0] += to - from;
+        } else if (level == depth || to - from <= ESTIMATE_ROWS) {
+            rowCounts[1] += to - from;
+        } else {
+            int mid = (from + to) >>> 1;
+            estimate(node * 2 + 1, from, mid, level + 1, ranges, dims, rowCounts);
+            estimate(node * 2 + 2, mid, to, level + 1, ranges, dims, rowCounts);
+        }
+    }
+
+    /**
+     * Compares a box side with a range.
+     *
+     * @param range the range
+     * @param min lowest value in the box
+     * @param max highest value in the box
+     * @return -1 if no value of the box is in the range, 1 if all are, 0 otherwise
+     */
+    private static int overlap(FilterExpression.Range range, double min, double max) {
+        double low = range.getLow();
+        double high = range.getHigh();
+        if (max < low || (max == low && !range.isLowInclusive())
+                || min > high || (min == high && !range.isHighInclusive())) {
+            return -1;
+        }
+        return range.contains(min) && range.contains(max) ? 1 : 0;
+    }
+
+    /**
+     * Tests the row at a position against every condition.
+     *
+     * @param position the position in the permuted order
+     * @param ranges the conditions
+     * @param dims the dimension of each condition
+     * @return true if every condition holds
+     */
+    private boolean matches(int position, FilterExpression.Range[] ranges, int[] dims) {
+        for (int c = 0; c < ranges.length; c++) {
+            double value = values != null ? values[dims[c]][position]
+                    : source[dims[c]].get(rows[position]);
+            if (!ranges[c].contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the dimension of each condition's column.
+     *
+     * @param ranges the conditions
+     * @return the dimensions
+     * @throws IllegalArgumentException if a column is not indexed
+     */
+    private int[] dimensionsOf(FilterExpression.Range[] ranges) {
+        int[] dims = new int[ranges.length];
+        for (int c = 0; c < ranges.length; c++) {
+            dims[c] = dimensions[ranges[c].getColumn().ordinal()];
+            if (dims[c] < 0) {
+                throw new IllegalArgumentException("Column is not in the tree: "
+                        + ranges[c].getColumn());
+            }
+        }
+        return dims;
+    }
+
+    /**
+     * Collects the conditions of an expression the tree answers: a range, or an AND of ranges.
+     *
+     * @param expression the expression
+     * @return its ranges
+     */
+    static List<FilterExpression.Range> ranges(FilterExpression expression) {
+        List<FilterExpression.Range> ranges = new ArrayList<>();
+        if (expression instanceof FilterExpression.Range) {
+            ranges.add((FilterExpression.Range) expression);
+        } else {
+            for (FilterExpression child : ((FilterExpression.Composite) expression)
+                    .getChildren()) {
+                ranges.add((FilterExpression.Range) child);
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,131 @@
+package student;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in log-linear buckets, the way HdrHistogram does: every
+ * power of two is split into 32 buckets, so a recorded value is known to within about 3% while
+ * the whole range of a long fits in under 2000 counters. Recording is lock-free and never
+ * allocates.
+ */
+final class LatencyHistogram {
+    /** Bits of each value kept below its highest bit. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** Buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Total number of buckets. */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /** Count of each bucket. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** Number of values recorded. */
+    private final LongAdder count = new LongAdder();
+    /** Sum of the values recorded. */
+    private final LongAdder sum = new LongAdder();
+    /** Largest value recorded. */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, negative values count as 0
+     */
+    void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        count.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Number of values recorded.
+     *
+     * @return the count
+     */
+    long count() {
+        return count.sum();
+    }
+
+    /**
+     * Mean of the values recorded.
+     *
+     * @return the mean, 0 if nothing was recorded
+     */
+    double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Largest value recorded.
+     *
+     * @return the maximum, 0 if nothing was recorded
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value at a percentile.
+     *
+     * @param percentile between 0 and 100
+     * @return the highest value of the bucket holding the percentile, at most the maximum
+     */
+    long percentile(double percentile) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /** Forgets every value. */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Finds the bucket of a value.
+     *
+     * @param value a value, not negative
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Highest value that falls in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the value
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
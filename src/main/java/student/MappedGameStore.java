@@ -0,0 +1,211 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MappedGameStore reads the rows of a {@link CatalogStore} directory through a
+ * {@link PageCache}. Games are decoded from their columns when asked for, and index files are
+ * opened the first time their column is probed.
+ */
+final class MappedGameStore implements GameStore, Closeable {
+    /** The catalog directory. */
+    private final Path dir;
+    /** Number of rows. */
+    private final int rows;
+    /** The cache every file is read through. */
+    private final PageCache cache;
+    /** Every file opened so far, closed together. */
+    private final List<PagedFile> files = new ArrayList<>();
+    /** Game ids. */
+    private final IntColumn ids;
+    /** Numeric columns indexed by GameData ordinal, null for NAME and ID. */
+    private final DoubleColumn[] columns;
+    /** Names, UTF-8. */
+    private final PagedFile names;
+    /** Offsets of the names. */
+    private final PagedFile nameOffsets;
+    /** Lower case names, UTF-8. */
+    private final PagedFile lowerNames;
+    /** Offsets of the lower case names. */
+    private final PagedFile lowerOffsets;
+
+    /**
+     * Opens the column files of a catalog.
+     *
+     * @param dir the catalog directory
+     * @param rows the number of rows
+     * @param cache the cache to read pages through
+     * @throws IOException if a file cannot be opened
+     */
+    MappedGameStore(Path dir, int rows, PageCache cache) throws IOException {
+        this.dir = dir;
+        this.rows = rows;
+        this.cache = cache;
+        try {
+            this.ids = file("id.col").ints(0, rows);
+            this.columns = new DoubleColumn[GameData.values().length];
+            for (GameData column : GameData.values()) {
+                if (GameTable.isNumeric(column)) {
+                    columns[column.ordinal()] = file(column.getColumnName() + ".col")
+                            .doubles(0, rows);
+                }
+            }
+            this.names = file("name.dat");
+            this.nameOffsets = file("name.off");
+            this.lowerNames = file("lower.dat");
+            this.lowerOffsets = file("lower.off");
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public BoardGame game(int row) {
+        return new BoardGame(text(names, nameOffsets, row), ids.get(row),
+                (int) value(GameData.MIN_PLAYERS, row), (int) value(GameData.MAX_PLAYERS, row),
+                (int) value(GameData.MIN_TIME, row), (int) value(GameData.MAX_TIME, row),
+                value(GameData.DIFFICULTY, row), (int) value(GameData.RANK, row),
+                value(GameData.RATING, row), (int) value(GameData.YEAR, row));
+    }
+
+    @Override
+    public String lowerName(int row) {
+        return text(lowerNames, lowerOffsets, row);
+    }
+
+    @Override
+    public DoubleColumn column(GameData column) {
+        return columns[column.ordinal()];
+    }
+
+    @Override
+    public ColumnIndex index(GameData column) {
+        try {
+            PagedFile index = file(column.getColumnName() + ".idx");
+            return new ColumnIndex(index.doubles(0, rows),
+                    index.ints((long) rows * Double.BYTES, rows));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int[] nameRanks() {
+        int[] ranks = new int[rows];
+        try (DataInputStream in = input("name.rank")) {
+            for (int row = 0; row < rows; row++) {
+                ranks[row] = in.readInt();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ranks;
+    }
+
+    @Override
+    public NameDictionary dictionary() {
+        return null;
+    }
+
+    @Override
+    public int[] nameCodes() {
+        return null;
+    }
+
+    @Override
+    public ColumnStatistics statistics() {
+        try (DataInputStream in = input("statistics.bin")) {
+            return ColumnStatistics.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes every open file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (PagedFile file : files) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        files.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads one numeric value.
+     *
+     * @param column the column
+     * @param row the row
+     * @return the value
+     */
+    private double value(GameData column, int row) {
+        return columns[column.ordinal()].get(row);
+    }
+
+    /**
+     * Reads the text of a row.
+     *
+     * @param data the text file
+     * @param offsets the offsets file
+     * @param row the row
+     * @return the text
+     */
+    private static String text(PagedFile data, PagedFile offsets, int row) {
+        long start = offsets.getLong((long) row * Long.BYTES);
+        long end = offsets.getLong((long) (row + 1) * Long.BYTES);
+        return new String(data.bytes(start, (int) (end - start)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens a file of the catalog through the page cache.
+     *
+     * @param name the file name
+     * @return the file
+     * @throws IOException if it cannot be opened
+     */
+    private PagedFile file(String name) throws IOException {
+        PagedFile file = new PagedFile(dir.resolve(name), cache);
+        synchronized (this) {
+            files.add(file);
+        }
+        return file;
+    }
+
+    /**
+     * Opens a small file for reading in full.
+     *
+     * @param name the file name
+     * @return the stream
+     * @throws IOException if it cannot be opened
+     */
+    private DataInputStream input(String name) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(
+                dir.resolve(name)), 1 << 16));
+    }
+}
@@ -0,0 +1,94 @@
+package student;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * NameCollation turns game names into sort keys once, so sorting by name compares bytes (or the
+ * dense ranks built from them) instead of folding case character by character on every
+ * comparison.
+ *
+ * The default, {@link #CASE_INSENSITIVE}, produces keys that order names exactly like
+ * {@link String#CASE_INSENSITIVE_ORDER}: every character is case folded once and the folded
+ * characters are stored as big-endian UTF-16 bytes. A locale aware collation uses a
+ * {@link Collator}, paying the collation cost once per name when the key is built.
+ *
+ * Keys are compared with {@link #compare(byte[], byte[])}.
+ */
+public final class NameCollation {
+    /** Orders names like String.CASE_INSENSITIVE_ORDER. */
+    public static final NameCollation CASE_INSENSITIVE = new NameCollation(null);
+
+    /** The collator for locale aware keys, null for case-insensitive keys. */
+    private final Collator collator;
+
+    /**
+     * Creates a collation.
+     *
+     * @param collator the collator to build keys with, or null for case-insensitive keys
+     */
+    private NameCollation(Collator collator) {
+        this.collator = collator;
+    }
+
+    /**
+     * Creates a locale aware collation. Accents are significant, case is not.
+     *
+     * @param locale the locale whose alphabet order to use
+     * @return the collation
+     */
+    public static NameCollation forLocale(Locale locale) {
+        Collator collator = Collator.getInstance(locale);
+        collator.setStrength(Collator.SECONDARY);
+        return new NameCollation(collator);
+    }
+
+    /**
+     * Builds the sort key of a name.
+     *
+     * @param name the name
+     * @return the key, to be compared with {@link #compare(byte[], byte[])}
+     */
+    public byte[] key(String name) {
+        if (collator != null) {
+            synchronized (collator) { // collators are not thread safe
+                return collator.getCollationKey(name).toByteArray();
+            }
+        }
+        String folded = fold(name);
+        byte[] key = new byte[folded.length() * 2];
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            key[2 * i] = (byte) (c >>> 8);
+            key[2 * i + 1] = (byte) c;
+        }
+        return key;
+    }
+
+    /**
+     * Case folds a name the way String.CASE_INSENSITIVE_ORDER compares it, so two names are
+     * equal ignoring case when their folded forms are equal. Useful as a hash key.
+     *
+     * @param name the name
+     * @return the folded name
+     */
+    static String fold(String name) {
+        char[] folded = new char[name.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return new String(folded);
+    }
+
+    /**
+     * Compares two sort keys.
+     *
+     * @param a the first key
+     * @param b the second key
+     * @return negative, zero or positive as a sorts before, with or after b
+     */
+    public static int compare(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+}
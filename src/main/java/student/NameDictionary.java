@@ -0,0 +1,80 @@
+package student;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NameDictionary interns game names to dense int codes, 0, 1, 2 and so on in the order they
+ * are first seen. Each distinct name is kept once, with its lower case form computed once and
+ * shared by every name that lowers to the same text.
+ *
+ * Two names are equal exactly when their codes are, so a name filter can test each distinct
+ * name once and then compare codes row by row.
+ *
+ * Interning is thread-safe. Looking codes up without interning is safe once every name has
+ * been interned and the dictionary has been handed to the reading thread.
+ */
+final class NameDictionary {
+    /** Code of each name. */
+    private final Map<String, Integer> codes = new HashMap<>();
+    /** Canonical lower case forms, shared between names. */
+    private final Map<String, String> lowerForms = new HashMap<>();
+    /** Names by code. */
+    private String[] names = new String[16];
+    /** Lower case names by code. */
+    private String[] lowerNames = new String[16];
+    /** Number of codes handed out. */
+    private int size;
+
+    /**
+     * Gets the code of a name, adding the name if it is new.
+     *
+     * @param name the name
+     * @return its code
+     */
+    synchronized int intern(String name) {
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            lowerNames = Arrays.copyOf(lowerNames, size * 2);
+        }
+        String lower = name.toLowerCase();
+        names[size] = name;
+        lowerNames[size] = lowerForms.computeIfAbsent(lower, key -> key);
+        codes.put(name, size);
+        return size++;
+    }
+
+    /**
+     * Number of distinct names.
+     *
+     * @return the number of codes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the name of a code.
+     *
+     * @param code the code
+     * @return the name
+     */
+    String name(int code) {
+        return names[code];
+    }
+
+    /**
+     * Gets the lower case name of a code.
+     *
+     * @param code the code
+     * @return the name in lower case
+     */
+    String lowerName(int code) {
+        return lowerNames[code];
+    }
+}
@@ -0,0 +1,223 @@
+package student;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * OffHeapGameStore keeps the rows of a {@link GameTable} in direct memory, outside the
+ * garbage-collected heap: one direct buffer per numeric column, the ids, and the UTF-8 bytes
+ * of the names and lower case names with their offsets. Sorted indexes are built into direct
+ * memory too, the first time a column is probed.
+ *
+ * The heap holds no BoardGame objects for the catalog, only the buffers and the name ranks
+ * (4 bytes per row). {@link #game(int)} creates a short-lived BoardGame from the columns each
+ * time it is called, and filters read the columns directly, so heap use and GC work no longer
+ * grow with the number of games. The memory is released when the table is no longer
+ * referenced.
+ *
+ * Each buffer is limited to 2 GiB, so the names of a catalog may take at most that much.
+ */
+final class OffHeapGameStore implements GameStore {
+    /** Number of rows. */
+    private final int rows;
+    /** Game ids. */
+    private final IntBuffer ids;
+    /** Numeric columns indexed by GameData ordinal, null for NAME and ID. */
+    private final DoubleBuffer[] columns;
+    /** Names, UTF-8. */
+    private final ByteBuffer names;
+    /** Offset of each row's name, one more than rows. */
+    private final IntBuffer nameOffsets;
+    /** Lower case names, UTF-8. */
+    private final ByteBuffer lowerNames;
+    /** Offset of each row's lower case name, one more than rows. */
+    private final IntBuffer lowerOffsets;
+    /** Dense rank of every row's name. */
+    private final int[] nameRanks;
+
+    /**
+     * Copies a collection of games into direct memory, in name order.
+     *
+     * @param games the games to store
+     * @param collation the order to store names in
+     */
+    OffHeapGameStore(Collection<BoardGame> games, NameCollation collation) {
+        BoardGame[] unsorted = games.toArray(new BoardGame[0]);
+        this.rows = unsorted.length;
+        byte[][] keys = new byte[rows][];
+        int[] order = new int[rows];
+        long nameBytes = 0;
+        long lowerBytes = 0;
+        for (int i = 0; i < rows; i++) {
+            keys[i] = collation.key(unsorted[i].getName());
+            order[i] = i;
+            nameBytes += utf8Length(unsorted[i].getName());
+            lowerBytes += utf8Length(unsorted[i].getName().toLowerCase());
+        }
+        IntSort.sort(order, (a, b) -> NameCollation.compare(keys[a], keys[b]));
+
+        this.ids = allocate((long) rows * Integer.BYTES).asIntBuffer();
+        this.columns = new DoubleBuffer[GameData.values().length];
+        for (GameData column : GameData.values()) {
+            if (GameTable.isNumeric(column)) {
+                columns[column.ordinal()] = allocate((long) rows * Double.BYTES)
+                        .asDoubleBuffer();
+            }
+        }
+        this.names = allocate(nameBytes);
+        this.lowerNames = allocate(lowerBytes);
+        this.nameOffsets = allocate((rows + 1L) * Integer.BYTES).asIntBuffer();
+        this.lowerOffsets = allocate((rows + 1L) * Integer.BYTES).asIntBuffer();
+        this.nameRanks = new int[rows];
+        int rank = 0;
+        for (int row = 0; row < rows; row++) {
+            BoardGame game = unsorted[order[row]];
+            ids.put(row, game.getId());
+            for (GameData column : GameData.values()) {
+                if (GameTable.isNumeric(column)) {
+                    columns[column.ordinal()].put(row, GameTable.valueOf(game, column));
+                }
+            }
+            nameOffsets.put(row, names.position());
+            names.put(game.getName().getBytes(StandardCharsets.UTF_8));
+            lowerOffsets.put(row, lowerNames.position());
+            lowerNames.put(game.getName().toLowerCase().getBytes(StandardCharsets.UTF_8));
+            if (row > 0 && NameCollation.compare(keys[order[row - 1]], keys[order[row]]) != 0) {
+                rank++;
+            }
+            nameRanks[row] = rank;
+        }
+        nameOffsets.put(rows, names.position());
+        lowerOffsets.put(rows, lowerNames.position());
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public BoardGame game(int row) {
+        return new BoardGame(text(names, nameOffsets, row), ids.get(row),
+                (int) value(GameData.MIN_PLAYERS, row), (int) value(GameData.MAX_PLAYERS, row),
+                (int) value(GameData.MIN_TIME, row), (int) value(GameData.MAX_TIME, row),
+                value(GameData.DIFFICULTY, row), (int) value(GameData.RANK, row),
+                value(GameData.RATING, row), (int) value(GameData.YEAR, row));
+    }
+
+    @Override
+    public String lowerName(int row) {
+        return text(lowerNames, lowerOffsets, row);
+    }
+
+    @Override
+    public DoubleColumn column(GameData column) {
+        return DoubleColumn.of(columns[column.ordinal()]);
+    }
+
+    @Override
+    public ColumnIndex index(GameData column) {
+        DoubleBuffer values = columns[column.ordinal()];
+        int[] order = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = i;
+        }
+        IntSort.sort(order, (a, b) -> Double.compare(values.get(a), values.get(b)));
+        DoubleBuffer sorted = allocate((long) rows * Double.BYTES).asDoubleBuffer();
+        IntBuffer sortedRows = allocate((long) rows * Integer.BYTES).asIntBuffer();
+        for (int i = 0; i < rows; i++) {
+            sorted.put(i, values.get(order[i]));
+            sortedRows.put(i, order[i]);
+        }
+        return new ColumnIndex(DoubleColumn.of(sorted), IntColumn.of(sortedRows));
+    }
+
+    @Override
+    public int[] nameRanks() {
+        return nameRanks;
+    }
+
+    @Override
+    public NameDictionary dictionary() {
+        return null;
+    }
+
+    @Override
+    public int[] nameCodes() {
+        return null;
+    }
+
+    @Override
+    public ColumnStatistics statistics() {
+        return null;
+    }
+
+    /**
+     * Reads one numeric value.
+     *
+     * @param column the column
+     * @param row the row
+     * @return the value
+     */
+    private double value(GameData column, int row) {
+        return columns[column.ordinal()].get(row);
+    }
+
+    /**
+     * Decodes the text of a row.
+     *
+     * @param data the UTF-8 bytes
+     * @param offsets the offsets
+     * @param row the row
+     * @return the text
+     */
+    private static String text(ByteBuffer data, IntBuffer offsets, int row) {
+        int start = offsets.get(row);
+        byte[] bytes = new byte[offsets.get(row + 1) - start];
+        data.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Allocates direct memory.
+     *
+     * @param bytes the number of bytes
+     * @return the buffer, in native byte order
+     * @throws IllegalArgumentException if more than 2 GiB is needed
+     */
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catalog too large for off-heap storage");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Counts the UTF-8 bytes of a string without encoding it.
+     *
+     * @param text the string
+     * @return the encoded length
+     */
+    private static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,163 @@
+package student;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PageCache keeps a bounded number of memory-mapped file pages, evicting the least recently
+ * used page when it is full.
+ *
+ * Files of a {@link CatalogStore} are read a page at a time: the first access to a page maps
+ * that region of the file, later accesses find the mapping here. Only the pages in use are
+ * mapped, so a catalog can be much larger than the heap (and than the address space reserved
+ * for mappings); an evicted mapping is released once nothing references it.
+ */
+public final class PageCache {
+    /** Default page size, 64 KiB. */
+    public static final int DEFAULT_PAGE_SIZE = 1 << 16;
+    /** Default number of pages, 64 MiB worth with the default page size. */
+    public static final int DEFAULT_MAX_PAGES = 1024;
+
+    /** Bytes per page. */
+    private final int pageSize;
+    /** Most pages kept at once. */
+    private final int maxPages;
+    /** The cached pages in access order, keyed by file id and page number. */
+    private final Map<Long, ByteBuffer> pages;
+    /** Number of page requests served from the cache. */
+    private long hits;
+    /** Number of page requests that had to map the page. */
+    private long misses;
+    /** Number of pages evicted. */
+    private long evictions;
+
+    /** Creates a cache with the default page size and capacity. */
+    public PageCache() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param pageSize bytes per page, a positive multiple of 8 so no value straddles two pages
+     * @param maxPages most pages kept at once
+     * @throws IllegalArgumentException if the page size or capacity is not valid
+     */
+    public PageCache(int pageSize, int maxPages) {
+        if (pageSize <= 0 || pageSize % Long.BYTES != 0 || maxPages <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid page cache %d x %d",
+                    pageSize, maxPages));
+        }
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest) {
+                if (size() > PageCache.this.maxPages) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a page of a file, mapping it on a miss.
+     *
+     * @param file the file
+     * @param page the page number
+     * @return the page, read with absolute gets only since it is shared
+     * @throws UncheckedIOException if the page cannot be mapped
+     */
+    ByteBuffer page(PagedFile file, long page) {
+        Long key = (long) file.id() << 40 | page;
+        synchronized (this) {
+            ByteBuffer cached = pages.get(key);
+            if (cached != null) {
+                hits++;
+                PlannerMetrics.pageRequest(true);
+                return cached;
+            }
+            misses++;
+        }
+        PlannerMetrics.pageRequest(false);
+        ByteBuffer mapped;
+        try {
+            mapped = file.map(page * pageSize, pageSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this) {
+            ByteBuffer raced = pages.putIfAbsent(key, mapped);
+            return raced != null ? raced : mapped;
+        }
+    }
+
+    /**
+     * Bytes per page.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Most pages kept at once.
+     *
+     * @return the capacity in pages
+     */
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Number of pages currently cached.
+     *
+     * @return the page count
+     */
+    public synchronized int getCachedPages() {
+        return pages.size();
+    }
+
+    /**
+     * Number of page requests served from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of page requests that mapped a page.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of pages evicted to make room.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Drops every page of a file, when it is closed.
+     *
+     * @param file the file
+     */
+    synchronized void evict(PagedFile file) {
+        long id = file.id();
+        pages.keySet().removeIf(key -> key >>> 40 == id);
+    }
+}
@@ -0,0 +1,208 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PagedFile reads a read-only file through a {@link PageCache}. Values are big-endian, and
+ * doubles, longs and ints are expected at offsets that are multiples of their size, so none
+ * of them straddles two pages.
+ */
+final class PagedFile implements Closeable {
+    /** Source of file ids, used in page cache keys. */
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    /** Id of this file in the page cache. */
+    private final int id = IDS.incrementAndGet();
+    /** The open file. */
+    private final FileChannel channel;
+    /** Size of the file in bytes. */
+    private final long size;
+    /** The cache pages are read through. */
+    private final PageCache cache;
+
+    /**
+     * Opens a file.
+     *
+     * @param file the file
+     * @param cache the cache to read pages through
+     * @throws IOException if the file cannot be opened
+     */
+    PagedFile(Path file, PageCache cache) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.cache = cache;
+    }
+
+    /**
+     * Id of this file in the page cache.
+     *
+     * @return the id
+     */
+    int id() {
+        return id;
+    }
+
+    /**
+     * Size of the file.
+     *
+     * @return the size in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Maps a region of the file, for the page cache.
+     *
+     * @param start the first byte
+     * @param length the most bytes to map, fewer at the end of the file
+     * @return the mapped region
+     * @throws IOException if mapping fails
+     */
+    ByteBuffer map(long start, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, size - start));
+    }
+
+    /**
+     * Gets the page holding a byte.
+     *
+     * @param offset the byte's offset in the file
+     * @return the page
+     */
+    private ByteBuffer pageOf(long offset) {
+        return cache.page(this, offset / cache.getPageSize());
+    }
+
+    /**
+     * Position of a byte within its page.
+     *
+     * @param offset the byte's offset in the file
+     * @return the position in the page
+     */
+    private int inPage(long offset) {
+        return (int) (offset % cache.getPageSize());
+    }
+
+    /**
+     * Reads a long.
+     *
+     * @param offset the offset, a multiple of 8
+     * @return the value
+     */
+    long getLong(long offset) {
+        return pageOf(offset).getLong(inPage(offset));
+    }
+
+    /**
+     * Reads bytes that may span several pages.
+     *
+     * @param offset the first byte
+     * @param length the number of bytes
+     * @return the bytes
+     */
+    byte[] bytes(long offset, int length) {
+        byte[] bytes = new byte[length];
+        int done = 0;
+        while (done < length) {
+            ByteBuffer page = pageOf(offset + done);
+            int at = inPage(offset + done);
+            int n = Math.min(length - done, page.limit() - at);
+            page.get(at, bytes, done, n);
+            done += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Views part of the file as doubles.
+     *
+     * @param offset the offset of the first value, a multiple of 8
+     * @param count the number of values
+     * @return the column
+     */
+    DoubleColumn doubles(long offset, int count) {
+        return new DoubleColumn() {
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public double get(int index) {
+                long at = offset + (long) index * Double.BYTES;
+                return pageOf(at).getDouble(inPage(at));
+            }
+
+            @Override
+            public void get(int from, double[] dst, int dstOffset, int length) {
+                while (length > 0) {
+                    long at = offset + (long) from * Double.BYTES;
+                    ByteBuffer page = pageOf(at);
+                    int pos = inPage(at);
+                    int n = Math.min(length, (page.limit() - pos) / Double.BYTES);
+                    for (int i = 0; i < n; i++, pos += Double.BYTES) {
+                        dst[dstOffset + i] = page.getDouble(pos);
+                    }
+                    from += n;
+                    dstOffset += n;
+                    length -= n;
+                }
+            }
+        };
+    }
+
+    /**
+     * Views part of the file as ints.
+     *
+     * @param offset the offset of the first value, a multiple of 4
+     * @param count the number of values
+     * @return the column
+     */
+    IntColumn ints(long offset, int count) {
+        return new IntColumn() {
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public int get(int index) {
+                long at = offset + (long) index * Integer.BYTES;
+                return pageOf(at).getInt(inPage(at));
+            }
+
+            @Override
+            public void get(int from, int[] dst, int dstOffset, int length) {
+                while (length > 0) {
+                    long at = offset + (long) from * Integer.BYTES;
+                    ByteBuffer page = pageOf(at);
+                    int pos = inPage(at);
+                    int n = Math.min(length, (page.limit() - pos) / Integer.BYTES);
+                    for (int i = 0; i < n; i++, pos += Integer.BYTES) {
+                        dst[dstOffset + i] = page.getInt(pos);
+                    }
+                    from += n;
+                    dstOffset += n;
+                    length -= n;
+                }
+            }
+        };
+    }
+
+    /**
+     * Drops the file's pages from the cache and closes it.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        cache.evict(this);
+        channel.close();
+    }
+}
@@ -2,17 +2,20 @@ package student;
 
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
- * Planner implements the IPlanner interface and serves as the core filtering and sorting
- * engine for the Board Game Arena Planner. This class manages a collection of board games
- * and provides sophisticated filtering and sorting capabilities.
+ * Planner implements the IPlanner and IQueryPlanner interfaces and serves as the core filtering
+ * and sorting engine for the Board Game Arena Planner. This class manages a collection of board
+ * games and provides sophisticated filtering and sorting capabilities.
  *
  * Key features:
  * - Progressive filtering: Each filter operation builds upon previous filters.
  * - Multiple filter criteria: Support for combining multiple conditions.
+ * - Filter expressions: conditions can be combined with | (or), ! (not) and parentheses.
  * - Flexible sorting: Sort results by any game attribute.
  * - Bidirectional sorting: Support for both ascending and descending order.
  * - Filter persistence: Maintains filter state until explicitly reset.
@@ -22,21 +25,35 @@ import java.util.stream.Stream;
  * - maxTime<60: Games that take less than 60 minutes.
  * - name~=chess: Games with "chess" in their name.
  * - rating>=8: Games rated 8 or higher.
+ * - name~=catan|name~=carcassonne: Games with either word in their name.
+ * - !(minPlayers>2),rating>7: Games for one or two players rated over 7.
  *
  * Sort examples:
  * - sort:name:asc - Sort by name in ascending order.
  * - sort:rating:desc - Sort by rating in descending order.
  * - sort:year - Sort by year (default ascending).
+ * - sort:rating:desc,rank:asc - Sort by rating descending, then by rank.
  *
  * @author Yuchen Huang
  * @version 1.0
  */
-public class Planner implements IPlanner {
-    /** List of all board games in the collection. */
-    private Set<BoardGame> allGames;
-    
-    /** List of currently filtered board games. */
-    private List<BoardGame> filteredGames;
+public class Planner implements IQueryPlanner {
+    /** Default number of filters that may scan the catalog at once, one per processor. */
+    public static final int DEFAULT_MAX_SCANS = Runtime.getRuntime().availableProcessors();
+
+    /** All board games in the collection, stored by column. */
+    private final GameTable allGames;
+    /** Cost-based planner using statistics gathered when the collection was loaded. */
+    private final QueryPlanner queryPlanner;
+
+    /** Results of the last filter, null when no filter has run since the last reset. */
+    private FilterResult filteredGames;
+    /** Every game in name order, built the first time it is needed. */
+    private FilterResult everyGame;
+    /** Filters slower than its threshold, with their plans. */
+    private final SlowQueryLog slowQueries = new SlowQueryLog();
+    /** Permits to scan the catalog, so many sessions cannot all run filters at once. */
+    private final Semaphore scans;
 
     /**
      * Constructor for Planner.
@@ -45,8 +62,48 @@ public class Planner implements IPlanner {
      * @param games the set of board games to manage
      */
     public Planner(Set<BoardGame> games) {
-        this.allGames = new HashSet<>(games);
-        this.filteredGames = new ArrayList<>();
+        this(games, NameCollation.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Constructor for Planner with a specific name order, for example a locale aware one from
+     * {@link NameCollation#forLocale(Locale)}. Name sort keys are built once here, so sorting
+     * by name never collates during a query.
+     *
+     * @param games the set of board games to manage
+     * @param collation the order used when sorting by name
+     */
+    public Planner(Set<BoardGame> games, NameCollation collation) {
+        this(new GameTable(games, collation));
+    }
+
+    /**
+     * Constructor for Planner over an existing table, such as one opened from a
+     * {@link CatalogStore} so the collection does not have to fit on the heap.
+     *
+     * @param games the table of board games to manage
+     */
+    public Planner(GameTable games) {
+        this(games, DEFAULT_MAX_SCANS);
+    }
+
+    /**
+     * Constructor for Planner over an existing table that limits how many filters may scan
+     * it at once. When many sessions run on cheap virtual threads, this keeps the CPU bound
+     * part of their queries from oversubscribing the processors; the rest wait their turn.
+     *
+     * @param games the table of board games to manage
+     * @param maxScans most filters that may run against the table at once
+     * @throws IllegalArgumentException if maxScans is not positive
+     */
+    public Planner(GameTable games, int maxScans) {
+        if (maxScans <= 0) {
+            throw new IllegalArgumentException("Invalid scan limit: " + maxScans);
+        }
+        this.scans = new Semaphore(maxScans, true);
+        this.allGames = games;
+        this.queryPlanner = new QueryPlanner(games.statistics(), games.kdTree());
+        this.filteredGames = null;
     }
 
     /**
@@ -77,39 +134,360 @@ public class Planner implements IPlanner {
     /**
      * Filters the list of board games based on the provided filter string, sort criteria, and order.
      * This is the main filtering method that implements the full filtering and sorting functionality.
+     * The filter is parsed by {@link FilterParser}, so commas, bars, negation and parentheses
+     * can be combined.
      *
      * @param filter the filter string to apply
      * @param sortOn the GameData field to sort on
      * @param ascending whether to sort in ascending order
      * @return a stream of filtered and sorted board games
+     * @throws IllegalArgumentException if the filter is malformed or names an unknown column
      */
     @Override
     public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
-        // initialize filteredGames every time
-        filteredGames = new ArrayList<>(allGames);
-
-        // Apply filters if there are any
-        if (!filter.isEmpty()) {
-            // Split filter by comma for multiple conditions
-            String[] conditions = filter.split(",");
-            for (String condition : conditions) {
-                condition = condition.trim();
-                Filter parsedFilter = Filter.parseCondition(condition);
-                if (parsedFilter != null) {
-                    filteredGames = filteredGames.stream()
-                            .filter(parsedFilter::apply)
-                            .collect(Collectors.toList());
+        return filter(filter, List.of(new SortCriterion(sortOn, ascending)));
+    }
+
+    /**
+     * Filters the list of board games and sorts the results on several keys. Each key breaks
+     * the ties of the previous one, and games that tie on every key stay in name order.
+     *
+     * @param filter the filter string to apply
+     * @param sortOn the sort keys, most significant first
+     * @return a stream of filtered and sorted board games
+     * @throws IllegalArgumentException if the filter is malformed or names an unknown column
+     */
+    @Override
+    public Stream<BoardGame> filter(String filter, List<SortCriterion> sortOn) {
+        filteredGames = query(filter, sortOn);
+        return filteredGames.stream();
+    }
+
+    /**
+     * Runs a filter without changing the current results. The table is only read, so several
+     * queries can run at once from different threads, up to the planner's scan limit.
+     *
+     * @param filter the filter string to apply
+     * @param sortOn the sort keys, most significant first
+     * @return the filtered and sorted games
+     * @throws IllegalArgumentException if the filter is malformed or names an unknown column
+     */
+    @Override
+    public FilterResult query(String filter, List<SortCriterion> sortOn) {
+        // parse, simplify, and run the filter with the cheapest plan for its conditions
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        PlannerEvents.FilterEvent event = new PlannerEvents.FilterEvent();
+        event.begin();
+        long start = System.nanoTime();
+        FilterExpression expression = FilterParser.parse(filter).optimize();
+        QueryPlan plan = queryPlanner.plan(expression);
+        long planned = System.nanoTime();
+        long[] executed = new long[1];
+        // time spent waiting for a permit counts as filtering in the slow query log
+        FilterResult result = scanning(() -> {
+            BitSet rows = plan.execute(allGames);
+            executed[0] = System.nanoTime();
+
+            // sort on the precomputed ranks of the sort columns
+            return new FilterResult(allGames.select(new RowSorter(allGames, sortOn)
+                    .sort(rows)));
+        });
+        long sorted = System.nanoTime();
+        if (slowQueries.isSlow(sorted - start)) {
+            slowQueries.add(new SlowQueryLog.Entry(expression, sortOn, allGames.size(),
+                    result.size(), planned - start, executed[0] - planned,
+                    sorted - executed[0], plan));
+        }
+        PlannerMetrics.filtered(plan.rowsScanned(allGames.size()), result.size());
+        PlannerMetrics.stop(PlannerMetrics.Operation.FILTER, sample);
+        event.end();
+        if (event.shouldCommit()) {
+            event.filter = filter;
+            event.sort = sortOn.toString();
+            event.rowsIn = allGames.size();
+            event.rowsOut = result.size();
+            event.strategy = plan.getStrategy().name();
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Runs a batch of filters. Each is planned on its own; those whose cheapest plan still
+     * reads every row (no selective index probe) are evaluated together by one
+     * {@link SharedScan}, the rest run their own plans. The batch takes one scan permit.
+     *
+     * @param requests the filters and their sort keys
+     * @return the filtered and sorted games of each request, in the same order
+     * @throws IllegalArgumentException if a filter is malformed or names an unknown column
+     */
+    @Override
+    public List<FilterResult> queryAll(List<QueryRequest> requests) {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        List<QueryPlan> plans = new ArrayList<>(requests.size());
+        for (QueryRequest request : requests) {
+            plans.add(queryPlanner.plan(FilterParser.parse(request.getFilter()).optimize()));
+        }
+        List<FilterResult> results = scanning(() -> runAll(requests, plans));
+        PlannerMetrics.stop(PlannerMetrics.Operation.FILTER_BATCH, sample);
+        return results;
+    }
+
+    /**
+     * Runs the plans of a batch, the full scans together and the others on their own, sorts
+     * each result and records the rows read and returned.
+     *
+     * @param requests the filters and their sort keys
+     * @param plans the plan of each filter
+     * @return the filtered and sorted games of each request, in the same order
+     */
+    private List<FilterResult> runAll(List<QueryRequest> requests, List<QueryPlan> plans) {
+        List<FilterResult> results = new ArrayList<>(requests.size());
+        long scanned = 0;
+        long returned = 0;
+        BitSet[] rows = new BitSet[requests.size()];
+        List<Integer> shared = new ArrayList<>();
+        double fullScan = allGames.size() * QueryPlanner.SCAN_COST;
+        for (int i = 0; i < plans.size(); i++) {
+            if (plans.get(i).getCost() >= fullScan) {
+                shared.add(i);
+            } else {
+                rows[i] = plans.get(i).execute(allGames);
+                scanned += plans.get(i).rowsScanned(allGames.size());
+            }
+        }
+        if (!shared.isEmpty()) {
+            List<FilterExpression> expressions = new ArrayList<>(shared.size());
+            shared.forEach(i -> expressions.add(plans.get(i).getExpression()));
+            List<BitSet> matched = SharedScan.run(allGames, expressions);
+            for (int s = 0; s < shared.size(); s++) {
+                rows[shared.get(s)] = matched.get(s);
+            }
+            scanned += allGames.size();
+        }
+        for (int i = 0; i < rows.length; i++) {
+            results.add(new FilterResult(allGames.select(new RowSorter(allGames,
+                    requests.get(i).getSortOn()).sort(rows[i]))));
+            returned += results.get(i).size();
+        }
+        PlannerMetrics.filtered(scanned, returned);
+        return results;
+    }
+
+    /**
+     * Finds the games for a player count and time limit. Both sides are counted first, the
+     * player side by the interval index and the time side by the sorted max_time index, each
+     * in logarithmic time, and only the smaller side's rows are visited and tested against
+     * the other condition.
+     *
+     * @param players the number of players
+     * @param minutes the most minutes a game may take
+     * @param sortOn the sort keys, most significant first
+     * @return the games that fit, sorted
+     * @throws IllegalArgumentException if players is not positive or minutes is negative
+     */
+    @Override
+    public FilterResult fit(int players, int minutes, List<SortCriterion> sortOn) {
+        if (players <= 0 || minutes < 0) {
+            throw new IllegalArgumentException(String.format("Invalid fit: %d players in %d"
+                    + " minutes", players, minutes));
+        }
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        FilterResult result = scanning(() -> {
+            BitSet rows = new BitSet(allGames.size());
+            IntervalIndex seats = allGames.intervals(GameData.MIN_PLAYERS, GameData.MAX_PLAYERS);
+            ColumnIndex times = allGames.index(GameData.MAX_TIME);
+            FilterExpression.Range quick = FilterExpression.Range.of(GameData.MAX_TIME,
+                    Double.NEGATIVE_INFINITY, true, minutes, true);
+            int end = times.end(quick);
+            int seated = seats.count(players);
+            if (seated <= end) {
+                DoubleColumn maxTime = allGames.column(GameData.MAX_TIME);
+                seats.stab(players, row -> {
+                    if (maxTime.get(row) <= minutes) {
+                        rows.set(row);
+                    }
+                });
+                PlannerMetrics.filtered(seated, rows.cardinality());
+            } else {
+                DoubleColumn low = allGames.column(GameData.MIN_PLAYERS);
+                DoubleColumn high = allGames.column(GameData.MAX_PLAYERS);
+                for (int i = 0; i < end; i++) {
+                    int row = times.row(i);
+                    if (low.get(row) <= players && high.get(row) >= players) {
+                        rows.set(row);
+                    }
                 }
+                PlannerMetrics.filtered(end, rows.cardinality());
+            }
+            return new FilterResult(allGames.select(new RowSorter(allGames, sortOn)
+                    .sort(rows)));
+        });
+        PlannerMetrics.stop(PlannerMetrics.Operation.FIT, sample);
+        return result;
+    }
+
+    /**
+     * Finds the games most like a game through the table's similarity index, asking it for
+     * one more than wanted in case the game itself is among them.
+     *
+     * @param game the game to match
+     * @param count the most games to return
+     * @return the most similar games, most similar first
+     * @throws IllegalArgumentException if count is negative
+     */
+    @Override
+    public FilterResult similar(BoardGame game, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        int[] rows = allGames.similarity().nearest(game, count == Integer.MAX_VALUE ? count
+                : count + 1);
+        List<BoardGame> games = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            BoardGame other = allGames.game(row);
+            if (games.size() < count && !other.equals(game)) {
+                games.add(other);
             }
         }
+        FilterResult result = new FilterResult(games);
+        PlannerMetrics.stop(PlannerMetrics.Operation.SIMILAR, sample);
+        return result;
+    }
+
+    /**
+     * Runs a filter and groups its rows, reading the two columns once for the selected rows
+     * without making their games or sorting them.
+     *
+     * @param filter the filter string to apply
+     * @param groupBy the numeric column grouped on
+     * @param width the width of each group
+     * @param measure the numeric column summarized
+     * @return the groups
+     * @throws IllegalArgumentException if the filter is malformed, a column is not numeric,
+     *         or the width is not positive
+     */
+    @Override
+    public FacetResult facet(String filter, GameData groupBy, double width, GameData measure) {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        QueryPlan plan = queryPlanner.plan(FilterParser.parse(filter).optimize());
+        FacetResult facet = scanning(() -> FacetResult.compute(allGames,
+                plan.execute(allGames), groupBy, width, measure));
+        PlannerMetrics.filtered(plan.rowsScanned(allGames.size()), facet.getTotal());
+        PlannerMetrics.stop(PlannerMetrics.Operation.FACET, sample);
+        return facet;
+    }
+
+    /**
+     * Runs a filter for each subscriber, emitting its games as they are requested. The filter
+     * is parsed now, so a malformed one fails here, and run on the publisher's executor when a
+     * subscriber first asks for games. Large results are walked in sort order a group of
+     * equal keys at a time, see {@link SortedWalk}, so their games are only made as they are
+     * sent.
+     *
+     * @param filter the filter string to apply
+     * @param sortOn the sort keys, most significant first
+     * @return a publisher of the filtered and sorted games
+     * @throws IllegalArgumentException if the filter is malformed or names an unknown column
+     */
+    @Override
+    public Flow.Publisher<BoardGame> publish(String filter, List<SortCriterion> sortOn) {
+        FilterExpression expression = FilterParser.parse(filter).optimize();
+        List<SortCriterion> keys = List.copyOf(sortOn);
+        return new ResultPublisher(() -> {
+            QueryPlan plan = queryPlanner.plan(expression);
+            BitSet rows = scanning(() -> plan.execute(allGames));
+            PlannerMetrics.filtered(plan.rowsScanned(allGames.size()), rows.cardinality());
+            PrimitiveIterator.OfInt order = SortedWalk.of(allGames, rows, keys);
+            return new Iterator<BoardGame>() {
+                @Override
+                public boolean hasNext() {
+                    return order.hasNext();
+                }
+
+                @Override
+                public BoardGame next() {
+                    return allGames.game(order.nextInt());
+                }
+            };
+        }, ResultPublisher.EXECUTOR);
+    }
 
-        // Sort the results
-        Comparator<BoardGame> comparator = createComparator(sortOn);
-        if (!ascending) {
-            comparator = comparator.reversed();
+    /**
+     * Runs work that reads the catalog while holding a scan permit, waiting for one if the
+     * limit is reached.
+     *
+     * @param work the work
+     * @param <T> what the work returns
+     * @return what the work returned
+     * @throws IllegalStateException if interrupted while waiting for a permit
+     */
+    private <T> T scanning(Supplier<T> work) {
+        try {
+            scans.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to scan the catalog", e);
+        }
+        try {
+            return work.get();
+        } finally {
+            scans.release();
+        }
+    }
+
+    /**
+     * Gets the games of the last filter, in the order they were returned. Before any filter,
+     * and after a reset, this is every game in name order.
+     *
+     * @return the current results
+     */
+    @Override
+    public FilterResult currentResult() {
+        return filteredGames != null ? filteredGames : allGames();
+    }
+
+    /**
+     * Gets every game in the collection, in name order.
+     *
+     * @return all games
+     */
+    @Override
+    public synchronized FilterResult allGames() {
+        if (everyGame == null) {
+            BitSet rows = new BitSet(allGames.size());
+            rows.set(0, allGames.size());
+            everyGame = new FilterResult(allGames.select(rows));
         }
+        return everyGame;
+    }
+
+    /**
+     * Runs a filter and describes the plan used for it, with the estimated and actual number
+     * of rows for every step. Running it takes a scan permit like any other filter. The
+     * current filter results are not changed.
+     *
+     * @param filter the filter string to explain
+     * @return the plan as text
+     * @throws IllegalArgumentException if the filter is malformed or names an unknown column
+     */
+    @Override
+    public String explain(String filter) {
+        FilterExpression expression = FilterParser.parse(filter).optimize();
+        QueryPlan plan = queryPlanner.plan(expression);
+        scanning(() -> plan.execute(allGames));
+        return String.format("Filter: %s%n%s", expression, plan.explain());
+    }
 
-        return filteredGames.stream().sorted(comparator);
+    /**
+     * Gets the log of filters slower than its threshold, 100 ms unless changed.
+     *
+     * @return the slow query log
+     */
+    @Override
+    public SlowQueryLog slowQueryLog() {
+        return slowQueries;
     }
 
     /**
@@ -118,30 +496,6 @@ public class Planner implements IPlanner {
      */
     @Override
     public void reset() {
-        filteredGames.clear();
-    }
-
-    /**
-     * Creates a comparator for sorting based on the specified GameData field.
-     * Provides type-safe comparison for different game attributes.
-     *
-     * @param sortOn the GameData field to create a comparator for
-     * @return a comparator for sorting board games
-     */
-    private Comparator<BoardGame> createComparator(GameData sortOn) {
-        return switch (sortOn) {
-            case NAME -> Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
-            case YEAR -> Comparator.comparingInt(BoardGame::getYearPublished);
-            case MAX_TIME -> Comparator.comparingInt(BoardGame::getMaxPlayTime);
-            case MIN_TIME -> Comparator.comparingInt(BoardGame::getMinPlayTime);
-            case DIFFICULTY -> Comparator.comparingDouble(BoardGame::getDifficulty);
-            case RANK -> Comparator.comparingInt(BoardGame::getRank);
-            case MAX_PLAYERS -> Comparator.comparingInt(BoardGame::getMaxPlayers);
-            case MIN_PLAYERS -> Comparator.comparingInt(BoardGame::getMinPlayers);
-            case RATING -> Comparator.comparingDouble(BoardGame::getRating);
-            default ->
-                // Default to sorting by name if unknown field
-                Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER);
-        };
+        filteredGames = null;
     }
 }
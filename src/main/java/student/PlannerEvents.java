@@ -0,0 +1,105 @@
+package student;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * PlannerEvents holds the Java Flight Recorder events of the planner's hot paths, so a latency
+ * spike in a recording can be traced to the query, load or save that caused it.
+ *
+ * Each event has a threshold: only events that last longer are recorded, and the threshold can
+ * be changed in the recording settings like that of any JDK event (for example
+ * {@code student.Filter#threshold=0 ms} to record every filter). When no recording is running
+ * the events cost next to nothing; their fields are only filled in when
+ * {@link Event#shouldCommit()} says the event will be kept.
+ */
+final class PlannerEvents {
+
+    /** Private constructor to prevent instantiation of utility class. */
+    private PlannerEvents() {
+    }
+
+    /** A call of Planner.filter. */
+    @Name("student.Filter")
+    @Label("Filter")
+    @Category({"Board Game Planner", "Query"})
+    @Description("A filter run against the catalog, with its sort")
+    @Threshold("20 ms")
+    @StackTrace(false)
+    static final class FilterEvent extends Event {
+        /** The filter text. */
+        @Label("Filter")
+        String filter;
+        /** The sort keys. */
+        @Label("Sort")
+        String sort;
+        /** Rows in the table. */
+        @Label("Rows In")
+        int rowsIn;
+        /** Rows returned. */
+        @Label("Rows Out")
+        int rowsOut;
+        /** Strategy of the query plan's root. */
+        @Label("Strategy")
+        String strategy;
+    }
+
+    /** A call of Filter.parseCondition. */
+    @Name("student.ParseCondition")
+    @Label("Parse Condition")
+    @Category({"Board Game Planner", "Query"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class ParseConditionEvent extends Event {
+        /** The condition text. */
+        @Label("Condition")
+        String condition;
+        /** Whether the condition was valid. */
+        @Label("Valid")
+        boolean valid;
+    }
+
+    /** One phase of GamesLoader.loadGamesFile. */
+    @Name("student.LoadPhase")
+    @Label("Load Phase")
+    @Category({"Board Game Planner", "Load"})
+    @Description("Reading, parsing or deduplicating the games of a file")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class LoadPhaseEvent extends Event {
+        /** The file loaded. */
+        @Label("File")
+        String file;
+        /** The phase: read, parse or dedupe. */
+        @Label("Phase")
+        String phase;
+        /** Lines or games the phase produced. */
+        @Label("Count")
+        int count;
+    }
+
+    /** A call of GameList.saveGame. */
+    @Name("student.SaveList")
+    @Label("Save Game List")
+    @Category({"Board Game Planner", "Game List"})
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class SaveListEvent extends Event {
+        /** The file saved to. */
+        @Label("File")
+        String file;
+        /** Games saved. */
+        @Label("Games")
+        int games;
+        /** Size of the saved file. */
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,431 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * PlannerMetrics records how the planner performs: a latency histogram per operation, the
+ * bytes each operation allocates, rows scanned and returned by filters, page cache hits and
+ * games loaded per second.
+ *
+ * Recording is off until {@link #setEnabled(boolean)} turns it on. While it is off, every hook
+ * is a single read of a volatile flag: {@link #start()} returns null without reading the clock,
+ * and the other hooks return at once. Failed operations are not recorded.
+ *
+ * The metrics can be read through JMX after {@link #registerMBean()}, or written to a file
+ * periodically with {@link #startDump(Path, long)}.
+ */
+public final class PlannerMetrics implements PlannerMetricsMXBean {
+    /** JMX name the metrics are registered under. */
+    public static final String OBJECT_NAME = "student:type=PlannerMetrics";
+
+    /** The operations timed. */
+    public enum Operation {
+        /** Planner.filter, parsing, planning, running and sorting. */
+        FILTER,
+        /** Planner.queryAll, a batch of filters sharing one scan. */
+        FILTER_BATCH,
+        /** Planner.facet, a filter summarized by group. */
+        FACET,
+        /** Planner.fit, games for a player count and time limit. */
+        FIT,
+        /** Planner.similar, the games most like a game. */
+        SIMILAR,
+        /** Filter.parseCondition. */
+        PARSE_CONDITION,
+        /** GamesLoader.loadGamesFile. */
+        LOAD_GAMES,
+        /** GameList.addToList. */
+        LIST_ADD,
+        /** GameList.removeFromList. */
+        LIST_REMOVE,
+        /** GameList.saveGame. */
+        LIST_SAVE,
+        /** GameList.loadGame. */
+        LIST_LOAD,
+        /** A request answered by PlannerServer. */
+        HTTP_REQUEST
+    }
+
+    /** The single instance. */
+    private static final PlannerMetrics INSTANCE = new PlannerMetrics();
+    /** Nanoseconds per microsecond. */
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /** Whether hooks record anything. */
+    private static volatile boolean enabled;
+
+    /** Thread allocation counters, null if the JVM does not have them. */
+    private final com.sun.management.ThreadMXBean threads;
+    /** Latency of each operation in nanoseconds. */
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    /** Bytes allocated by each operation. */
+    private final Map<Operation, LongAdder> allocations = new EnumMap<>(Operation.class);
+    /** Rows read by filters. */
+    private final LongAdder rowsScanned = new LongAdder();
+    /** Rows returned by filters. */
+    private final LongAdder rowsReturned = new LongAdder();
+    /** Page cache hits. */
+    private final LongAdder pageHits = new LongAdder();
+    /** Page cache misses. */
+    private final LongAdder pageMisses = new LongAdder();
+    /** Games read by the loader. */
+    private final LongAdder gamesLoaded = new LongAdder();
+
+    /**
+     * A started operation: when it started and how much its thread had allocated by then.
+     */
+    static final class Sample {
+        /** Clock reading at the start. */
+        private final long nanos;
+        /** Bytes the thread had allocated at the start, -1 if unknown. */
+        private final long bytes;
+
+        /**
+         * Creates a sample.
+         *
+         * @param nanos clock reading
+         * @param bytes allocated bytes, -1 if unknown
+         */
+        private Sample(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
+
+    /** Creates the instance. */
+    private PlannerMetrics() {
+        com.sun.management.ThreadMXBean found = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            found = bean;
+        }
+        this.threads = found;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            allocations.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Gets the metrics.
+     *
+     * @return the single instance
+     */
+    public static PlannerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, if they are not registered yet.
+     *
+     * @throws IllegalStateException if registering fails
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics", e);
+        }
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the sample to pass to {@link #stop(Operation, Sample)}, null when disabled
+     */
+    static Sample start() {
+        if (!enabled) {
+            return null;
+        }
+        return new Sample(System.nanoTime(), INSTANCE.allocatedBytes());
+    }
+
+    /**
+     * Records a completed operation.
+     *
+     * @param operation the operation
+     * @param sample what {@link #start()} returned, nothing is recorded if it is null
+     */
+    static void stop(Operation operation, Sample sample) {
+        if (sample == null) {
+            return;
+        }
+        INSTANCE.latencies.get(operation).record(System.nanoTime() - sample.nanos);
+        long bytes = INSTANCE.allocatedBytes();
+        if (bytes >= 0 && sample.bytes >= 0) {
+            INSTANCE.allocations.get(operation).add(bytes - sample.bytes);
+        }
+    }
+
+    /**
+     * Records the rows a filter read and returned.
+     *
+     * @param scanned rows read
+     * @param returned rows returned
+     */
+    static void filtered(long scanned, long returned) {
+        if (enabled) {
+            INSTANCE.rowsScanned.add(scanned);
+            INSTANCE.rowsReturned.add(returned);
+        }
+    }
+
+    /**
+     * Records a page cache request.
+     *
+     * @param hit true if the page was cached
+     */
+    static void pageRequest(boolean hit) {
+        if (enabled) {
+            (hit ? INSTANCE.pageHits : INSTANCE.pageMisses).increment();
+        }
+    }
+
+    /**
+     * Records games read by the loader.
+     *
+     * @param games the number of games
+     */
+    static void loaded(long games) {
+        if (enabled) {
+            INSTANCE.gamesLoaded.add(games);
+        }
+    }
+
+    /**
+     * Writes the metrics to a file now and then every period, replacing the file each time.
+     * The file gets JSON if its name ends in .json, text otherwise.
+     *
+     * @param file the file to write
+     * @param periodSeconds seconds between writes
+     * @return a handle that stops the writes, writing the file a last time
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public Closeable startDump(Path file, long periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Invalid dump period: " + periodSeconds);
+        }
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "planner-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> dump(file), 0, periodSeconds, TimeUnit.SECONDS);
+        return () -> {
+            timer.shutdown();
+            try {
+                timer.awaitTermination(periodSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dump(file);
+        };
+    }
+
+    /**
+     * Writes the metrics to a file, through a temporary file so readers never see half of it.
+     * Failures are reported on standard error, so a full disk does not stop the planner.
+     *
+     * @param file the file to write
+     */
+    private void dump(Path file) {
+        String text = file.getFileName().toString().endsWith(".json") ? toJson() : toText();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, text);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        latencies.forEach((operation, histogram) -> counts.put(operation.name(),
+                histogram.count()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        return micros(LatencyHistogram::mean);
+    }
+
+    @Override
+    public Map<String, Double> getP50Micros() {
+        return micros(histogram -> histogram.percentile(50));
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        return micros(histogram -> histogram.percentile(99));
+    }
+
+    @Override
+    public Map<String, Double> getMaxMicros() {
+        return micros(LatencyHistogram::max);
+    }
+
+    @Override
+    public Map<String, Long> getAllocatedBytes() {
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        if (threads != null) {
+            allocations.forEach((operation, sum) -> bytes.put(operation.name(), sum.sum()));
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    @Override
+    public long getRowsReturned() {
+        return rowsReturned.sum();
+    }
+
+    @Override
+    public long getPageCacheHits() {
+        return pageHits.sum();
+    }
+
+    @Override
+    public long getPageCacheMisses() {
+        return pageMisses.sum();
+    }
+
+    @Override
+    public double getPageCacheHitRatio() {
+        long hits = getPageCacheHits();
+        long total = hits + getPageCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getGamesLoaded() {
+        return gamesLoaded.sum();
+    }
+
+    @Override
+    public double getLoadGamesPerSecond() {
+        LatencyHistogram load = latencies.get(Operation.LOAD_GAMES);
+        double seconds = load.mean() * load.count() / 1e9;
+        return seconds == 0 ? 0 : getGamesLoaded() / seconds;
+    }
+
+    @Override
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-16s %8s %10s %10s %10s %10s %14s%n", "operation", "count",
+                "mean(us)", "p50(us)", "p99(us)", "max(us)", "allocated"));
+        Map<String, Long> bytes = getAllocatedBytes();
+        latencies.forEach((operation, histogram) -> sb.append(String.format(
+                "%-16s %8d %10.1f %10.1f %10.1f %10.1f %14s%n", operation, histogram.count(),
+                histogram.mean() / NANOS_PER_MICRO,
+                histogram.percentile(50) / NANOS_PER_MICRO,
+                histogram.percentile(99) / NANOS_PER_MICRO,
+                histogram.max() / NANOS_PER_MICRO,
+                bytes.containsKey(operation.name()) ? bytes.get(operation.name()) : "-")));
+        sb.append(String.format("rows scanned %d, returned %d%n", getRowsScanned(),
+                getRowsReturned()));
+        sb.append(String.format("page cache hits %d, misses %d, hit ratio %.3f%n",
+                getPageCacheHits(), getPageCacheMisses(), getPageCacheHitRatio()));
+        sb.append(String.format("games loaded %d, %.0f games/s%n", getGamesLoaded(),
+                getLoadGamesPerSecond()));
+        return sb.toString();
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\"operations\":{");
+        Map<String, Long> bytes = getAllocatedBytes();
+        String separator = "";
+        for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            sb.append(separator);
+            Json.quote(sb, entry.getKey().name());
+            sb.append(String.format(Locale.ROOT, ":{\"count\":%d,\"meanMicros\":%.1f,"
+                    + "\"p50Micros\":%.1f,\"p99Micros\":%.1f,\"maxMicros\":%.1f,"
+                    + "\"allocatedBytes\":%s}",
+                    histogram.count(), histogram.mean() / NANOS_PER_MICRO,
+                    histogram.percentile(50) / NANOS_PER_MICRO,
+                    histogram.percentile(99) / NANOS_PER_MICRO,
+                    histogram.max() / NANOS_PER_MICRO,
+                    bytes.containsKey(entry.getKey().name()) ? bytes.get(entry.getKey().name())
+                            : "null"));
+            separator = ",";
+        }
+        sb.append(String.format(Locale.ROOT, "},\"rowsScanned\":%d,\"rowsReturned\":%d,"
+                + "\"pageCacheHits\":%d,\"pageCacheMisses\":%d,\"pageCacheHitRatio\":%.4f,"
+                + "\"gamesLoaded\":%d,\"loadGamesPerSecond\":%.1f}", getRowsScanned(),
+                getRowsReturned(), getPageCacheHits(), getPageCacheMisses(), getPageCacheHitRatio(),
+                getGamesLoaded(), getLoadGamesPerSecond()));
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        latencies.values().forEach(LatencyHistogram::reset);
+        allocations.values().forEach(LongAdder::reset);
+        rowsScanned.reset();
+        rowsReturned.reset();
+        pageHits.reset();
+        pageMisses.reset();
+        gamesLoaded.reset();
+    }
+
+    /**
+     * Converts a nanosecond statistic of every operation to microseconds.
+     *
+     * @param statistic the statistic of a histogram
+     * @return the values keyed by operation name
+     */
+    private Map<String, Double> micros(ToDoubleFunction<LatencyHistogram> statistic) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        latencies.forEach((operation, histogram) -> values.put(operation.name(),
+                statistic.applyAsDouble(histogram) / NANOS_PER_MICRO));
+        return values;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread.
+     *
+     * @return the bytes, -1 if unknown
+     */
+    private long allocatedBytes() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+}
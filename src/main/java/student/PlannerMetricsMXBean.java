@@ -0,0 +1,133 @@
+package student;
+
+import java.util.Map;
+
+/**
+ * PlannerMetricsMXBean is the JMX view of {@link PlannerMetrics}, registered as
+ * {@value PlannerMetrics#OBJECT_NAME}. Per operation values are keyed by operation name, and
+ * latencies are in microseconds.
+ */
+public interface PlannerMetricsMXBean {
+
+    /**
+     * Checks if metrics are being recorded.
+     *
+     * @return true if enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns recording on or off.
+     *
+     * @param enabled true to record
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Number of times each operation completed.
+     *
+     * @return the counts
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Mean latency of each operation.
+     *
+     * @return the means in microseconds
+     */
+    Map<String, Double> getMeanMicros();
+
+    /**
+     * Median latency of each operation.
+     *
+     * @return the medians in microseconds
+     */
+    Map<String, Double> getP50Micros();
+
+    /**
+     * 99th percentile latency of each operation.
+     *
+     * @return the percentiles in microseconds
+     */
+    Map<String, Double> getP99Micros();
+
+    /**
+     * Largest latency of each operation.
+     *
+     * @return the maximums in microseconds
+     */
+    Map<String, Double> getMaxMicros();
+
+    /**
+     * Bytes allocated by the thread running each operation, summed over every run.
+     *
+     * @return the bytes, empty if the JVM cannot measure them
+     */
+    Map<String, Long> getAllocatedBytes();
+
+    /**
+     * Rows read by filters, including the rows tested again after a first condition.
+     *
+     * @return the row count
+     */
+    long getRowsScanned();
+
+    /**
+     * Rows returned by filters.
+     *
+     * @return the row count
+     */
+    long getRowsReturned();
+
+    /**
+     * Page cache requests served without mapping a page.
+     *
+     * @return the hit count
+     */
+    long getPageCacheHits();
+
+    /**
+     * Page cache requests that mapped a page.
+     *
+     * @return the miss count
+     */
+    long getPageCacheMisses();
+
+    /**
+     * Share of page cache requests that were hits.
+     *
+     * @return the ratio between 0 and 1, 0 if there were no requests
+     */
+    double getPageCacheHitRatio();
+
+    /**
+     * Games read by the loader.
+     *
+     * @return the game count
+     */
+    long getGamesLoaded();
+
+    /**
+     * Games read per second of loading.
+     *
+     * @return the throughput, 0 if nothing was loaded
+     */
+    double getLoadGamesPerSecond();
+
+    /**
+     * Describes every metric as text, one line per operation.
+     *
+     * @return the text
+     */
+    String toText();
+
+    /**
+     * Describes every metric as a JSON object.
+     *
+     * @return the JSON text
+     */
+    String toJson();
+
+    /** Forgets everything recorded so far. */
+    void reset();
+}
@@ -0,0 +1,564 @@
+package student;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * PlannerServer serves the planner over HTTP with JSON responses, using the JDK's built in
+ * server. Connections are kept alive between requests, and every request runs on its own
+ * virtual thread when the JVM has them (Java 21 and later), otherwise on a fixed pool.
+ *
+ * Routes:
+ * - GET /games?filter=rating>8&sort=rating:desc,rank&direction=asc&offset=0&limit=100 runs a
+ *   filter with {@link IQueryPlanner#query(String, List)}, which leaves the shared catalog
+ *   alone, and streams one page of the results. direction applies to sort keys that do not
+ *   give their own.
+ * - GET /lists/{session} shows a session's game list, created empty on first use.
+ * - POST /lists/{session}?add=1-3&filter=...&sort=... adds games by name, position or range
+ *   from a filter's results (every game in name order without a filter), like list add.
+ * - POST /lists/{session}?remove=... removes games, like list remove.
+ * - DELETE /lists/{session} forgets the session.
+ * - GET /facets?filter=...&group=year&width=1&measure=rating summarizes a filter's results
+ *   with {@link IQueryPlanner#facet}: the count and the measure's min, max and average per group.
+ * - GET /night?players=4&minutes=180&weight=rating&filter=... plans an arena night with
+ *   {@link EventNight}: the most valuable games of the filter's results, or of a session's
+ *   list with session=name, that fit the players and minutes.
+ * - GET /similar?name=Catan&count=10 finds the games most like the named one with
+ *   {@link IQueryPlanner#similar}, most similar first.
+ * - GET /metrics shows request counts and the {@link PlannerMetrics}.
+ *
+ * Malformed parameters get a 400 response with an "error" field. Other failures get a 500
+ * response with a generic error, and are logged to standard error.
+ */
+public final class PlannerServer implements Closeable {
+    /** Default page size. */
+    public static final int DEFAULT_LIMIT = 100;
+    /** Largest page size. */
+    public static final int MAX_LIMIT = 10_000;
+    /** Default number of sessions kept. */
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+    /** Content type of every response. */
+    private static final String JSON = "application/json; charset=utf-8";
+    /** Characters buffered before a streamed response is written. */
+    private static final int CHUNK = 1 << 14;
+    /** Valid session names. */
+    private static final Pattern SESSION = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    /** Prefix of the list routes. */
+    private static final String LISTS = "/lists/";
+
+    /** The planner queried, shared by every request. */
+    private final IQueryPlanner planner;
+    /** Makes the game list of a new session. */
+    private final Supplier<IQueryGameList> newList;
+    /** Most sessions kept. */
+    private final int maxSessions;
+    /** Game list of each session. */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    /** The HTTP server. */
+    private final HttpServer server;
+    /** Threads requests run on. */
+    private final ExecutorService executor;
+    /** Released when the server stops. */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    /** Requests answered, by status class: 2xx, 4xx and 5xx. */
+    private final LongAdder[] responses = {new LongAdder(), new LongAdder(), new LongAdder()};
+
+    /**
+     * A session: its game list and the lock its requests take turns on. A session costs its
+     * list and a lock, not a thread; its requests run on whichever thread the server gives
+     * them.
+     */
+    private static final class Session {
+        /** The session's game list. */
+        private final IQueryGameList list;
+        /** Guards the list. */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Creates a session.
+         *
+         * @param list its game list
+         */
+        private Session(IQueryGameList list) {
+            this.list = list;
+        }
+    }
+
+    /** A route: answers a request and returns the status sent. */
+    @FunctionalInterface
+    private interface Route {
+        /**
+         * Answers a request.
+         *
+         * @param exchange the request
+         * @return the status sent
+         * @throws IOException if the response cannot be written
+         */
+        int handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Creates a server; it does not accept requests until {@link #start()}.
+     *
+     * @param planner the planner queried
+     * @param newList makes the game list of a new session
+     * @param address the address to listen on, port 0 for any free port
+     * @param maxSessions most sessions kept
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if maxSessions is not positive
+     */
+    public PlannerServer(IQueryPlanner planner, Supplier<IQueryGameList> newList,
+            InetSocketAddress address, int maxSessions) throws IOException {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Invalid session limit: " + maxSessions);
+        }
+        this.planner = planner;
+        this.newList = newList;
+        this.maxSessions = maxSessions;
+        this.server = HttpServer.create(address, 0);
+        this.executor = VirtualThreads.newExecutor("planner-http");
+        server.setExecutor(executor);
+        server.createContext("/games", exchange -> serve(exchange, this::games));
+        server.createContext(LISTS, exchange -> serve(exchange, this::list));
+        server.createContext("/facets", exchange -> serve(exchange, this::facets));
+        server.createContext("/night", exchange -> serve(exchange, this::night));
+        server.createContext("/similar", exchange -> serve(exchange, this::similar));
+        server.createContext("/metrics", exchange -> serve(exchange, this::metrics));
+    }
+
+    /**
+     * Creates and starts a server on a port of the loopback interface, so only this machine
+     * can reach it, with a plain game list per session.
+     *
+     * @param planner the planner queried
+     * @param port the port, 0 for any free port
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static PlannerServer start(IQueryPlanner planner, int port) throws IOException {
+        PlannerServer server = new PlannerServer(planner, GameList::new,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                DEFAULT_MAX_SESSIONS);
+        server.start();
+        return server;
+    }
+
+    /** Starts accepting requests. */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /** Stops accepting requests, waiting a second for those running. */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        stopped.countDown();
+    }
+
+    /**
+     * Answers a request with a route, turning bad parameters into a 400 response and other
+     * failures into a 500 response whose details are only logged, and records its status and
+     * latency.
+     *
+     * @param exchange the request
+     * @param route the route
+     * @throws IOException if the response cannot be written
+     */
+    private void serve(HttpExchange exchange, Route route) throws IOException {
+        PlannerMetrics.Sample sample = PlannerMetrics.start();
+        int status;
+        try (exchange) {
+            try {
+                status = route.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                status = error(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error serving " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI());
+                e.printStackTrace();
+                status = error(exchange, 500, "Internal error");
+            }
+        }
+        responses[status < 400 ? 0 : status < 500 ? 1 : 2].increment();
+        PlannerMetrics.stop(PlannerMetrics.Operation.HTTP_REQUEST, sample);
+    }
+
+    /**
+     * Runs a filter and streams one page of its results.
+     *
+     * @param exchange the request
+     * @return the status sent
+     * @throws IOException if the response cannot be written
+     */
+    private int games(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(exchange, 405, "Use GET");
+        }
+        Map<String, String> params = parameters(exchange);
+        FilterResult result = query(params);
+        int offset = number(params, "offset", 0, 0, Integer.MAX_VALUE);
+        int limit = number(params, "limit", DEFAULT_LIMIT, 1, MAX_LIMIT);
+        int end = (int) Math.min(result.size(), (long) offset + limit);
+
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0); // chunked, the rows are written as they go
+        try (Writer out = new OutputStreamWriter(exchange.getResponseBody(),
+                StandardCharsets.UTF_8)) {
+            StringBuilder sb = new StringBuilder(CHUNK + 512);
+            sb.append("{\"total\":").append(result.size()).append(",\"offset\":").append(offset)
+                    .append(",\"limit\":").append(limit).append(",\"games\":[");
+            for (int i = offset; i < end; i++) {
+                if (i > offset) {
+                    sb.append(',');
+                }
+                Json.game(sb, result.get(i));
+                if (sb.length() >= CHUNK) {
+                    out.write(sb.toString());
+                    sb.setLength(0);
+                }
+            }
+            out.write(sb.append("]}").toString());
+        }
+        return 200;
+    }
+
+    /**
+     * Shows, changes or forgets a session's game list.
+     *
+     * @param exchange the request
+     * @return the status sent
+     * @throws IOException if the response cannot be written
+     */
+    private int list(HttpExchange exchange) throws IOException {
+        String session = exchange.getRequestURI().getPath().substring(LISTS.length());
+        if (!SESSION.matcher(session).matches()) {
+            return error(exchange, 404, "Invalid session: " + session);
+        }
+        String method = exchange.getRequestMethod();
+        if (method.equals("DELETE")) {
+            sessions.remove(session);
+            return send(exchange, 200, "{\"deleted\":true}");
+        }
+        if (!method.equals("GET") && !method.equals("POST")) {
+            return error(exchange, 405, "Use GET, POST or DELETE");
+        }
+        Session games = sessions.get(session);
+        if (games == null) {
+            if (sessions.size() >= maxSessions) {
+                return error(exchange, 503, "Too many sessions");
+            }
+            games = sessions.computeIfAbsent(session, s -> new Session(newList.get()));
+        }
+        Map<String, String> params = parameters(exchange);
+        String add = params.get("add");
+        String remove = params.get("remove");
+        FilterResult from = null;
+        if (method.equals("POST")) {
+            if (add == null && remove == null) {
+                throw new IllegalArgumentException("Missing add or remove");
+            }
+            if (add != null) { // filter before locking, so the session is not held during it
+                from = params.containsKey("filter") ? query(params) : planner.allGames();
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        games.lock.lock(); // a list is not thread safe, and a session may send in parallel
+        try {
+            if (from != null) {
+                games.list.addToList(add, from);
+            } else if (method.equals("POST")) {
+                games.list.removeFromList(remove);
+            }
+            Json.quote(sb.append("{\"session\":"), session).append(",\"count\":")
+                    .append(games.list.count()).append(",\"games\":[");
+            List<String> names = games.list.getGameNames();
+            for (int i = 0; i < names.size(); i++) {
+                Json.quote(i > 0 ? sb.append(',') : sb, names.get(i));
+            }
+        } finally {
+            games.lock.unlock();
+        }
+        return send(exchange, 200, sb.append("]}"));
+    }
+
+    /**
+     * Runs a filter and sends its groups instead of its games.
+     *
+     * @param exchange the request
+     * @return the status sent
+     * @throws IOException if the response cannot be written
+     */
+    private int facets(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(exchange, 405, "Use GET");
+        }
+        Map<String, String> params = parameters(exchange);
+        String group = params.get("group");
+        if (group == null) {
+            throw new IllegalArgumentException("Missing group");
+        }
+        double width;
+        try {
+            width = Double.parseDouble(params.getOrDefault("width", "1").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid width: " + params.get("width"));
+        }
+        FacetResult facet = planner.facet(params.getOrDefault("filter", "").trim().toLowerCase(),
+                GameData.fromString(group.trim()), width,
+                GameData.fromString(params.getOrDefault("measure", "rating").trim()));
+        return send(exchange, 200, facet.toJson());
+    }
+
+    /**
+     * Plans an arena night from a filter's results or a session's list.
+     *
+     * @param exchange the request
+     * @return the status sent
+     * @throws IOException if the response cannot be written
+     */
+    private int night(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(exchange, 405, "Use GET");
+        }
+        Map<String, String> params = parameters(exchange);
+        int players = number(params, "players", 0, 1, Integer.MAX_VALUE);
+        int minutes = number(params, "minutes", -1, 0, Integer.MAX_VALUE);
+        if (players == 0 || minutes < 0) {
+            throw new IllegalArgumentException("Missing players or minutes");
+        }
+        EventNight.Weight weight;
+        try {
+            weight = EventNight.Weight.valueOf(params.getOrDefault("weight", "rating").trim()
+                    .toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid weight: " + params.get("weight"));
+        }
+        EventNight night;
+        String session = params.get("session");
+        if (session != null) {
+            Session games = sessions.get(session);
+            if (games == null) {
+                return error(exchange, 404, "No session: " + session);
+            }
+            List<String> names;
+            games.lock.lock();
+            try {
+                names = games.list.getGameNames();
+            } finally {
+                games.lock.unlock();
+            }
+            FilterResult catalog = planner.allGames();
+            List<BoardGame> candidates = new ArrayList<>();
+            names.forEach(name -> candidates.addAll(catalog.findByName(name)));
+            night = EventNight.plan(candidates, players, minutes, weight);
+        } else {
+            night = EventNight.plan(query(params), players, minutes, weight);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"players\":").append(players).append(",\"minutes\":").append(minutes)
+                .append(",\"totalMinutes\":").append(night.getTotalMinutes())
+                .append(",\"totalValue\":").append(night.getTotalValue())
+                .append(",\"optimal\":").append(night.isOptimal()).append(",\"games\":[");
+        for (int i = 0; i < night.getGames().size(); i++) {
+            Json.game(i > 0 ? sb.append(',') : sb, night.getGames().get(i));
+        }
+        return send(exchange, 200, sb.append("]}"));
+    }
+
+    /**
+     * Finds the games most like a named game.
+     *
+     * @param exchange the request
+     * @return the status sent
+     * @throws IOException if the response cannot be written
+     */
+    private int similar(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(exchange, 405, "Use GET");
+        }
+        Map<String, String> params = parameters(exchange);
+        String name = params.get("name");
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Missing name");
+        }
+        int count = number(params, "count", 10, 0, MAX_LIMIT);
+        List<BoardGame> matches = planner.allGames().findByName(name.trim());
+        if (matches.isEmpty()) {
+            return error(exchange, 404, "No game: " + name.trim());
+        }
+        FilterResult similar = planner.similar(matches.get(0), count);
+        StringBuilder sb = new StringBuilder("{\"game\":");
+        Json.game(sb, matches.get(0)).append(",\"count\":").append(similar.size())
+                .append(",\"games\":[");
+        for (int i = 0; i < similar.size(); i++) {
+            Json.game(i > 0 ? sb.append(',') : sb, similar.get(i));
+        }
+        return send(exchange, 200, sb.append("]}"));
+    }
+
+    /**
+     * Shows request counts and planner metrics.
+     *
+     * @param exchange the request
+     * @return the status sent
+     * @throws IOException if the response cannot be written
+     */
+    private int metrics(HttpExchange exchange) throws IOException {
+        String json = String.format("{\"responses2xx\":%d,\"responses4xx\":%d,"
+                + "\"responses5xx\":%d,\"sessions\":%d,\"planner\":%s}", responses[0].sum(),
+                responses[1].sum(), responses[2].sum(), sessions.size(),
+                PlannerMetrics.get().toJson());
+        return send(exchange, 200, json);
+    }
+
+    /**
+     * Runs the filter and sort given in the parameters.
+     *
+     * @param params the parameters
+     * @return the results
+     * @throws IllegalArgumentException if the filter, sort or direction is not valid
+     */
+    private FilterResult query(Map<String, String> params) {
+        String direction = params.getOrDefault("direction", "asc").trim().toLowerCase();
+        if (!direction.equals("asc") && !direction.equals("desc")) {
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        }
+        StringBuilder sort = new StringBuilder();
+        for (String key : params.getOrDefault("sort", "name").split(",")) {
+            sort.append(sort.length() > 0 ? "," : "").append(key.trim());
+            if (!key.contains(":")) {
+                sort.append(':').append(direction);
+            }
+        }
+        List<SortCriterion> sortOn = SortCriterion.parseList(sort.toString());
+        if (sortOn.isEmpty()) {
+            sortOn = List.of(new SortCriterion(GameData.NAME, true));
+        }
+        return planner.query(params.getOrDefault("filter", "").trim().toLowerCase(), sortOn);
+    }
+
+    /**
+     * Reads a whole number parameter.
+     *
+     * @param params the parameters
+     * @param name the parameter
+     * @param fallback the value when it is not given
+     * @param min smallest valid value
+     * @param max largest valid value
+     * @return the value
+     * @throws IllegalArgumentException if it is not a number in range
+     */
+    private static int number(Map<String, String> params, String name, int fallback, int min,
+            int max) {
+        String text = params.get(name);
+        if (text == null) {
+            return fallback;
+        }
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(String.format("Invalid %s: %s", name, text));
+    }
+
+    /**
+     * Decodes the query string of a request.
+     *
+     * @param exchange the request
+     * @return the parameters, the last value of a repeated one
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Sends an error response.
+     *
+     * @param exchange the request
+     * @param status the status
+     * @param message what went wrong
+     * @return the status
+     * @throws IOException if the response cannot be written
+     */
+    private static int error(HttpExchange exchange, int status, String message)
+            throws IOException {
+        return send(exchange, status, Json.quote(new StringBuilder("{\"error\":"),
+                String.valueOf(message)).append('}'));
+    }
+
+    /**
+     * Sends a complete JSON response.
+     *
+     * @param exchange the request
+     * @param status the status
+     * @param json the body
+     * @return the status
+     * @throws IOException if the response cannot be written
+     */
+    private static int send(HttpExchange exchange, int status, CharSequence json)
+            throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        return status;
+    }
+}
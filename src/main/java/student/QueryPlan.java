@@ -0,0 +1,259 @@
+package student;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * QueryPlan is one node of the execution plan chosen by the {@link QueryPlanner} for a
+ * {@link FilterExpression}. Each node records the strategy used to produce its rows, the
+ * estimated row count and cost, and after {@link #execute(GameTable)} the actual row count,
+ * so {@link #explain()} can show how good the estimates were.
+ */
+public final class QueryPlan {
+
+    /** How a plan node produces its rows. */
+    public enum Strategy {
+        /** Always true or always false, nothing to read. */
+        CONSTANT,
+        /** Tests every row of the table. */
+        FULL_SCAN,
+        /** Binary searches the sorted column index and selects the rows in between. */
+        INDEX_PROBE,
+        /** Walks the k-d tree once for an AND of range conditions on its columns. */
+        KD_TREE_PROBE,
+        /** Runs every child as a bitmap and intersects the bitmaps. */
+        BITMAP_INTERSECTION,
+        /** Runs the first child as a bitmap and tests the other children row by row on it. */
+        FILTERED_SCAN,
+        /** Tested row by row on the rows selected so far by the parent's first child. */
+        ROW_TEST,
+        /** Runs every child as a bitmap and unions the bitmaps. */
+        UNION,
+        /** Runs the child as a bitmap and flips it. */
+        COMPLEMENT
+    }
+
+    /** The strategy of this node. */
+    private final Strategy strategy;
+    /** The expression this node evaluates. */
+    private final FilterExpression expression;
+    /** Estimated number of rows this node produces. */
+    private final double estimatedRows;
+    /** Estimated cost, roughly the number of values compared. */
+    private final double cost;
+    /** The child plans, in execution order. */
+    private final List<QueryPlan> children;
+    /** Rows actually produced by the last execution, -1 if not run. */
+    private int actualRows = -1;
+
+    /**
+     * Creates a plan node.
+     *
+     * @param strategy how the node produces its rows
+     * @param expression the expression the node evaluates
+     * @param estimatedRows estimated number of rows produced
+     * @param cost estimated cost
+     * @param children child plans in execution order
+     */
+    QueryPlan(Strategy strategy, FilterExpression expression, double estimatedRows, double cost,
+            List<QueryPlan> children) {
+        this.strategy = strategy;
+        this.expression = expression;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+        this.children = List.copyOf(children);
+    }
+
+    /**
+     * Gets the strategy of this node.
+     *
+     * @return the strategy
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Gets the expression this node evaluates.
+     *
+     * @return the expression
+     */
+    public FilterExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Gets the estimated number of rows this node produces.
+     *
+     * @return the estimate
+     */
+    public double getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * Gets the estimated cost of this node, including its children.
+     *
+     * @return the cost
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * Gets the rows produced by the last execution.
+     *
+     * @return the row count, or -1 if the node has not been run
+     */
+    public int getActualRows() {
+        return actualRows;
+    }
+
+    /**
+     * Counts the rows the last execution read: every row for a full scan, the rows found for
+     * an index probe, and for a filtered scan the rows each test was run on.
+     *
+     * @param tableSize the number of rows in the table
+     * @return the row count, 0 if the node has not been run
+     */
+    long rowsScanned(int tableSize) {
+        if (actualRows < 0) {
+            return 0;
+        }
+        return switch (strategy) {
+            case CONSTANT -> 0;
+            case FULL_SCAN -> tableSize;
+            case INDEX_PROBE, KD_TREE_PROBE -> actualRows;
+            case FILTERED_SCAN -> {
+                long scanned = children.get(0).rowsScanned(tableSize);
+                int tested = children.get(0).actualRows;
+                for (QueryPlan test : children.subList(1, children.size())) {
+                    scanned += tested;
+                    tested = test.actualRows;
+                }
+                yield scanned;
+            }
+            default -> {
+                long scanned = 0;
+                for (QueryPlan child : children) {
+                    scanned += child.rowsScanned(tableSize);
+                }
+                yield scanned;
+            }
+        };
+    }
+
+    /**
+     * Gets the child plans.
+     *
+     * @return the children in execution order
+     */
+    public List<QueryPlan> getChildren() {
+        return children;
+    }
+
+    /**
+     * Runs the plan against a table.
+     *
+     * @param table the table to run against, the same one the plan was made for
+     * @return the matching rows
+     */
+    public BitSet execute(GameTable table) {
+        BitSet rows = switch (strategy) {
+            case CONSTANT, FULL_SCAN -> expression.evaluate(table);
+            case INDEX_PROBE -> {
+                FilterExpression.Range range = (FilterExpression.Range) expression;
+                yield table.index(range.getColumn()).probe(range);
+            }
+            case KD_TREE_PROBE -> table.kdTree().probe(KdTree.ranges(expression));
+            case BITMAP_INTERSECTION -> intersect(table);
+            case FILTERED_SCAN -> filteredScan(table);
+            case UNION -> {
+                BitSet union = new BitSet(table.size());
+                for (QueryPlan child : children) {
+                    union.or(child.execute(table));
+                }
+                yield union;
+            }
+            case COMPLEMENT -> {
+                BitSet complement = children.get(0).execute(table);
+                complement.flip(0, table.size());
+                yield complement;
+            }
+            default -> throw new IllegalStateException(strategy + " runs inside its parent");
+        };
+        actualRows = rows.cardinality();
+        return rows;
+    }
+
+    /**
+     * Intersects the children's bitmaps, stopping once nothing is left.
+     *
+     * @param table the table
+     * @return the rows matching every child
+     */
+    private BitSet intersect(GameTable table) {
+        BitSet rows = null;
+        for (QueryPlan child : children) {
+            if (rows == null) {
+                rows = child.execute(table);
+            } else if (!rows.isEmpty()) {
+                rows.and(child.execute(table));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Runs the first child and removes the rows that fail the remaining children.
+     *
+     * @param table the table
+     * @return the rows matching every child
+     */
+    private BitSet filteredScan(GameTable table) {
+        BitSet rows = children.get(0).execute(table);
+        for (QueryPlan test : children.subList(1, children.size())) {
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (!test.expression.matches(table, row)) {
+                    rows.clear(row);
+                }
+            }
+            test.actualRows = rows.cardinality();
+        }
+        return rows;
+    }
+
+    /**
+     * Describes the plan, one node per line, with estimated and actual row counts.
+     *
+     * @return the plan as text
+     */
+    public String explain() {
+        StringBuilder sb = new StringBuilder();
+        explain(sb, 0);
+        return sb.toString();
+    }
+
+    /**
+     * Appends this node and its children.
+     *
+     * @param sb the builder to append to
+     * @param depth nesting level, for indentation
+     */
+    private void explain(StringBuilder sb, int depth) {
+        sb.append("  ".repeat(depth)).append(strategy);
+        if (children.isEmpty()) {
+            sb.append(' ').append(expression);
+        }
+        sb.append(String.format(" (est=%.0f, actual=%s, cost=%.0f)%n", estimatedRows,
+                actualRows < 0 ? "-" : Integer.toString(actualRows), cost));
+        for (QueryPlan child : children) {
+            child.explain(sb, depth + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
@@ -0,0 +1,293 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * QueryPlanner picks how to run an optimized {@link FilterExpression}, using the
+ * {@link ColumnStatistics} of the table to estimate how many rows each condition selects.
+ *
+ * For every condition it chooses between a full scan of the column and a probe of the sorted
+ * {@link ColumnIndex}. For every AND it orders the conditions from most to least selective and
+ * chooses between intersecting a bitmap per condition, or running the cheapest condition as a
+ * bitmap and testing the others only on the rows it selected. When the table has a
+ * {@link KdTree}, the range conditions of an AND on its columns may instead be answered by
+ * one walk of the tree, priced by walking its upper levels.
+ *
+ * Costs are rough units of "values looked at"; only their relative size matters.
+ */
+public final class QueryPlanner {
+    /** Cost of comparing one numeric value while scanning. */
+    static final double SCAN_COST = 1.0;
+    /** Cost of comparing one name, string comparisons are slower than numbers. */
+    static final double NAME_COST = 4.0;
+    /** Cost per row selected by an index probe, setting bits in random order. */
+    static final double PROBE_COST = 2.0;
+    /** Cost per row of a bitmap AND, OR or flip, done a 64 bit word at a time. */
+    static final double BITMAP_COST = 1.0 / 64;
+
+    /** Statistics of the table being planned for. */
+    private final ColumnStatistics statistics;
+    /** Number of rows in the table. */
+    private final int rowCount;
+    /** Multi-column index of the table, null if it has none. */
+    private final KdTree tree;
+
+    /**
+     * Creates a planner.
+     *
+     * @param statistics statistics of the table plans will run against
+     */
+    public QueryPlanner(ColumnStatistics statistics) {
+        this(statistics, null);
+    }
+
+    /**
+     * Creates a planner that can also use a multi-column index.
+     *
+     * @param statistics statistics of the table plans will run against
+     * @param tree the table's k-d tree, or null if it has none
+     */
+    QueryPlanner(ColumnStatistics statistics, KdTree tree) {
+        this.statistics = statistics;
+        this.rowCount = statistics.getRowCount();
+        this.tree = tree;
+    }
+
+    /**
+     * Gets the statistics used for estimates.
+     *
+     * @return the statistics
+     */
+    public ColumnStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Plans an expression. The expression should already be optimized.
+     *
+     * @param expression the expression to plan
+     * @return the cheapest plan found
+     */
+    public QueryPlan plan(FilterExpression expression) {
+        if (expression == FilterExpression.TRUE || expression == FilterExpression.FALSE) {
+            double rows = expression == FilterExpression.TRUE ? rowCount : 0;
+            return leaf(QueryPlan.Strategy.CONSTANT, expression, rows, rowCount * BITMAP_COST);
+        }
+        if (expression instanceof FilterExpression.Range) {
+            FilterExpression.Range range = (FilterExpression.Range) expression;
+            double rows = statistics.estimate(range);
+            double scan = rowCount * SCAN_COST;
+            double probe = log2(rowCount) * 2 + rows * PROBE_COST;
+            return probe < scan ? leaf(QueryPlan.Strategy.INDEX_PROBE, range, rows, probe)
+                    : leaf(QueryPlan.Strategy.FULL_SCAN, range, rows, scan);
+        }
+        if (expression instanceof FilterExpression.NameMatch) {
+            double rows = statistics.estimate((FilterExpression.NameMatch) expression);
+            return leaf(QueryPlan.Strategy.FULL_SCAN, expression, rows, rowCount * NAME_COST);
+        }
+        if (expression instanceof FilterExpression.Not) {
+            QueryPlan child = plan(((FilterExpression.Not) expression).getChild());
+            return new QueryPlan(QueryPlan.Strategy.COMPLEMENT, expression,
+                    rowCount - child.getEstimatedRows(), child.getCost() + rowCount * BITMAP_COST,
+                    List.of(child));
+        }
+        if (expression instanceof FilterExpression.Or) {
+            return planOr((FilterExpression.Or) expression);
+        }
+        return planAnd((FilterExpression.And) expression);
+    }
+
+    /**
+     * Plans a union, assuming the children select rows independently.
+     *
+     * @param or the OR expression
+     * @return the plan
+     */
+    private QueryPlan planOr(FilterExpression.Or or) {
+        List<QueryPlan> children = new ArrayList<>();
+        double none = 1;
+        double cost = 0;
+        for (FilterExpression child : or.getChildren()) {
+            QueryPlan plan = plan(child);
+            children.add(plan);
+            none *= 1 - selectivity(plan);
+            cost += plan.getCost() + rowCount * BITMAP_COST;
+        }
+        return new QueryPlan(QueryPlan.Strategy.UNION, or, rowCount * (1 - none), cost, children);
+    }
+
+    /**
+     * Plans an intersection, choosing between bitmap intersection and a filtered scan, with
+     * the ranges on the k-d tree's columns either planned one by one or as one tree probe.
+     *
+     * @param and the AND expression
+     * @return the plan
+     */
+    private QueryPlan planAnd(FilterExpression.And and) {
+        List<QueryPlan> children = new ArrayList<>();
+        for (FilterExpression child : and.getChildren()) {
+            children.add(plan(child));
+        }
+        QueryPlan best = combine(and, children);
+        if (tree == null) {
+            return best;
+        }
+        List<FilterExpression.Range> ranges = new ArrayList<>();
+        List<QueryPlan> others = new ArrayList<>();
+        double rows = rowCount;
+        for (QueryPlan child : children) {
+            if (child.getExpression() instanceof FilterExpression.Range
+                    && tree.covers(((FilterExpression.Range) child.getExpression()).getColumn())) {
+                ranges.add((FilterExpression.Range) child.getExpression());
+                rows *= selectivity(child);
+            } else {
+                others.add(child);
+            }
+        }
+        if (ranges.size() < 2) {
+            return best;
+        }
+        double[] work = tree.estimate(ranges);
+        double cost = log2(rowCount) * 2 + work[0] * PROBE_COST
+                + work[1] * ranges.size() * SCAN_COST;
+        QueryPlan probe = leaf(QueryPlan.Strategy.KD_TREE_PROBE, others.isEmpty() ? and
+                : FilterExpression.and(new ArrayList<>(ranges)), rows, cost);
+        QueryPlan alternative = probe;
+        if (!others.isEmpty()) {
+            others.add(probe);
+            alternative = combine(and, others);
+        }
+        return alternative.getCost() < best.getCost() ? alternative : best;
+    }
+
+    /**
+     * Combines the plans of an AND's children, choosing between bitmap intersection and a
+     * filtered scan.
+     *
+     * @param and the AND expression
+     * @param children plans of its children, in any order
+     * @return the plan
+     */
+    private QueryPlan combine(FilterExpression.And and, List<QueryPlan> children) {
+        children = new ArrayList<>(children);
+        // most selective first, so intersections and row tests shrink the rows quickly
+        children.sort(Comparator.comparingDouble(QueryPlan::getEstimatedRows)
+                .thenComparingDouble(QueryPlan::getCost));
+
+        double rows = rowCount;
+        double bitmapCost = 0;
+        for (QueryPlan child : children) {
+            rows *= selectivity(child);
+            bitmapCost += child.getCost() + rowCount * BITMAP_COST;
+        }
+
+        int bestDriver = 0;
+        double bestScan = Double.MAX_VALUE;
+        for (int driver = 0; driver < children.size(); driver++) {
+            double scan = filteredScanCost(children, driver);
+            if (scan < bestScan) {
+                bestScan = scan;
+                bestDriver = driver;
+            }
+        }
+
+        if (bitmapCost <= bestScan) {
+            return new QueryPlan(QueryPlan.Strategy.BITMAP_INTERSECTION, and, rows, bitmapCost,
+                    children);
+        }
+        List<QueryPlan> steps = new ArrayList<>();
+        QueryPlan driver = children.get(bestDriver);
+        steps.add(driver);
+        double remaining = driver.getEstimatedRows();
+        for (int i = 0; i < children.size(); i++) {
+            if (i != bestDriver) {
+                QueryPlan test = children.get(i);
+                double cost = remaining * rowCost(test.getExpression());
+                remaining *= selectivity(test);
+                steps.add(leaf(QueryPlan.Strategy.ROW_TEST, test.getExpression(), remaining, cost));
+            }
+        }
+        return new QueryPlan(QueryPlan.Strategy.FILTERED_SCAN, and, rows, bestScan, steps);
+    }
+
+    /**
+     * Cost of running one child as a bitmap and testing the others row by row.
+     *
+     * @param children the children, most selective first
+     * @param driver index of the child to run as a bitmap
+     * @return the estimated cost
+     */
+    private double filteredScanCost(List<QueryPlan> children, int driver) {
+        double cost = children.get(driver).getCost();
+        double remaining = children.get(driver).getEstimatedRows();
+        for (int i = 0; i < children.size(); i++) {
+            if (i != driver) {
+                cost += remaining * rowCost(children.get(i).getExpression());
+                remaining *= selectivity(children.get(i));
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Cost of testing an expression on a single row.
+     *
+     * @param expression the expression
+     * @return the per row cost
+     */
+    static double rowCost(FilterExpression expression) {
+        if (expression instanceof FilterExpression.Range) {
+            return SCAN_COST;
+        }
+        if (expression instanceof FilterExpression.NameMatch) {
+            return NAME_COST;
+        }
+        if (expression instanceof FilterExpression.Not) {
+            return rowCost(((FilterExpression.Not) expression).getChild());
+        }
+        if (expression instanceof FilterExpression.Composite) {
+            double cost = 0;
+            for (FilterExpression child : ((FilterExpression.Composite) expression).getChildren()) {
+                cost += rowCost(child);
+            }
+            return cost;
+        }
+        return 0;
+    }
+
+    /**
+     * Fraction of the table a plan is expected to select.
+     *
+     * @param plan the plan
+     * @return the selectivity, between 0 and 1
+     */
+    private double selectivity(QueryPlan plan) {
+        return rowCount == 0 ? 0 : Math.min(1, Math.max(0, plan.getEstimatedRows() / rowCount));
+    }
+
+    /**
+     * Creates a plan node without children.
+     *
+     * @param strategy the strategy
+     * @param expression the expression
+     * @param rows estimated rows
+     * @param cost estimated cost
+     * @return the node
+     */
+    private static QueryPlan leaf(QueryPlan.Strategy strategy, FilterExpression expression,
+            double rows, double cost) {
+        return new QueryPlan(strategy, expression, rows, cost, List.of());
+    }
+
+    /**
+     * Base 2 logarithm, at least 1.
+     *
+     * @param n the value
+     * @return log2 of n
+     */
+    private static double log2(int n) {
+        return Math.max(1, Math.log(n) / Math.log(2));
+    }
+}
@@ -0,0 +1,52 @@
+package student;
+
+import java.util.List;
+
+/**
+ * QueryRequest is one filter of a batch run with {@link IQueryPlanner#queryAll(List)}: the filter
+ * text and the keys its results are sorted on.
+ *
+ * Example usage:
+ * - new QueryRequest("rating>8", SortCriterion.parseList("rating:desc"))
+ * - new QueryRequest("minplayers<=2,maxtime<45", List.of())
+ */
+public final class QueryRequest {
+    /** The filter text. */
+    private final String filter;
+    /** The sort keys, most significant first. */
+    private final List<SortCriterion> sortOn;
+
+    /**
+     * Creates a request.
+     *
+     * @param filter the filter text
+     * @param sortOn the sort keys, most significant first; empty sorts by name
+     */
+    public QueryRequest(String filter, List<SortCriterion> sortOn) {
+        this.filter = filter;
+        this.sortOn = List.copyOf(sortOn);
+    }
+
+    /**
+     * Gets the filter text.
+     *
+     * @return the filter
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Gets the sort keys.
+     *
+     * @return the keys, most significant first
+     */
+    public List<SortCriterion> getSortOn() {
+        return sortOn;
+    }
+
+    @Override
+    public String toString() {
+        return filter + " sort:" + sortOn;
+    }
+}
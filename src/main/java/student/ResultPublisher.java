@@ -0,0 +1,137 @@
+package student;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResultPublisher emits the games of a query to {@link Flow.Subscriber}s, no faster than they
+ * request them. Each subscription runs the query again, on the publisher's executor, the first
+ * time its subscriber requests a game; the games are then taken from the query's iterator only
+ * as demand allows, so a slow subscriber holds back the query instead of buffering the result.
+ *
+ * Signals to one subscriber are never concurrent: a subscription drains on one task at a
+ * time, and a request made while it drains is picked up before the task ends.
+ */
+final class ResultPublisher implements Flow.Publisher<BoardGame> {
+    /** Default executor, a virtual thread per drain where the JVM has them. */
+    static final ExecutorService EXECUTOR = VirtualThreads.newExecutor("publisher");
+
+    /** Runs the query, giving its games in order. */
+    private final Callable<Iterator<BoardGame>> query;
+    /** Runs the drains. */
+    private final Executor executor;
+
+    /**
+     * Creates a publisher.
+     *
+     * @param query runs the query, called once per subscription
+     * @param executor runs the query and emits its games
+     */
+    ResultPublisher(Callable<Iterator<BoardGame>> query, Executor executor) {
+        this.query = query;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super BoardGame> subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /** One subscriber's subscription. */
+    private final class Subscription implements Flow.Subscription, Runnable {
+        /** The subscriber. */
+        private final Flow.Subscriber<? super BoardGame> subscriber;
+        /** Games requested and not yet emitted, Long.MAX_VALUE for unbounded. */
+        private final AtomicLong demand = new AtomicLong();
+        /** Drain requests not yet handled; a drain is scheduled when it leaves 0. */
+        private final AtomicInteger pending = new AtomicInteger();
+        /** Set once the subscriber cancels. */
+        private volatile boolean cancelled;
+        /** A request that broke the rules, reported on the next drain. */
+        private volatile IllegalArgumentException invalid;
+
+        /** The query's games, started by the first drain. Only drains touch it. */
+        private Iterator<BoardGame> games;
+        /** True once onComplete or onError was signalled. Only drains touch it. */
+        private boolean done;
+
+        /**
+         * Creates a subscription.
+         *
+         * @param subscriber the subscriber
+         */
+        Subscription(Flow.Subscriber<? super BoardGame> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalid = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /** Starts a drain unless one is running, in which case it drains again before ending. */
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /** Emits as many games as are requested and available. */
+        private void drain() {
+            if (done || cancelled) {
+                return;
+            }
+            if (invalid != null) {
+                done = true;
+                subscriber.onError(invalid);
+                return;
+            }
+            try {
+                if (games == null) {
+                    games = query.call();
+                }
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted < requested && !cancelled && games.hasNext()) {
+                    subscriber.onNext(games.next());
+                    emitted++;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                }
+                if (!cancelled && !games.hasNext()) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+            } catch (Exception e) {
+                done = true;
+                subscriber.onError(e);
+            }
+        }
+    }
+}
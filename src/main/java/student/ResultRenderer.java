@@ -0,0 +1,173 @@
+package student;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * ResultRenderer writes filter results as numbered lines, "1: Name (info)", without
+ * String.format. Rows are appended to one reusable StringBuilder, ints with
+ * {@link StringBuilder#append(int)} and doubles as fixed point digits, and the builder is
+ * written out whenever it holds a chunk, so a large result streams from its iterator in a few
+ * big writes.
+ *
+ * The text is the same as {@link BoardGame#toStringWithInfo(GameData)} produced with
+ * String.format: two decimals rounded half up from the shortest decimal form of the double,
+ * with the decimal separator of the default format locale. The rare values that fall on a
+ * rounding tie, and locales whose digits are not ASCII, go through the exact slow path.
+ */
+public final class ResultRenderer {
+    /** Default number of characters buffered before writing. */
+    public static final int DEFAULT_CHUNK = 1 << 16;
+    /** Powers of ten for the fixed point scaling. */
+    private static final long[] POWERS = {1, 10, 100, 1000, 10_000, 100_000, 1_000_000};
+    /** How close to a rounding tie a value must be to take the exact path. */
+    private static final double TIE_TOLERANCE = 1e-6;
+    /** Largest scaled value whose rounding error stays well inside the tie tolerance. */
+    private static final double MAX_FAST = 1e9;
+
+    /** Symbols of the default format locale, as last looked up. */
+    private static volatile Symbols symbols = new Symbols(Locale.getDefault(
+            Locale.Category.FORMAT));
+
+    /** Where rendered rows go. */
+    private final Writer out;
+    /** Characters buffered before writing. */
+    private final int chunk;
+    /** The reusable buffer. */
+    private final StringBuilder buffer;
+
+    /**
+     * Creates a renderer.
+     *
+     * @param out where rendered rows go
+     * @param chunk characters buffered before writing
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public ResultRenderer(Writer out, int chunk) {
+        if (chunk <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunk);
+        }
+        this.out = out;
+        this.chunk = chunk;
+        this.buffer = new StringBuilder(chunk + 256);
+    }
+
+    /**
+     * Writes every game of an iterator as a numbered line, starting at 1.
+     *
+     * @param games the games, consumed as they are written
+     * @param info the column shown after each name
+     * @throws IOException if writing fails
+     */
+    public void render(Iterator<BoardGame> games, GameData info) throws IOException {
+        int counter = 1;
+        while (games.hasNext()) {
+            buffer.append(counter++).append(": ");
+            appendWithInfo(buffer, games.next(), info).append(System.lineSeparator());
+            if (buffer.length() >= chunk) {
+                out.write(buffer.toString());
+                buffer.setLength(0);
+            }
+        }
+        out.write(buffer.toString());
+        buffer.setLength(0);
+        out.flush();
+    }
+
+    /**
+     * Appends a game's name and the value of a column, the way
+     * {@link BoardGame#toStringWithInfo(GameData)} shows them.
+     *
+     * @param sb the builder
+     * @param game the game
+     * @param col the column shown after the name, nothing is shown for NAME and ID
+     * @return the builder
+     */
+    static StringBuilder appendWithInfo(StringBuilder sb, BoardGame game, GameData col) {
+        sb.append(game.getName());
+        switch (col) {
+            case RATING -> appendFixed(sb.append(" ("), game.getRating(), 2).append(')');
+            case DIFFICULTY -> appendFixed(sb.append(" ("), game.getDifficulty(), 2).append(')');
+            case RANK -> sb.append(" (").append(game.getRank()).append(')');
+            case MIN_PLAYERS -> sb.append(" (").append(game.getMinPlayers()).append(')');
+            case MAX_PLAYERS -> sb.append(" (").append(game.getMaxPlayers()).append(')');
+            case MIN_TIME -> sb.append(" (").append(game.getMinPlayTime()).append(')');
+            case MAX_TIME -> sb.append(" (").append(game.getMaxPlayTime()).append(')');
+            case YEAR -> sb.append(" (").append(game.getYearPublished()).append(')');
+            default -> {
+                // the name alone
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Appends a double with a fixed number of decimals, as String.format("%.Nf") would in
+     * the default format locale.
+     *
+     * @param sb the builder
+     * @param value the value
+     * @param decimals the number of decimals, 1 to 6
+     * @return the builder
+     */
+    static StringBuilder appendFixed(StringBuilder sb, double value, int decimals) {
+        Symbols symbols = symbols();
+        double scaled = Math.abs(value) * POWERS[decimals];
+        if (!(scaled < MAX_FAST) || !symbols.asciiDigits
+                || Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_TOLERANCE) {
+            // ties round on the shortest decimal form of the double, which Formatter reads
+            return sb.append(String.format(symbols.locale, "%." + decimals + "f", value));
+        }
+        long digits = Math.round(scaled);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            sb.append('-');
+        }
+        sb.append(digits / POWERS[decimals]).append(symbols.separator);
+        long rest = digits % POWERS[decimals];
+        for (long p = POWERS[decimals] / 10; p > rest && p > 1; p /= 10) {
+            sb.append('0');
+        }
+        return sb.append(rest);
+    }
+
+    /**
+     * Gets the symbols of the default format locale, looking them up again only if the
+     * default changed.
+     *
+     * @return the symbols
+     */
+    private static Symbols symbols() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Symbols cached = symbols;
+        if (!cached.locale.equals(locale)) {
+            cached = new Symbols(locale);
+            symbols = cached;
+        }
+        return cached;
+    }
+
+    /** The symbols of a locale that fixed point formatting needs. */
+    private static final class Symbols {
+        /** The locale. */
+        private final Locale locale;
+        /** Its decimal separator. */
+        private final char separator;
+        /** Whether its digits are 0 to 9. */
+        private final boolean asciiDigits;
+
+        /**
+         * Looks the symbols of a locale up.
+         *
+         * @param locale the locale
+         */
+        private Symbols(Locale locale) {
+            DecimalFormatSymbols format = DecimalFormatSymbols.getInstance(locale);
+            this.locale = locale;
+            this.separator = format.getDecimalSeparator();
+            this.asciiDigits = format.getZeroDigit() == '0';
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RowSorter orders the rows of a {@link GameTable} by one or more {@link SortCriterion}.
+ *
+ * Every key is replaced by the column's dense rank (see {@link GameTable#ranks(GameData)}), with
+ * descending keys flipped so a smaller rank always sorts first. When the ranks of all keys fit
+ * together in 31 bits, they are combined into one composite number per row and the rows are
+ * sorted as packed longs (composite key in the high half, row in the low half) with
+ * {@link Arrays#sort(long[])}. Otherwise the rows are merge sorted with a comparator that walks
+ * the rank arrays. Either way no value is boxed and no comparator lambdas are chained.
+ *
+ * Rows that tie on every key stay in name order.
+ */
+final class RowSorter {
+    /** Largest composite key that can be packed above the row index. */
+    private static final long MAX_PACKED_KEY = Integer.MAX_VALUE;
+
+    /** Rank arrays of the keys, most significant first. */
+    private final int[][] ranks;
+    /** Number of distinct ranks of each key. */
+    private final int[] distinct;
+    /** Sort direction of each key. */
+    private final boolean[] ascending;
+    /** True if the only key is name ascending, the order rows are stored in. */
+    private final boolean rowOrder;
+
+    /**
+     * Compiles the sort keys against a table.
+     *
+     * @param table the table whose rows will be sorted
+     * @param criteria the sort keys, most significant first
+     */
+    RowSorter(GameTable table, List<SortCriterion> criteria) {
+        List<int[]> keyRanks = new ArrayList<>();
+        List<Integer> keyCounts = new ArrayList<>();
+        List<Boolean> directions = new ArrayList<>();
+        Set<GameData> seen = EnumSet.noneOf(GameData.class);
+        for (SortCriterion criterion : criteria) {
+            // ID is never sorted on, it falls back to the name as it always has
+            GameData field = GameTable.isNumeric(criterion.getField()) ? criterion.getField()
+                    : GameData.NAME;
+            if (seen.add(field)) { // a repeated key can never break a tie
+                keyRanks.add(table.ranks(field));
+                keyCounts.add(table.rankCount(field));
+                directions.add(criterion.isAscending());
+            }
+        }
+        this.ranks = keyRanks.toArray(new int[0][]);
+        this.ascending = new boolean[directions.size()];
+        this.distinct = new int[ranks.length];
+        for (int key = 0; key < ranks.length; key++) {
+            ascending[key] = directions.get(key);
+            distinct[key] = keyCounts.get(key);
+        }
+        this.rowOrder = ranks.length == 0
+                || (ranks.length == 1 && seen.contains(GameData.NAME) && ascending[0]);
+    }
+
+    /**
+     * Sorts the selected rows.
+     *
+     * @param selected the rows to sort
+     * @return the rows in sorted order
+     */
+    int[] sort(BitSet selected) {
+        return sort(selected.stream().toArray());
+    }
+
+    /**
+     * Sorts rows in place.
+     *
+     * @param rows the rows to sort, in ascending row order
+     * @return the same array, in sorted order
+     */
+    int[] sort(int[] rows) {
+        if (rowOrder || rows.length < 2) {
+            return rows;
+        }
+        long product = 1;
+        for (int count : distinct) {
+            product *= count;
+            if (product > MAX_PACKED_KEY) {
+                IntSort.sort(rows, this::compare);
+                return rows;
+            }
+        }
+        return sortPacked(rows);
+    }
+
+    /**
+     * Sorts by packing the composite key and row of each entry into one long.
+     *
+     * @param rows the rows to sort
+     * @return the sorted rows
+     */
+    private int[] sortPacked(int[] rows) {
+        long[] packed = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            long key = 0;
+            for (int k = 0; k < ranks.length; k++) {
+                int rank = ranks[k][row];
+                key = key * distinct[k] + (ascending[k] ? rank : distinct[k] - 1 - rank);
+            }
+            packed[i] = key << Integer.SIZE | row;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (int) packed[i];
+        }
+        return rows;
+    }
+
+    /**
+     * Compares two rows key by key, then by row.
+     *
+     * @param a the first row
+     * @param b the second row
+     * @return negative, zero or positive as a sorts before, with or after b
+     */
+    private int compare(int a, int b) {
+        for (int k = 0; k < ranks.length; k++) {
+            int cmp = Integer.compare(ranks[k][a], ranks[k][b]);
+            if (cmp != 0) {
+                return ascending[k] ? cmp : -cmp;
+            }
+        }
+        return Integer.compare(a, b);
+    }
+}
@@ -0,0 +1,274 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SharedScan evaluates several filters in one pass over a table, for filters that would each
+ * have to read every row anyway.
+ *
+ * Every filter is compiled once into a tree of block tests. The table is then read a block of
+ * rows at a time: each numeric column that any filter uses is copied into a block buffer once,
+ * and each test turns the block into a word mask with one tight loop per condition, which And,
+ * Or and Not combine a word at a time. Equal conditions are compiled to one shared test, so a
+ * condition that several filters repeat is tested once per block. Name conditions test each
+ * distinct name once through the table's name dictionary when it has one, and compare the
+ * rows' name codes during the pass.
+ */
+final class SharedScan {
+    /** Number of rows read at a time, a multiple of 64. */
+    private static final int BLOCK = 1024;
+    /** Number of mask words of a block. */
+    private static final int WORDS = BLOCK / Long.SIZE;
+
+    /** A compiled condition, evaluated on the current block into a word mask. */
+    private abstract static class BlockTest {
+        /** The mask of the block last evaluated. */
+        final long[] words = new long[WORDS];
+        /** First row of the block last evaluated, -1 before the first. */
+        private int evaluated = -1;
+
+        /**
+         * Gets the mask of a block, evaluating it only once per block.
+         *
+         * @param start the block's first row
+         * @param n rows in the block
+         * @return the mask, bit i set if row start + i matches
+         */
+        final long[] mask(int start, int n) {
+            if (evaluated != start) {
+                evaluate(start, n);
+                evaluated = start;
+            }
+            return words;
+        }
+
+        /**
+         * Fills the mask of a block, leaving the bits past its last row clear.
+         *
+         * @param start the block's first row
+         * @param n rows in the block
+         */
+        abstract void evaluate(int start, int n);
+    }
+
+    /** The table scanned. */
+    private final GameTable table;
+    /** Block buffer of each numeric column used, by ordinal, null for columns not used. */
+    private final double[][] buffers = new double[GameData.values().length][];
+    /** The compiled test of each distinct condition. */
+    private final Map<FilterExpression, BlockTest> compiled = new HashMap<>();
+
+    /**
+     * Creates a scan over a table.
+     *
+     * @param table the table
+     */
+    private SharedScan(GameTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Evaluates filters in one pass over a table.
+     *
+     * @param table the table
+     * @param expressions the optimized filters
+     * @return the rows each filter matches, in the same order
+     */
+    static List<BitSet> run(GameTable table, List<FilterExpression> expressions) {
+        SharedScan scan = new SharedScan(table);
+        List<BlockTest> tests = new ArrayList<>(expressions.size());
+        for (FilterExpression expression : expressions) {
+            tests.add(scan.compile(expression));
+        }
+        return scan.pass(tests);
+    }
+
+    /**
+     * Reads the table block by block and evaluates every filter on each block.
+     *
+     * @param tests the compiled filters
+     * @return the rows each filter matches
+     */
+    private List<BitSet> pass(List<BlockTest> tests) {
+        int size = table.size();
+        long[][] results = new long[tests.size()][(size + Long.SIZE - 1) / Long.SIZE];
+        for (int start = 0; start < size; start += BLOCK) {
+            int n = Math.min(BLOCK, size - start);
+            for (int column = 0; column < buffers.length; column++) {
+                if (buffers[column] != null) {
+                    table.column(GameData.values()[column]).get(start, buffers[column], 0, n);
+                }
+            }
+            int used = (n + Long.SIZE - 1) / Long.SIZE;
+            for (int q = 0; q < results.length; q++) {
+                long[] mask = tests.get(q).mask(start, n);
+                System.arraycopy(mask, 0, results[q], start / Long.SIZE, used);
+            }
+        }
+        List<BitSet> rows = new ArrayList<>(results.length);
+        for (long[] words : results) {
+            rows.add(BitSet.valueOf(words));
+        }
+        return rows;
+    }
+
+    /**
+     * Compiles a filter into a block test, reusing the test of an equal condition.
+     *
+     * @param expression the filter
+     * @return the compiled test
+     */
+    private BlockTest compile(FilterExpression expression) {
+        BlockTest test = compiled.get(expression);
+        if (test == null) {
+            test = create(expression);
+            compiled.put(expression, test);
+        }
+        return test;
+    }
+
+    /**
+     * Creates the block test of a filter.
+     *
+     * @param expression the filter
+     * @return the test
+     */
+    private BlockTest create(FilterExpression expression) {
+        if (expression == FilterExpression.TRUE || expression == FilterExpression.FALSE) {
+            boolean all = expression == FilterExpression.TRUE;
+            return new BlockTest() {
+                @Override
+                void evaluate(int start, int n) {
+                    Arrays.fill(words, 0);
+                    if (all) {
+                        fillTo(words, n);
+                    }
+                }
+            };
+        }
+        if (expression instanceof FilterExpression.Range) {
+            FilterExpression.Range range = (FilterExpression.Range) expression;
+            double[] values = buffer(range.getColumn());
+            return new BlockTest() {
+                @Override
+                void evaluate(int start, int n) {
+                    Arrays.fill(words, 0);
+                    for (int i = 0; i < n; i++) {
+                        if (range.contains(values[i])) {
+                            words[i >>> 6] |= 1L << i;
+                        }
+                    }
+                }
+            };
+        }
+        if (expression instanceof FilterExpression.NameMatch) {
+            return nameTest((FilterExpression.NameMatch) expression);
+        }
+        if (expression instanceof FilterExpression.Not) {
+            BlockTest child = compile(((FilterExpression.Not) expression).getChild());
+            return new BlockTest() {
+                @Override
+                void evaluate(int start, int n) {
+                    long[] inner = child.mask(start, n);
+                    Arrays.fill(words, 0);
+                    fillTo(words, n);
+                    for (int w = 0; w < WORDS; w++) {
+                        words[w] &= ~inner[w];
+                    }
+                }
+            };
+        }
+        if (expression instanceof FilterExpression.And
+                || expression instanceof FilterExpression.Or) {
+            List<FilterExpression> children =
+                    ((FilterExpression.Composite) expression).getChildren();
+            BlockTest[] tests = new BlockTest[children.size()];
+            for (int c = 0; c < tests.length; c++) {
+                tests[c] = compile(children.get(c));
+            }
+            boolean and = expression instanceof FilterExpression.And;
+            return new BlockTest() {
+                @Override
+                void evaluate(int start, int n) {
+                    System.arraycopy(tests[0].mask(start, n), 0, words, 0, WORDS);
+                    for (int c = 1; c < tests.length; c++) {
+                        long[] other = tests[c].mask(start, n);
+                        for (int w = 0; w < WORDS; w++) {
+                            words[w] = and ? words[w] & other[w] : words[w] | other[w];
+                        }
+                    }
+                }
+            };
+        }
+        return new BlockTest() {
+            @Override
+            void evaluate(int start, int n) {
+                Arrays.fill(words, 0);
+                for (int i = 0; i < n; i++) {
+                    if (expression.matches(table, start + i)) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates the block test of a name condition, comparing name codes when the table has a
+     * dictionary.
+     *
+     * @param match the condition
+     * @return the test
+     */
+    private BlockTest nameTest(FilterExpression.NameMatch match) {
+        NameDictionary dictionary = table.dictionary();
+        int[] codes = table.nameCodes();
+        BitSet matching = dictionary == null || codes == null ? null
+                : match.matchingCodes(dictionary);
+        return new BlockTest() {
+            @Override
+            void evaluate(int start, int n) {
+                Arrays.fill(words, 0);
+                for (int i = 0; i < n; i++) {
+                    boolean hit = matching == null ? match.test(table.lowerName(start + i))
+                            : matching.get(codes[start + i]);
+                    if (hit) {
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Sets the first bits of a mask.
+     *
+     * @param words the mask
+     * @param n number of bits set
+     */
+    private static void fillTo(long[] words, int n) {
+        Arrays.fill(words, 0, n / Long.SIZE, -1L);
+        if (n % Long.SIZE != 0) {
+            words[n / Long.SIZE] = -1L >>> (Long.SIZE - n % Long.SIZE);
+        }
+    }
+
+    /**
+     * Gets the block buffer of a numeric column, adding it to the columns read.
+     *
+     * @param column the column
+     * @return the buffer
+     */
+    private double[] buffer(GameData column) {
+        table.column(column); // rejects columns that are not numeric
+        if (buffers[column.ordinal()] == null) {
+            buffers[column.ordinal()] = new double[BLOCK];
+        }
+        return buffers[column.ordinal()];
+    }
+}
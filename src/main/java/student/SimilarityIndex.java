@@ -0,0 +1,467 @@
+package student;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * SimilarityIndex finds the games most like a game, the nearest neighbours of its attributes,
+ * with a forest of random projection trees over the rows of a {@link GameTable}.
+ *
+ * Every row is a point of {@link #FEATURES}: rating, difficulty, player range, play time and
+ * year. Player counts and times are taken as log(1 + value), so 2 to 4 players is as far from
+ * 4 to 8 as 30 minutes is from an hour, and every feature is then scaled to mean 0 and
+ * standard deviation 1 so none of them outweighs the others. Distance is Euclidean.
+ *
+ * Each tree splits its rows in half at every node by a hyperplane: the normal is the
+ * difference of two random rows of the node and the threshold is the median projection, so
+ * the tree is balanced and stored implicitly like {@link KdTree}. A lookup walks all trees at
+ * once, visiting first the leaves whose hyperplanes the point is least on the wrong side of,
+ * until it has gathered {@link #SEARCH_ROWS} candidates, then ranks those by exact distance.
+ * Nearby rows that one tree splits apart usually share a leaf in another, which keeps recall
+ * high while a lookup reads about a thousand rows however large the table. Tables of at most
+ * {@link #EXACT_ROWS} rows are searched exhaustively instead. The trees are built in parallel,
+ * on the first lookup, and keep about 60 bytes per row on the heap.
+ */
+final class SimilarityIndex {
+    /** The attributes compared, in vector order. */
+    static final List<GameData> FEATURES = List.of(GameData.RATING, GameData.DIFFICULTY,
+            GameData.MIN_PLAYERS, GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME,
+            GameData.YEAR);
+    /** Number of trees. */
+    static final int TREES = 8;
+    /** Most rows in a leaf. */
+    static final int LEAF = 32;
+    /** Candidates gathered from the trees before ranking them. */
+    static final int SEARCH_ROWS = TREES * LEAF * 4;
+    /** Tables with at most this many rows are searched without trees. */
+    static final int EXACT_ROWS = 4096;
+    /** Seed of the first tree, so the index is the same every time. */
+    private static final long SEED = 50;
+
+    /** Number of rows. */
+    private final int size;
+    /** Number of features. */
+    private final int dims = FEATURES.size();
+    /** Mean of each feature, after the log of counts and times. */
+    private final double[] means = new double[dims];
+    /** Reciprocal standard deviation of each feature, 1 if it does not vary. */
+    private final double[] scales = new double[dims];
+    /** Scaled vector of every row, row after row. */
+    private final float[] vectors;
+    /** Levels of splits in each tree, 0 if there are no trees. */
+    private final int depth;
+    /** Rows of each tree, in leaf order. */
+    private final int[][] orders;
+    /** Hyperplane of every split node of each tree, the normal then the threshold. */
+    private final float[][] planes;
+
+    /**
+     * Builds the index.
+     *
+     * @param raw the features of every row, by feature
+     */
+    private SimilarityIndex(double[][] raw) {
+        size = raw[0].length;
+        vectors = new float[size * dims];
+        for (int d = 0; d < dims; d++) {
+            double[] values = raw[d];
+            double sum = 0;
+            for (int row = 0; row < size; row++) {
+                values[row] = feature(d, values[row]);
+                sum += values[row];
+            }
+            means[d] = size == 0 ? 0 : sum / size;
+            double squares = 0;
+            for (double value : values) {
+                squares += (value - means[d]) * (value - means[d]);
+            }
+            double deviation = size == 0 ? 0 : Math.sqrt(squares / size);
+            scales[d] = deviation > 0 ? 1 / deviation : 1;
+            for (int row = 0; row < size; row++) {
+                vectors[row * dims + d] = (float) ((values[row] - means[d]) * scales[d]);
+            }
+        }
+        int levels = 0;
+        if (size > EXACT_ROWS) {
+            while ((size + (1L << levels) - 1) >> levels > LEAF) {
+                levels++;
+            }
+        }
+        depth = levels;
+        orders = new int[depth == 0 ? 0 : TREES][];
+        planes = new float[orders.length][];
+        IntStream.range(0, orders.length).parallel().forEach(this::buildTree);
+    }
+
+    /**
+     * Builds the index over the rows of a table.
+     *
+     * @param table the table
+     * @return the index
+     */
+    static SimilarityIndex build(GameTable table) {
+        double[][] raw = new double[FEATURES.size()][table.size()];
+        for (int d = 0; d < raw.length; d++) {
+            table.column(FEATURES.get(d)).get(0, raw[d], 0, table.size());
+        }
+        return new SimilarityIndex(raw);
+    }
+
+    /**
+     * Transforms a raw attribute before scaling: the log of counts and times, others as is.
+     *
+     * @param d the feature
+     * @param value the attribute's value
+     * @return the feature's value
+     */
+    private static double feature(int d, double value) {
+        return switch (FEATURES.get(d)) {
+            case MIN_PLAYERS, MAX_PLAYERS, MIN_TIME, MAX_TIME -> Math.log1p(Math.max(0, value));
+            default -> value;
+        };
+    }
+
+    /**
+     * Builds one tree.
+     *
+     * @param tree the tree
+     */
+    private void buildTree(int tree) {
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        orders[tree] = rows;
+        planes[tree] = new float[((1 << depth) - 1) * (dims + 1)];
+        split(tree, new SplittableRandom(SEED + tree), new double[size], 0, 0, size, 0);
+    }
+
+    /**
+     * Splits a node's rows in half by a hyperplane through their median, then its children.
+     *
+     * @param tree the tree
+     * @param random where the hyperplanes come from
+     * @param key the projection of each row, scratch space
+     * @param node the node
+     * @param from first position of the node's rows
+     * @param to position after the node's rows
+     * @param level the node's level, 0 for the root
+     */
+    private void split(int tree, SplittableRandom random, double[] key, int node, int from,
+            int to, int level) {
+        if (level == depth) {
+            return;
+        }
+        int[] rows = orders[tree];
+        float[] plane = planes[tree];
+        int base = node * (dims + 1);
+        boolean flat = true;
+        for (int attempt = 0; attempt < 4 && flat; attempt++) {
+            int a = rows[from + random.nextInt(to - from)] * dims;
+            int b = rows[from + random.nextInt(to - from)] * dims;
+            for (int d = 0; d < dims; d++) {
+                plane[base + d] = vectors[a + d] - vectors[b + d];
+                flat &= plane[base + d] == 0;
+            }
+        }
+        if (flat) { // the sampled rows are all alike, any direction will do
+            for (int d = 0; d < dims; d++) {
+                plane[base + d] = (float) (random.nextDouble() - 0.5);
+            }
+        }
+        double length = Math.sqrt(project(plane, base, plane, base));
+        for (int d = 0; d < dims; d++) { // unit normals make margins distances
+            plane[base + d] /= length;
+        }
+        for (int i = from; i < to; i++) {
+            key[rows[i]] = project(plane, base, vectors, rows[i] * dims);
+        }
+        int mid = (from + to) >>> 1;
+        select(rows, key, from, to, mid);
+        plane[base + dims] = (float) key[rows[mid]];
+        split(tree, random, key, 2 * node + 1, from, mid, level + 1);
+        split(tree, random, key, 2 * node + 2, mid, to, level + 1);
+    }
+
+    /**
+     * Projects a vector onto a hyperplane's normal.
+     *
+     * @param plane the hyperplanes
+     * @param base where the normal starts
+     * @param vector the vectors
+     * @param start where the vector starts
+     * @return the dot product
+     */
+    private double project(float[] plane, int base, float[] vector, int start) {
+        double dot = 0;
+        for (int d = 0; d < dims; d++) {
+            dot += plane[base + d] * vector[start + d];
+        }
+        return dot;
+    }
+
+    /**
+     * Moves the rows of a slice so the one at a position has the key it would have if the
+     * slice were sorted, with no larger key before it and no smaller one after it.
+     *
+     * @param rows the rows
+     * @param key the key of each row
+     * @param from first position of the slice
+     * @param to position after the slice
+     * @param nth the position to settle
+     */
+    private static void select(int[] rows, double[] key, int from, int to, int nth) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = key[rows[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[rows[i]] < pivot) {
+                    i++;
+                }
+                while (key[rows[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = rows[i];
+                    rows[i++] = rows[j];
+                    rows[j--] = swap;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Scales a game's attributes like the rows.
+     *
+     * @param game the game
+     * @return its vector
+     */
+    private float[] vector(BoardGame game) {
+        float[] vector = new float[dims];
+        for (int d = 0; d < dims; d++) {
+            double value = feature(d, GameTable.valueOf(game, FEATURES.get(d)));
+            vector[d] = (float) ((value - means[d]) * scales[d]);
+        }
+        return vector;
+    }
+
+    /**
+     * Finds the rows nearest a game through the trees, or exhaustively for a small table or
+     * when every row is wanted.
+     *
+     * @param game the game, which need not be in the table
+     * @param count the most rows wanted
+     * @return the rows, nearest first
+     * @throws IllegalArgumentException if count is negative
+     */
+    int[] nearest(BoardGame game, int count) {
+        if (depth == 0 || count >= size) { // every row is wanted anyway
+            return exact(game, count);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        float[] query = vector(game);
+        int want = Math.max(SEARCH_ROWS, count);
+        int[] candidates = new int[want + LEAF];
+        int found = 0;
+        PriorityQueue<Branch> queue = new PriorityQueue<>();
+        for (int tree = 0; tree < orders.length; tree++) {
+            queue.add(new Branch(Double.POSITIVE_INFINITY, tree, 0, 0, size, 0));
+        }
+        while (found < want && !queue.isEmpty()) {
+            Branch branch = queue.poll();
+            int node = branch.node;
+            int from = branch.from;
+            int to = branch.to;
+            for (int level = branch.level; level < depth; level++) {
+                float[] plane = planes[branch.tree];
+                int base = node * (dims + 1);
+                double margin = project(plane, base, query, 0) - plane[base + dims];
+                int mid = (from + to) >>> 1;
+                if (margin < 0) {
+                    queue.add(new Branch(Math.min(branch.priority, margin), branch.tree,
+                            2 * node + 2, mid, to, level + 1));
+                    node = 2 * node + 1;
+                    to = mid;
+                } else {
+                    queue.add(new Branch(Math.min(branch.priority, -margin), branch.tree,
+                            2 * node + 1, from, mid, level + 1));
+                    node = 2 * node + 2;
+                    from = mid;
+                }
+            }
+            System.arraycopy(orders[branch.tree], from, candidates, found, to - from);
+            found += to - from;
+        }
+        Arrays.sort(candidates, 0, found);
+        int unique = 0;
+        for (int i = 0; i < found; i++) {
+            if (unique == 0 || candidates[unique - 1] != candidates[i]) {
+                candidates[unique++] = candidates[i];
+            }
+        }
+        return top(query, candidates, unique, count);
+    }
+
+    /**
+     * Finds the rows nearest a game by measuring every row, the answer the trees approximate.
+     *
+     * @param game the game, which need not be in the table
+     * @param count the most rows wanted
+     * @return the rows, nearest first
+     * @throws IllegalArgumentException if count is negative
+     */
+    int[] exact(BoardGame game, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        return top(vector(game), rows, size, count);
+    }
+
+    /**
+     * Picks the rows nearest a vector among candidates, keeping the best so far in a heap
+     * with the farthest on top. Ties go to the lower row.
+     *
+     * @param query the vector
+     * @param rows the candidate rows
+     * @param n number of candidates
+     * @param count the most rows wanted
+     * @return the rows, nearest first
+     */
+    private int[] top(float[] query, int[] rows, int n, int count) {
+        int k = Math.min(count, n);
+        int[] heap = new int[k];
+        double[] distances = new double[k];
+        int held = 0;
+        for (int i = 0; i < n; i++) {
+            int row = rows[i];
+            int start = row * dims;
+            double distance = 0;
+            for (int d = 0; d < dims; d++) {
+                double delta = vectors[start + d] - query[d];
+                distance += delta * delta;
+            }
+            if (held < k) {
+                int j = held++;
+                for (int parent = (j - 1) / 2; j > 0
+                        && farther(distance, row, distances[parent], heap[parent]);
+                        parent = (j - 1) / 2) {
+                    heap[j] = heap[parent];
+                    distances[j] = distances[parent];
+                    j = parent;
+                }
+                heap[j] = row;
+                distances[j] = distance;
+            } else if (k > 0 && farther(distances[0], heap[0], distance, row)) {
+                int j = 0;
+                while (2 * j + 1 < k) {
+                    int child = 2 * j + 1;
+                    if (child + 1 < k && farther(distances[child + 1], heap[child + 1],
+                            distances[child], heap[child])) {
+                        child++;
+                    }
+                    if (!farther(distances[child], heap[child], distance, row)) {
+                        break;
+                    }
+                    heap[j] = heap[child];
+                    distances[j] = distances[child];
+                    j = child;
+                }
+                heap[j] = row;
+                distances[j] = distance;
+            }
+        }
+        int[] nearest = new int[k];
+        for (int end = k - 1; end >= 0; end--) {
+            nearest[end] = heap[0];
+            int row = heap[end];
+            double distance = distances[end];
+            int j = 0;
+            while (2 * j + 1 < end) {
+                int child = 2 * j + 1;
+                if (child + 1 < end && farther(distances[child + 1], heap[child + 1],
+                        distances[child], heap[child])) {
+                    child++;
+                }
+                if (!farther(distances[child], heap[child], distance, row)) {
+                    break;
+                }
+                heap[j] = heap[child];
+                distances[j] = distances[child];
+                j = child;
+            }
+            heap[j] = row;
+            distances[j] = distance;
+        }
+        return nearest;
+    }
+
+    /**
+     * Compares two rows by distance, then by row.
+     *
+     * @param distance the first row's distance
+     * @param row the first row
+     * @param otherDistance the second row's distance
+     * @param other the second row
+     * @return true if the first row ranks after the second
+     */
+    private static boolean farther(double distance, int row, double otherDistance, int other) {
+        return distance > otherDistance || distance == otherDistance && row > other;
+    }
+
+    /**
+     * Number of rows.
+     *
+     * @return the rows
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Number of trees, 0 if the table is searched exhaustively.
+     *
+     * @return the trees
+     */
+    int treeCount() {
+        return orders.length;
+    }
+
+    /**
+     * A subtree left to search, ordered by how far the point is on the wrong side of the
+     * hyperplanes on the way to it, nearest first.
+     *
+     * @param priority minus the farthest the point is from a hyperplane it is on the wrong
+     *        side of, infinite for a root
+     * @param tree the tree
+     * @param node the subtree's node
+     * @param from first position of its rows
+     * @param to position after its rows
+     * @param level its level
+     */
+    private record Branch(double priority, int tree, int node, int from, int to, int level)
+            implements Comparable<Branch> {
+        @Override
+        public int compareTo(Branch other) {
+            return Double.compare(other.priority, priority);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package student;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SlowQueryLog keeps the filters that took longer than a threshold, with the plan that ran
+ * them, in a ring buffer of the most recent entries. Entries can also be appended to a log
+ * file that is rotated once it grows past a size.
+ *
+ * A {@link Planner} times every filter but only builds an entry, and captures the plan, when
+ * the filter was slow, so fast queries pay for a few clock reads.
+ */
+public final class SlowQueryLog {
+    /** Default threshold, 100 ms. */
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+    /** Default number of entries kept. */
+    public static final int DEFAULT_CAPACITY = 64;
+    /** Default size a log file is rotated at, 1 MiB. */
+    public static final long DEFAULT_MAX_FILE_BYTES = 1 << 20;
+    /** Default number of rotated log files kept. */
+    public static final int DEFAULT_FILES = 5;
+
+    /** A slow filter. */
+    public static final class Entry {
+        /** When the filter finished. */
+        private final Instant time;
+        /** The filter, as parsed and simplified. */
+        private final String filter;
+        /** The first sort column. */
+        private final GameData sortOn;
+        /** Whether the first sort column is ascending. */
+        private final boolean ascending;
+        /** Rows in the table. */
+        private final int rowsIn;
+        /** Rows read by the plan. */
+        private final long rowsScanned;
+        /** Rows returned. */
+        private final int rowsOut;
+        /** Time spent parsing and planning. */
+        private final long parseNanos;
+        /** Time spent running the plan. */
+        private final long filterNanos;
+        /** Time spent sorting. */
+        private final long sortNanos;
+        /** Strategy of the plan's root. */
+        private final QueryPlan.Strategy strategy;
+        /** The plan that ran, one node per line. */
+        private final String plan;
+
+        /**
+         * Creates an entry.
+         *
+         * @param filter the filter, as parsed and simplified
+         * @param sort the sort keys
+         * @param rowsIn rows in the table
+         * @param rowsOut rows returned
+         * @param parseNanos time spent parsing and planning
+         * @param filterNanos time spent running the plan
+         * @param sortNanos time spent sorting
+         * @param plan the plan that ran
+         */
+        Entry(FilterExpression filter, List<SortCriterion> sort, int rowsIn, int rowsOut,
+                long parseNanos, long filterNanos, long sortNanos, QueryPlan plan) {
+            this.time = Instant.now();
+            this.filter = filter.toString();
+            this.sortOn = sort.isEmpty() ? GameData.NAME : sort.get(0).getField();
+            this.ascending = sort.isEmpty() || sort.get(0).isAscending();
+            this.rowsIn = rowsIn;
+            this.rowsScanned = plan.rowsScanned(rowsIn);
+            this.rowsOut = rowsOut;
+            this.parseNanos = parseNanos;
+            this.filterNanos = filterNanos;
+            this.sortNanos = sortNanos;
+            this.strategy = plan.getStrategy();
+            this.plan = plan.explain();
+        }
+
+        /**
+         * When the filter finished.
+         *
+         * @return the time
+         */
+        public Instant getTime() {
+            return time;
+        }
+
+        /**
+         * The filter, as parsed and simplified, so equivalent filters read the same.
+         *
+         * @return the normalized filter
+         */
+        public String getFilter() {
+            return filter;
+        }
+
+        /**
+         * The first sort column.
+         *
+         * @return the column
+         */
+        public GameData getSortOn() {
+            return sortOn;
+        }
+
+        /**
+         * Whether the first sort column is ascending.
+         *
+         * @return true if ascending
+         */
+        public boolean isAscending() {
+            return ascending;
+        }
+
+        /**
+         * Rows in the table.
+         *
+         * @return the row count
+         */
+        public int getRowsIn() {
+            return rowsIn;
+        }
+
+        /**
+         * Rows read by the plan.
+         *
+         * @return the row count
+         */
+        public long getRowsScanned() {
+            return rowsScanned;
+        }
+
+        /**
+         * Rows returned.
+         *
+         * @return the row count
+         */
+        public int getRowsOut() {
+            return rowsOut;
+        }
+
+        /**
+         * Time spent parsing and planning.
+         *
+         * @return nanoseconds
+         */
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        /**
+         * Time spent running the plan.
+         *
+         * @return nanoseconds
+         */
+        public long getFilterNanos() {
+            return filterNanos;
+        }
+
+        /**
+         * Time spent sorting.
+         *
+         * @return nanoseconds
+         */
+        public long getSortNanos() {
+            return sortNanos;
+        }
+
+        /**
+         * Total time of the filter.
+         *
+         * @return nanoseconds
+         */
+        public long getTotalNanos() {
+            return parseNanos + filterNanos + sortNanos;
+        }
+
+        /**
+         * Strategy of the plan's root.
+         *
+         * @return the strategy
+         */
+        public QueryPlan.Strategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * The plan that ran, with estimated and actual rows.
+         *
+         * @return the plan as text
+         */
+        public String getPlan() {
+            return plan;
+        }
+
+        /**
+         * Describes the entry: a summary line followed by the plan.
+         *
+         * @return the entry as text
+         */
+        @Override
+        public String toString() {
+            return String.format("%s %.1f ms (parse %.1f, filter %.1f, sort %.1f) %s"
+                    + " sort:%s:%s rows %d/%d/%d %s%n%s", time, millis(getTotalNanos()),
+                    millis(parseNanos), millis(filterNanos), millis(sortNanos), filter,
+                    sortOn.name().toLowerCase(), ascending ? "asc" : "desc", rowsIn, rowsScanned,
+                    rowsOut, strategy, plan);
+        }
+    }
+
+    /** The most recent entries, oldest overwritten first. */
+    private final Entry[] entries;
+    /** Number of entries ever added. */
+    private long added;
+    /** Filters slower than this are logged. */
+    private volatile long thresholdNanos;
+    /** Serializes appends to the log file and its rotation. */
+    private final ReentrantLock fileLock = new ReentrantLock();
+    /** The log file, null if entries are only kept in memory. */
+    private Path file;
+    /** Size the log file is rotated at. */
+    private long maxFileBytes;
+    /** Number of rotated files kept. */
+    private int files;
+
+    /** Creates a log with the default threshold and capacity. */
+    public SlowQueryLog() {
+        this(DEFAULT_THRESHOLD_MILLIS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a log.
+     *
+     * @param thresholdMillis filters slower than this are logged
+     * @param capacity most entries kept in memory
+     * @throws IllegalArgumentException if the threshold is negative or the capacity not positive
+     */
+    public SlowQueryLog(long thresholdMillis, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        setThresholdMillis(thresholdMillis);
+        this.entries = new Entry[capacity];
+    }
+
+    /**
+     * Changes the threshold.
+     *
+     * @param thresholdMillis filters slower than this are logged, 0 logs every filter
+     * @throws IllegalArgumentException if the threshold is negative
+     */
+    public void setThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + thresholdMillis);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * Gets the threshold.
+     *
+     * @return milliseconds
+     */
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * Appends every later entry to a log file, rotating it to file.1, file.2 and so on once it
+     * is larger than a size.
+     *
+     * @param logFile the file, or null to stop writing a file
+     * @param maxBytes size the file is rotated at
+     * @param keep number of rotated files kept
+     * @throws IllegalArgumentException if the size or count is not positive
+     */
+    public synchronized void logTo(Path logFile, long maxBytes, int keep) {
+        if (maxBytes <= 0 || keep <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid rotation %d x %d",
+                    maxBytes, keep));
+        }
+        this.file = logFile;
+        this.maxFileBytes = maxBytes;
+        this.files = keep;
+    }
+
+    /**
+     * Checks if a filter should be logged.
+     *
+     * @param nanos how long it took
+     * @return true if it is over the threshold
+     */
+    boolean isSlow(long nanos) {
+        return nanos > thresholdNanos;
+    }
+
+    /**
+     * Adds an entry, writing it to the log file if there is one. A failure to write is
+     * reported on standard error and the entry is still kept in memory.
+     *
+     * @param entry the slow filter
+     */
+    void add(Entry entry) {
+        synchronized (this) {
+            entries[(int) (added++ % entries.length)] = entry;
+            if (file == null) {
+                return;
+            }
+        }
+        // written under a lock, not the monitor, so a virtual thread is not pinned on the I/O
+        fileLock.lock();
+        try {
+            write(entry.toString());
+        } catch (IOException e) {
+            System.err.println("Error writing slow query log: " + e.getMessage());
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the entries kept, oldest first.
+     *
+     * @return a copy of the entries
+     */
+    public synchronized List<Entry> entries() {
+        List<Entry> list = new ArrayList<>();
+        long first = Math.max(0, added - entries.length);
+        for (long i = first; i < added; i++) {
+            list.add(entries[(int) (i % entries.length)]);
+        }
+        return list;
+    }
+
+    /**
+     * Describes the entries kept, oldest first.
+     *
+     * @return the entries as text
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : entries()) {
+            sb.append(entry);
+        }
+        return sb.toString();
+    }
+
+    /** Forgets the entries kept in memory. */
+    public synchronized void clear() {
+        Arrays.fill(entries, null);
+        added = 0;
+    }
+
+    /**
+     * Appends text to the log file, rotating it first if it is full. Must be called holding
+     * the file lock.
+     *
+     * @param text the text
+     * @throws IOException if the file cannot be written
+     */
+    private void write(String text) throws IOException {
+        Path file;
+        long maxFileBytes;
+        int files;
+        synchronized (this) {
+            file = this.file;
+            maxFileBytes = this.maxFileBytes;
+            files = this.files;
+        }
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            for (int i = files - 1; i >= 1; i--) {
+                Path older = rotated(file, i);
+                if (Files.exists(older)) {
+                    Files.move(older, rotated(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(file, 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Name of a rotated log file.
+     *
+     * @param file the log file
+     * @param generation 1 for the most recent
+     * @return the path
+     */
+    private static Path rotated(Path file, int generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos nanoseconds
+     * @return milliseconds
+     */
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
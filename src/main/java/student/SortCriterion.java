@@ -1,7 +1,8 @@
 package student;
 
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.function.Function;
+import java.util.List;
 
 /**
  * SortCriterion class provides functionality for sorting board games based on various criteria.
@@ -9,6 +10,9 @@ import java.util.function.Function;
  *
  * The class supports sorting by any GameData attribute and handles both ascending and
  * descending order. It uses Java's Comparator interface to provide type-safe comparisons.
+ * A list of criteria gives a multi-key sort, where each key breaks the ties of the previous one.
+ * The Planner compiles such a list into a single primitive sort (see RowSorter), so
+ * {@link #createComparator()} is only needed when sorting BoardGame objects directly.
  *
  * Key features:
  * - Type-safe comparisons for all game attributes
@@ -20,11 +24,16 @@ import java.util.function.Function;
  * - Sort by name: new SortCriterion(GameData.NAME, true)
  * - Sort by rating descending: new SortCriterion(GameData.RATING, false)
  * - Sort by year: new SortCriterion(GameData.YEAR, true)
+ * - Sort by rating descending, then rank: SortCriterion.parseList("rating:desc,rank:asc")
  *
  * @author Yuchen Huang
  * @version 1.0
  */
 public class SortCriterion {
+    /** Suffix for an ascending key. */
+    private static final String ASC = "asc";
+    /** Suffix for a descending key. */
+    private static final String DESC = "desc";
     /** The field to sort by. */
     private final GameData field;
     /** Whether to sort in ascending order. */
@@ -42,42 +51,72 @@ public class SortCriterion {
         this.ascending = ascending;
     }
 
+    /**
+     * Parses a comma separated list of sort keys. Each key is a column name optionally followed
+     * by a direction, for example "rating:desc,rank:asc", "rating desc" or "year". Keys without
+     * a direction are ascending.
+     *
+     * @param text the sort keys
+     * @return the criteria, most significant first, empty if the text has no keys
+     * @throws IllegalArgumentException if a column name is not valid
+     */
+    public static List<SortCriterion> parseList(String text) {
+        List<SortCriterion> criteria = new ArrayList<>();
+        for (String key : text.split(",")) {
+            key = key.trim().toLowerCase();
+            boolean ascending = true;
+            if (key.endsWith(DESC)) {
+                ascending = false;
+                key = key.substring(0, key.length() - DESC.length());
+            } else if (key.endsWith(ASC)) {
+                key = key.substring(0, key.length() - ASC.length());
+            }
+            key = key.trim();
+            if (key.endsWith(":")) {
+                key = key.substring(0, key.length() - 1).trim();
+            }
+            if (!key.isEmpty()) {
+                criteria.add(new SortCriterion(GameData.fromString(key), ascending));
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Gets the field to sort by.
+     *
+     * @return the GameData field
+     */
+    public GameData getField() {
+        return field;
+    }
+
+    /**
+     * Gets the sort direction.
+     *
+     * @return true if ascending, false if descending
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
     /**
      * Creates a comparator for the specified sort criterion.
-     * The comparator handles type-safe comparison of board game attributes.
+     * Numeric fields are compared as primitives, names case-insensitively.
      *
      * @return A type-safe comparator for BoardGame objects
      */
     public Comparator<BoardGame> createComparator() {
-        Function<BoardGame, ? extends Comparable<?>> valueExtractor = this::getGameValue;
-        @SuppressWarnings("unchecked")
-        Comparator<BoardGame> comparator = (bg1, bg2) -> {
-            Comparable val1 = valueExtractor.apply(bg1);
-            Comparable val2 = valueExtractor.apply(bg2);
-            return val1.compareTo(val2);
-        };
+        Comparator<BoardGame> comparator = GameTable.isNumeric(field)
+                ? (bg1, bg2) -> Double.compare(GameTable.valueOf(bg1, field),
+                        GameTable.valueOf(bg2, field))
+                : (bg1, bg2) -> String.CASE_INSENSITIVE_ORDER.compare(bg1.getName(),
+                        bg2.getName());
         return ascending ? comparator : comparator.reversed();
     }
 
-    /**
-     * Gets the value to compare for a given board game.
-     * Extracts the appropriate value based on the sort field.
-     *
-     * @param game The board game to get the value from
-     * @return A comparable value based on the sort field
-     */
-    private Comparable<?> getGameValue(BoardGame game) {
-        return switch (field) {
-            case NAME -> game.getName();
-            case YEAR -> game.getYearPublished();
-            case MAX_TIME -> game.getMaxPlayTime();
-            case MIN_TIME -> game.getMinPlayTime();
-            case DIFFICULTY -> game.getDifficulty();
-            case RANK -> game.getRank();
-            case MAX_PLAYERS -> game.getMaxPlayers();
-            case MIN_PLAYERS -> game.getMinPlayers();
-            case RATING -> game.getRating();
-            default -> "";
-        };
+    @Override
+    public String toString() {
+        return field.name().toLowerCase() + ":" + (ascending ? ASC : DESC);
     }
 }
@@ -0,0 +1,488 @@
+package student;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * SortedGameSet keeps board games unique and in case-insensitive name order, and can find or
+ * remove a game by its position in that order.
+ *
+ * It is a treap (a binary search tree balanced by random priorities) where every node also
+ * records the size of its subtree, which turns it into an order-statistic tree:
+ * - add, get by position and remove by position take O(log n),
+ * - removing a range of positions splits the tree twice and joins it once, O(log n) plus the
+ *   size of the range,
+ * - adding many games at once merges them with the tree and rebuilds it in linear time (plus
+ *   sorting the new games, which is linear when they already come in name order),
+ * - iterating walks the tree in order, O(n).
+ *
+ * Games are ordered by their {@link NameCollation#CASE_INSENSITIVE} key, then by exact name,
+ * then by id; two games are the same entry exactly when BoardGame.equals says so.
+ */
+final class SortedGameSet implements Iterable<BoardGame> {
+
+    /** A tree node. */
+    private static final class Node {
+        /** The game stored in this node. */
+        private final BoardGame game;
+        /** Sort key of the game's name. */
+        private final byte[] key;
+        /** Heap priority, parents always have a priority at least as large as their children. */
+        private final int priority;
+        /** Number of nodes in this subtree. */
+        private int size = 1;
+        /** Games before this one. */
+        private Node left;
+        /** Games after this one. */
+        private Node right;
+
+        /**
+         * Creates a node.
+         *
+         * @param game the game
+         * @param key the name sort key
+         * @param priority the heap priority
+         */
+        Node(BoardGame game, byte[] key, int priority) {
+            this.game = game;
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+
+    /** Source of node priorities. */
+    private final Random random = new Random();
+    /** Root of the tree, null when empty. */
+    private Node root;
+
+    /**
+     * Number of games in the set.
+     *
+     * @return the size
+     */
+    int size() {
+        return size(root);
+    }
+
+    /** Removes every game. */
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Adds a game if it is not already in the set.
+     *
+     * @param game the game to add
+     * @return true if the game was added
+     */
+    boolean add(BoardGame game) {
+        byte[] key = NameCollation.CASE_INSENSITIVE.key(game.getName());
+        int position = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(key, game, node);
+            if (cmp == 0) {
+                return false;
+            } else if (cmp < 0) {
+                node = node.left;
+            } else {
+                position += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        Node[] parts = split(root, position);
+        root = merge(merge(parts[0], new Node(game, key, random.nextInt())), parts[1]);
+        return true;
+    }
+
+    /**
+     * Adds several games, skipping those already in the set.
+     *
+     * Adding a few games to a large set inserts them one at a time. Otherwise the new games are
+     * sorted, merged with the games already in the set, and the tree is rebuilt from the merged
+     * sequence in one pass.
+     *
+     * @param games the games to add
+     * @return the number of games added
+     */
+    int addAll(Collection<BoardGame> games) {
+        int size = size();
+        if ((long) games.size() * (32 - Integer.numberOfLeadingZeros(size + games.size()))
+                <= size) {
+            int added = 0;
+            for (BoardGame game : games) {
+                if (add(game)) {
+                    added++;
+                }
+            }
+            return added;
+        }
+        Node[] fresh = new Node[games.size()];
+        int count = 0;
+        for (BoardGame game : games) {
+            fresh[count++] = new Node(game, NameCollation.CASE_INSENSITIVE.key(game.getName()),
+                    random.nextInt());
+        }
+        Arrays.sort(fresh, SortedGameSet::compare);
+        List<Node> existing = new ArrayList<>(size);
+        collectNodes(root, existing);
+
+        // merge the two sorted sequences, dropping games that are already present
+        List<Node> merged = new ArrayList<>(size + fresh.length);
+        int i = 0;
+        int added = 0;
+        for (Node node : fresh) {
+            while (i < existing.size() && compare(existing.get(i), node) < 0) {
+                merged.add(existing.get(i++));
+            }
+            boolean duplicate = i < existing.size() && compare(existing.get(i), node) == 0
+                    || !merged.isEmpty() && compare(merged.get(merged.size() - 1), node) == 0;
+            if (!duplicate) {
+                merged.add(node);
+                added++;
+            }
+        }
+        merged.addAll(existing.subList(i, existing.size()));
+        root = build(merged);
+        return added;
+    }
+
+    /**
+     * Gets the game at a position.
+     *
+     * @param index position in name order, starting at 0
+     * @return the game
+     * @throws IndexOutOfBoundsException if the position is not in the set
+     */
+    BoardGame get(int index) {
+        checkIndex(index, size());
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.game;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Removes the game at a position.
+     *
+     * @param index position in name order, starting at 0
+     * @return the removed game
+     * @throws IndexOutOfBoundsException if the position is not in the set
+     */
+    BoardGame removeAt(int index) {
+        checkIndex(index, size());
+        return removeRange(index, index + 1).get(0);
+    }
+
+    /**
+     * Removes the games in a range of positions.
+     *
+     * @param from first position to remove, inclusive
+     * @param to last position to remove, exclusive
+     * @return the removed games, in name order
+     * @throws IndexOutOfBoundsException if the range is not in the set
+     */
+    List<BoardGame> removeRange(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Range %d-%d, size %d", from, to,
+                    size()));
+        }
+        Node[] head = split(root, from);
+        Node[] middle = split(head[1], to - from);
+        root = merge(head[0], middle[1]);
+        List<BoardGame> removed = new ArrayList<>(to - from);
+        collect(middle[0], removed);
+        return removed;
+    }
+
+    /**
+     * Removes every game whose name equals the given name, ignoring case.
+     *
+     * @param name the name to remove
+     * @return the removed games
+     */
+    List<BoardGame> removeName(String name) {
+        byte[] key = NameCollation.CASE_INSENSITIVE.key(name);
+        int from = firstPosition(key);
+        int to = from;
+        while (to < size() && NameCollation.compare(key, keyAt(to)) == 0) {
+            to++;
+        }
+        return removeRange(from, to);
+    }
+
+    /**
+     * Finds the first position whose name key is not less than the given key.
+     *
+     * @param key the name key
+     * @return the position, size if every name sorts before the key
+     */
+    private int firstPosition(byte[] key) {
+        int position = 0;
+        Node node = root;
+        while (node != null) {
+            if (NameCollation.compare(node.key, key) < 0) {
+                position += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Gets the name key at a position.
+     *
+     * @param index the position
+     * @return the key
+     */
+    private byte[] keyAt(int index) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.key;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Iterates over the games in name order.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<BoardGame> iterator() {
+        return new Iterator<>() {
+            /** Nodes whose game and right subtree are still to be visited. */
+            private final Deque<Node> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            /**
+             * Pushes a node and its chain of left children.
+             *
+             * @param node the node to start from
+             */
+            private void pushLeft(Node node) {
+                for (; node != null; node = node.left) {
+                    stack.push(node);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public BoardGame next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = stack.pop();
+                pushLeft(node.right);
+                return node.game;
+            }
+        };
+    }
+
+    /**
+     * Compares the games of two nodes.
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return negative, zero or positive as a sorts before, with or after b
+     */
+    private static int compare(Node a, Node b) {
+        return compare(a.key, a.game, b);
+    }
+
+    /**
+     * Compares a game with the game of a node.
+     *
+     * @param key name key of the game
+     * @param game the game
+     * @param node the node
+     * @return negative, zero or positive as the game sorts before, with or after the node
+     */
+    private static int compare(byte[] key, BoardGame game, Node node) {
+        int cmp = NameCollation.compare(key, node.key);
+        if (cmp == 0) {
+            cmp = game.getName().compareTo(node.game.getName());
+        }
+        return cmp != 0 ? cmp : Integer.compare(game.getId(), node.game.getId());
+    }
+
+    /**
+     * Splits a tree after a number of nodes.
+     *
+     * @param node root of the tree
+     * @param count number of nodes to put in the first part
+     * @return the first part and the rest
+     */
+    private static Node[] split(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (size(node.left) >= count) {
+            parts = split(node.left, count);
+            node.left = parts[1];
+            parts[1] = node;
+        } else {
+            parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            parts[0] = node;
+        }
+        update(node);
+        return parts;
+    }
+
+    /**
+     * Joins two trees, every node of the first sorting before every node of the second.
+     *
+     * @param a the first tree
+     * @param b the second tree
+     * @return the joined tree
+     */
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority >= b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    /**
+     * Builds a tree from nodes already in order, keeping their priorities. The right spine of
+     * the tree is kept on a stack: each node pops the spine nodes with a lower priority, takes
+     * them as its left subtree and becomes the new end of the spine.
+     *
+     * @param nodes the nodes in order
+     * @return the root of the tree
+     */
+    private static Node build(List<Node> nodes) {
+        Deque<Node> spine = new ArrayDeque<>();
+        for (Node node : nodes) {
+            node.right = null;
+            Node last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                last = spine.pop();
+            }
+            node.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+        Node root = spine.peekLast();
+        updateAll(root);
+        return root;
+    }
+
+    /**
+     * Recomputes the sizes of a whole subtree.
+     *
+     * @param node the subtree
+     * @return the size of the subtree
+     */
+    private static int updateAll(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        node.size = 1 + updateAll(node.left) + updateAll(node.right);
+        return node.size;
+    }
+
+    /**
+     * Appends the nodes of a subtree in order.
+     *
+     * @param node the subtree
+     * @param out the list to append to
+     */
+    private static void collectNodes(Node node, List<Node> out) {
+        if (node != null) {
+            collectNodes(node.left, out);
+            out.add(node);
+            collectNodes(node.right, out);
+        }
+    }
+
+    /**
+     * Appends the games of a subtree in order.
+     *
+     * @param node the subtree
+     * @param out the list to append to
+     */
+    private static void collect(Node node, List<BoardGame> out) {
+        if (node != null) {
+            collect(node.left, out);
+            out.add(node.game);
+            collect(node.right, out);
+        }
+    }
+
+    /**
+     * Recomputes the size of a node from its children.
+     *
+     * @param node the node
+     */
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    /**
+     * Size of a subtree.
+     *
+     * @param node the subtree, may be null
+     * @return the number of nodes
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Checks that a position is in the set.
+     *
+     * @param index the position
+     * @param size the set size
+     */
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, size));
+        }
+    }
+}
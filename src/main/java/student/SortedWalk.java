@@ -0,0 +1,159 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * SortedWalk produces the selected rows of a table in sort order one at a time, by walking
+ * an order the table already has for the first sort key instead of sorting the whole
+ * selection up front: the column's {@link ColumnIndex} for a numeric key, or the rows
+ * themselves for the name, since rows are stored in name order.
+ *
+ * The walk goes through that order one group of equal keys at a time, forwards for an
+ * ascending key and group by group backwards for a descending one. It keeps the selected rows
+ * of the group, and sorts them on the remaining keys only when there are any. So the first
+ * rows are ready after reading one group, and memory holds a group rather than the result.
+ *
+ * A walk reads the whole order even when few rows are selected. {@link #of} therefore walks
+ * only when the selection is a large part of the table, and sorts small selections eagerly
+ * with a {@link RowSorter}, which is faster for them.
+ */
+final class SortedWalk implements PrimitiveIterator.OfInt {
+    /** Selections smaller than the table size divided by this are sorted eagerly. */
+    static final int DENSE_FRACTION = 16;
+
+    /** The selected rows. */
+    private final BitSet selected;
+    /** The first key's sorted order, null for name order, where position and row are equal. */
+    private final ColumnIndex order;
+    /** Rank of every row on the first key. */
+    private final int[] ranks;
+    /** Number of positions in the order. */
+    private final int size;
+    /** Direction of the first key. */
+    private final boolean ascending;
+    /** Sorts a group on all keys, null if there is only one key. */
+    private final RowSorter rest;
+
+    /** Next position to read, the end of the walk when it equals size or 0 (descending). */
+    private int cursor;
+    /** Selected rows of the current group, in order. */
+    private int[] group = new int[64];
+    /** Number of rows in the current group. */
+    private int groupSize;
+    /** Next row of the current group to return. */
+    private int groupPos;
+
+    /**
+     * Creates a walk.
+     *
+     * @param table the table
+     * @param selected the selected rows
+     * @param first the first sort key, NAME or a numeric column
+     * @param criteria every sort key, most significant first
+     */
+    private SortedWalk(GameTable table, BitSet selected, SortCriterion first,
+            List<SortCriterion> criteria) {
+        this.selected = selected;
+        this.order = first.getField() == GameData.NAME ? null : table.index(first.getField());
+        this.ranks = table.ranks(first.getField());
+        this.size = table.size();
+        this.ascending = first.isAscending();
+        this.rest = criteria.size() > 1 ? new RowSorter(table, criteria) : null;
+        this.cursor = ascending ? 0 : size;
+    }
+
+    /**
+     * Gets the selected rows in sort order, walking them lazily when the selection is large
+     * and sorting them at once when it is small.
+     *
+     * @param table the table
+     * @param selected the selected rows
+     * @param criteria the sort keys, most significant first
+     * @return the rows in the order {@link RowSorter} would sort them
+     */
+    static PrimitiveIterator.OfInt of(GameTable table, BitSet selected,
+            List<SortCriterion> criteria) {
+        SortCriterion first = criteria.isEmpty() ? new SortCriterion(GameData.NAME, true)
+                : criteria.get(0);
+        if (!GameTable.isNumeric(first.getField())) {
+            // ID is never sorted on, it falls back to the name like RowSorter does
+            first = new SortCriterion(GameData.NAME, first.isAscending());
+        }
+        if ((long) selected.cardinality() * DENSE_FRACTION < table.size()) {
+            return Arrays.stream(new RowSorter(table, criteria).sort(selected)).iterator();
+        }
+        return new SortedWalk(table, selected, first, criteria);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (groupPos == groupSize) {
+            if (ascending ? cursor >= size : cursor <= 0) {
+                return false;
+            }
+            nextGroup();
+        }
+        return true;
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return group[groupPos++];
+    }
+
+    /** Reads the next group of equal first keys and keeps its selected rows. */
+    private void nextGroup() {
+        int start;
+        int end;
+        if (ascending) {
+            start = cursor;
+            end = start + 1;
+            int rank = ranks[row(start)];
+            while (end < size && ranks[row(end)] == rank) {
+                end++;
+            }
+            cursor = end;
+        } else {
+            end = cursor;
+            start = end - 1;
+            int rank = ranks[row(start)];
+            while (start > 0 && ranks[row(start - 1)] == rank) {
+                start--;
+            }
+            cursor = start;
+        }
+        groupSize = 0;
+        groupPos = 0;
+        // positions of a group are in row order, which is how ties are ordered
+        for (int position = start; position < end; position++) {
+            int row = row(position);
+            if (selected.get(row)) {
+                if (groupSize == group.length) {
+                    group = Arrays.copyOf(group, groupSize * 2);
+                }
+                group[groupSize++] = row;
+            }
+        }
+        if (rest != null && groupSize > 1) {
+            int[] sorted = rest.sort(Arrays.copyOf(group, groupSize));
+            System.arraycopy(sorted, 0, group, 0, groupSize);
+        }
+    }
+
+    /**
+     * Gets the row at a position of the first key's order.
+     *
+     * @param position the position
+     * @return the row
+     */
+    private int row(int position) {
+        return order == null ? position : order.row(position);
+    }
+}
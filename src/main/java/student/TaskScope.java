@@ -0,0 +1,99 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * TaskScope fans a piece of work out to subtasks that never outlive the block that forked
+ * them, in the manner of structured concurrency: fork the subtasks, {@link #join()} them, and
+ * close the scope with try-with-resources. The first subtask to fail cancels the others, and
+ * closing the scope cancels whatever is still running, so an abandoned fan-out does not leave
+ * queries behind.
+ *
+ * The JDK's StructuredTaskScope needs a newer Java than the build targets; this covers the
+ * shut-down-on-failure case the planner needs, on any executor, usually one from
+ * {@link VirtualThreads#newExecutor(String)}.
+ *
+ * @param <T> the result type of the subtasks
+ */
+final class TaskScope<T> implements AutoCloseable {
+    /** Runs the subtasks and reports them as they finish. */
+    private final CompletionService<T> completion;
+    /** The subtasks, in the order they were forked. */
+    private final List<Future<T>> subtasks = new ArrayList<>();
+    /** Number of finished subtasks taken from the completion queue. */
+    private int finished;
+    /** True once closed. */
+    private boolean closed;
+
+    /**
+     * Opens a scope.
+     *
+     * @param executor runs the subtasks
+     */
+    TaskScope(Executor executor) {
+        this.completion = new ExecutorCompletionService<>(executor);
+    }
+
+    /**
+     * Starts a subtask.
+     *
+     * @param task the subtask
+     * @return its future, done once {@link #join()} returns
+     * @throws IllegalStateException if the scope is closed
+     */
+    Future<T> fork(Callable<T> task) {
+        if (closed) {
+            throw new IllegalStateException("Task scope is closed");
+        }
+        Future<T> future = completion.submit(task);
+        subtasks.add(future);
+        return future;
+    }
+
+    /**
+     * Waits for every subtask forked so far. If one fails, the others are cancelled, the scope
+     * is closed and the failure thrown.
+     *
+     * @return the results, in the order the subtasks were forked
+     * @throws ExecutionException if a subtask failed, with its exception as the cause
+     * @throws InterruptedException if interrupted while waiting; the subtasks are cancelled
+     */
+    List<T> join() throws ExecutionException, InterruptedException {
+        try {
+            while (finished < subtasks.size()) {
+                Future<T> done = completion.take();
+                finished++;
+                done.get();
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            close();
+            throw e;
+        }
+        List<T> results = new ArrayList<>(subtasks.size());
+        for (Future<T> subtask : subtasks) {
+            results.add(subtask.get());
+        }
+        return results;
+    }
+
+    /** Cancels the subtasks still running and stops new ones from being forked. */
+    @Override
+    public void close() {
+        closed = true;
+        cancel();
+    }
+
+    /** Cancels every unfinished subtask, interrupting those running. */
+    private void cancel() {
+        for (Future<T> subtask : subtasks) {
+            subtask.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package student;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VirtualThreads makes the executors that sessions, requests and fan-out queries run on. On
+ * Java 21 and later every task gets its own virtual thread, which costs a few kilobytes of
+ * heap instead of a platform thread's stack, and gives its carrier back while it blocks on
+ * I/O. The build targets Java 17, so the JDK method is looked up reflectively; without it the
+ * tasks share a fixed pool of daemon platform threads.
+ *
+ * Code that runs on these threads should wait with {@link java.util.concurrent.locks.Lock}s
+ * rather than monitors around blocking I/O, since a virtual thread blocked inside a
+ * synchronized block keeps its carrier pinned.
+ */
+final class VirtualThreads {
+    /** Executors.newVirtualThreadPerTaskExecutor, null before Java 21. */
+    private static final Method PER_TASK = lookup();
+
+    /** Private constructor to prevent instantiation of utility class. */
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks whether the JVM has virtual threads.
+     *
+     * @return true on Java 21 and later
+     */
+    static boolean available() {
+        return PER_TASK != null;
+    }
+
+    /**
+     * Makes an executor that starts a new virtual thread for every task, or a fixed pool of
+     * daemon threads, two per processor, when there are no virtual threads.
+     *
+     * @param name prefix of the pool's thread names
+     * @return the executor
+     */
+    static ExecutorService newExecutor(String name) {
+        if (PER_TASK != null) {
+            try {
+                return (ExecutorService) PER_TASK.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // fall back to platform threads
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory daemons = task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(
+                Math.max(4, 2 * Runtime.getRuntime().availableProcessors()), daemons);
+    }
+
+    /**
+     * Looks up the virtual thread executor factory.
+     *
+     * @return the method, null if the JVM does not have it
+     */
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -7,7 +7,9 @@ import java.util.List;
 import java.util.Set;
 import student.Planner;
 import student.IPlanner;
+import student.IQueryPlanner;
 import student.GameData;
+import student.SortCriterion;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -110,4 +112,42 @@ public class TestPlanner {
         assertEquals(1, filtered.size());
         assertEquals("Go", filtered.get(0).getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMultiKeySort() {
+        IQueryPlanner planner = new Planner(games);
+        List<BoardGame> sorted = planner.filter("",
+                SortCriterion.parseList("minPlayers:desc,rating:asc")).toList();
+        assertEquals(games.size(), sorted.size());
+        assertEquals(List.of("Tucano", "Monopoly", "GoRami", "Go Fish", "Go", "golang", "Chess",
+                "17 days"), sorted.stream().map(BoardGame::getName).toList());
+    }
+
+    @Test
+    public void testMultiKeySortMatchesComparatorChain() {
+        IQueryPlanner planner = new Planner(games);
+        List<SortCriterion> keys = SortCriterion.parseList("maxPlayers asc, year desc");
+        List<BoardGame> expected = games.stream().sorted(keys.get(0).createComparator()
+                .thenComparing(keys.get(1).createComparator())).toList();
+        assertEquals(expected, planner.filter("", keys).toList());
+    }
+
+    @Test
+    public void testWideMultiKeySort() {
+        // enough distinct values that the keys cannot be packed into one number
+        Set<BoardGame> many = new HashSet<>();
+        for (int i = 0; i < 3000; i++) {
+            many.add(new BoardGame("Game " + (i % 1500), i, 1 + i % 3, 4, 10, 20 + i % 7,
+                    (i * 7919) % 3001 / 1000.0, (i * 31) % 2999, (i * 13) % 3001 / 100.0, 2000));
+        }
+        IQueryPlanner planner = new Planner(many);
+        List<SortCriterion> keys = SortCriterion.parseList("name,rating:desc,difficulty");
+        List<BoardGame> sorted = planner.filter("", keys).toList();
+        for (int i = 0; i < sorted.size() - 1; i++) {
+            int cmp = keys.get(0).createComparator().thenComparing(keys.get(1).createComparator())
+                    .thenComparing(keys.get(2).createComparator())
+                    .compare(sorted.get(i), sorted.get(i + 1));
+            assertTrue(cmp <= 0);
+        }
+    }
+}
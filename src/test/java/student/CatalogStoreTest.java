@@ -0,0 +1,99 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the paged, file-backed catalog.
+ */
+public class CatalogStoreTest {
+
+    @TempDir
+    Path dir;
+
+    Set<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(11);
+        games = new HashSet<>();
+        for (int i = 0; i < 3000; i++) {
+            games.add(new BoardGame("Jeu " + random.nextInt(5000) + (i % 7 == 0 ? " é" : ""), i,
+                    1 + random.nextInt(4), 2 + random.nextInt(8), 10 * (1 + random.nextInt(6)),
+                    10 * (6 + random.nextInt(12)), 1 + random.nextDouble() * 4, i + 1,
+                    5 + random.nextDouble() * 4, 1990 + random.nextInt(35)));
+        }
+    }
+
+    @Test
+    public void testQueriesMatchHeapTable() throws IOException {
+        CatalogStore.write(games, dir);
+        // a small cache, so queries have to evict pages
+        PageCache cache = new PageCache(4096, 8);
+        try (CatalogStore store = CatalogStore.open(dir, cache)) {
+            IQueryPlanner paged = new Planner(store.table());
+            IQueryPlanner heap = new Planner(games);
+            String[] filters = {"", "rating>8", "rank<50|minPlayers==4", "name~=jeu 1,year>2010",
+                "!(maxPlaytime>100),difficulty<2"};
+            for (String filter : filters) {
+                List<SortCriterion> sort = SortCriterion.parseList("rating:desc,name:asc");
+                assertEquals(heap.filter(filter, sort).map(BoardGame::toString).toList(),
+                        paged.filter(filter, sort).map(BoardGame::toString).toList(), filter);
+            }
+            assertTrue(cache.getEvictions() > 0);
+            assertTrue(cache.getCachedPages() <= 8);
+        }
+    }
+
+    @Test
+    public void testIndexFilesOpenLazily() throws IOException {
+        CatalogStore.write(games, dir);
+        PageCache cache = new PageCache();
+        try (CatalogStore store = CatalogStore.open(dir, cache)) {
+            GameTable table = store.table();
+            assertEquals(0, cache.getMisses());
+            assertEquals(games.size(), table.size());
+            ColumnIndex index = table.index(GameData.RANK);
+            assertEquals(1.0, index.value(0));
+            assertEquals(table.game(index.row(0)).getRank(), 1);
+        }
+    }
+
+    @Test
+    public void testIncompleteCatalogIsNotOpened() throws IOException {
+        assertFalse(CatalogStore.exists(dir));
+        assertThrows(IOException.class, () -> CatalogStore.open(dir, new PageCache()));
+        CatalogStore.write(games, dir);
+        assertTrue(CatalogStore.exists(dir));
+        Files.delete(dir.resolve(CatalogStore.META));
+        assertFalse(CatalogStore.exists(dir));
+    }
+
+    @Test
+    public void testCatalogKnowsItsSource() throws IOException {
+        assertFalse(CatalogStore.isCurrent(dir, 7));
+        CatalogStore.write(games, NameCollation.CASE_INSENSITIVE, dir, 7);
+        assertTrue(CatalogStore.isCurrent(dir, 7));
+        assertFalse(CatalogStore.isCurrent(dir, 8));
+        CatalogStore.write(games, dir);
+        assertFalse(CatalogStore.isCurrent(dir, 7));
+
+        long checksum = GamesLoader.checksum("collection.csv");
+        assertTrue(checksum >= 0);
+        assertEquals(checksum, GamesLoader.checksum("collection.csv"));
+        assertEquals(-1, GamesLoader.checksum("missing.csv"));
+    }
+}
@@ -0,0 +1,77 @@
+package student;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for running the console in batch mode.
+ */
+public class ConsoleAppTest {
+
+    static final String SCRIPT = String.join("\n",
+            "# nightly report",
+            "filter rating>8 sort:rating:desc",
+            "filter minPlayers==2",
+            "filter name~=game 1 sort:year:asc,name:desc",
+            "filter rank<(",
+            "filter rank<20",
+            "list add all",
+            "",
+            "filter difficulty>1",
+            "filter clear",
+            "list",
+            "exit",
+            "filter rating>0");
+
+    Set<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        games = TestGames.numbered(300);
+    }
+
+    private String run(String script, int threads, GameList list) throws IOException {
+        StringWriter output = new StringWriter();
+        new ConsoleApp(list, new Planner(games), output).runBatch(new StringReader(script),
+                threads);
+        return output.toString();
+    }
+
+    @Test
+    public void testParallelBatchMatchesSequential() throws IOException {
+        GameList sequentialList = new GameList();
+        GameList parallelList = new GameList();
+        String sequential = run(SCRIPT, 1, sequentialList);
+        String parallel = run(SCRIPT, 4, parallelList);
+        assertEquals(sequential, parallel);
+        assertEquals(19, parallelList.count());
+        assertEquals(sequentialList.getGameNames(), parallelList.getGameNames());
+        assertFalse(sequential.lines().anyMatch(line -> line.startsWith("> ")),
+                "no prompts in batch mode");
+        assertTrue(sequential.contains("1: Game 104 (9.00)"));
+    }
+
+    @Test
+    public void testBatchStopsAtExit() throws IOException {
+        String output = run("filter rank<3\nexit\nfilter rank<5\n", 2, new GameList());
+        assertEquals(List.of("1: Game 0", "2: Game 1"), output.lines().toList().stream()
+                .map(line -> line.substring(0, line.indexOf(" (") < 0 ? line.length()
+                        : line.indexOf(" (")))
+                .toList());
+    }
+
+    @Test
+    public void testInvalidThreadCount() {
+        assertThrows(IllegalArgumentException.class, () -> run("", 0, new GameList()));
+    }
+}
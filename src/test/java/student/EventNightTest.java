@@ -0,0 +1,155 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for planning an arena night.
+ */
+public class EventNightTest {
+
+    private static List<BoardGame> games(int count, long seed) {
+        Random random = new Random(seed);
+        List<BoardGame> games = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int minPlayers = 1 + random.nextInt(4);
+            int minTime = 15 * (1 + random.nextInt(6));
+            games.add(new BoardGame("Game " + i, i, minPlayers, minPlayers + random.nextInt(4),
+                    minTime, minTime + 15 * random.nextInt(4), 1 + random.nextInt(4), i + 1,
+                    random.nextInt(100) / 10.0, 2000 + i % 20));
+        }
+        return games;
+    }
+
+    @Test
+    public void testMatchesExhaustiveSearch() {
+        for (long seed = 0; seed < 20; seed++) {
+            List<BoardGame> games = games(14, seed);
+            EventNight night = EventNight.plan(games, 3, 200, EventNight.Weight.RATING);
+            double best = 0;
+            for (int mask = 0; mask < 1 << games.size(); mask++) {
+                int minutes = 0;
+                double value = 0;
+                boolean fits = true;
+                for (int i = 0; i < games.size() && fits; i++) {
+                    if ((mask & 1 << i) != 0) {
+                        BoardGame game = games.get(i);
+                        fits = game.getMinPlayers() <= 3 && game.getMaxPlayers() >= 3;
+                        minutes += game.getMaxPlayTime();
+                        value += game.getRating();
+                    }
+                }
+                if (fits && minutes <= 200) {
+                    best = Math.max(best, value);
+                }
+            }
+            assertEquals(best, night.getTotalValue(), 1e-9, "seed " + seed);
+            assertTrue(night.getTotalMinutes() <= 200);
+            assertTrue(night.isOptimal());
+            for (BoardGame game : night.getGames()) {
+                assertTrue(game.getMinPlayers() <= 3 && game.getMaxPlayers() >= 3);
+            }
+        }
+    }
+
+    @Test
+    public void testBranchAndBoundMatchesTable() {
+        Random random = new Random(11);
+        for (int round = 0; round < 30; round++) {
+            int n = 5 + random.nextInt(60);
+            int[] lengths = new int[n];
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                lengths[i] = 1 + random.nextInt(40);
+                values[i] = random.nextInt(1000) / 10.0;
+            }
+            int capacity = random.nextInt(300);
+            boolean[] table = new boolean[n];
+            boolean[] search = new boolean[n];
+            assertTrue(EventNight.knapsack(lengths, values, capacity, table, Long.MAX_VALUE));
+            assertTrue(EventNight.knapsack(lengths, values, capacity, search, 0));
+            assertEquals(total(values, table), total(values, search), 1e-9);
+            assertTrue(total(lengths, search) <= capacity);
+        }
+    }
+
+    private static double total(double[] values, boolean[] chosen) {
+        double total = 0;
+        for (int i = 0; i < chosen.length; i++) {
+            total += chosen[i] ? values[i] : 0;
+        }
+        return total;
+    }
+
+    private static int total(int[] lengths, boolean[] chosen) {
+        int total = 0;
+        for (int i = 0; i < chosen.length; i++) {
+            total += chosen[i] ? lengths[i] : 0;
+        }
+        return total;
+    }
+
+    @Test
+    public void testRankWeightAndList() {
+        List<BoardGame> games = List.of(
+                new BoardGame("Short Best", 1, 2, 4, 30, 30, 2, 1, 6, 2001),
+                new BoardGame("Long Second", 2, 2, 4, 60, 90, 2, 2, 9, 2002),
+                new BoardGame("Short Third", 3, 2, 4, 20, 30, 2, 3, 7, 2003),
+                new BoardGame("Solo", 4, 1, 1, 10, 10, 2, 4, 9.5, 2004));
+        EventNight byRank = EventNight.plan(games, 2, 60, EventNight.Weight.RANK);
+        assertEquals(List.of("Short Best", "Short Third"),
+                byRank.getGames().stream().map(BoardGame::getName).toList());
+        EventNight byRating = EventNight.plan(games, 2, 90, EventNight.Weight.RATING);
+        assertEquals(List.of("Short Third", "Short Best"),
+                byRating.getGames().stream().map(BoardGame::getName).toList());
+        assertEquals(13, byRating.getTotalValue(), 1e-9);
+        EventNight longer = EventNight.plan(games, 2, 120, EventNight.Weight.RATING);
+        assertEquals(List.of("Long Second", "Short Third"),
+                longer.getGames().stream().map(BoardGame::getName).toList());
+
+        Set<BoardGame> all = new HashSet<>(games);
+        Planner planner = new Planner(all);
+        GameList list = new GameList();
+        list.addToList("short best", planner.allGames());
+        list.addToList("solo", planner.allGames());
+        EventNight fromList = EventNight.plan(list, planner.allGames(), 1, 60,
+                EventNight.Weight.RATING);
+        assertEquals(List.of("Solo"),
+                fromList.getGames().stream().map(BoardGame::getName).toList());
+        assertEquals(10, fromList.getTotalMinutes());
+    }
+
+    @Test
+    public void testThousandsOfCandidates() {
+        List<BoardGame> games = games(5000, 42);
+        EventNight night = EventNight.plan(games, 4, 600, EventNight.Weight.RATING);
+        assertTrue(night.isOptimal());
+        assertTrue(night.getTotalMinutes() <= 600);
+        assertThrows(IllegalArgumentException.class,
+                () -> EventNight.plan(games, 0, 60, EventNight.Weight.RATING));
+        assertThrows(IllegalArgumentException.class,
+                () -> EventNight.plan(games, 2, -1, EventNight.Weight.RANK));
+        assertEquals(0, EventNight.plan(games, 2, 0, EventNight.Weight.RANK).getGames().size());
+    }
+
+    @Test
+    public void testWholeDayFitsEverything() {
+        List<BoardGame> games = List.of(
+                new BoardGame("Hour", 1, 2, 4, 60, 60, 2, 1, 6, 2001),
+                new BoardGame("Odd", 2, 2, 4, 59, 59, 2, 2, 5, 2002));
+        EventNight night = EventNight.plan(games, 3, Integer.MAX_VALUE,
+                EventNight.Weight.RATING);
+        assertTrue(night.isOptimal());
+        assertEquals(119, night.getTotalMinutes());
+        assertEquals(1, EventNight.plan(games.subList(0, 1), 3, Integer.MAX_VALUE,
+                EventNight.Weight.RANK).getGames().size());
+    }
+}
@@ -0,0 +1,88 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for grouping filter results.
+ */
+public class FacetResultTest {
+
+    Set<BoardGame> games;
+    Planner planner;
+
+    @BeforeEach
+    public void setup() {
+        games = new HashSet<>();
+        for (int i = 0; i < 3000; i++) {
+            games.add(new BoardGame("Game " + i, i, 1 + i % 4, 4 + i % 4, 30, 60 + i % 50,
+                    (i % 47) / 10.0, i + 1, (i % 91) / 10.0, 1990 + i % 30));
+        }
+        planner = new Planner(games);
+    }
+
+    @Test
+    public void testMatchesGroupingTheGames() {
+        String filter = "rating>3,min_players<4";
+        FacetResult facet = planner.facet(filter, GameData.DIFFICULTY, 0.5, GameData.MAX_TIME);
+        TreeMap<Double, List<Integer>> expected = new TreeMap<>();
+        for (BoardGame game : planner.query(filter, List.of())) {
+            expected.computeIfAbsent(Math.floor(game.getDifficulty() / 0.5) * 0.5,
+                    k -> new ArrayList<>()).add(game.getMaxPlayTime());
+        }
+        assertEquals(expected.size(), facet.size());
+        int group = 0;
+        int total = 0;
+        for (var entry : expected.entrySet()) {
+            List<Integer> times = entry.getValue();
+            assertEquals(entry.getKey(), facet.getKey(group), 1e-9);
+            assertEquals(times.size(), facet.getCount(group));
+            assertEquals(times.stream().mapToInt(t -> t).min().getAsInt(),
+                    facet.getMin(group), 0);
+            assertEquals(times.stream().mapToInt(t -> t).max().getAsInt(),
+                    facet.getMax(group), 0);
+            assertEquals(times.stream().mapToInt(t -> t).average().getAsDouble(),
+                    facet.getAverage(group), 1e-9);
+            total += times.size();
+            group++;
+        }
+        assertEquals(total, facet.getTotal());
+        assertEquals(60, facet.getMin(), 0);
+        assertEquals(109, facet.getMax(), 0);
+    }
+
+    @Test
+    public void testWholeNumberGroups() {
+        FacetResult facet = planner.facet("", GameData.MIN_PLAYERS, 1, GameData.MIN_PLAYERS);
+        assertArrayEquals(new int[] {750, 750, 750, 750}, facet.histogram());
+        assertEquals(1, facet.getKey(0), 0);
+        assertEquals(4, facet.getMax(3), 0);
+        assertEquals(2.5, facet.getAverage(), 1e-9);
+        assertTrue(facet.toJson().contains("\"keys\":[1,2,3,4],\"counts\":[750,750,750,750]"),
+                facet.toJson());
+    }
+
+    @Test
+    public void testEmptyAndInvalid() {
+        FacetResult empty = planner.facet("rating>100", GameData.YEAR, 1, GameData.RATING);
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.getTotal());
+        assertTrue(Double.isNaN(empty.getAverage()));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.facet("", GameData.NAME, 1, GameData.RATING));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.facet("", GameData.YEAR, 0, GameData.RATING));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.facet("", GameData.RANK, Double.NaN, GameData.RATING));
+    }
+}
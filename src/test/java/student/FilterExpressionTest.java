@@ -0,0 +1,134 @@
+package student;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the filter grammar and its optimizations.
+ */
+public class FilterExpressionTest {
+
+    Set<BoardGame> games;
+    GameTable table;
+
+    @BeforeEach
+    public void setup() {
+        games = new HashSet<>();
+        games.add(new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 2005));
+        games.add(new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006));
+        games.add(new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        games.add(new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001));
+        games.add(new BoardGame("golang", 4, 2, 7, 50, 55, 7.0, 400, 9.5, 2003));
+        games.add(new BoardGame("GoRami", 3, 6, 6, 40, 42, 5.0, 300, 8.5, 2002));
+        games.add(new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007));
+        games.add(new BoardGame("Tucano", 5, 10, 20, 60, 90, 6.0, 500, 8.0, 2004));
+        table = new GameTable(games);
+    }
+
+    private List<String> names(String filter) {
+        FilterExpression expression = FilterParser.parse(filter).optimize();
+        return table.select(expression.evaluate(table)).stream()
+                .map(BoardGame::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testOr() {
+        assertEquals(List.of("Chess", "Monopoly"), names("name==chess|name==monopoly"));
+    }
+
+    @Test
+    public void testNot() {
+        assertEquals(List.of("Chess", "Monopoly", "Tucano"), names("!(name~=go),!name==17 days"));
+    }
+
+    @Test
+    public void testGrouping() {
+        assertEquals(List.of("Go", "Tucano"), names("(name==go|name==tucano),rating<9"));
+        assertEquals(List.of("Chess", "Go", "Tucano"), names("name==chess|name==go|name==tucano"));
+    }
+
+    @Test
+    public void testCommaBindsTighterThanBar() {
+        assertEquals(List.of("Chess", "Go"), names("name==go,rating<9|name==chess"));
+    }
+
+    @Test
+    public void testRangeMerging() {
+        FilterExpression expression = FilterParser.parse("rating>7,rating>8").optimize();
+        assertEquals("rating>8.0", expression.toString());
+        expression = FilterParser.parse("minPlayers>1,minPlayers<=6,minPlayers>=3").optimize();
+        assertEquals("min_players>=3,min_players<=6", expression.toString());
+        expression = FilterParser.parse("year<2002|year>=2001").optimize();
+        assertSame(FilterExpression.TRUE, expression);
+    }
+
+    @Test
+    public void testConstantFolding() {
+        assertSame(FilterExpression.FALSE, FilterParser.parse("rating>9,rating<8").optimize());
+        assertSame(FilterExpression.FALSE, FilterParser.parse("minPlayers>2,!(minPlayers>2)")
+                .optimize());
+        assertSame(FilterExpression.TRUE, FilterParser.parse("!!(rating>20|rating<=20)")
+                .optimize());
+        assertEquals(List.of(), names("rating>9,rating<8"));
+    }
+
+    @Test
+    public void testParenthesesInName() {
+        Set<BoardGame> extra = new HashSet<>(games);
+        extra.add(new BoardGame("Azul (2nd Edition)", 9, 2, 4, 30, 45, 1.8, 50, 7.9, 2017));
+        table = new GameTable(extra);
+        assertEquals(List.of("Azul (2nd Edition)"), names("name==azul (2nd edition)|rank<50"));
+    }
+
+    @Test
+    public void testMalformed() {
+        assertThrows(IllegalArgumentException.class, () -> FilterParser.parse("(rating>7"));
+        assertThrows(IllegalArgumentException.class, () -> FilterParser.parse("rating>7)"));
+        // an unclosed parenthesis in a value must not swallow the conditions after it
+        assertThrows(IllegalArgumentException.class,
+                () -> FilterParser.parse("name~=foo(, rating>7"));
+        assertThrows(IllegalArgumentException.class, () -> FilterParser.parse("name~=foo("));
+    }
+
+    @Test
+    public void testMatchesFilterApply() {
+        String[] conditions = {"minPlayers>2", "maxPlayers<=6", "rating>=8.5", "year!=2003",
+            "name>go", "name~=o", "difficulty==3", "rank<7.5", "name<=golang"};
+        for (String condition : conditions) {
+            Filter filter = Filter.parseCondition(condition);
+            List<String> expected = table.select(FilterExpression.allRows(table)).stream()
+                    .filter(filter::apply).map(BoardGame::getName).collect(Collectors.toList());
+            assertEquals(expected, names(condition), condition);
+        }
+    }
+
+    @Test
+    public void testRepeatedNamesShareDictionaryCodes() {
+        games.add(new BoardGame("Chess", 9, 2, 2, 10, 20, 2.0, 900, 6.0, 2010));
+        games.add(new BoardGame("CHESS", 10, 2, 2, 10, 20, 2.0, 1000, 6.0, 2011));
+        table = new GameTable(games);
+        NameDictionary dictionary = table.dictionary();
+        assertEquals(9, dictionary.size());
+        int[] codes = table.nameCodes();
+        assertEquals(dictionary.name(codes[1]), table.game(1).getName());
+        assertSame(dictionary.lowerName(codes[1]), dictionary.lowerName(codes[3]));
+        assertEquals(List.of("CHESS", "Chess", "Chess"),
+                names("name==chess").stream().sorted().collect(Collectors.toList()));
+        assertEquals(7, names("name!=chess").size());
+
+        NameDictionary grown = new NameDictionary();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 40, grown.intern("Game " + i % 40));
+        }
+        assertEquals(40, grown.size());
+        assertEquals("Game 7", grown.name(7));
+    }
+}
@@ -0,0 +1,144 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for saving and loading game lists in every format.
+ */
+public class GameListIOTest {
+
+    @TempDir
+    Path dir;
+
+    List<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        games = new ArrayList<>();
+        games.add(new BoardGame("7 Wonders", 1, 2, 7, 30, 30, 2.3, 60, 7.7, 2010));
+        games.add(new BoardGame("Catan, \"Cities\"", 2, 3, 4, 60, 120, 2.6, 300, 7.1, 1998));
+        games.add(new BoardGame("Émile & ß", 3, 1, 1, 5, 10, 1.0, 9000, 5.25, 2021));
+    }
+
+    /**
+     * Compares every column of two game lists.
+     *
+     * @param expected the expected games
+     * @param actual the loaded games
+     */
+    private static void assertSameGames(List<BoardGame> expected, List<BoardGame> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testRoundTripEveryFormat() throws IOException {
+        for (String name : new String[] {"list.csv", "list.jsonl", "list.bin"}) {
+            Path file = dir.resolve(name);
+            GameListIO.save(games, games.size(), file, GameListIO.Format.forFile(name));
+            assertSameGames(games, GameListIO.load(file, n -> List.of()));
+        }
+    }
+
+    @Test
+    public void testTextListsResolveNames() throws IOException {
+        Path file = dir.resolve("list.txt");
+        GameListIO.save(games, games.size(), file, GameListIO.Format.TEXT);
+        assertEquals(List.of("7 Wonders", "Catan, \"Cities\"", "Émile & ß"),
+                Files.readAllLines(file));
+        FilterResult catalog = new FilterResult(games);
+        assertSameGames(games, GameListIO.load(file, catalog::findByName));
+
+        Files.writeString(file, "7 Wonders\nNo Such Game\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> GameListIO.load(file, catalog::findByName));
+        assertEquals("Unknown games in list.txt: No Such Game", e.getMessage());
+    }
+
+    @Test
+    public void testSaveKeepsPermissions() throws IOException {
+        if (!dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        Path file = dir.resolve("list.csv");
+        Files.writeString(file, "old\n");
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+        GameListIO.save(games, games.size(), file, GameListIO.Format.CSV);
+        assertEquals("rw-r-----",
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+    }
+
+    @Test
+    public void testFailedSaveKeepsOldFile() throws IOException {
+        Path file = dir.resolve("list.txt");
+        Files.writeString(file, "old\n");
+        Iterable<BoardGame> failing = () -> new Iterator<>() {
+            int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public BoardGame next() {
+                if (next == games.size()) {
+                    throw new IllegalStateException("list changed");
+                }
+                return games.get(next++);
+            }
+        };
+        assertThrows(IllegalStateException.class, () ->
+                GameListIO.save(failing, games.size(), file, GameListIO.Format.TEXT));
+        assertEquals("old\n", Files.readString(file));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testLargeListThroughGameList() throws IOException {
+        List<BoardGame> many = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            many.add(new BoardGame("Game " + i, i, 1, 4, 30, 60, 2.5, i, 7.5, 2000));
+        }
+        IQueryGameList list = new GameList();
+        list.addToList("all", new FilterResult(many));
+        for (String name : new String[] {"big.txt", "big.csv", "big.jsonl", "big.bin"}) {
+            String file = dir.resolve(name).toString();
+            list.saveGame(file);
+            IQueryGameList loaded = new GameList();
+            loaded.loadGame(file, new FilterResult(many));
+            assertEquals(list.getGameNames(), loaded.getGameNames(), name);
+        }
+    }
+
+    @Test
+    public void testMalformedFiles() throws IOException {
+        Path bin = dir.resolve("bad.bin");
+        Files.writeString(bin, "nope");
+        assertThrows(IllegalArgumentException.class, () -> GameListIO.load(bin, n -> List.of()));
+        Path jsonl = dir.resolve("bad.jsonl");
+        Files.writeString(jsonl, "{\"objectname\":\"x\"}\n");
+        assertThrows(IllegalArgumentException.class, () ->
+                GameListIO.load(jsonl, n -> List.of()));
+        IQueryGameList list = new GameList();
+        assertThrows(IllegalArgumentException.class, () ->
+                list.loadGame(dir.resolve("missing.csv").toString(), FilterResult.EMPTY));
+    }
+}
@@ -0,0 +1,94 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the game list journal: recovery, torn records and compaction.
+ */
+public class GameListJournalTest {
+
+    @TempDir
+    Path dir;
+
+    FilterResult games;
+
+    @BeforeEach
+    public void setup() {
+        List<BoardGame> many = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            many.add(new BoardGame(String.format("Game %03d", i), i, 1, 4, 30, 60, 2.5, i, 7.5,
+                    2000));
+        }
+        games = new FilterResult(many);
+    }
+
+    @Test
+    public void testRecoversWithoutClose() throws IOException {
+        GameListJournal journal = GameListJournal.open(dir);
+        IQueryGameList list = new GameList(journal);
+        list.addToList("1-10", games);
+        list.removeFromList("2-3");
+        list.addToList("game 250", games);
+        journal.sync(); // the process "crashes" here, the journal is never closed
+        try (GameListJournal reopened = GameListJournal.open(dir)) {
+            assertEquals(list.getGameNames(), new GameList(reopened).getGameNames());
+        }
+    }
+
+    @Test
+    public void testClearIsReplayed() throws IOException {
+        try (GameListJournal journal = GameListJournal.open(dir)) {
+            IQueryGameList list = new GameList(journal);
+            list.addToList("all", games);
+            list.clear();
+            list.addToList("5", games);
+        }
+        try (GameListJournal journal = GameListJournal.open(dir)) {
+            assertEquals(List.of("Game 004"), new GameList(journal).getGameNames());
+        }
+    }
+
+    @Test
+    public void testTornTailIsIgnored() throws IOException {
+        try (GameListJournal journal = GameListJournal.open(dir)) {
+            new GameList(journal).addToList("1-3", games);
+        }
+        Path log = dir.resolve("journal-0.log");
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+        try (GameListJournal journal = GameListJournal.open(dir)) {
+            assertEquals(List.of("Game 000", "Game 001", "Game 002"),
+                    new GameList(journal).getGameNames());
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsFewFiles() throws IOException {
+        IQueryGameList list;
+        try (GameListJournal journal = GameListJournal.open(dir)) {
+            list = new GameList(journal);
+            for (int round = 0; round < 20; round++) {
+                list.addToList("1-200", games);
+                list.removeFromList("1-150");
+            }
+        }
+        try (var files = Files.list(dir)) {
+            List<String> names = files.map(f -> f.getFileName().toString()).toList();
+            assertTrue(names.size() <= 3, "files left: " + names);
+            assertTrue(names.stream().anyMatch(n -> n.startsWith("snapshot-")), "" + names);
+        }
+        try (GameListJournal journal = GameListJournal.open(dir)) {
+            assertEquals(list.getGameNames(), new GameList(journal).getGameNames());
+        }
+    }
+}
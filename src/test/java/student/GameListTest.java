@@ -1,7 +1,9 @@
 package student;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -157,4 +159,105 @@ public class GameListTest {
         file.delete();
         file.getParentFile().delete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRemoveByIndexMatchesListedOrder() {
+        IGameList list = new GameList();
+        list.addToList("all", games.stream());
+        List<String> names = list.getGameNames();
+        assertEquals(List.of("17 days", "Chess", "Go", "Go Fish", "golang", "GoRami",
+                "Monopoly"), names);
+        list.removeFromList("2");
+        assertEquals(List.of("17 days", "Go", "Go Fish", "golang", "GoRami", "Monopoly"),
+                list.getGameNames());
+        list.removeFromList("2-4");
+        assertEquals(List.of("17 days", "GoRami", "Monopoly"), list.getGameNames());
+        list.removeFromList("MONOPOLY");
+        assertEquals(List.of("17 days", "GoRami"), list.getGameNames());
+        assertThrows(IllegalArgumentException.class, () -> list.removeFromList("3"));
+        assertThrows(IllegalArgumentException.class, () -> list.removeFromList("Chess"));
+    }
+
+    @Test
+    void testLargeListStaysSorted() {
+        Random random = new Random(3);
+        List<BoardGame> many = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            many.add(new BoardGame("Game " + random.nextInt(100000), i, 1, 4, 30, 60, 2.0, i,
+                    7.0, 2000));
+        }
+        IGameList list = new GameList();
+        list.addToList("all", many.stream());
+        List<String> expected = new ArrayList<>(list.getGameNames());
+        for (int i = 0; i < 200; i++) {
+            int index = random.nextInt(expected.size());
+            list.removeFromList(String.valueOf(index + 1));
+            expected.remove(index);
+        }
+        list.removeFromList("10-110");
+        expected.subList(9, 110).clear();
+        assertEquals(expected, list.getGameNames());
+        List<String> sorted = new ArrayList<>(expected);
+        sorted.sort(String.CASE_INSENSITIVE_ORDER);
+        assertEquals(sorted, expected);
+    }
+
+    @Test
+    void testAddFromCurrentResult() {
+        IQueryPlanner planner = new Planner(games);
+        IQueryGameList list = new GameList();
+        list.addToList("1", planner.currentResult()); // nothing filtered yet, all games by name
+        assertEquals(List.of("17 days"), list.getGameNames());
+        planner.filter("name~=go", GameData.RATING, false);
+        list.addToList("1-2", planner.currentResult()); // shown order: Go 8.0, GoRami 7.3
+        assertEquals(List.of("17 days", "Go", "GoRami"), list.getGameNames());
+        list.addToList("GOLANG", planner.currentResult());
+        assertEquals(4, list.count());
+        assertThrows(IllegalArgumentException.class, () ->
+                list.addToList("Chess", planner.currentResult()));
+        planner.reset();
+        list.addToList("all", planner.currentResult());
+        assertEquals(games.size(), list.count());
+    }
+
+    @Test
+    void testBulkAddMergesWithExisting() {
+        List<BoardGame> many = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            many.add(new BoardGame("Game " + (i * 7919 % 3000), i, 1, 4, 30, 60, 2.0, i, 7.0,
+                    2000));
+        }
+        FilterResult result = new FilterResult(many);
+        IQueryGameList list = new GameList();
+        list.addToList("1-10", result);
+        list.addToList("5-1500", result);
+        list.addToList("1400-3000", result);
+        list.addToList("all", result);
+        List<String> names = list.getGameNames();
+        assertEquals(3000, names.size());
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(String.CASE_INSENSITIVE_ORDER);
+        assertEquals(sorted, names);
+        assertEquals(List.of(many.get(42)), result.findByName("GAME " + (42 * 7919 % 3000)));
+    }
+
+    @Test
+    void testPositionsBeforeNames() {
+        FilterResult result = new FilterResult(List.of(
+                new BoardGame("2", 1, 1, 4, 30, 60, 2.0, 1, 7.0, 2000),
+                new BoardGame("1830", 2, 3, 6, 180, 360, 4.0, 2, 8.0, 1986),
+                new BoardGame("Go", 3, 2, 2, 20, 120, 4.0, 3, 8.0, 2000)));
+        IQueryGameList list = new GameList();
+        list.addToList("2", result);
+        assertEquals(List.of("1830"), list.getGameNames());
+        list.addToList("2", new FilterResult(List.of(result.get(0))));
+        assertEquals(List.of("1830", "2"), list.getGameNames());
+        list.addToList("go", result);
+        assertEquals(3, list.count());
+        assertThrows(IllegalArgumentException.class, () -> list.addToList("4", result));
+        assertThrows(IllegalArgumentException.class, () -> list.addToList("Chess", result));
+        IGameList byName = new GameList();
+        byName.addToList("2", result.stream());
+        assertEquals(List.of("2"), byName.getGameNames());
+    }
+}
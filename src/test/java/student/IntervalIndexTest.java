@@ -0,0 +1,74 @@
+package student;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the interval index and fit queries.
+ */
+public class IntervalIndexTest {
+
+    Set<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        games = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int minPlayers = random.nextInt(5);
+            int maxPlayers = minPlayers + random.nextInt(6) - 1; // sometimes below the minimum
+            int minTime = 10 * random.nextInt(12);
+            games.add(new BoardGame("Game " + i, i, minPlayers, maxPlayers, minTime,
+                    minTime + 5 * random.nextInt(20), random.nextDouble() * 5, i + 1,
+                    random.nextDouble() * 10, 1990 + random.nextInt(30)));
+        }
+    }
+
+    @Test
+    public void testStabMatchesRanges() {
+        GameTable table = new GameTable(games);
+        IntervalIndex index = table.intervals(GameData.MIN_TIME, GameData.MAX_TIME);
+        for (double point = -5; point <= 220; point += 2.5) {
+            BitSet expected = new BitSet();
+            for (int row = 0; row < table.size(); row++) {
+                if (table.value(GameData.MIN_TIME, row) <= point
+                        && table.value(GameData.MAX_TIME, row) >= point) {
+                    expected.set(row);
+                }
+            }
+            BitSet actual = new BitSet();
+            index.stab(point, actual::set);
+            assertEquals(expected, actual, "point " + point);
+            assertEquals(expected.cardinality(), index.count(point), "point " + point);
+        }
+    }
+
+    @Test
+    public void testFitMatchesFilter() {
+        Planner planner = new Planner(games);
+        List<SortCriterion> sort = SortCriterion.parseList("rating:desc");
+        for (int players = 1; players <= 10; players++) {
+            for (int minutes = 0; minutes <= 240; minutes += 15) {
+                String filter = String.format("min_players<=%d,max_players>=%d,max_time<=%d",
+                        players, players, minutes);
+                assertEquals(planner.query(filter, sort), planner.fit(players, minutes, sort),
+                        filter);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidFit() {
+        Planner planner = new Planner(games);
+        assertThrows(IllegalArgumentException.class, () -> planner.fit(0, 60, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> planner.fit(2, -1, List.of()));
+    }
+}
@@ -0,0 +1,97 @@
+package student;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the multi-column index.
+ */
+public class KdTreeTest {
+
+    static final List<String> FILTERS = List.of("rating>7,difficulty<3,year>=2010",
+            "rating>8.5,difficulty<1,year>=2000,max_time<=60", "rating>=6,rating<7,year==1990",
+            "rating>2,difficulty<4", "rating>9.5,difficulty>4.5", "year<1950,rating>1",
+            "rating>5,difficulty<2,name~=1", "rating>5,difficulty<2,min_players==2",
+            "(rating>8|year<1960),difficulty<=2.5", "!(rating>5,year>2000)");
+
+    Set<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        games = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            int minTime = 10 + 5 * random.nextInt(30);
+            games.add(new BoardGame("Game " + i, i, 1 + random.nextInt(4), 4 + random.nextInt(4),
+                    minTime, minTime + 5 * random.nextInt(30), random.nextInt(50) / 10.0, i + 1,
+                    random.nextDouble() * 10, 1950 + random.nextInt(70)));
+        }
+    }
+
+    @Test
+    public void testPlansMatchWithoutTree() {
+        GameTable plain = new GameTable(games);
+        GameTable indexed = new GameTable(games);
+        assertTrue(indexed.buildKdTree(KdTree.DEFAULT_COLUMNS, 64L << 20));
+        QueryPlanner planner = new QueryPlanner(indexed.statistics(), indexed.kdTree());
+        boolean used = false;
+        for (String filter : FILTERS) {
+            FilterExpression expression = FilterParser.parse(filter).optimize();
+            QueryPlan plan = planner.plan(expression);
+            assertEquals(expression.evaluate(plain), plan.execute(indexed), filter);
+            used |= plan.explain().contains("KD_TREE_PROBE");
+        }
+        assertTrue(used);
+    }
+
+    @Test
+    public void testProbeWithoutCopiedValues() {
+        GameTable table = new GameTable(games);
+        // room for the rows and boxes but not for a copy of the values
+        KdTree tree = KdTree.build(table, KdTree.DEFAULT_COLUMNS, 400_000);
+        assertTrue(tree.bytes() <= 400_000);
+        Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            double rating = random.nextDouble() * 10;
+            int year = 1950 + random.nextInt(70);
+            List<FilterExpression.Range> ranges = List.of(
+                    FilterExpression.Range.of(GameData.RATING, rating, false, rating + 2, true),
+                    FilterExpression.Range.of(GameData.YEAR, year, true, year + 10, false));
+            assertEquals(FilterExpression.and(List.copyOf(ranges)).evaluate(table),
+                    tree.probe(ranges));
+        }
+    }
+
+    @Test
+    public void testBudgetAndColumns() {
+        GameTable table = new GameTable(games);
+        assertFalse(table.buildKdTree(KdTree.DEFAULT_COLUMNS, 1024));
+        assertEquals(null, table.kdTree());
+        assertThrows(IllegalArgumentException.class,
+                () -> table.buildKdTree(List.of(GameData.RATING), 64L << 20));
+        assertThrows(IllegalArgumentException.class,
+                () -> table.buildKdTree(List.of(GameData.RATING, GameData.NAME), 64L << 20));
+        assertThrows(IllegalArgumentException.class,
+                () -> table.buildKdTree(List.of(GameData.RATING, GameData.RATING), 64L << 20));
+    }
+
+    @Test
+    public void testPlannerUsesTree() {
+        GameTable table = new GameTable(games);
+        table.buildKdTree(KdTree.DEFAULT_COLUMNS, 64L << 20);
+        Planner planner = new Planner(table);
+        Planner plain = new Planner(games);
+        String filter = "rating>8.5,difficulty<1,year>=2000,max_time<=60";
+        assertTrue(planner.explain(filter).contains("KD_TREE_PROBE"), planner.explain(filter));
+        assertEquals(plain.query(filter, List.of()), planner.query(filter, List.of()));
+    }
+}
@@ -0,0 +1,54 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the precomputed name sort keys.
+ */
+public class NameCollationTest {
+
+    @Test
+    public void testMatchesCaseInsensitiveOrder() {
+        Random random = new Random(7);
+        String alphabet = "aAbBzZ 09:-éÉßİıøØ";
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            names.add(sb.toString());
+        }
+        for (String a : names) {
+            for (String b : names.subList(0, 50)) {
+                int expected = Integer.signum(String.CASE_INSENSITIVE_ORDER.compare(a, b));
+                NameCollation collation = NameCollation.CASE_INSENSITIVE;
+                int actual = Integer.signum(NameCollation.compare(collation.key(a),
+                        collation.key(b)));
+                assertEquals(expected, actual, a + " vs " + b);
+            }
+        }
+    }
+
+    @Test
+    public void testLocaleAwareSort() {
+        Set<BoardGame> games = new HashSet<>();
+        games.add(new BoardGame("Fox", 1, 2, 4, 30, 30, 2, 1, 7, 2000));
+        games.add(new BoardGame("Émile", 2, 2, 4, 30, 30, 2, 2, 7, 2000));
+        games.add(new BoardGame("eagle", 3, 2, 4, 30, 30, 2, 3, 7, 2000));
+        IPlanner planner = new Planner(games, NameCollation.forLocale(Locale.FRENCH));
+        assertEquals(List.of("eagle", "Émile", "Fox"),
+                planner.filter("").map(BoardGame::getName).toList());
+        planner = new Planner(games);
+        assertEquals(List.of("eagle", "Fox", "Émile"),
+                planner.filter("").map(BoardGame::getName).toList());
+    }
+}
@@ -0,0 +1,60 @@
+package student;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the off-heap catalog.
+ */
+public class OffHeapGameStoreTest {
+
+    Set<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(5);
+        games = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            games.add(new BoardGame("Spiel " + random.nextInt(4000) + (i % 9 == 0 ? " ü𝄞" : ""),
+                    i, 1 + random.nextInt(4), 2 + random.nextInt(8), 10 * (1 + random.nextInt(6)),
+                    10 * (6 + random.nextInt(12)), 1 + random.nextDouble() * 4, i + 1,
+                    5 + random.nextDouble() * 4, 1990 + random.nextInt(35)));
+        }
+    }
+
+    @Test
+    public void testQueriesMatchHeapTable() {
+        IQueryPlanner offHeap = new Planner(GameTable.offHeap(games,
+                NameCollation.CASE_INSENSITIVE));
+        IQueryPlanner heap = new Planner(games);
+        String[] filters = {"", "rating>8", "rank<50|minPlayers==4", "name~=spiel 1,year>2010",
+            "!(maxPlaytime>100),difficulty<2"};
+        for (String filter : filters) {
+            List<SortCriterion> sort = SortCriterion.parseList("difficulty:asc,name:desc");
+            assertEquals(heap.filter(filter, sort).map(BoardGame::toString).toList(),
+                    offHeap.filter(filter, sort).map(BoardGame::toString).toList(), filter);
+        }
+    }
+
+    @Test
+    public void testGamesAreDecodedFromColumns() {
+        GameTable table = GameTable.offHeap(games, NameCollation.CASE_INSENSITIVE);
+        GameTable heap = new GameTable(games);
+        assertEquals(heap.size(), table.size());
+        for (int row = 0; row < table.size(); row++) {
+            BoardGame game = table.game(row);
+            assertEquals(heap.game(row).toString(), game.toString());
+            assertEquals(heap.game(row).getName(), game.getName());
+            assertEquals(heap.lowerName(row), table.lowerName(row));
+        }
+        ColumnIndex index = table.index(GameData.RANK);
+        assertEquals(1.0, index.value(0));
+        assertEquals(1, table.game(index.row(0)).getRank());
+    }
+}
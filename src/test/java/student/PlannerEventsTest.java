@@ -0,0 +1,53 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the flight recorder events.
+ */
+public class PlannerEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testFilterAndSaveEventsAreRecorded() throws IOException {
+        Set<BoardGame> games = TestGames.numbered(50);
+        Path file = dir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("student.Filter").withThreshold(Duration.ZERO);
+            recording.enable("student.SaveList").withThreshold(Duration.ZERO);
+            recording.start();
+            Planner planner = new Planner(games);
+            planner.filter("rating>=8", GameData.RATING, false).count();
+            GameList list = new GameList();
+            list.addToList("all", planner.currentResult());
+            list.saveGame(dir.resolve("list.txt").toString());
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> filters = events.stream()
+                .filter(e -> e.getEventType().getName().equals("student.Filter"))
+                .collect(Collectors.toList());
+        assertEquals(1, filters.size());
+        assertEquals("rating>=8", filters.get(0).getString("filter"));
+        assertEquals(50, filters.get(0).getInt("rowsIn"));
+        assertEquals(20, filters.get(0).getInt("rowsOut"));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName()
+                .equals("student.SaveList") && e.getInt("games") == 20));
+    }
+}
@@ -0,0 +1,72 @@
+package student;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the planner metrics.
+ */
+public class PlannerMetricsTest {
+
+    Set<BoardGame> games;
+    PlannerMetrics metrics = PlannerMetrics.get();
+
+    @BeforeEach
+    public void setup() {
+        games = TestGames.numbered(100);
+        metrics.reset();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(10000, histogram.count());
+        assertEquals(10_000_000, histogram.max());
+        assertEquals(5_000_000, histogram.percentile(50), 5_000_000 * 0.04);
+        assertEquals(9_900_000, histogram.percentile(99), 9_900_000 * 0.04);
+        for (long value : new long[] {0, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.highestValue(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        new Planner(games).filter("rating>7");
+        assertEquals(0L, (long) metrics.getOperationCounts().get("FILTER"));
+        assertEquals(0, metrics.getRowsScanned());
+    }
+
+    @Test
+    public void testFilterAndListOperationsAreRecorded() {
+        metrics.setEnabled(true);
+        Planner planner = new Planner(games);
+        long returned = planner.filter("rating>=8,minPlayers==1").count();
+        GameList list = new GameList();
+        list.addToList("all", planner.currentResult());
+        list.removeFromList("1");
+        assertEquals(1L, (long) metrics.getOperationCounts().get("FILTER"));
+        assertEquals(1L, (long) metrics.getOperationCounts().get("LIST_ADD"));
+        assertEquals(1L, (long) metrics.getOperationCounts().get("LIST_REMOVE"));
+        assertEquals(returned, metrics.getRowsReturned());
+        assertTrue(metrics.getRowsScanned() >= returned);
+        assertTrue(metrics.getMaxMicros().get("FILTER") > 0);
+        assertTrue(metrics.toJson().contains("\"rowsReturned\":" + returned));
+        assertTrue(metrics.toText().contains("FILTER"));
+    }
+}
@@ -0,0 +1,138 @@
+package student;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the HTTP server.
+ */
+public class PlannerServerTest {
+
+    PlannerServer server;
+    HttpClient client;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        Set<BoardGame> games = TestGames.numbered(300);
+        server = new PlannerServer(new Planner(games), GameList::new,
+                new InetSocketAddress("localhost", 0), 2);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:"
+                + server.port() + path)).method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPagedQuery() throws Exception {
+        HttpResponse<String> response = send("GET", "/games?filter=" + encode("rank<=20")
+                + "&sort=rating:desc,rank&direction=desc&offset=2&limit=3");
+        assertEquals(200, response.statusCode());
+        Map<String, Object> page = Json.parseObject(response.body()
+                .replaceFirst(",\"games\":\\[.*\\]", ""));
+        assertEquals(Map.of("total", 20.0, "offset", 2.0, "limit", 3.0), page);
+        // ratings 9 are ranks 5, 10, 15 and 20; rank is descending too
+        assertTrue(response.body().contains("\"games\":[{\"objectname\":\"Game 9\""),
+                response.body());
+        assertEquals(3, response.body().split("\"objectname\"").length - 1);
+    }
+
+    @Test
+    public void testBadParameters() throws Exception {
+        assertEquals(400, send("GET", "/games?filter=" + encode("colour>3")).statusCode());
+        assertEquals(400, send("GET", "/games?limit=0").statusCode());
+        assertEquals(400, send("GET", "/games?direction=up").statusCode());
+        assertEquals(405, send("POST", "/games").statusCode());
+        assertEquals(404, send("GET", "/lists/a%20b").statusCode());
+    }
+
+    @Test
+    public void testFacets() throws Exception {
+        HttpResponse<String> response = send("GET", "/facets?filter=" + encode("rank<=20")
+                + "&group=min_players&measure=rating");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"total\":20,"), response.body());
+        assertTrue(response.body().contains("\"keys\":[1,2,3,4],\"counts\":[5,5,5,5]"),
+                response.body());
+        assertEquals(400, send("GET", "/facets?group=year&width=0").statusCode());
+        assertEquals(400, send("GET", "/facets?group=name").statusCode());
+        assertEquals(400, send("GET", "/facets").statusCode());
+    }
+
+    @Test
+    public void testNight() throws Exception {
+        HttpResponse<String> response = send("GET", "/night?players=4&minutes=120&filter="
+                + encode("rank<=20"));
+        assertEquals(200, response.statusCode());
+        // every game takes 60 minutes, so the two best rated of those for 4 players
+        assertTrue(response.body().startsWith("{\"players\":4,\"minutes\":120,"
+                + "\"totalMinutes\":120,\"totalValue\":18.0,\"optimal\":true,"),
+                response.body());
+        assertEquals(2, response.body().split("\"objectname\"").length - 1);
+        assertEquals(200, send("GET", "/night?players=4&minutes=2147483647").statusCode());
+        assertEquals(400, send("GET", "/night?players=4").statusCode());
+        assertEquals(400, send("GET", "/night?players=4&minutes=60&weight=fun").statusCode());
+        assertEquals(404, send("GET", "/night?players=4&minutes=60&session=none").statusCode());
+    }
+
+    @Test
+    public void testSimilar() throws Exception {
+        // games 60 apart share every attribute, the lowest in name order come first
+        String body = send("GET", "/similar?count=3&name=" + encode("game 0")).body();
+        assertTrue(body.startsWith("{\"game\":{\"objectname\":\"Game 0\","), body);
+        assertTrue(body.contains(",\"count\":3,\"games\":[{\"objectname\":\"Game 120\","),
+                body);
+        assertTrue(body.indexOf("\"Game 180\"") < body.indexOf("\"Game 240\""), body);
+        assertEquals(400, send("GET", "/similar?count=3").statusCode());
+        assertEquals(404, send("GET", "/similar?name=nothing").statusCode());
+    }
+
+    @Test
+    public void testSessionLists() throws Exception {
+        assertEquals(200, send("POST", "/lists/alice?add=1-3&filter=" + encode("rank<10")
+                + "&sort=rank:desc").statusCode());
+        assertEquals(200, send("POST", "/lists/bob?add=" + encode("game 7")).statusCode());
+        assertEquals(503, send("GET", "/lists/carol").statusCode());
+
+        String alice = send("GET", "/lists/alice").body();
+        assertEquals("{\"session\":\"alice\",\"count\":3,"
+                + "\"games\":[\"Game 6\",\"Game 7\",\"Game 8\"]}", alice);
+        assertEquals("{\"session\":\"alice\",\"count\":2,\"games\":[\"Game 6\",\"Game 8\"]}",
+                send("POST", "/lists/alice?remove=" + encode("game 7")).body());
+        assertEquals(400, send("POST", "/lists/bob?add=" + encode("no such game"))
+                .statusCode());
+
+        assertEquals(200, send("DELETE", "/lists/bob").statusCode());
+        assertEquals("{\"session\":\"carol\",\"count\":0,\"games\":[]}",
+                send("GET", "/lists/carol").body());
+        assertTrue(send("GET", "/metrics").body()
+                .contains("\"responses4xx\":1,\"responses5xx\":1"));
+    }
+}
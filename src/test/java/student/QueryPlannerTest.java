@@ -0,0 +1,105 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the statistics, the cost-based planner and explain.
+ */
+public class QueryPlannerTest {
+
+    GameTable table;
+    QueryPlanner planner;
+
+    @BeforeEach
+    public void setup() {
+        Random random = new Random(42);
+        List<BoardGame> games = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            games.add(new BoardGame("Game " + i, i, 1 + random.nextInt(4), 2 + random.nextInt(8),
+                    10 * (1 + random.nextInt(6)), 10 * (6 + random.nextInt(12)),
+                    1 + random.nextDouble() * 4, i + 1, 5 + random.nextDouble() * 4,
+                    1990 + random.nextInt(35)));
+        }
+        table = new GameTable(games);
+        planner = new QueryPlanner(ColumnStatistics.of(table));
+    }
+
+    @Test
+    public void testSmallDomainEstimatesAreExact() {
+        for (String filter : new String[] {"minPlayers==2", "year>=2010", "maxPlayers<5"}) {
+            FilterExpression expression = FilterParser.parse(filter).optimize();
+            QueryPlan plan = planner.plan(expression);
+            assertEquals(expression.evaluate(table).cardinality(),
+                    Math.round(plan.getEstimatedRows()), filter);
+        }
+    }
+
+    @Test
+    public void testRareValuesKeepTheirOwnBoundary() {
+        double[] years = new double[2003];
+        for (int i = 0; i < years.length; i++) {
+            years[i] = i < 1000 ? 2000 : i < 1003 ? 2001 : 2002;
+        }
+        ColumnStatistics.Histogram histogram = ColumnStatistics.Histogram.build(years);
+        assertEquals(3, histogram.buckets());
+        assertEquals(3, histogram.countAtMost(2001) - histogram.countBelow(2001));
+
+        double[] ratings = new double[10_000];
+        for (int i = 0; i < ratings.length; i++) {
+            ratings[i] = i / 1000.0;
+        }
+        histogram = ColumnStatistics.Histogram.build(ratings);
+        assertTrue(histogram.buckets() <= ColumnStatistics.BUCKETS + 2, "" + histogram.buckets());
+    }
+
+    @Test
+    public void testHistogramEstimateIsClose() {
+        FilterExpression expression = FilterParser.parse("rating>8").optimize();
+        double estimate = planner.plan(expression).getEstimatedRows();
+        int actual = expression.evaluate(table).cardinality();
+        assertTrue(Math.abs(estimate - actual) < table.size() * 0.05, estimate + " vs " + actual);
+    }
+
+    @Test
+    public void testSelectiveRangeUsesIndex() {
+        QueryPlan plan = planner.plan(FilterParser.parse("rank<20").optimize());
+        assertEquals(QueryPlan.Strategy.INDEX_PROBE, plan.getStrategy());
+        plan = planner.plan(FilterParser.parse("rank>20").optimize());
+        assertEquals(QueryPlan.Strategy.FULL_SCAN, plan.getStrategy());
+    }
+
+    @Test
+    public void testMostSelectiveConditionRunsFirst() {
+        QueryPlan plan = planner.plan(FilterParser.parse("year>1991,rank<=10").optimize());
+        assertEquals(QueryPlan.Strategy.FILTERED_SCAN, plan.getStrategy());
+        assertEquals("rank<=10", plan.getChildren().get(0).getExpression().toString());
+    }
+
+    @Test
+    public void testPlansMatchDirectEvaluation() {
+        String[] filters = {"rating>7,difficulty<3,year>2000", "rank<50|minPlayers==4",
+            "!(maxPlaytime>100),name~=game 1", "(year<1995|year>2020),rating>8.5,minPlayers<=2"};
+        for (String filter : filters) {
+            FilterExpression expression = FilterParser.parse(filter).optimize();
+            QueryPlan plan = planner.plan(expression);
+            assertEquals(expression.evaluate(table), plan.execute(table), filter);
+            assertEquals(expression.evaluate(table).cardinality(), plan.getActualRows());
+        }
+    }
+
+    @Test
+    public void testExplain() {
+        IQueryPlanner games = new Planner(new java.util.HashSet<>(List.of(table.game(0),
+                table.game(1), table.game(2))));
+        String explain = games.explain("rating>0,name~=game");
+        assertTrue(explain.contains("actual=3"), explain);
+        assertTrue(explain.startsWith("Filter: rating>0.0,name~=game"), explain);
+    }
+}
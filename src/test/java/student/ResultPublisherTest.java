@@ -0,0 +1,158 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for publishing filter results with backpressure.
+ */
+public class ResultPublisherTest {
+
+    Planner planner;
+
+    @BeforeEach
+    public void setup() {
+        Set<BoardGame> games = TestGames.numbered(400, 350);
+        planner = new Planner(games);
+    }
+
+    /** Requests a given number of games at a time and collects them. */
+    static final class Collector implements Flow.Subscriber<BoardGame> {
+        final int batch;
+        final List<BoardGame> games = new ArrayList<>();
+        final CompletableFuture<List<BoardGame>> done = new CompletableFuture<>();
+        Flow.Subscription subscription;
+        int outstanding;
+
+        Collector(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            outstanding = batch;
+            s.request(batch);
+        }
+
+        @Override
+        public void onNext(BoardGame game) {
+            games.add(game);
+            if (--outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            done.completeExceptionally(e);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(games);
+        }
+    }
+
+    private List<BoardGame> collect(String filter, List<SortCriterion> sort, int batch)
+            throws Exception {
+        Collector collector = new Collector(batch);
+        planner.publish(filter, sort).subscribe(collector);
+        return collector.done.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testMatchesQuery() throws Exception {
+        List<String> sorts = List.of("name", "name:desc", "rating:desc", "min_players,rating:desc",
+                "year:desc,name:desc", "max_players:desc,difficulty", "rank:desc", "id");
+        for (String filter : List.of("", "rating>5", "rank<5", "name~=game 1")) {
+            for (String sort : sorts) {
+                List<SortCriterion> keys = SortCriterion.parseList(sort);
+                List<BoardGame> expected = planner.query(filter, keys);
+                assertEquals(expected, collect(filter, keys, 1), filter + " sort:" + sort);
+                assertEquals(expected, collect(filter, keys, 1000), filter + " sort:" + sort);
+            }
+        }
+    }
+
+    @Test
+    public void testBackpressureAndCancel() throws Exception {
+        List<BoardGame> received = new CopyOnWriteArrayList<>();
+        CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+        CompletableFuture<Void> ended = new CompletableFuture<>();
+        planner.publish("", List.of(new SortCriterion(GameData.RATING, false)))
+                .subscribe(new Flow.Subscriber<>() {
+                    @Override
+                    public void onSubscribe(Flow.Subscription s) {
+                        subscribed.complete(s);
+                    }
+
+                    @Override
+                    public void onNext(BoardGame game) {
+                        received.add(game);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        ended.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        ended.complete(null);
+                    }
+                });
+        Flow.Subscription subscription = subscribed.get(10, TimeUnit.SECONDS);
+        subscription.request(3);
+        Thread.sleep(200);
+        assertEquals(3, received.size());
+        assertFalse(ended.isDone());
+        subscription.cancel();
+        subscription.request(5);
+        Thread.sleep(100);
+        assertEquals(3, received.size());
+        assertFalse(ended.isDone());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> planner.publish("colour>3",
+                List.of()));
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        planner.publish("", List.of()).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(0);
+            }
+
+            @Override
+            public void onNext(BoardGame game) {
+                error.completeExceptionally(new AssertionError("no games were requested"));
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                error.complete(e);
+            }
+
+            @Override
+            public void onComplete() {
+                error.completeExceptionally(new AssertionError("not complete"));
+            }
+        });
+        assertTrue(error.get(10, TimeUnit.SECONDS) instanceof IllegalArgumentException);
+    }
+}
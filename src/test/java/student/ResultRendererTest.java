@@ -0,0 +1,75 @@
+package student;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the result renderer, checked against String.format.
+ */
+public class ResultRendererTest {
+
+    @Test
+    public void testFixedMatchesFormat() {
+        Random random = new Random(41);
+        List<Double> values = new ArrayList<>(List.of(0.0, -0.0, 1.005, 2.675, 0.125, -0.125,
+                9.995, 0.004999, -0.001, 7.5, 1e12, -3.14159, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.MIN_VALUE));
+        for (int i = 0; i < 20_000; i++) {
+            values.add((random.nextDouble() - 0.2) * 10);
+            values.add(random.nextInt(100_000) / 1000.0); // many ties at three decimals
+        }
+        for (double value : values) {
+            for (int decimals = 1; decimals <= 6; decimals++) {
+                assertEquals(String.format("%." + decimals + "f", value),
+                        ResultRenderer.appendFixed(new StringBuilder(), value, decimals)
+                                .toString(), value + " to " + decimals);
+            }
+        }
+    }
+
+    @Test
+    public void testFixedUsesLocaleSeparator() {
+        Locale saved = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+            assertEquals("7,25", ResultRenderer.appendFixed(new StringBuilder(), 7.25, 2)
+                    .toString());
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, saved);
+        }
+    }
+
+    @Test
+    public void testInfoMatchesBoardGame() {
+        BoardGame game = new BoardGame("Go", 1, 2, 2, 30, 180, 3.875, 12, 7.995, -2200);
+        for (GameData col : GameData.values()) {
+            assertEquals(game.toStringWithInfo(col),
+                    ResultRenderer.appendWithInfo(new StringBuilder(), game, col).toString());
+        }
+    }
+
+    @Test
+    public void testRenderInChunks() throws IOException {
+        List<BoardGame> games = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            BoardGame game = new BoardGame("Game " + i, i, 1, 4, 10, 60, i / 100.0, i, i / 7.0,
+                    2000 + i % 20);
+            games.add(game);
+            expected.append(i + 1).append(": ").append(game.toStringWithInfo(GameData.RATING))
+                    .append(System.lineSeparator());
+        }
+        StringWriter out = new StringWriter();
+        new ResultRenderer(out, 100).render(games.iterator(), GameData.RATING);
+        assertEquals(expected.toString(), out.toString());
+        assertThrows(IllegalArgumentException.class, () -> new ResultRenderer(out, 0));
+    }
+}
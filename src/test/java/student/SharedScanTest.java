@@ -0,0 +1,64 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for evaluating a batch of filters in one pass.
+ */
+public class SharedScanTest {
+
+    static final List<String> FILTERS = List.of("", "rating>7", "rank<5", "name~=game 1",
+            "!(minplayers>2),rating>=6", "year==2005|difficulty<1.5", "name==game 42",
+            "rating>9", "max_players<=5,!(name~=7)", "(rating>6|rank>390),minplayers<3");
+
+    Set<BoardGame> games;
+
+    @BeforeEach
+    public void setup() {
+        games = TestGames.numbered(400);
+    }
+
+    @Test
+    public void testRunMatchesEvaluate() {
+        GameTable table = new GameTable(games);
+        List<FilterExpression> expressions = new ArrayList<>();
+        for (String filter : FILTERS) {
+            expressions.add(FilterParser.parse(filter).optimize());
+        }
+        List<BitSet> rows = SharedScan.run(table, expressions);
+        for (int i = 0; i < FILTERS.size(); i++) {
+            assertEquals(expressions.get(i).evaluate(table), rows.get(i), FILTERS.get(i));
+        }
+    }
+
+    @Test
+    public void testQueryAllMatchesQuery() {
+        Planner planner = new Planner(games);
+        List<QueryRequest> requests = new ArrayList<>();
+        for (int i = 0; i < FILTERS.size(); i++) {
+            requests.add(new QueryRequest(FILTERS.get(i), i % 2 == 0 ? List.of()
+                    : SortCriterion.parseList("rating:desc,year")));
+        }
+        List<FilterResult> results = planner.queryAll(requests);
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            QueryRequest request = requests.get(i);
+            List<SortCriterion> sort = request.getSortOn().isEmpty()
+                    ? List.of(new SortCriterion(GameData.NAME, true)) : request.getSortOn();
+            assertEquals(planner.query(request.getFilter(), sort), results.get(i),
+                    request.toString());
+        }
+        assertEquals(List.of(), planner.queryAll(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> planner.queryAll(List.of(
+                new QueryRequest("rating>7", List.of()), new QueryRequest("colour>3",
+                        List.of()))));
+    }
+}
@@ -0,0 +1,84 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the similarity index and similar game lookups.
+ */
+public class SimilarityIndexTest {
+
+    private static List<BoardGame> randomGames(int count) {
+        List<BoardGame> games = new ArrayList<>();
+        Random random = new Random(50);
+        for (int i = 0; i < count; i++) {
+            int minPlayers = 1 + random.nextInt(4);
+            int minTime = 15 * (1 + random.nextInt(12));
+            games.add(new BoardGame("Game " + i, i, minPlayers, minPlayers + random.nextInt(6),
+                    minTime, minTime + 15 * random.nextInt(6), 1 + random.nextDouble() * 4,
+                    i + 1, 4 + random.nextGaussian(), 1950 + random.nextInt(75)));
+        }
+        return games;
+    }
+
+    @Test
+    public void testTreesFindTheExactNeighbours() {
+        List<BoardGame> games = randomGames(20_000);
+        SimilarityIndex index = new GameTable(games).similarity();
+        assertEquals(SimilarityIndex.TREES, index.treeCount());
+        Random random = new Random(1);
+        int found = 0;
+        for (int i = 0; i < 200; i++) {
+            BoardGame game = games.get(random.nextInt(games.size()));
+            Set<Integer> exact = new HashSet<>();
+            for (int row : index.exact(game, 10)) {
+                exact.add(row);
+            }
+            for (int row : index.nearest(game, 10)) {
+                found += exact.contains(row) ? 1 : 0;
+            }
+        }
+        assertTrue(found >= 0.95 * 200 * 10, "recall " + found / 2000.0);
+        assertEquals(games.size(), index.nearest(games.get(0), Integer.MAX_VALUE).length);
+        assertEquals(games.size() - 1, new Planner(new HashSet<>(games))
+                .similar(games.get(0), Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testSmallTablesAreSearchedExactly() {
+        List<BoardGame> games = randomGames(500);
+        SimilarityIndex index = new GameTable(games).similarity();
+        assertEquals(0, index.treeCount());
+        for (BoardGame game : games.subList(0, 20)) {
+            assertArrayEquals(index.exact(game, 7), index.nearest(game, 7));
+        }
+        assertEquals(500, index.nearest(games.get(0), 1000).length);
+    }
+
+    @Test
+    public void testSimilarGames() {
+        List<BoardGame> games = new ArrayList<>(randomGames(100));
+        BoardGame game = new BoardGame("Target", 1000, 2, 4, 60, 90, 2.5, 10, 7.5, 2015);
+        games.add(game);
+        games.add(new BoardGame("Twin", 1001, 2, 4, 60, 90, 2.5, 500, 7.5, 2015));
+        games.add(new BoardGame("Close", 1002, 2, 4, 60, 90, 2.6, 600, 7.4, 2016));
+        games.add(new BoardGame("Far", 1003, 8, 20, 5, 10, 5, 700, 1, 1900));
+        IQueryPlanner planner = new Planner(new HashSet<>(games));
+
+        List<BoardGame> similar = planner.similar(game, 2);
+        assertEquals(List.of("Twin", "Close"), similar.stream().map(BoardGame::getName).toList());
+        BoardGame far = planner.similar(game, games.size()).get(games.size() - 2);
+        assertEquals("Far", far.getName());
+        assertEquals(0, planner.similar(game, 0).size());
+        assertThrows(IllegalArgumentException.class, () -> planner.similar(game, -1));
+    }
+}
@@ -0,0 +1,85 @@
+package student;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the slow query log.
+ */
+public class SlowQueryLogTest {
+
+    @TempDir
+    Path dir;
+
+    Planner planner;
+
+    @BeforeEach
+    public void setup() {
+        Set<BoardGame> games = TestGames.numbered(200);
+        planner = new Planner(games);
+    }
+
+    @Test
+    public void testFastFiltersAreNotLogged() {
+        planner.filter("rating>7").count();
+        assertTrue(planner.slowQueryLog().entries().isEmpty());
+    }
+
+    @Test
+    public void testSlowFiltersAreCapturedWithTheirPlan() {
+        SlowQueryLog log = planner.slowQueryLog();
+        log.setThresholdMillis(0);
+        planner.filter("rating >= 8 , minPlayers==1", GameData.RATING, false).count();
+        List<SlowQueryLog.Entry> entries = log.entries();
+        assertEquals(1, entries.size());
+        SlowQueryLog.Entry entry = entries.get(0);
+        assertEquals(GameData.RATING, entry.getSortOn());
+        assertFalse(entry.isAscending());
+        assertEquals(200, entry.getRowsIn());
+        assertEquals(planner.currentResult().size(), entry.getRowsOut());
+        assertTrue(entry.getPlan().contains("actual="));
+        assertTrue(log.dump().contains(entry.getFilter()));
+        log.clear();
+        assertTrue(log.entries().isEmpty());
+    }
+
+    @Test
+    public void testRingBufferKeepsTheMostRecent() {
+        SlowQueryLog log = new SlowQueryLog(0, 3);
+        planner.slowQueryLog().setThresholdMillis(0);
+        for (int i = 0; i < 5; i++) {
+            planner.filter("rank<" + (10 + i)).count();
+        }
+        for (SlowQueryLog.Entry entry : planner.slowQueryLog().entries()) {
+            log.add(entry);
+        }
+        assertEquals(3, log.entries().size());
+        assertTrue(log.entries().get(2).getFilter().equals("rank<=13"));
+    }
+
+    @Test
+    public void testLogFileRotates() throws IOException {
+        Path file = dir.resolve("slow.log");
+        SlowQueryLog log = planner.slowQueryLog();
+        log.setThresholdMillis(0);
+        log.logTo(file, 200, 2);
+        for (int i = 0; i < 10; i++) {
+            planner.filter("rank<" + (10 + i)).count();
+        }
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("slow.log.1")));
+        assertTrue(Files.exists(dir.resolve("slow.log.2")));
+        assertFalse(Files.exists(dir.resolve("slow.log.3")));
+        assertTrue(Files.readString(file).contains("rank<=18"));
+    }
+}
@@ -0,0 +1,85 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for task scopes and the planner's scan limit.
+ */
+public class TaskScopeTest {
+
+    ExecutorService executor = VirtualThreads.newExecutor("test");
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testJoinKeepsForkOrder() throws Exception {
+        try (TaskScope<Integer> scope = new TaskScope<>(executor)) {
+            for (int i = 0; i < 20; i++) {
+                int n = i;
+                scope.fork(() -> {
+                    Thread.sleep(20 - n);
+                    return n * n;
+                });
+            }
+            List<Integer> results = scope.join();
+            assertEquals(20, results.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i * i, (int) results.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testFailureCancelsOthers() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        Future<String> blocked;
+        try (TaskScope<String> scope = new TaskScope<>(executor)) {
+            blocked = scope.fork(() -> {
+                never.await();
+                return "done";
+            });
+            scope.fork(() -> {
+                throw new IllegalArgumentException("bad filter");
+            });
+            ExecutionException e = assertThrows(ExecutionException.class, scope::join);
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            assertThrows(IllegalStateException.class, () -> scope.fork(() -> "late"));
+        }
+        assertTrue(blocked.isCancelled());
+    }
+
+    @Test
+    public void testScanLimitKeepsResults() throws Exception {
+        Set<BoardGame> games = TestGames.numbered(500);
+        Planner planner = new Planner(new GameTable(games, NameCollation.CASE_INSENSITIVE), 1);
+        List<SortCriterion> sort = List.of(new SortCriterion(GameData.RATING, false));
+        List<String> filters = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            filters.add("rank<" + (i * 10) + ",minplayers>" + (i % 3));
+        }
+        try (TaskScope<FilterResult> scope = new TaskScope<>(executor)) {
+            filters.forEach(filter -> scope.fork(() -> planner.query(filter, sort)));
+            List<FilterResult> results = scope.join();
+            for (int i = 0; i < filters.size(); i++) {
+                assertEquals(planner.query(filters.get(i), sort), results.get(i));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Planner(
+                new GameTable(games, NameCollation.CASE_INSENSITIVE), 0));
+    }
+}
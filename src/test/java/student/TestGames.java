@@ -0,0 +1,41 @@
+package student;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Numbered games for tests that need a collection rather than a few hand-written games.
+ * Game i has id i and rank i + 1, and its other attributes cycle, so a filter on any of them
+ * selects a predictable share of the games.
+ */
+final class TestGames {
+
+    private TestGames() {
+    }
+
+    /**
+     * Makes games named "Game 0" to "Game count-1".
+     *
+     * @param count the number of games
+     * @return the games
+     */
+    static Set<BoardGame> numbered(int count) {
+        return numbered(count, count);
+    }
+
+    /**
+     * Makes numbered games whose names repeat, so several games share a name.
+     *
+     * @param count the number of games
+     * @param names the number of distinct names, game i is named "Game (i % names)"
+     * @return the games
+     */
+    static Set<BoardGame> numbered(int count, int names) {
+        Set<BoardGame> games = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            games.add(new BoardGame("Game " + (i % names), i, 1 + i % 4, 4 + i % 4, 30, 60,
+                    1 + i % 3, i + 1, 5 + i % 5, 2000 + i % 20));
+        }
+        return games;
+    }
+}